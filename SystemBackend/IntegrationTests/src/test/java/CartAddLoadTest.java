@@ -0,0 +1,124 @@
+import io.restassured.RestAssured;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.restassured.RestAssured.given;
+import static org.hamcrest.Matchers.notNullValue;
+
+/**
+ * Concurrent load against POST /cart/customer/add, reporting p50/p95/p99 latency.
+ * Run it once before and once after a cart-service change and compare the printed percentiles:
+ * mvn test -Dtest=CartAddLoadTest -Dloadtest=true -Dloadtest.barcode=... -Dloadtest.username=... -Dloadtest.password=...
+ */
+@EnabledIfSystemProperty(named = "loadtest", matches = "true")
+class CartAddLoadTest {
+
+    static final String BASE_URL = System.getProperty("loadtest.baseUrl", "http://localhost:4020/api"); // adjust port if needed
+    static final String username = System.getProperty("loadtest.username", "customer1"); // change to a seeded customer
+    static final String password = System.getProperty("loadtest.password", "password");
+    static final String barcode = System.getProperty("loadtest.barcode", "4791234567890"); // must exist in product-service
+    static final int concurrency = Integer.getInteger("loadtest.concurrency", 50);
+    static final int requests = Integer.getInteger("loadtest.requests", 2000);
+
+    static String token;
+
+    @BeforeAll
+    static void setup() {
+        RestAssured.baseURI = BASE_URL;
+
+        String loginPayload = String.format("""
+            {
+              "username": "%s",
+              "password": "%s"
+            }
+            """, username, password);
+
+        token = given()
+                .contentType("application/json")
+                .body(loginPayload)
+                .post("/customer/auth/login")
+                .then()
+                .statusCode(200)
+                .body("access_token", notNullValue())
+                .extract()
+                .jsonPath()
+                .getString("access_token");
+    }
+
+    @Test
+    void addItem_ConcurrentLoad_ReportsLatencyPercentiles() throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+
+        String body = String.format("""
+            {
+              "barcode": "%s",
+              "quantity": 1,
+              "price": 0
+            }
+            """, barcode);
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(BASE_URL + "/cart/customer/add"))
+                .header("Content-Type", "application/json")
+                .header("Authorization", "Bearer " + token)
+                .timeout(Duration.ofSeconds(30))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+
+        List<Long> latencies = Collections.synchronizedList(new ArrayList<>(requests));
+        AtomicInteger failures = new AtomicInteger();
+        Semaphore inFlight = new Semaphore(concurrency);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < requests; i++) {
+                inFlight.acquire();
+                executor.submit(() -> {
+                    long start = System.nanoTime();
+                    try {
+                        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                        if (response.statusCode() != 200) {
+                            failures.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        latencies.add(System.nanoTime() - start);
+                        inFlight.release();
+                    }
+                });
+            }
+        }
+
+        List<Long> sorted = new ArrayList<>(latencies);
+        Collections.sort(sorted);
+
+        System.out.printf("POST /cart/customer/add: %d requests, concurrency %d, %d failed%n", requests, concurrency, failures.get());
+        System.out.printf("p50 = %.1f ms, p95 = %.1f ms, p99 = %.1f ms, max = %.1f ms%n",
+                percentile(sorted, 50), percentile(sorted, 95), percentile(sorted, 99), sorted.get(sorted.size() - 1) / 1e6);
+
+        Assertions.assertEquals(0, failures.get(), "Some requests failed under load");
+
+        String p99Limit = System.getProperty("loadtest.p99-max-ms");
+        if (p99Limit != null) {
+            Assertions.assertTrue(percentile(sorted, 99) <= Double.parseDouble(p99Limit), "p99 above " + p99Limit + " ms");
+        }
+    }
+
+    private static double percentile(List<Long> sortedNanos, int percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sortedNanos.size()) - 1;
+        return sortedNanos.get(Math.max(0, index)) / 1e6;
+    }
+
+}
@@ -2,8 +2,22 @@ package com.sb.backupservice.repository;
 
 import com.sb.backupservice.model.ProductBackup;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Optional;
 
 @Repository
 public interface ProductBackupRepository extends JpaRepository<ProductBackup, Long> {
+
+    Optional<ProductBackup> findByBarcode(String barcode);
+
+    @Transactional
+    @Modifying
+    @Query("delete from ProductBackup p where p.barcode = :barcode")
+    int deleteByBarcode(@Param("barcode") String barcode);
+
 }
@@ -1,6 +1,12 @@
 package com.sb.backupservice.service;
 
+import com.sb.backupservice.grpc.BulkAddResponse;
+import com.sb.backupservice.grpc.ChangeBatch;
+import com.sb.backupservice.grpc.ChangeBatchResponse;
 import com.sb.backupservice.grpc.DeleteProductRequest;
+import com.sb.backupservice.grpc.FailedChange;
+import com.sb.backupservice.grpc.ProductBatch;
+import com.sb.backupservice.grpc.ProductChange;
 import com.sb.backupservice.grpc.ProductBackupServiceGrpc;
 import com.sb.backupservice.grpc.ProductRequest;
 import com.sb.backupservice.grpc.ProductResponse;
@@ -12,20 +18,37 @@ import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.nio.ByteBuffer;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @GrpcService
 public class ProductBackupService extends ProductBackupServiceGrpc.ProductBackupServiceImplBase {
 
     private final ProductBackupRepository productBackupRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
     private static final Logger logger = LoggerFactory.getLogger(ProductBackupService.class);
 
+    // Plain JDBC so a whole chunk goes out as one batch; JPA would select every row first because the id is assigned
+    private static final String INSERT_BACKUP = "insert into products_backup (id, barcode, product_name, "
+            + "product_description, product_price, product_quantity, product_category, product_brand, product_weight, "
+            + "added_date, product_image) values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
 
-    public ProductBackupService(ProductBackupRepository productBackupRepository) {
+
+    public ProductBackupService(ProductBackupRepository productBackupRepository, JdbcTemplate jdbcTemplate,
+                                TransactionTemplate transactionTemplate) {
         this.productBackupRepository = productBackupRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
     }
 
     @Override
@@ -187,5 +210,172 @@ public class ProductBackupService extends ProductBackupServiceGrpc.ProductBackup
 
     }
 
+    /**
+     * Bulk import from product-service. Every chunk is written as one JDBC batch in its own transaction; when the
+     * batch fails (typically a barcode that is already backed up) the chunk is retried row by row, so only the
+     * offending rows are reported back as failed. The summary is sent when the client completes the stream.
+     */
+    @Override
+    public StreamObserver<ProductBatch> bulkAddProducts(StreamObserver<BulkAddResponse> responseObserver) {
+        logger.info("📦 Opened bulk product backup stream");
+
+        return new StreamObserver<>() {
+            private int saved;
+            private final List<String> failedBarcodes = new ArrayList<>();
+            private boolean aborted;
+
+            @Override
+            public void onNext(ProductBatch batch) {
+                if (aborted) {
+                    return;
+                }
+                try {
+                    saved += saveBatch(batch.getProductsList(), failedBarcodes);
+                } catch (Exception e) {
+                    aborted = true;
+                    logger.error("❌ Bulk backup failed after {} product(s)", saved, e);
+                    responseObserver.onError(Status.INTERNAL
+                            .withDescription("Bulk backup failed after " + saved + " product(s)")
+                            .asRuntimeException());
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                logger.warn("⚠️ Bulk backup stream cancelled by client after {} product(s): {}", saved, t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                if (aborted) {
+                    return;
+                }
+                logger.info("✅ Bulk backup finished: {} saved, {} failed", saved, failedBarcodes.size());
+                responseObserver.onNext(BulkAddResponse.newBuilder()
+                        .setStatus("✅ Bulk backup saved " + saved + " product(s)")
+                        .setSaved(saved)
+                        .addAllFailedBarcodes(failedBarcodes)
+                        .build());
+                responseObserver.onCompleted();
+            }
+        };
+    }
+
+    private int saveBatch(List<ProductRequest> products, List<String> failedBarcodes) {
+        List<Object[]> rows = new ArrayList<>(products.size());
+        List<String> barcodes = new ArrayList<>(products.size());
+        for (ProductRequest request : products) {
+            try {
+                rows.add(toRow(request));
+                barcodes.add(request.getBarcode());
+            } catch (RuntimeException e) {
+                logger.warn("❌ Invalid product in bulk backup, barcode {}: {}", request.getBarcode(), e.getMessage());
+                failedBarcodes.add(request.getBarcode());
+            }
+        }
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(INSERT_BACKUP, rows));
+            return rows.size();
+        } catch (DataIntegrityViolationException e) {
+            logger.warn("⚠️ Bulk backup batch rejected, retrying {} product(s) one by one: {}", rows.size(), e.getMessage());
+        }
+
+        int saved = 0;
+        for (int i = 0; i < rows.size(); i++) {
+            try {
+                jdbcTemplate.update(INSERT_BACKUP, rows.get(i));
+                saved++;
+            } catch (DataIntegrityViolationException e) {
+                failedBarcodes.add(barcodes.get(i));
+            }
+        }
+        return saved;
+    }
+
+    private static Object[] toRow(ProductRequest request) {
+        UUID id = request.getId().isBlank() ? UUID.randomUUID() : UUID.fromString(request.getId());
+        return new Object[]{
+                uuidBytes(id),
+                request.getBarcode(),
+                request.getProductName(),
+                request.getProductDescription(),
+                request.getProductPrice(),
+                request.getProductQuantity(),
+                request.getProductCategory(),
+                request.getProductBrand(),
+                request.getProductWeight(),
+                LocalDateTime.parse(request.getAddedDate()), // Assumes ISO-8601 format
+                request.getProductImageUrl().isBlank() ? null : request.getProductImageUrl()
+        };
+    }
+
+    // Same layout Hibernate uses for a UUID id on MySQL: binary(16), most significant bits first
+    private static byte[] uuidBytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+
+    /**
+     * Applies a batch from product-service's backup outbox in sequence order. The outbox delivers at least once, so
+     * every change is idempotent: add and update upsert by barcode, and deleting a missing product succeeds. Once a
+     * change fails, later changes for the same barcode in the batch are skipped so they are retried in order.
+     */
+    @Override
+    public void replicateChanges(ChangeBatch request, StreamObserver<ChangeBatchResponse> responseObserver) {
+        ChangeBatchResponse.Builder response = ChangeBatchResponse.newBuilder();
+        Set<String> failedBarcodes = new HashSet<>();
+
+        for (ProductChange change : request.getChangesList()) {
+            if (failedBarcodes.contains(change.getBarcode())) {
+                response.addFailed(FailedChange.newBuilder()
+                        .setSequence(change.getSequence())
+                        .setError("Held back by an earlier failed change for this barcode"));
+                continue;
+            }
+            try {
+                applyChange(change);
+                response.addAppliedSequences(change.getSequence());
+            } catch (Exception e) {
+                logger.error("❌ Failed to replicate {} for barcode {}: {}", change.getType(), change.getBarcode(), e.getMessage(), e);
+                failedBarcodes.add(change.getBarcode());
+                response.addFailed(FailedChange.newBuilder()
+                        .setSequence(change.getSequence())
+                        .setError(String.valueOf(e.getMessage())));
+            }
+        }
+
+        logger.info("🔁 Replicated {} change(s), {} failed", response.getAppliedSequencesCount(), response.getFailedCount());
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    private void applyChange(ProductChange change) {
+        switch (change.getType()) {
+            case DELETE -> productBackupRepository.deleteByBarcode(change.getBarcode());
+            case ADD, UPDATE -> {
+                ProductRequest request = change.getProduct();
+                ProductBackup backup = productBackupRepository.findByBarcode(change.getBarcode()).orElseGet(() -> {
+                    ProductBackup created = new ProductBackup();
+                    created.setId(request.getId().isBlank() ? UUID.randomUUID() : UUID.fromString(request.getId()));
+                    return created;
+                });
+                backup.setBarcode(change.getBarcode());
+                backup.setProductName(request.getProductName());
+                backup.setProductDescription(request.getProductDescription());
+                backup.setProductPrice(request.getProductPrice());
+                backup.setProductQuantity(request.getProductQuantity());
+                backup.setProductCategory(request.getProductCategory());
+                backup.setProductBrand(request.getProductBrand());
+                backup.setProductWeight(request.getProductWeight());
+                backup.setAddedDate(LocalDateTime.parse(request.getAddedDate()));
+                backup.setProductImage(request.getProductImageUrl().isBlank() ? null : request.getProductImageUrl());
+                productBackupRepository.save(backup);
+            }
+            default -> throw new IllegalArgumentException("Unknown change type: " + change.getType());
+        }
+    }
 
 }
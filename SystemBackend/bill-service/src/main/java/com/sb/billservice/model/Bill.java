@@ -38,6 +38,9 @@ public class Bill {
     @Enumerated(EnumType.STRING)
     private PaymentMethod paymentMethod = PaymentMethod.PENDING;
 
+    // Highest cart-service running-total sequence reflected in this bill
+    @Column(name = "last_sequence", nullable = false)
+    private Long lastSequence = 0L;
 
     public Long getId() {
         return id;
@@ -103,6 +106,14 @@ public class Bill {
         this.paymentMethod = paymentMethod;
     }
 
+    public Long getLastSequence() {
+        return lastSequence;
+    }
+
+    public void setLastSequence(Long lastSequence) {
+        this.lastSequence = lastSequence;
+    }
+
     public Double getTotalWeight() {
         return totalWeight;
     }
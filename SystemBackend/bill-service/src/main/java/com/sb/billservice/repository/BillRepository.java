@@ -2,7 +2,11 @@ package com.sb.billservice.repository;
 
 import com.sb.billservice.model.Bill;
 import com.sb.billservice.model.BillStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -14,4 +18,9 @@ public interface BillRepository extends JpaRepository<Bill,Long> {
 
     Optional<Bill> findByUsernameAndStatus(String username, BillStatus status);
 
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM Bill b WHERE b.username = :username AND b.status = :status")
+    Optional<Bill> findByUsernameAndStatusForUpdate(@Param("username") String username,
+                                                    @Param("status") BillStatus status);
+
 }
@@ -0,0 +1,113 @@
+package com.sb.billservice.service;
+
+import com.sb.billservice.grpc.BillDelta;
+import com.sb.billservice.model.Bill;
+import com.sb.billservice.model.BillStatus;
+import com.sb.billservice.model.PaymentMethod;
+import com.sb.billservice.repository.BillRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Applies cart-service running-total changes to the user's in-progress bill.
+ * Every change carries a per-user sequence number: anything at or below the bill's last sequence is a replay
+ * and is skipped, the next sequence is added as a delta, and a jump past it is repaired from the absolute totals.
+ */
+@Service
+public class BillDeltaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BillDeltaService.class);
+
+    private final BillRepository billRepository;
+
+    public BillDeltaService(BillRepository billRepository) {
+        this.billRepository = billRepository;
+    }
+
+    /**
+     * @return true if the delta changed the bill, false if it was a replay
+     */
+    @Transactional
+    public boolean applyDelta(BillDelta delta) {
+        Bill bill = lockOrCreateBill(delta.getUsername(), delta.getCartId());
+        long lastSequence = bill.getLastSequence() != null ? bill.getLastSequence() : 0L;
+
+        if (delta.getSequence() <= lastSequence) {
+            logger.info("↩️ Skipping replayed delta #{} for user {} (bill at #{})", delta.getSequence(), delta.getUsername(), lastSequence);
+            return false;
+        }
+
+        if (delta.getSequence() == lastSequence + 1) {
+            bill.setTotalPrice(Math.max(0, bill.getTotalPrice() + delta.getPriceDelta()));
+            bill.setTotalWeight(Math.max(0, bill.getTotalWeight() + delta.getWeightDelta()));
+        } else {
+            logger.warn("⚠️ Sequence gap for user {} (bill at #{}, got #{}), resetting to running totals",
+                    delta.getUsername(), lastSequence, delta.getSequence());
+            bill.setTotalPrice(delta.getTotalPrice());
+            bill.setTotalWeight(delta.getTotalWeight());
+        }
+
+        bill.setLastSequence(delta.getSequence());
+        bill.setDate(LocalDateTime.now());
+        billRepository.save(bill);
+        logger.info("✅ Applied delta #{} ({}) for user {}, bill total now {}",
+                delta.getSequence(), delta.getPriceDelta(), delta.getUsername(), bill.getTotalPrice());
+        return true;
+    }
+
+    /**
+     * Overwrites the bill totals with a full cart snapshot, unless a newer delta has already been applied.
+     *
+     * @return true if the snapshot was applied
+     */
+    @Transactional
+    public boolean applySnapshot(String username, String cartId, double totalPrice, double totalWeight, long sequence) {
+        Bill bill = lockOrCreateBill(username, cartId);
+        long lastSequence = bill.getLastSequence() != null ? bill.getLastSequence() : 0L;
+
+        if (sequence > 0 && sequence < lastSequence) {
+            logger.info("↩️ Skipping stale snapshot #{} for user {} (bill at #{})", sequence, username, lastSequence);
+            return false;
+        }
+
+        bill.setTotalPrice(totalPrice);
+        bill.setTotalWeight(totalWeight);
+        bill.setLastSequence(Math.max(lastSequence, sequence));
+        bill.setDate(LocalDateTime.now());
+        billRepository.save(bill);
+        logger.info("✅ Set bill total to {} for user {}", totalPrice, username);
+        return true;
+    }
+
+    private Bill lockOrCreateBill(String username, String cartId) {
+        return billRepository.findByUsernameAndStatusForUpdate(username, BillStatus.IN_PROGRESS)
+                .orElseGet(() -> {
+                    Bill bill = new Bill();
+                    bill.setUsername(username);
+                    bill.setCartId(parseCartId(cartId));
+                    bill.setTotalPrice(0.0);
+                    bill.setTotalWeight(0.0);
+                    bill.setLastSequence(0L);
+                    bill.setDate(LocalDateTime.now());
+                    bill.setApprovedBy(null); // To be updated during payment phase
+                    bill.setStatus(BillStatus.IN_PROGRESS);
+                    bill.setPaymentMethod(PaymentMethod.PENDING);
+                    logger.info("🆕 Created new bill for user {}", username);
+                    return bill;
+                });
+    }
+
+    // cart-service identifies carts by username, so non-numeric ids are stored as 0
+    private Long parseCartId(String cartId) {
+        try {
+            return Long.parseLong(cartId);
+        } catch (NumberFormatException e) {
+            return 0L;
+        }
+    }
+
+}
@@ -1,15 +1,12 @@
 package com.sb.billservice.service;
 
 import com.sb.backupservice.grpc.*;
+import com.sb.billservice.config.JwtPrincipalResolver;
 import com.sb.billservice.dto.PayBillDTO;
 import com.sb.billservice.dto.ViewBillDTO;
 import com.sb.billservice.model.Bill;
 import com.sb.billservice.model.BillStatus;
 import com.sb.billservice.repository.BillRepository;
-import com.sb.customerservice.grpc.GetUsernameRequest;
-import com.sb.customerservice.grpc.GetUsernameResponse;
-import com.sb.customerservice.grpc.UserInfoServiceGrpc;
-import jakarta.servlet.http.HttpServletRequest;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,47 +22,21 @@ public class BillServiceImpl implements BillService {
 
     private final BillRepository billRepository;
 
-    private final HttpServletRequest request;
+    private final JwtPrincipalResolver principalResolver;
 
-    public BillServiceImpl(BillRepository billRepository, HttpServletRequest request) {
+    public BillServiceImpl(BillRepository billRepository, JwtPrincipalResolver principalResolver) {
         this.billRepository = billRepository;
-        this.request = request;
+        this.principalResolver = principalResolver;
     }
 
     @GrpcClient("bill-backup-service")
     private BillBackupServiceGrpc.BillBackupServiceBlockingStub billBackupService;
 
-    @GrpcClient("customer-service")
-    private UserInfoServiceGrpc.UserInfoServiceBlockingStub userInfoStub;
-
-    /** Helper to extract username from JWT in Authorization header. */
-    private String extractUsernameFromRequest() {
-        String authHeader = request.getHeader("Authorization");
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            logger.error("❌ Missing or invalid Authorization header");
-            throw new SecurityException("Missing or invalid Authorization header");
-        }
-        String jwt = authHeader.substring(7);
-        try {
-            GetUsernameRequest grpcRequest = GetUsernameRequest.newBuilder().setJwt(jwt).build();
-            GetUsernameResponse grpcResponse = userInfoStub.getUsername(grpcRequest);
-            String username = grpcResponse.getUsername();
-            if (username.isEmpty()) {
-                logger.error("❌ Username extraction failed via gRPC for JWT: {}", jwt);
-                throw new SecurityException("Unable to extract username from JWT");
-            }
-            return username;
-        } catch (Exception e) {
-            logger.error("❌ gRPC call failed while extracting username: {}", e.getMessage(), e);
-            throw new SecurityException("Error extracting username from JWT via gRPC", e);
-        }
-    }
-
     @Override
     @Transactional(readOnly = true)
     public ViewBillDTO getBill() {
 
-        String username = extractUsernameFromRequest();
+        String username = principalResolver.resolveUsername();
 
         logger.info("🔍 Fetching IN_PROGRESS bill for user: {}", username);
 
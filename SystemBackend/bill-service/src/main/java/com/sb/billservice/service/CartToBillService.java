@@ -1,93 +1,44 @@
 package com.sb.billservice.service;
 
+import com.sb.billservice.grpc.BillDelta;
+import com.sb.billservice.grpc.BillDeltaAck;
 import com.sb.billservice.grpc.BillRequest;
 import com.sb.billservice.grpc.BillResponse;
 import com.sb.billservice.grpc.BillUpdateServiceGrpc;
-import com.sb.billservice.model.Bill;
-import com.sb.billservice.model.BillStatus;
-import com.sb.billservice.model.PaymentMethod;
-import com.sb.billservice.repository.BillRepository;
 import io.grpc.Status;
 import io.grpc.stub.StreamObserver;
+import net.devh.boot.grpc.server.service.GrpcService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 
-import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.HashMap;
+import java.util.Map;
 
-@Service
+@GrpcService
 public class CartToBillService extends BillUpdateServiceGrpc.BillUpdateServiceImplBase {
 
-    private final BillRepository billRepository;
+    private final BillDeltaService billDeltaService;
     private static final Logger logger = LoggerFactory.getLogger(CartToBillService.class);
 
-    public CartToBillService(BillRepository billRepository) {
-        this.billRepository = billRepository;
+    public CartToBillService(BillDeltaService billDeltaService) {
+        this.billDeltaService = billDeltaService;
     }
 
+    // Full cart snapshot: the totals replace the bill totals rather than being added to them
     @Override
-    @Transactional
     public void updateBill(BillRequest request, StreamObserver<BillResponse> responseObserver) {
 
         String username = request.getUsername();
-        double changeInTotal = request.getTotalPrice();
-        double changeInWeight = request.getTotalWeight();
-        Long cartId = null;
+        logger.info("🧾 Received gRPC snapshot for username: {}, total: {}, sequence: {}", username, request.getTotalPrice(), request.getSequence());
 
         try {
-            cartId = Long.parseLong(request.getCartId());
-        } catch (NumberFormatException e) {
-            logger.error("Invalid cartId format: {}", request.getCartId());
-            responseObserver.onError(Status.INVALID_ARGUMENT.withDescription("Invalid cartId").asRuntimeException());
-            return;
-        }
-
-        logger.info("🧾 Received gRPC update for username: {}, cartId: {}, change: {}", username, cartId, changeInTotal);
-
-        try {
-            Optional<Bill> optionalBill = billRepository.findByUsernameAndStatus(username, BillStatus.IN_PROGRESS);
-
-            if (optionalBill.isPresent()) {
-                Bill bill = optionalBill.get();
-                double newTotal = bill.getTotalPrice() + changeInTotal;
-                double newWeight = bill.getTotalWeight() + changeInWeight;
-
-                if (newTotal <= 0) {
-                    billRepository.delete(bill);
-                    logger.info("💸 Bill total reduced to 0. Deleted bill for user: {}", username);
-                    BillResponse response = BillResponse.newBuilder()
-                            .setStatus("Deleted bill as total became zero for user: " + username)
-                            .build();
-                    responseObserver.onNext(response);
-                    responseObserver.onCompleted();
-                    return;
-                }
+            boolean applied = billDeltaService.applySnapshot(username, request.getCartId(),
+                    request.getTotalPrice(), request.getTotalWeight(), request.getSequence());
 
-
-                bill.setTotalPrice(newTotal);
-                bill.setDate(LocalDateTime.now());
-                bill.setTotalWeight(newWeight);
-                billRepository.save(bill);
-                logger.info("✅ Updated bill total to {} for user {}", newTotal, username);
-            } else {
-                Bill bill = new Bill();
-                bill.setUsername(username);
-                bill.setCartId(cartId);
-                bill.setTotalPrice(changeInTotal);
-                bill.setTotalWeight(changeInWeight);
-                bill.setDate(LocalDateTime.now());
-                bill.setApprovedBy(null); // To be updated during payment phase
-                bill.setStatus(BillStatus.IN_PROGRESS);
-                bill.setPaymentMethod(PaymentMethod.PENDING);
-
-                billRepository.save(bill);
-                logger.info("🆕 Created new bill for user {}", username);
-            }
-
-           BillResponse response = BillResponse.newBuilder()
-                    .setStatus("Bill processed successfully for user: " + username)
+            BillResponse response = BillResponse.newBuilder()
+                    .setStatus(applied
+                            ? "Bill processed successfully for user: " + username
+                            : "Bill already up to date for user: " + username)
                     .build();
             responseObserver.onNext(response);
             responseObserver.onCompleted();
@@ -98,4 +49,46 @@ public class CartToBillService extends BillUpdateServiceGrpc.BillUpdateServiceIm
         }
     }
 
+    // Long-lived stream of signed running-total changes; acknowledged once when the client closes it
+    @Override
+    public StreamObserver<BillDelta> streamBillDeltas(StreamObserver<BillDeltaAck> responseObserver) {
+        return new StreamObserver<>() {
+
+            private final Map<String, Long> lastSequences = new HashMap<>();
+            private int applied;
+            private int skipped;
+
+            @Override
+            public void onNext(BillDelta delta) {
+                try {
+                    if (billDeltaService.applyDelta(delta)) {
+                        applied++;
+                    } else {
+                        skipped++;
+                    }
+                    lastSequences.merge(delta.getUsername(), delta.getSequence(), Math::max);
+                } catch (Exception e) {
+                    // Left out of the ack so the client replays it on the next stream
+                    logger.error("❌ Failed to apply bill delta #{} for user {}: {}", delta.getSequence(), delta.getUsername(), e.getMessage(), e);
+                }
+            }
+
+            @Override
+            public void onError(Throwable t) {
+                logger.warn("⚠️ Bill delta stream aborted by client after {} applied: {}", applied, t.getMessage());
+            }
+
+            @Override
+            public void onCompleted() {
+                responseObserver.onNext(BillDeltaAck.newBuilder()
+                        .setApplied(applied)
+                        .setSkipped(skipped)
+                        .putAllLastSequences(lastSequences)
+                        .build());
+                responseObserver.onCompleted();
+                logger.info("🧾 Bill delta stream closed: {} applied, {} skipped", applied, skipped);
+            }
+        };
+    }
+
 }
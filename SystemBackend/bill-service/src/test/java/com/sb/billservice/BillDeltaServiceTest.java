@@ -0,0 +1,101 @@
+package com.sb.billservice;
+
+import com.sb.billservice.grpc.BillDelta;
+import com.sb.billservice.model.Bill;
+import com.sb.billservice.model.BillStatus;
+import com.sb.billservice.repository.BillRepository;
+import com.sb.billservice.service.BillDeltaService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class BillDeltaServiceTest {
+
+    @Mock
+    private BillRepository billRepository;
+
+    private BillDeltaService billDeltaService;
+
+    private Bill bill;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        billDeltaService = new BillDeltaService(billRepository);
+
+        bill = new Bill();
+        bill.setUsername("alice");
+        bill.setTotalPrice(100.0);
+        bill.setTotalWeight(1.0);
+        bill.setLastSequence(3L);
+        when(billRepository.findByUsernameAndStatusForUpdate("alice", BillStatus.IN_PROGRESS)).thenReturn(Optional.of(bill));
+    }
+
+    private static BillDelta delta(long sequence, double priceDelta, double totalPrice) {
+        return BillDelta.newBuilder()
+                .setUsername("alice")
+                .setCartId("alice")
+                .setSequence(sequence)
+                .setPriceDelta(priceDelta)
+                .setWeightDelta(0.5)
+                .setTotalPrice(totalPrice)
+                .setTotalWeight(9.0)
+                .build();
+    }
+
+    //1. The next sequence number is added to the bill
+    @Test
+    void applyDelta_NextSequence_AddsDelta() {
+        assertThat(billDeltaService.applyDelta(delta(4, 25.0, 999.0))).isTrue();
+
+        assertThat(bill.getTotalPrice()).isEqualTo(125.0);
+        assertThat(bill.getTotalWeight()).isEqualTo(1.5);
+        assertThat(bill.getLastSequence()).isEqualTo(4L);
+        verify(billRepository).save(bill);
+    }
+
+    //2. Replayed deltas leave the bill untouched
+    @Test
+    void applyDelta_ReplayedSequence_IsSkipped() {
+        assertThat(billDeltaService.applyDelta(delta(3, 25.0, 999.0))).isFalse();
+
+        assertThat(bill.getTotalPrice()).isEqualTo(100.0);
+        verify(billRepository, never()).save(any(Bill.class));
+    }
+
+    //3. A gap in sequence numbers resets the bill to the running totals
+    @Test
+    void applyDelta_SequenceGap_UsesRunningTotals() {
+        assertThat(billDeltaService.applyDelta(delta(7, 25.0, 180.0))).isTrue();
+
+        assertThat(bill.getTotalPrice()).isEqualTo(180.0);
+        assertThat(bill.getTotalWeight()).isEqualTo(9.0);
+        assertThat(bill.getLastSequence()).isEqualTo(7L);
+    }
+
+    //4. Snapshots replace the totals instead of being added to them
+    @Test
+    void applySnapshot_NewerSequence_ReplacesTotals() {
+        assertThat(billDeltaService.applySnapshot("alice", "alice", 60.0, 2.0, 5)).isTrue();
+
+        assertThat(bill.getTotalPrice()).isEqualTo(60.0);
+        assertThat(bill.getLastSequence()).isEqualTo(5L);
+    }
+
+    //5. Snapshots older than the last applied delta are ignored
+    @Test
+    void applySnapshot_StaleSequence_IsSkipped() {
+        assertThat(billDeltaService.applySnapshot("alice", "alice", 60.0, 2.0, 2)).isFalse();
+
+        assertThat(bill.getTotalPrice()).isEqualTo(100.0);
+        verify(billRepository, never()).save(any(Bill.class));
+    }
+
+}
@@ -0,0 +1,37 @@
+package com.sb.cartservice.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Configuration
+public class GrpcClientConfig {
+
+    /**
+     * Bounded pool that completes gRPC futures and cache loads, so the number of threads handling downstream
+     * responses is fixed by configuration instead of growing with load. When the queue is full the calling
+     * thread runs the callback itself, which slows producers down instead of dropping work.
+     */
+    @Bean(name = "grpcCallbackExecutor", destroyMethod = "shutdown")
+    public ExecutorService grpcCallbackExecutor(@Value("${cart.grpc.executor-threads:16}") int threads,
+                                                @Value("${cart.grpc.executor-queue:1000}") int queueCapacity) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "cart-grpc-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+}
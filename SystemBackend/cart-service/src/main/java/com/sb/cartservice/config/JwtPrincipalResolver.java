@@ -0,0 +1,181 @@
+package com.sb.cartservice.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.sb.customerservice.grpc.GetUsernameRequest;
+import com.sb.customerservice.grpc.GetUsernameResponse;
+import com.sb.customerservice.grpc.UserInfoServiceGrpc;
+import io.grpc.Deadline;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Keys;
+import jakarta.servlet.http.HttpServletRequest;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Date;
+import java.util.HexFormat;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Resolves the username of the caller from the Bearer token on the current request.
+ * <p>
+ * Tokens are verified in-process (signature and expiry) with the customer-service signing key and
+ * the result is cached by token hash until the token itself expires. Only when no signing key is
+ * configured does it fall back to asking customer-service over gRPC.
+ * <p>
+ * cart-service, bill-service and shoppingList-service each carry this class, identical apart from its package, with
+ * the same test. Each service is built on its own (see its Dockerfile), so there is no shared artifact to put it in;
+ * change all three copies together.
+ */
+@Component
+public class JwtPrincipalResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(JwtPrincipalResolver.class);
+
+    private final HttpServletRequest request;
+
+    // Null when the signing key is unknown to this service
+    private final SecretKey signingKey;
+
+    private final Cache<String, VerifiedToken> verifiedTokens;
+
+    private final Duration callTimeout;
+
+    @GrpcClient("customer-service")
+    private UserInfoServiceGrpc.UserInfoServiceBlockingStub userInfoStub;
+
+    public JwtPrincipalResolver(HttpServletRequest request,
+                                @Value("${spring.application.security.jwt.secret-key:}") String secretKey,
+                                @Value("${spring.application.security.jwt.verified-cache.max-size:50000}") long maxSize,
+                                @Value("${spring.application.security.jwt.grpc-call-timeout:1500ms}") Duration callTimeout) {
+        this.request = request;
+        this.callTimeout = callTimeout;
+        this.signingKey = secretKey.isBlank() ? null : Keys.hmacShaKeyFor(Decoders.BASE64.decode(secretKey));
+        this.verifiedTokens = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new Expiry<String, VerifiedToken>() {
+                    @Override
+                    public long expireAfterCreate(String key, VerifiedToken value, long currentTime) {
+                        return value.remainingNanos();
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return value.remainingNanos();
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, VerifiedToken value, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .build();
+
+        if (signingKey == null) {
+            logger.warn("⚠️ JWT signing key not configured, usernames will be resolved via customer-service gRPC");
+        }
+    }
+
+    /** Returns the username (subject) of the JWT in the Authorization header of the current request. */
+    public String resolveUsername() {
+        return resolveUsername(null);
+    }
+
+    /**
+     * Same as {@link #resolveUsername()}, but a gRPC fallback call is bounded by the per-call timeout and
+     * never outlives the given request deadline.
+     */
+    public String resolveUsername(Deadline requestDeadline) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            logger.error("❌ Missing or invalid Authorization header");
+            throw new SecurityException("Missing or invalid Authorization header");
+        }
+        String jwt = authHeader.substring(7);
+
+        if (signingKey == null) {
+            return fetchUsernameViaGrpc(jwt, requestDeadline);
+        }
+
+        String tokenHash = hash(jwt);
+        VerifiedToken cached = verifiedTokens.getIfPresent(tokenHash);
+        if (cached != null) {
+            return cached.username();
+        }
+
+        Claims claims;
+        try {
+            claims = Jwts.parser()
+                    .verifyWith(signingKey)
+                    .build()
+                    .parseSignedClaims(jwt)
+                    .getPayload();
+        } catch (JwtException | IllegalArgumentException e) {
+            logger.warn("❌ JWT verification failed: {}", e.getMessage());
+            throw new SecurityException("Invalid or expired JWT", e);
+        }
+
+        String username = claims.getSubject();
+        if (username == null || username.isBlank()) {
+            logger.error("❌ JWT has no subject");
+            throw new SecurityException("Unable to extract username from JWT");
+        }
+
+        Date expiration = claims.getExpiration();
+        if (expiration != null) {
+            verifiedTokens.put(tokenHash, new VerifiedToken(username, expiration.getTime()));
+        }
+        return username;
+    }
+
+    private String fetchUsernameViaGrpc(String jwt, Deadline requestDeadline) {
+        try {
+            Deadline deadline = Deadline.after(callTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (requestDeadline != null) {
+                deadline = deadline.minimum(requestDeadline);
+            }
+            GetUsernameRequest grpcRequest = GetUsernameRequest.newBuilder().setJwt(jwt).build();
+            GetUsernameResponse grpcResponse = userInfoStub.withDeadline(deadline).getUsername(grpcRequest);
+            String username = grpcResponse.getUsername();
+            if (username.isEmpty()) {
+                logger.error("❌ Username extraction failed via gRPC");
+                throw new SecurityException("Unable to extract username from JWT");
+            }
+            return username;
+        } catch (SecurityException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("❌ gRPC call failed while extracting username: {}", e.getMessage(), e);
+            throw new SecurityException("Error extracting username from JWT via gRPC", e);
+        }
+    }
+
+    private static String hash(String jwt) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private record VerifiedToken(String username, long expiresAtMillis) {
+
+        long remainingNanos() {
+            return TimeUnit.MILLISECONDS.toNanos(Math.max(0, expiresAtMillis - System.currentTimeMillis()));
+        }
+    }
+
+}
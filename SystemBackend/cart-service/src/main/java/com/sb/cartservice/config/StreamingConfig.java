@@ -0,0 +1,27 @@
+package com.sb.cartservice.config;
+
+import org.apache.coyote.AbstractProtocol;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class StreamingConfig {
+
+    /**
+     * Every open /cart/customer/stream holds a connection (but no thread), so allow far more connections than
+     * Tomcat's default of 8192.
+     */
+    @Bean
+    public WebServerFactoryCustomizer<TomcatServletWebServerFactory> streamingConnectionsCustomizer(
+            @Value("${cart.stream.max-connections:50000}") int maxConnections) {
+        return factory -> factory.addConnectorCustomizers(connector -> {
+            if (connector.getProtocolHandler() instanceof AbstractProtocol<?> protocol) {
+                protocol.setMaxConnections(maxConnections);
+            }
+        });
+    }
+
+}
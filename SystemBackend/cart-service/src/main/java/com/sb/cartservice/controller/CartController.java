@@ -1,5 +1,6 @@
 package com.sb.cartservice.controller;
 
+import com.sb.cartservice.dto.CartBatchResultDTO;
 import com.sb.cartservice.dto.CartDTO;
 import com.sb.cartservice.dto.ProductDTO;
 import com.sb.cartservice.dto.UserCartSummaryDTO;
@@ -7,10 +8,13 @@ import com.sb.cartservice.service.CartService;
 import com.sb.productservice.grpc.ProductDetailsResponse;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/cart")
@@ -50,6 +54,12 @@ public class CartController {
     }
 
 
+    // 📡 Live cart updates (Server-Sent Events): a snapshot first, then line and totals changes as they commit
+    @GetMapping(value = "/customer/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamUpdates() {
+        return cartService.subscribeToUpdates();
+    }
+
     // 🔍 Get all cart items for all users
     @GetMapping("/customer/all")
     public ResponseEntity<?> getAllItems() {
@@ -83,6 +93,19 @@ public class CartController {
         }
     }
 
+    // ➕ Add several items at once (e.g. scans replayed after a reconnect), with a result per item
+    @PostMapping("/customer/add-batch")
+    public ResponseEntity<?> addItemsBatch(@RequestBody List<CartDTO> items) {
+        try {
+            CartBatchResultDTO result = cartService.addItemsBatch(items);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Failed to add items: " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Failed to add items: " + e.getMessage());
+        }
+    }
+
     // 🔄 Update an existing cart item
     @PutMapping("/customer/update")
     public ResponseEntity<?> updateItem(@RequestBody @Valid CartDTO item) {
@@ -127,4 +150,40 @@ public class CartController {
         }
     }
 
+    // 🔗 Start using a physical cart: its barcode scans are added to the caller's cart
+    @PostMapping("/customer/device/{deviceId}/pair")
+    public ResponseEntity<?> pairDevice(@PathVariable String deviceId) {
+        try {
+            cartService.pairDevice(deviceId);
+            return ResponseEntity.ok("Device " + deviceId + " paired successfully");
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Failed to pair device " + deviceId + ": " + e.getMessage());
+        }
+    }
+
+    // 🔓 Stop using a physical cart
+    @DeleteMapping("/customer/device/{deviceId}/pair")
+    public ResponseEntity<?> unpairDevice(@PathVariable String deviceId) {
+        try {
+            cartService.unpairDevice(deviceId);
+            return ResponseEntity.ok("Device " + deviceId + " released successfully");
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Failed to release device " + deviceId + ": " + e.getMessage());
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body("Failed to release device " + deviceId + ": " + e.getMessage());
+        }
+    }
+
+    // 📊 Product details cache statistics (hits, misses, evictions)
+    @GetMapping("/auth/product-cache/stats")
+    public ResponseEntity<Map<String, Object>> getProductCacheStats() {
+        return ResponseEntity.ok(cartService.getProductCacheStats());
+    }
+
+    // 📊 Open cart update streams
+    @GetMapping("/auth/stream/stats")
+    public ResponseEntity<Map<String, Object>> getStreamStats() {
+        return ResponseEntity.ok(cartService.getStreamStats());
+    }
+
 }
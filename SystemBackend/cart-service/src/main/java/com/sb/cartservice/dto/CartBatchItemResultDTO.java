@@ -0,0 +1,65 @@
+package com.sb.cartservice.dto;
+
+public class CartBatchItemResultDTO {
+
+    private int index;
+
+    private String barcode;
+
+    private boolean success;
+
+    private String message;
+
+    private CartDTO item;
+
+    public CartBatchItemResultDTO() {
+    }
+
+    public CartBatchItemResultDTO(int index, String barcode, boolean success, String message, CartDTO item) {
+        this.index = index;
+        this.barcode = barcode;
+        this.success = success;
+        this.message = message;
+        this.item = item;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public void setIndex(int index) {
+        this.index = index;
+    }
+
+    public String getBarcode() {
+        return barcode;
+    }
+
+    public void setBarcode(String barcode) {
+        this.barcode = barcode;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    public void setSuccess(boolean success) {
+        this.success = success;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public void setMessage(String message) {
+        this.message = message;
+    }
+
+    public CartDTO getItem() {
+        return item;
+    }
+
+    public void setItem(CartDTO item) {
+        this.item = item;
+    }
+}
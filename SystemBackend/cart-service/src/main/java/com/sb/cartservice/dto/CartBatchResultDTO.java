@@ -0,0 +1,36 @@
+package com.sb.cartservice.dto;
+
+import java.util.List;
+
+public class CartBatchResultDTO {
+
+    private int added;
+
+    private int failed;
+
+    private List<CartBatchItemResultDTO> results;
+
+    public int getAdded() {
+        return added;
+    }
+
+    public void setAdded(int added) {
+        this.added = added;
+    }
+
+    public int getFailed() {
+        return failed;
+    }
+
+    public void setFailed(int failed) {
+        this.failed = failed;
+    }
+
+    public List<CartBatchItemResultDTO> getResults() {
+        return results;
+    }
+
+    public void setResults(List<CartBatchItemResultDTO> results) {
+        this.results = results;
+    }
+}
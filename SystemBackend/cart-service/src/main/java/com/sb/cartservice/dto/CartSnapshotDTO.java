@@ -0,0 +1,33 @@
+package com.sb.cartservice.dto;
+
+import java.util.List;
+
+public class CartSnapshotDTO {
+
+    private List<CartDTO> items;
+    private CartTotalsDTO totals;
+
+    public CartSnapshotDTO() {}
+
+    public CartSnapshotDTO(List<CartDTO> items, CartTotalsDTO totals) {
+        this.items = items;
+        this.totals = totals;
+    }
+
+    public List<CartDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<CartDTO> items) {
+        this.items = items;
+    }
+
+    public CartTotalsDTO getTotals() {
+        return totals;
+    }
+
+    public void setTotals(CartTotalsDTO totals) {
+        this.totals = totals;
+    }
+
+}
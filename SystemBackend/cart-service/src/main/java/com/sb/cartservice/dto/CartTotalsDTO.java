@@ -0,0 +1,41 @@
+package com.sb.cartservice.dto;
+
+public class CartTotalsDTO {
+
+    private double totalPrice;
+    private double totalWeight;
+    private long sequence; // same sequence bill-service applies, so clients can drop stale totals
+
+    public CartTotalsDTO() {}
+
+    public CartTotalsDTO(double totalPrice, double totalWeight, long sequence) {
+        this.totalPrice = totalPrice;
+        this.totalWeight = totalWeight;
+        this.sequence = sequence;
+    }
+
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(double totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public double getTotalWeight() {
+        return totalWeight;
+    }
+
+    public void setTotalWeight(double totalWeight) {
+        this.totalWeight = totalWeight;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(long sequence) {
+        this.sequence = sequence;
+    }
+
+}
@@ -0,0 +1,41 @@
+package com.sb.cartservice.kafka;
+
+import com.sb.cartservice.service.ProductDetailsCache;
+import com.sb.events.ProductEvent;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.kafka.annotation.KafkaListener;
+import org.springframework.stereotype.Component;
+
+@Component
+public class KafkaConsumer {
+
+    private final ProductDetailsCache productDetailsCache;
+
+    private static final Logger logger = LoggerFactory.getLogger(KafkaConsumer.class);
+
+    public KafkaConsumer(ProductDetailsCache productDetailsCache) {
+        this.productDetailsCache = productDetailsCache;
+    }
+
+    // Every cart-service instance holds its own cache, so each one needs its own consumer group
+    @KafkaListener(
+            topics = "product-events",
+            groupId = "cart-product-cache-#{T(java.util.UUID).randomUUID()}",
+            properties = {
+                    "key.deserializer=org.apache.kafka.common.serialization.StringDeserializer",
+                    "value.deserializer=org.apache.kafka.common.serialization.ByteArrayDeserializer",
+                    "auto.offset.reset=latest"
+            })
+    public void consumeProductEvent(ConsumerRecord<String, byte[]> record) {
+        try {
+            ProductEvent event = ProductEvent.parseFrom(record.value());
+            logger.info("Received Kafka {} event for barcode: {}", event.getChangeType(), event.getBarcode());
+            productDetailsCache.invalidate(event.getBarcode());
+        } catch (Exception e) {
+            logger.error("Failed to handle product-events Kafka message", e);
+        }
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.sb.cartservice.kafka;
+
+import com.sb.events.WeightMismatchEvent;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+@Service
+public class KafkaProducer {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    public KafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    public void sendWeightMismatchEvent(String topic, WeightMismatchEvent weightMismatchEvent) {
+        byte[] messageBytes = weightMismatchEvent.toByteArray(); // Protobuf serialization
+        kafkaTemplate.send(topic, weightMismatchEvent.getDeviceId(), messageBytes);
+    }
+
+}
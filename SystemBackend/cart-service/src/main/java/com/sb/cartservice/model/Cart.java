@@ -3,17 +3,20 @@ package com.sb.cartservice.model;
 import jakarta.persistence.*;
 
 @Entity
-@Table(name = "cart")
+@Table(name = "cart", indexes = {
+        // One line per product per shopper; the user_id prefix also serves findByUserId
+        @Index(name = "ux_cart_user_barcode", columnList = "user_id, barcode", unique = true)
+})
 public class Cart {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @Column(name = "name", nullable = false)
     private String name;
 
-    @Column(name = "barcode", unique = true, nullable = false)
+    @Column(name = "barcode", nullable = false)
     private String barcode;
 
     @Column(name = "quantity", nullable = false)
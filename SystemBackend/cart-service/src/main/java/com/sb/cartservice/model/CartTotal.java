@@ -0,0 +1,54 @@
+package com.sb.cartservice.model;
+
+import jakarta.persistence.*;
+
+@Entity
+@Table(name = "cart_totals")
+public class CartTotal {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private String userId;
+
+    @Column(name = "total_price", nullable = false)
+    private Double totalPrice;
+
+    @Column(name = "total_weight", nullable = false)
+    private Double totalWeight;
+
+    // Incremented with every change so bill-service can drop replays and detect gaps
+    @Column(name = "sequence", nullable = false)
+    private Long sequence;
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public void setUserId(String userId) {
+        this.userId = userId;
+    }
+
+    public Double getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(Double totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public Double getTotalWeight() {
+        return totalWeight;
+    }
+
+    public void setTotalWeight(Double totalWeight) {
+        this.totalWeight = totalWeight;
+    }
+
+    public Long getSequence() {
+        return sequence;
+    }
+
+    public void setSequence(Long sequence) {
+        this.sequence = sequence;
+    }
+}
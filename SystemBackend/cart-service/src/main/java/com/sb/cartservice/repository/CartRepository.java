@@ -2,11 +2,34 @@ package com.sb.cartservice.repository;
 
 import com.sb.cartservice.model.Cart;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
-public interface CartRepository extends JpaRepository<Cart,Long> {
+public interface CartRepository extends JpaRepository<Cart,Long>, CartRepositoryCustom {
 
     List<Cart> findByUserId(String userId);
 
+    Optional<Cart> findByUserIdAndBarcode(String userId, String barcode);
+
+    List<Cart> findByUserIdAndBarcodeIn(String userId, Collection<String> barcodes);
+
+    // Inserts the line or atomically adds to the existing (user_id, barcode) line in a single statement
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO cart (user_id, barcode, name, quantity, price, weight) " +
+            "VALUES (:userId, :barcode, :name, :quantity, :price, :weight) " +
+            "ON DUPLICATE KEY UPDATE name = :name, quantity = quantity + :quantity, " +
+            "price = price + :price, weight = weight + :weight",
+            nativeQuery = true)
+    int upsertItem(@Param("userId") String userId,
+                   @Param("barcode") String barcode,
+                   @Param("name") String name,
+                   @Param("quantity") int quantity,
+                   @Param("price") double price,
+                   @Param("weight") double weight);
+
 }
@@ -0,0 +1,16 @@
+package com.sb.cartservice.repository;
+
+import com.sb.cartservice.model.Cart;
+
+import java.util.Collection;
+
+public interface CartRepositoryCustom {
+
+    /**
+     * Folds every line into its (user_id, barcode) row, inserting the rows that do not exist yet, in one JDBC batch.
+     * Lines for the same barcode are merged first, and rows are written in barcode order so concurrent batches for
+     * one shopper lock them in the same order.
+     */
+    int[] upsertItems(Collection<Cart> lines);
+
+}
@@ -0,0 +1,60 @@
+package com.sb.cartservice.repository;
+
+import com.sb.cartservice.model.Cart;
+import jakarta.persistence.EntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class CartRepositoryCustomImpl implements CartRepositoryCustom {
+
+    // Same statement as CartRepository.upsertItem, with the increments bound twice instead of by name
+    static final String UPSERT_ITEM = "INSERT INTO cart (user_id, barcode, name, quantity, price, weight) " +
+            "VALUES (?, ?, ?, ?, ?, ?) " +
+            "ON DUPLICATE KEY UPDATE name = ?, quantity = quantity + ?, price = price + ?, weight = weight + ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final EntityManager entityManager;
+
+    public CartRepositoryCustomImpl(JdbcTemplate jdbcTemplate, EntityManager entityManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.entityManager = entityManager;
+    }
+
+    @Override
+    public int[] upsertItems(Collection<Cart> lines) {
+        Map<String, Object[]> rows = new TreeMap<>();
+        for (Cart line : lines) {
+            String key = line.getUserId() + '\u0000' + line.getBarcode();
+            Object[] row = rows.get(key);
+            if (row == null) {
+                rows.put(key, new Object[]{line.getUserId(), line.getBarcode(), line.getName(),
+                        line.getQuantity(), line.getPrice(), line.getWeight()});
+            } else {
+                row[2] = line.getName();
+                row[3] = (Integer) row[3] + line.getQuantity();
+                row[4] = (Double) row[4] + line.getPrice();
+                row[5] = (Double) row[5] + line.getWeight();
+            }
+        }
+        if (rows.isEmpty()) {
+            return new int[0];
+        }
+        List<Object[]> args = new ArrayList<>(rows.size());
+        for (Object[] row : rows.values()) {
+            args.add(new Object[]{row[0], row[1], row[2], row[3], row[4], row[5], row[2], row[3], row[4], row[5]});
+        }
+
+        // Like @Modifying(flushAutomatically, clearAutomatically): no pending JPA writes are reordered past the
+        // batch, and no cached Cart is read back stale after it
+        entityManager.flush();
+        int[] counts = jdbcTemplate.batchUpdate(UPSERT_ITEM, args);
+        entityManager.clear();
+        return counts;
+    }
+
+}
@@ -0,0 +1,22 @@
+package com.sb.cartservice.repository;
+
+import com.sb.cartservice.model.CartTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+public interface CartTotalRepository extends JpaRepository<CartTotal, String> {
+
+    // Adds a signed change to the user's running totals and bumps the sequence in a single statement
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query(value = "INSERT INTO cart_totals (user_id, total_price, total_weight, sequence) " +
+            "VALUES (:userId, :priceDelta, :weightDelta, 1) " +
+            "ON DUPLICATE KEY UPDATE total_price = total_price + :priceDelta, " +
+            "total_weight = total_weight + :weightDelta, sequence = sequence + 1",
+            nativeQuery = true)
+    int addDelta(@Param("userId") String userId,
+                 @Param("priceDelta") double priceDelta,
+                 @Param("weightDelta") double weightDelta);
+
+}
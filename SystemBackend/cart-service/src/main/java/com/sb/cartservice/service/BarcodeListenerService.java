@@ -1,96 +1,181 @@
-//package com.sb.cartservice.service;
-//
-//import com.sb.cartservice.config.SslUtil;
-//import jakarta.annotation.PostConstruct;
-//import jakarta.annotation.PreDestroy;
-//import org.eclipse.paho.client.mqttv3.MqttClient;
-//import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
-//import org.slf4j.Logger;
-//import org.slf4j.LoggerFactory;
-//import org.springframework.beans.factory.annotation.Value;
-//import org.springframework.stereotype.Service;
-//
-//import javax.net.ssl.SSLSocketFactory;
-//import java.io.InputStream;
-//import java.util.Map;
-//import java.util.UUID;
-//import java.util.concurrent.ConcurrentHashMap;
-//
-//@Service
-//public class BarcodeListenerService {
-//
-//    private static final Logger logger = LoggerFactory.getLogger(BarcodeListenerService.class);
-//
-//    private MqttClient mqttClient;
-//
-//    // Temporary barcode store (e.g., deviceId -> barcode)
-//    private final Map<String, String> barcodeCache = new ConcurrentHashMap<>();
-//
-//    @Value("${aws.iot.endpoint}")
-//    private String endpoint;
-//
-//    @Value("${aws.iot.clientId}")
-//    private String clientId;
-//
-//    @Value("${aws.iot.topic}")
-//    private String topic;
-//
-//    @PostConstruct
-//    public void init() {
-//        try {
-//            String brokerUrl = "ssl://" + endpoint + ":8883";
-//
-//            InputStream ca = getClass().getClassLoader().getResourceAsStream("certs/AmazonRootCA1.pem");
-//            InputStream cert = getClass().getClassLoader().getResourceAsStream("certs/certificate.pem.crt");
-//            InputStream key = getClass().getClassLoader().getResourceAsStream("certs/private.pem.key");
-//
-//            SSLSocketFactory socketFactory = SslUtil.getSocketFactory(ca, cert, key);
-//
-//            mqttClient = new MqttClient(brokerUrl, clientId + "-" + UUID.randomUUID(), null);
-//
-//            MqttConnectOptions connOpts = new MqttConnectOptions();
-//            connOpts.setSocketFactory(socketFactory);
-//            connOpts.setCleanSession(true);
-//
-//            mqttClient.connect(connOpts);
-//            logger.info("✅ Connected to AWS IoT Core");
-//
-//            mqttClient.subscribe(topic, (t, msg) -> {
-//                String payload = new String(msg.getPayload());
-//                logger.info("📦 Received barcode payload: {}", payload);
-//
-//                // Example: assume payload is the raw barcode value
-//                barcodeCache.put("default", payload); // "default" could be a device ID
-//                logger.info("✅ Barcode cached: {}", payload);
-//            });
-//
-//            logger.info("📡 Subscribed to topic: {}", topic);
-//
-//        } catch (Exception e) {
-//            logger.error("❌ Failed to connect to AWS IoT Core: {}", e.getMessage(), e);
-//        }
-//    }
-//
-//    @PreDestroy
-//    public void cleanup() {
-//        try {
-//            if (mqttClient != null && mqttClient.isConnected()) {
-//                mqttClient.disconnect();
-//                mqttClient.close();
-//                logger.info("🛑 Disconnected from AWS IoT Core.");
-//            }
-//        } catch (Exception e) {
-//            logger.warn("⚠️ Error while disconnecting MQTT client", e);
-//        }
-//    }
-//
-//    // Getter to retrieve cached barcode (e.g., for product submission)
-//    public String getLatestBarcode() {
-//        return barcodeCache.get("default"); // can expand to use deviceId if needed
-//    }
-//
-//    public void clearLatestBarcode() {
-//        barcodeCache.remove("default");
-//    }
-//
-//}
+package com.sb.cartservice.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.cartservice.config.SslUtil;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/**
+ * Subscribes to barcode scans published by the cart devices (topic products/barcode/{deviceId}, payload
+ * {"barcode": "..."} or the raw barcode) and hands them to the {@link ScanIngestionPipeline}. Load-cell readings
+ * (topic products/weight/{deviceId}, payload {"weight": 1234.5} or the raw number) go to the
+ * {@link WeightReconciliationEngine}.
+ * <p>
+ * Connects to cart.mqtt.broker-url when set (e.g. tcp://localhost:1883), otherwise to AWS IoT Core over
+ * mutual TLS with the certificates under certs/. With neither configured, ingestion stays off.
+ */
+@Service
+public class BarcodeListenerService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BarcodeListenerService.class);
+
+    private final ScanIngestionPipeline scanIngestionPipeline;
+    private final WeightReconciliationEngine weightEngine;
+    private final ObjectMapper objectMapper;
+
+    private MqttClient mqttClient;
+
+    @Value("${cart.mqtt.broker-url:}")
+    private String brokerUrl;
+
+    @Value("${aws.iot.endpoint:}")
+    private String endpoint;
+
+    @Value("${aws.iot.clientId:cart-service}")
+    private String clientId;
+
+    @Value("${aws.iot.topic:products/barcode/+}")
+    private String topic;
+
+    @Value("${aws.iot.weight-topic:products/weight/+}")
+    private String weightTopic;
+
+    @Value("${cart.mqtt.qos:1}")
+    private int qos;
+
+    public BarcodeListenerService(ScanIngestionPipeline scanIngestionPipeline, WeightReconciliationEngine weightEngine,
+                                  ObjectMapper objectMapper) {
+        this.scanIngestionPipeline = scanIngestionPipeline;
+        this.weightEngine = weightEngine;
+        this.objectMapper = objectMapper;
+    }
+
+    @PostConstruct
+    public void init() {
+        try {
+            MqttConnectOptions connOpts = new MqttConnectOptions();
+            connOpts.setCleanSession(true);
+            connOpts.setAutomaticReconnect(true);
+
+            String url;
+            if (!brokerUrl.isBlank()) {
+                url = brokerUrl;
+            } else if (!endpoint.isBlank()) {
+                url = "ssl://" + endpoint + ":8883";
+
+                InputStream ca = getClass().getClassLoader().getResourceAsStream("certs/AmazonRootCA1.pem");
+                InputStream cert = getClass().getClassLoader().getResourceAsStream("certs/certificate.pem.crt");
+                InputStream key = getClass().getClassLoader().getResourceAsStream("certs/private.pem.key");
+                connOpts.setSocketFactory(SslUtil.getSocketFactory(ca, cert, key));
+            } else {
+                logger.warn("⚠️ No MQTT broker configured, barcode ingestion is disabled");
+                return;
+            }
+
+            mqttClient = new MqttClient(url, clientId + "-" + UUID.randomUUID(), new MemoryPersistence());
+            mqttClient.setCallback(new MqttCallbackExtended() {
+                @Override
+                public void connectComplete(boolean reconnect, String serverURI) {
+                    // Clean sessions drop subscriptions, so subscribe again after every (re)connect
+                    try {
+                        mqttClient.subscribe(new String[]{topic, weightTopic}, new int[]{qos, 0});
+                        logger.info("📡 Subscribed to topics: {}, {} ({})", topic, weightTopic, reconnect ? "reconnected" : "connected");
+                    } catch (MqttException e) {
+                        logger.error("❌ Failed to subscribe to {}, {}: {}", topic, weightTopic, e.getMessage(), e);
+                    }
+                }
+
+                @Override
+                public void connectionLost(Throwable cause) {
+                    logger.warn("⚠️ MQTT connection lost, reconnecting: {}", cause.getMessage());
+                }
+
+                @Override
+                public void messageArrived(String messageTopic, MqttMessage message) {
+                    handleMessage(messageTopic, message.getPayload());
+                }
+
+                @Override
+                public void deliveryComplete(IMqttDeliveryToken token) {
+                }
+            });
+
+            mqttClient.connect(connOpts);
+            logger.info("✅ Connected to MQTT broker {}", url);
+
+        } catch (Exception e) {
+            logger.error("❌ Failed to connect to MQTT broker: {}", e.getMessage(), e);
+        }
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        try {
+            if (mqttClient != null && mqttClient.isConnected()) {
+                mqttClient.disconnect();
+                mqttClient.close();
+                logger.info("🛑 Disconnected from MQTT broker.");
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Error while disconnecting MQTT client", e);
+        }
+    }
+
+    // Runs on the MQTT callback thread, which carries scans and weights alike, so nothing here may block
+    void handleMessage(String messageTopic, byte[] payload) {
+        String deviceId = messageTopic.substring(messageTopic.lastIndexOf('/') + 1);
+        if (messageTopic.regionMatches(0, weightTopic, 0, weightTopic.lastIndexOf('/') + 1)) {
+            handleWeight(deviceId, payload);
+            return;
+        }
+        String barcode = parseBarcode(payload);
+        if (barcode == null || barcode.isBlank()) {
+            logger.warn("⚠️ Ignoring message without barcode from device {}", deviceId);
+            return;
+        }
+        logger.info("📦 Received barcode {} from device {}", barcode, deviceId);
+        scanIngestionPipeline.accept(deviceId, barcode);
+    }
+
+    // Readings arrive ~10 times a second per cart, so no logging or payload copies on the happy path
+    private void handleWeight(String deviceId, byte[] payload) {
+        float weight = WeightPayload.parse(payload);
+        if (!Float.isFinite(weight)) {
+            logger.warn("⚠️ Ignoring message without weight from device {}: {}", deviceId,
+                    new String(payload, StandardCharsets.UTF_8));
+            return;
+        }
+        weightEngine.onReading(deviceId, weight);
+    }
+
+    private String parseBarcode(byte[] payload) {
+        String text = new String(payload, StandardCharsets.UTF_8).trim();
+        if (!text.startsWith("{")) {
+            return text;
+        }
+        try {
+            JsonNode node = objectMapper.readTree(text).get("barcode");
+            return node != null ? node.asText().trim() : null;
+        } catch (Exception e) {
+            logger.warn("⚠️ Malformed barcode payload: {}", text);
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.sb.cartservice.service;
+
+import com.sb.billservice.grpc.BillDelta;
+import com.sb.billservice.grpc.BillDeltaAck;
+import com.sb.billservice.grpc.BillUpdateServiceGrpc;
+import io.grpc.stub.StreamObserver;
+import jakarta.annotation.PreDestroy;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pushes running-total deltas to bill-service over a client-streaming StreamBillDeltas call.
+ * The stream is closed on every ack interval so bill-service can acknowledge what it applied; until then the latest
+ * delta per user is kept and replayed on a new stream if the call fails. Because each delta also carries the running
+ * totals, replaying only the latest one per user is enough for bill-service to catch up. bill-service leaves a delta it
+ * failed to apply out of the ack, so one still pending after its stream was acknowledged is replayed as well.
+ */
+@Service
+public class BillDeltaStreamer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BillDeltaStreamer.class);
+
+    private final Map<String, BillDelta> unacknowledged = new HashMap<>();
+
+    private StreamObserver<BillDelta> requestStream;
+    private long streamGeneration;
+    private Map<String, Long> sentOnStream = new HashMap<>(); // latest sequence per user written to the open stream
+    private boolean replayNeeded;
+
+    @GrpcClient("bill-update-service")
+    private BillUpdateServiceGrpc.BillUpdateServiceStub billUpdateServiceStub;
+
+    public synchronized void send(BillDelta delta) {
+        unacknowledged.merge(delta.getUsername(), delta,
+                (current, next) -> next.getSequence() > current.getSequence() ? next : current);
+        if (replayNeeded) {
+            return; // picked up by the next flush
+        }
+        try {
+            stream().onNext(delta);
+            sentOnStream.merge(delta.getUsername(), delta.getSequence(), Math::max);
+        } catch (Exception e) {
+            logger.error("❌ Failed to stream bill delta #{} for user {}: {}", delta.getSequence(), delta.getUsername(), e.getMessage());
+            resetStream();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.bill-stream.ack-interval:5000}")
+    public synchronized void flush() {
+        if (replayNeeded && !unacknowledged.isEmpty()) {
+            replayNeeded = false;
+            logger.info("🔁 Replaying {} unacknowledged bill delta(s)", unacknowledged.size());
+            try {
+                for (BillDelta delta : unacknowledged.values()) {
+                    stream().onNext(delta);
+                    sentOnStream.merge(delta.getUsername(), delta.getSequence(), Math::max);
+                }
+            } catch (Exception e) {
+                logger.error("❌ Bill delta replay failed: {}", e.getMessage());
+                resetStream();
+                return;
+            }
+        }
+        if (requestStream != null && !sentOnStream.isEmpty()) {
+            requestStream.onCompleted();
+            requestStream = null;
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (requestStream != null) {
+            requestStream.onCompleted();
+            requestStream = null;
+        }
+    }
+
+    private StreamObserver<BillDelta> stream() {
+        if (requestStream == null) {
+            long generation = ++streamGeneration;
+            Map<String, Long> sent = new HashMap<>();
+            sentOnStream = sent;
+            requestStream = billUpdateServiceStub.streamBillDeltas(new StreamObserver<>() {
+                @Override
+                public void onNext(BillDeltaAck ack) {
+                    acknowledge(ack, sent);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    streamFailed(generation, t);
+                }
+
+                @Override
+                public void onCompleted() {
+                }
+            });
+        }
+        return requestStream;
+    }
+
+    // A delta sent on the acknowledged stream and still pending was not applied; anything newer went out on a later stream
+    private synchronized void acknowledge(BillDeltaAck ack, Map<String, Long> sent) {
+        ack.getLastSequencesMap().forEach((username, sequence) ->
+                unacknowledged.computeIfPresent(username, (user, pending) -> pending.getSequence() <= sequence ? null : pending));
+        long notApplied = sent.entrySet().stream()
+                .filter(e -> unacknowledged.containsKey(e.getKey()) && unacknowledged.get(e.getKey()).getSequence() <= e.getValue())
+                .count();
+        if (notApplied > 0) {
+            logger.warn("⚠️ {} bill delta(s) not applied by bill-service, will replay", notApplied);
+            replayNeeded = true;
+        }
+        logger.info("🧾 Bill deltas acknowledged: {} applied, {} skipped, {} pending", ack.getApplied(), ack.getSkipped(), unacknowledged.size());
+    }
+
+    private synchronized void streamFailed(long generation, Throwable t) {
+        logger.warn("⚠️ Bill delta stream failed, will replay: {}", t.getMessage());
+        if (generation == streamGeneration) {
+            requestStream = null;
+        }
+        replayNeeded = true;
+    }
+
+    private void resetStream() {
+        if (requestStream != null) {
+            try {
+                requestStream.onError(new IllegalStateException("Bill delta stream reset"));
+            } catch (Exception ignored) {
+                // already closed
+            }
+        }
+        requestStream = null;
+        replayNeeded = true;
+    }
+
+}
@@ -0,0 +1,57 @@
+package com.sb.cartservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Which shopper is currently using which physical cart (MQTT device id, e.g. "cart001").
+ */
+@Component
+public class CartDeviceRegistry {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartDeviceRegistry.class);
+
+    private final Map<String, String> usersByDevice = new ConcurrentHashMap<>();
+    private final Map<String, String> devicesByUser = new ConcurrentHashMap<>();
+
+    public synchronized void pair(String deviceId, String userId) {
+        String previousDevice = devicesByUser.put(userId, deviceId);
+        if (previousDevice != null && !previousDevice.equals(deviceId)) {
+            usersByDevice.remove(previousDevice, userId); // a shopper uses one cart at a time
+        }
+        String previous = usersByDevice.put(deviceId, userId);
+        if (previous != null && !previous.equals(userId)) {
+            devicesByUser.remove(previous, deviceId);
+            logger.info("🔁 Device {} re-paired from user {} to {}", deviceId, previous, userId);
+        } else {
+            logger.info("🔗 Device {} paired with user {}", deviceId, userId);
+        }
+    }
+
+    /**
+     * @return true if the device was paired with this user and is now released
+     */
+    public synchronized boolean unpair(String deviceId, String userId) {
+        boolean removed = usersByDevice.remove(deviceId, userId);
+        if (removed) {
+            devicesByUser.remove(userId, deviceId);
+            logger.info("🔓 Device {} released by user {}", deviceId, userId);
+        }
+        return removed;
+    }
+
+    /** Returns the user paired with the device, or null if nobody is using it. */
+    public String userFor(String deviceId) {
+        return usersByDevice.get(deviceId);
+    }
+
+    /** Returns the device the user is currently paired with, or null. */
+    public String deviceFor(String userId) {
+        return devicesByUser.get(userId);
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.sb.cartservice.service;
+
+import com.sb.cartservice.dto.CartDTO;
+import com.sb.cartservice.model.Cart;
+
+public final class CartMapper {
+
+    private CartMapper() {
+    }
+
+    // Shape returned by the cart reads, add, batch add and update
+    public static CartDTO toDTO(Cart cart) {
+        CartDTO dto = new CartDTO();
+        dto.setId(cart.getId());
+        dto.setName(cart.getName());
+        dto.setQuantity(cart.getQuantity());
+        dto.setPrice(cart.getPrice());
+        dto.setWeight(cart.getWeight());
+        return dto;
+    }
+
+    // Full line state as pushed to subscribed clients, keyed by barcode so repeat events simply overwrite
+    public static CartDTO toLineDTO(Cart cart) {
+        CartDTO dto = toDTO(cart);
+        dto.setBarcode(cart.getBarcode());
+        return dto;
+    }
+
+}
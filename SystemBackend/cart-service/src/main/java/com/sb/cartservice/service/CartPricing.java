@@ -0,0 +1,27 @@
+package com.sb.cartservice.service;
+
+/**
+ * Price of one cart line, shared by add, batch add and update.
+ * <p>
+ * A line is priced by weight when the client sends a weight that differs from the product's master weight
+ * (e.g. 1.5 kg of a product priced per 1 kg), otherwise by unit price times quantity.
+ */
+public final class CartPricing {
+
+    private static final double WEIGHT_EPSILON = 0.0001;
+
+    private CartPricing() {
+    }
+
+    public static boolean isWeightBased(Double weight, double defaultWeight) {
+        return weight != null && weight > 0 && Math.abs(weight - defaultWeight) > WEIGHT_EPSILON;
+    }
+
+    public static double linePrice(double pricePerUnit, double defaultWeight, int quantity, Double weight) {
+        if (isWeightBased(weight, defaultWeight)) {
+            return pricePerUnit * (weight / defaultWeight);
+        }
+        return pricePerUnit * quantity;
+    }
+
+}
@@ -1,10 +1,13 @@
 package com.sb.cartservice.service;
 
+import com.sb.cartservice.dto.CartBatchResultDTO;
 import com.sb.cartservice.dto.CartDTO;
 import com.sb.cartservice.dto.UserCartSummaryDTO;
 import com.sb.productservice.grpc.ProductDetailsResponse;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
+import java.util.Map;
 
 public interface CartService {
 
@@ -14,6 +17,10 @@ public interface CartService {
 
     CartDTO addItems(CartDTO item);
 
+    CartBatchResultDTO addItemsBatch(List<CartDTO> items);
+
+    CartBatchResultDTO addScannedItems(String userId, List<CartDTO> items);
+
     CartDTO updateItems(CartDTO item);
 
     void deleteItems(Long id);
@@ -24,4 +31,14 @@ public interface CartService {
 
     ProductDetailsResponse fetchProductDetailsForFrontend(String barcode);
 
+    void pairDevice(String deviceId);
+
+    void unpairDevice(String deviceId);
+
+    SseEmitter subscribeToUpdates();
+
+    Map<String, Object> getStreamStats();
+
+    Map<String, Object> getProductCacheStats();
+
 }
@@ -1,82 +1,110 @@
 package com.sb.cartservice.service;
 
+import com.sb.billservice.grpc.BillDelta;
 import com.sb.billservice.grpc.BillRequest;
 import com.sb.billservice.grpc.BillResponse;
 import com.sb.billservice.grpc.BillUpdateServiceGrpc;
+import com.sb.cartservice.config.JwtPrincipalResolver;
+import com.sb.cartservice.dto.CartBatchItemResultDTO;
+import com.sb.cartservice.dto.CartBatchResultDTO;
 import com.sb.cartservice.dto.CartDTO;
+import com.sb.cartservice.dto.CartSnapshotDTO;
+import com.sb.cartservice.dto.CartTotalsDTO;
 import com.sb.cartservice.model.Cart;
+import com.sb.cartservice.model.CartTotal;
 import com.sb.cartservice.repository.CartRepository;
-import com.sb.customerservice.grpc.GetUsernameRequest;
-import com.sb.customerservice.grpc.GetUsernameResponse;
-import com.sb.customerservice.grpc.UserInfoServiceGrpc;
-import com.sb.productservice.grpc.ProductDetailsRequest;
+import com.sb.cartservice.repository.CartTotalRepository;
 import com.sb.productservice.grpc.ProductDetailsResponse;
-import com.sb.productservice.grpc.ProductDetailsServiceGrpc;
-import jakarta.servlet.http.HttpServletRequest;
+import io.grpc.Deadline;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
-
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
 
 @Service
 public class CartServiceImpl implements CartService {
 
     private final CartRepository cartRepository;
-    private final HttpServletRequest request;
-//    private final BarcodeListenerService barcodeListenerService;
+    private final CartTotalRepository cartTotalRepository;
+    private final BillDeltaStreamer billDeltaStreamer;
+    private final JwtPrincipalResolver principalResolver;
+    private final ProductDetailsCache productDetailsCache;
+    private final CartDeviceRegistry deviceRegistry;
+    private final WeightReconciliationEngine weightEngine;
+    private final CartUpdateBroadcaster updateBroadcaster;
+    private final int maxBatchItems;
+    private final Duration requestTimeout;
+    private final Duration callTimeout;
 
     private static final Logger logger = LoggerFactory.getLogger(CartServiceImpl.class);
 
-    public CartServiceImpl(CartRepository cartRepository, HttpServletRequest request) {
+    public CartServiceImpl(CartRepository cartRepository, CartTotalRepository cartTotalRepository,
+                           BillDeltaStreamer billDeltaStreamer, JwtPrincipalResolver principalResolver,
+                           ProductDetailsCache productDetailsCache, CartDeviceRegistry deviceRegistry,
+                           WeightReconciliationEngine weightEngine, CartUpdateBroadcaster updateBroadcaster,
+                           @Value("${cart.batch.max-items:200}") int maxBatchItems,
+                           @Value("${cart.grpc.request-timeout:3s}") Duration requestTimeout,
+                           @Value("${cart.grpc.call-timeout:1500ms}") Duration callTimeout) {
         this.cartRepository = cartRepository;
-        this.request = request;
+        this.cartTotalRepository = cartTotalRepository;
+        this.billDeltaStreamer = billDeltaStreamer;
+        this.principalResolver = principalResolver;
+        this.productDetailsCache = productDetailsCache;
+        this.deviceRegistry = deviceRegistry;
+        this.weightEngine = weightEngine;
+        this.updateBroadcaster = updateBroadcaster;
+        this.maxBatchItems = maxBatchItems;
+        this.requestTimeout = requestTimeout;
+        this.callTimeout = callTimeout;
     }
 
     @GrpcClient("bill-update-service")
     private BillUpdateServiceGrpc.BillUpdateServiceBlockingStub billUpdateServiceBlockingStub;
 
-    @GrpcClient("customer-service")
-    private UserInfoServiceGrpc.UserInfoServiceBlockingStub userInfoStub;
-
-    @GrpcClient("product-service")
-    private ProductDetailsServiceGrpc.ProductDetailsServiceBlockingStub productDetailsServiceStub;
-
-    /** Helper to extract username from JWT in Authorization header. */
-    private String extractUsernameFromRequest() {
-        String authHeader = request.getHeader("Authorization");
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            logger.error("❌ Missing or invalid Authorization header");
-            throw new SecurityException("Missing or invalid Authorization header");
-        }
-        String jwt = authHeader.substring(7);
-        try {
-            GetUsernameRequest grpcRequest = GetUsernameRequest.newBuilder().setJwt(jwt).build();
-            GetUsernameResponse grpcResponse = userInfoStub.getUsername(grpcRequest);
-            String username = grpcResponse.getUsername();
-            if (username.isEmpty()) {
-                logger.error("❌ Username extraction failed via gRPC for JWT: {}", jwt);
-                throw new SecurityException("Unable to extract username from JWT");
-            }
-            return username;
-        } catch (Exception e) {
-            logger.error("❌ gRPC call failed while extracting username: {}", e.getMessage(), e);
-            throw new SecurityException("Error extracting username from JWT via gRPC", e);
-        }
+    // Overall budget for the downstream calls of one request; each call gets the smaller of this and its own timeout
+    private Deadline newRequestDeadline() {
+        return Deadline.after(requestTimeout.toMillis(), TimeUnit.MILLISECONDS);
     }
 
     private ProductDetailsResponse fetchProductDetails(String barcode) {
-        ProductDetailsRequest req = ProductDetailsRequest.newBuilder()
-                .setBarcode(barcode)
-                .build();
+        Deadline requestDeadline = newRequestDeadline();
+        return awaitLookup(productDetailsCache.getAsync(barcode, requestDeadline), requestDeadline,
+                "product details for barcode: " + barcode);
+    }
+
+    private <T> T awaitLookup(CompletableFuture<T> lookup, Deadline requestDeadline, String description) {
         try {
-            return productDetailsServiceStub.getProductDetails(req);
-        } catch (Exception e) {
-            logger.error("❌ gRPC call to product service failed: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to fetch product details for barcode: " + barcode, e);
+            return lookup.get(requestDeadline.timeRemaining(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            lookup.cancel(true);
+            logger.error("❌ Deadline exceeded while fetching {}", description);
+            throw new RuntimeException("Timed out fetching " + description, e);
+        } catch (ExecutionException e) {
+            logger.error("❌ gRPC call to product service failed: {}", e.getCause().getMessage(), e.getCause());
+            throw new RuntimeException("Failed to fetch " + description, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while fetching " + description, e);
         }
     }
 
@@ -85,19 +113,12 @@ public class CartServiceImpl implements CartService {
     @Transactional(readOnly = true)
     public List<CartDTO> getAllItems() {
 
-        String userId = extractUsernameFromRequest();
+        String userId = principalResolver.resolveUsername();
         logger.info("📦 Fetching all cart items for user: {}", userId);
 
         List<Cart> cartItems = cartRepository.findByUserId(userId);
 
-        List<CartDTO> dtoList = cartItems.stream().map(cart -> {
-            CartDTO dto = new CartDTO();
-            dto.setId(cart.getId());
-            dto.setName(cart.getName());
-            dto.setQuantity(cart.getQuantity());
-            dto.setPrice(cart.getPrice());
-            return dto;
-        }).toList();
+        List<CartDTO> dtoList = cartItems.stream().map(CartMapper::toDTO).toList();
 
         logger.info("✅ Found {} cart item(s) for user: {}", dtoList.size(), userId);
         return dtoList;
@@ -108,26 +129,15 @@ public class CartServiceImpl implements CartService {
     public List<CartDTO> getItemsByUserId(String userId) {
         List<Cart> cartItems = cartRepository.findByUserId(userId);
 
-        return cartItems.stream().map(cart -> {
-            CartDTO dto = new CartDTO();
-            dto.setName(cart.getName());
-            dto.setQuantity(cart.getQuantity());
-            dto.setPrice(cart.getPrice());
-            dto.setWeight(cart.getWeight());
-            return dto;
-        }).toList();
+        return cartItems.stream().map(CartMapper::toDTO).toList();
     }
 
     @Override
     public ProductDetailsResponse fetchProductDetailsForFrontend(String barcode) {
         logger.info("🔍 Fetching product details for scanned barcode: {}", barcode);
 
-        ProductDetailsRequest request = ProductDetailsRequest.newBuilder()
-                .setBarcode(barcode)
-                .build();
-
         try {
-            ProductDetailsResponse response = productDetailsServiceStub.getProductDetails(request);
+            ProductDetailsResponse response = fetchProductDetails(barcode);
             if (!response.getExists()) {
                 throw new IllegalArgumentException("Product not found for barcode: " + barcode);
             }
@@ -145,72 +155,176 @@ public class CartServiceImpl implements CartService {
 
         logger.info("🛒 Adding item to cart: {}", item.getName());
 
-        String userId = extractUsernameFromRequest();
-
         // 1. Get the most recent barcode scanned
         String barcode = item.getBarcode();
         if (barcode == null || barcode.isBlank()) {
             throw new IllegalArgumentException("Barcode must be provided by the client.");
         }
 
-
-        // 2. Fetch product details via gRPC (using barcode)
-        ProductDetailsRequest req = ProductDetailsRequest.newBuilder()
-                .setBarcode(barcode)
-                .build();
-        ProductDetailsResponse productResp;
-        try {
-            productResp = productDetailsServiceStub.getProductDetails(req);
-        } catch (Exception e) {
-            logger.error("❌ gRPC call to product service failed: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to fetch product details for barcode: " + barcode, e);
-        }
+        // 2. Start the product lookup, then resolve the caller while it is in flight
+        Deadline requestDeadline = newRequestDeadline();
+        CompletableFuture<ProductDetailsResponse> productLookup = productDetailsCache.getAsync(barcode, requestDeadline);
+        String userId = principalResolver.resolveUsername(requestDeadline);
+        ProductDetailsResponse productResp = awaitLookup(productLookup, requestDeadline, "product details for barcode: " + barcode);
 
         if (!productResp.getExists()) {
             logger.warn("❌ Product not found for barcode: {}", barcode);
             throw new IllegalArgumentException("Product not found for barcode: " + barcode);
         }
 
-        // 3. Calculate price
+        // 3. Calculate price and 4. build Cart entity
+        Cart cartItem = buildCartItem(item, productResp, userId);
+
+        // 5. Upsert into the (user, barcode) line so repeat scans only bump quantity and price
+        upsertCartLine(cartItem);
+        recordTotalsDelta(userId, cartItem.getPrice(), cartItem.getWeight());
+        Cart saved = cartRepository.findByUserIdAndBarcode(userId, barcode)
+                .orElseThrow(() -> new IllegalStateException("Cart line missing after upsert for barcode: " + barcode));
+        logger.info("✅ Item '{}' added to cart line ID: {} (quantity now {})", saved.getName(), saved.getId(), saved.getQuantity());
+        publishLinesAfterCommit(userId, List.of(CartMapper.toLineDTO(saved)));
+
+        // Return saved DTO
+        CartDTO result = CartMapper.toDTO(saved);
+
+        logger.debug("✅ Cart item DTO: {}", result);
+        return result;
+
+    }
+
+    @Override
+    @Transactional
+    public CartBatchResultDTO addItemsBatch(List<CartDTO> items) {
+        return addItemsBatch(items, principalResolver::resolveUsername);
+    }
+
+    @Override
+    @Transactional
+    public CartBatchResultDTO addScannedItems(String userId, List<CartDTO> items) {
+        return addItemsBatch(items, requestDeadline -> userId);
+    }
+
+    private CartBatchResultDTO addItemsBatch(List<CartDTO> items, Function<Deadline, String> userResolver) {
+
+        if (items == null || items.isEmpty()) {
+            throw new IllegalArgumentException("At least one item must be provided.");
+        }
+        if (items.size() > maxBatchItems) {
+            throw new IllegalArgumentException("Batch exceeds the limit of " + maxBatchItems + " items.");
+        }
+
+        // 1. Collect the distinct barcodes so each product is resolved once
+        Set<String> barcodes = new LinkedHashSet<>();
+        for (CartDTO item : items) {
+            if (item != null && item.getBarcode() != null && !item.getBarcode().isBlank()) {
+                barcodes.add(item.getBarcode());
+            }
+        }
+
+        // 2. Fetch all product details with a single batched gRPC call, resolving the caller meanwhile
+        Deadline requestDeadline = newRequestDeadline();
+        CompletableFuture<Map<String, ProductDetailsResponse>> productLookup = barcodes.isEmpty()
+                ? CompletableFuture.completedFuture(Map.of())
+                : productDetailsCache.getAllAsync(barcodes, requestDeadline);
+
+        String userId = userResolver.apply(requestDeadline);
+        logger.info("🛒 Adding batch of {} item(s) to cart for user: {}", items.size(), userId);
+
+        Map<String, ProductDetailsResponse> products = awaitLookup(productLookup, requestDeadline, "product details for batch");
+
+        // 3. Price every resolvable item, recording a failure for the rest
+        CartBatchItemResultDTO[] results = new CartBatchItemResultDTO[items.size()];
+        List<Integer> acceptedIndexes = new ArrayList<>();
+        double batchPrice = 0;
+        double batchWeight = 0;
+        List<Cart> accepted = new ArrayList<>();
+
+        for (int i = 0; i < items.size(); i++) {
+            CartDTO item = items.get(i);
+            String barcode = item != null ? item.getBarcode() : null;
+
+            if (barcode == null || barcode.isBlank()) {
+                results[i] = new CartBatchItemResultDTO(i, barcode, false, "Barcode must be provided by the client.", null);
+                continue;
+            }
+            if (item.getQuantity() != null && item.getQuantity() < 1) {
+                results[i] = new CartBatchItemResultDTO(i, barcode, false, "Quantity must be at least 1", null);
+                continue;
+            }
+
+            ProductDetailsResponse productResp = products.get(barcode);
+            if (productResp == null || !productResp.getExists()) {
+                logger.warn("❌ Product not found for barcode: {}", barcode);
+                results[i] = new CartBatchItemResultDTO(i, barcode, false, "Product not found for barcode: " + barcode, null);
+                continue;
+            }
+
+            // 4. Price the item; it is folded into its (user, barcode) line below
+            Cart cartItem = buildCartItem(item, productResp, userId);
+            accepted.add(cartItem);
+            batchPrice += cartItem.getPrice();
+            batchWeight += cartItem.getWeight();
+            acceptedIndexes.add(i);
+        }
+        // One batched write folds every accepted item into its line
+        if (!accepted.isEmpty()) {
+            cartRepository.upsertItems(accepted);
+        }
+        recordTotalsDelta(userId, batchPrice, batchWeight);
+
+        // 5. Read the resulting lines back in one query
+        Map<String, Cart> lines = new HashMap<>();
+        if (!acceptedIndexes.isEmpty()) {
+            for (Cart line : cartRepository.findByUserIdAndBarcodeIn(userId, barcodes)) {
+                lines.put(line.getBarcode(), line);
+            }
+        }
+        for (int i : acceptedIndexes) {
+            String barcode = items.get(i).getBarcode();
+            results[i] = new CartBatchItemResultDTO(i, barcode, true, "Added", CartMapper.toDTO(lines.get(barcode)));
+        }
+        publishLinesAfterCommit(userId, lines.values().stream().map(CartMapper::toLineDTO).toList());
+
+        CartBatchResultDTO result = new CartBatchResultDTO();
+        result.setAdded(acceptedIndexes.size());
+        result.setFailed(items.size() - acceptedIndexes.size());
+        result.setResults(Arrays.asList(results));
+
+        logger.info("✅ Batch add for user {}: {} added, {} failed", userId, result.getAdded(), result.getFailed());
+        return result;
+    }
+
+    private Cart buildCartItem(CartDTO item, ProductDetailsResponse productResp, String userId) {
         int quantity = item.getQuantity() != null ? item.getQuantity() : 1; // default to 1 if null
         double pricePerUnit = productResp.getProductPrice();
         double defaultWeight = productResp.getProductWeight();
-        double totalPrice;
-
-        // Use weight-based price if provided and different from master data
-        if (item.getWeight() != null && item.getWeight() > 0 && Math.abs(item.getWeight() - defaultWeight) > 0.0001) {
-            // Price by actual weight, e.g. buying 1.5kg at unit price per 1kg
-            totalPrice = pricePerUnit * (item.getWeight() / defaultWeight);
-            logger.info("⚖️ Weight-based pricing: {} x ({} / {}) = {}", pricePerUnit, item.getWeight(), defaultWeight, totalPrice);
-        } else {
-            // Standard unit price * quantity
-            totalPrice = pricePerUnit * quantity;
-            logger.info("📦 Unit-based pricing: {} x {} = {}", pricePerUnit, quantity, totalPrice);
-        }
+        double totalPrice = CartPricing.linePrice(pricePerUnit, defaultWeight, quantity, item.getWeight());
+        logPricing(pricePerUnit, defaultWeight, quantity, item.getWeight(), totalPrice);
 
-        // 4. Build Cart entity
         Cart cartItem = new Cart();
-        cartItem.setBarcode(barcode);
+        cartItem.setBarcode(item.getBarcode());
         cartItem.setName(productResp.getProductName());
         cartItem.setQuantity(quantity);
         cartItem.setWeight(item.getWeight() != null ? item.getWeight() : defaultWeight); // store the actual weight used
         cartItem.setPrice(totalPrice);
         cartItem.setUserId(userId);
+        return cartItem;
+    }
 
-        // 5. Save to DB
-        Cart saved = cartRepository.save(cartItem);
-        logger.info("✅ Item '{}' added to cart with ID: {}", saved.getName(), saved.getId());
-
-        // Return saved DTO
-        CartDTO result = new CartDTO();
-        result.setName(saved.getName());
-        result.setQuantity(saved.getQuantity());
-        result.setPrice(saved.getPrice());
-        result.setWeight(saved.getWeight());
-
-        logger.info("✅ Cart item DTO: {}", result);
-        return result;
+    private void upsertCartLine(Cart line) {
+        cartRepository.upsertItem(line.getUserId(), line.getBarcode(), line.getName(),
+                line.getQuantity(), line.getPrice(), line.getWeight());
+    }
 
+    // Runs once per scanned line; guarded so the boxed arguments are only built when debug is on
+    private void logPricing(double pricePerUnit, double defaultWeight, int quantity, Double weight, double totalPrice) {
+        if (!logger.isDebugEnabled()) {
+            return;
+        }
+        if (CartPricing.isWeightBased(weight, defaultWeight)) {
+            logger.debug("⚖️ Weight-based pricing: {} x ({} / {}) = {}", pricePerUnit, weight, defaultWeight, totalPrice);
+        } else {
+            logger.debug("📦 Unit-based pricing: {} x {} = {}", pricePerUnit, quantity, totalPrice);
+        }
     }
 
 
@@ -218,7 +332,7 @@ public class CartServiceImpl implements CartService {
     @Transactional
     public CartDTO updateItems(CartDTO item) {
 
-        String userId = extractUsernameFromRequest();
+        String userId = principalResolver.resolveUsername();
 
         Optional<Cart> optionalCart = cartRepository.findById(item.getId());
 
@@ -240,16 +354,7 @@ public class CartServiceImpl implements CartService {
         if (barcode == null || barcode.isEmpty()) {
             barcode = cart.getName(); // fallback to product name if barcode not present
         }
-        ProductDetailsRequest req = ProductDetailsRequest.newBuilder()
-                .setBarcode(barcode)
-                .build();
-        ProductDetailsResponse productResp;
-        try {
-            productResp = productDetailsServiceStub.getProductDetails(req);
-        } catch (Exception e) {
-            logger.error("❌ gRPC call to product service failed: {}", e.getMessage(), e);
-            throw new RuntimeException("Failed to fetch product details for barcode: " + barcode, e);
-        }
+        ProductDetailsResponse productResp = fetchProductDetails(barcode);
 
         if (!productResp.getExists()) {
             logger.warn("❌ Product not found for barcode: {}", barcode);
@@ -261,16 +366,11 @@ public class CartServiceImpl implements CartService {
         double pricePerUnit = productResp.getProductPrice();
         double defaultWeight = productResp.getProductWeight();
         double finalWeight = (item.getWeight() != null && item.getWeight() > 0) ? item.getWeight() : defaultWeight;
-        double totalPrice;
+        double totalPrice = CartPricing.linePrice(pricePerUnit, defaultWeight, quantity, item.getWeight());
+        logPricing(pricePerUnit, defaultWeight, quantity, item.getWeight(), totalPrice);
 
-        // Use weight-based price if custom weight provided
-        if (item.getWeight() != null && item.getWeight() > 0 && Math.abs(item.getWeight() - defaultWeight) > 0.0001) {
-            totalPrice = pricePerUnit * (item.getWeight() / defaultWeight);
-            logger.info("⚖️ Weight-based pricing for update: {} x ({} / {}) = {}", pricePerUnit, item.getWeight(), defaultWeight, totalPrice);
-        } else {
-            totalPrice = pricePerUnit * quantity;
-            logger.info("📦 Unit-based pricing for update: {} x {} = {}", pricePerUnit, quantity, totalPrice);
-        }
+        double oldPrice = cart.getPrice();
+        double oldWeight = cart.getWeight();
 
         // === Update Cart fields ===
         cart.setName(productResp.getProductName());
@@ -284,16 +384,13 @@ public class CartServiceImpl implements CartService {
         // 💾 Save updated entity
         Cart updated = cartRepository.save(cart);
         logger.info("✅ Updated cart item ID {} for user {}", updated.getId(), userId);
+        recordTotalsDelta(userId, updated.getPrice() - oldPrice, updated.getWeight() - oldWeight);
+        publishLinesAfterCommit(userId, List.of(CartMapper.toLineDTO(updated)));
 
         // 📨 Convert to DTO
-        CartDTO updatedDto = new CartDTO();
-        updatedDto.setId(updated.getId());
-        updatedDto.setName(updated.getName());
-        updatedDto.setQuantity(updated.getQuantity());
-        updatedDto.setPrice(updated.getPrice());
-        updatedDto.setWeight(updated.getWeight());
-
-        logger.info("✅ Cart item DTO: {}", updatedDto);
+        CartDTO updatedDto = CartMapper.toDTO(updated);
+
+        logger.debug("✅ Cart item DTO: {}", updatedDto);
         return updatedDto;
     }
 
@@ -301,7 +398,7 @@ public class CartServiceImpl implements CartService {
     @Transactional
     public void deleteItems(Long id) {
 
-        String userId = extractUsernameFromRequest();
+        String userId = principalResolver.resolveUsername();
 
         Cart cart = cartRepository.findById(id).orElseThrow(() -> {
             logger.warn("❌ Item ID {} not found", id);
@@ -314,8 +411,16 @@ public class CartServiceImpl implements CartService {
         }
 
         double priceToDeduct = cart.getPrice();
+        double weightToDeduct = cart.getWeight();
         cartRepository.deleteById(id);
-        logger.info("✅ Cart item deleted. Attempting to update bill via gRPC for -{}", priceToDeduct);
+        recordTotalsDelta(userId, -priceToDeduct, -weightToDeduct);
+
+        CartDTO removed = CartMapper.toLineDTO(cart);
+        removed.setQuantity(0);
+        removed.setPrice(0.0);
+        removed.setWeight(0.0);
+        publishLinesAfterCommit(userId, List.of(removed));
+        logger.info("✅ Cart item deleted. Streaming bill delta of -{}", priceToDeduct);
 
     }
 
@@ -323,16 +428,12 @@ public class CartServiceImpl implements CartService {
     @Transactional(readOnly = true)
     public CartDTO getItemById(Long id) {
 
-        String userId = extractUsernameFromRequest();
+        String userId = principalResolver.resolveUsername();
 
         return cartRepository.findById(id)
                 .filter(cart -> cart.getUserId().equals(userId))
                 .map(cart -> {
-                    CartDTO dto = new CartDTO();
-                    dto.setId(cart.getId());
-                    dto.setName(cart.getName());
-                    dto.setQuantity(cart.getQuantity());
-                    dto.setPrice(cart.getPrice());
+                    CartDTO dto = CartMapper.toDTO(cart);
                     logger.info("✅ Found cart item: {}", dto);
                     return dto;
                 })
@@ -343,24 +444,35 @@ public class CartServiceImpl implements CartService {
     }
 
     @Override
+    @Transactional(readOnly = true)
     public String getUserCartSummaryAndSendToGrpc(String userId) {
         logger.info("📦 Fetching cart summary for user: {}", userId);
 
-        List<Cart> userCartItems = cartRepository.findByUserId(userId);
-
-        double totalPrice = userCartItems.stream().mapToDouble(Cart::getPrice).sum();
-        double totalWeight = userCartItems.stream().mapToDouble(Cart::getWeight).sum();
-
-        // Send to gRPC
-        BillRequest billRequest = BillRequest.newBuilder()
+        // Running totals are kept up to date on every change; only carts that predate them are summed
+        BillRequest.Builder billRequest = BillRequest.newBuilder()
                 .setUsername(userId)
-                .setCartId(userId)
-                .setTotalPrice(totalPrice)
-                .setTotalWeight(totalWeight)
-                .build();
+                .setCartId(userId);
+
+        Optional<CartTotal> totals = cartTotalRepository.findById(userId);
+        if (totals.isPresent()) {
+            billRequest.setTotalPrice(totals.get().getTotalPrice())
+                    .setTotalWeight(totals.get().getTotalWeight())
+                    .setSequence(totals.get().getSequence());
+        } else {
+            double totalPrice = 0;
+            double totalWeight = 0;
+            for (Cart cart : cartRepository.findByUserId(userId)) {
+                totalPrice += cart.getPrice();
+                totalWeight += cart.getWeight();
+            }
+            billRequest.setTotalPrice(totalPrice).setTotalWeight(totalWeight);
+        }
 
+        // Send to gRPC as a full snapshot
         try {
-            BillResponse response = billUpdateServiceBlockingStub.updateBill(billRequest);
+            BillResponse response = billUpdateServiceBlockingStub
+                    .withDeadlineAfter(callTimeout.toMillis(), TimeUnit.MILLISECONDS)
+                    .updateBill(billRequest.build());
             logger.info("🧾 gRPC bill update success: {}", response.getStatus());
             return "Bill updated successfully for user: " + userId;
         } catch (Exception e) {
@@ -369,5 +481,87 @@ public class CartServiceImpl implements CartService {
         }
     }
 
+    // Adds a signed change to the user's running totals and streams it to bill-service once committed
+    private void recordTotalsDelta(String userId, double priceDelta, double weightDelta) {
+        if (priceDelta == 0 && weightDelta == 0) {
+            return;
+        }
+
+        cartTotalRepository.addDelta(userId, priceDelta, weightDelta);
+        CartTotal totals = cartTotalRepository.findById(userId)
+                .orElseThrow(() -> new IllegalStateException("Cart totals missing after update for user: " + userId));
+
+        BillDelta delta = BillDelta.newBuilder()
+                .setUsername(userId)
+                .setCartId(userId)
+                .setSequence(totals.getSequence())
+                .setPriceDelta(priceDelta)
+                .setWeightDelta(weightDelta)
+                .setTotalPrice(totals.getTotalPrice())
+                .setTotalWeight(totals.getTotalWeight())
+                .build();
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                billDeltaStreamer.send(delta);
+                weightEngine.onCartWeightChanged(userId, delta.getTotalWeight());
+                updateBroadcaster.publishTotals(userId,
+                        new CartTotalsDTO(delta.getTotalPrice(), delta.getTotalWeight(), delta.getSequence()));
+            }
+        });
+    }
+
+    private void publishLinesAfterCommit(String userId, List<CartDTO> lines) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                updateBroadcaster.publishLines(userId, lines);
+            }
+        });
+    }
+
+    @Override
+    public SseEmitter subscribeToUpdates() {
+        String userId = principalResolver.resolveUsername();
+        return updateBroadcaster.subscribe(userId, () -> {
+            List<CartDTO> items = cartRepository.findByUserId(userId).stream().map(CartMapper::toLineDTO).toList();
+            CartTotalsDTO totals = cartTotalRepository.findById(userId)
+                    .map(total -> new CartTotalsDTO(total.getTotalPrice(), total.getTotalWeight(), total.getSequence()))
+                    .orElseGet(CartTotalsDTO::new);
+            return new CartSnapshotDTO(items, totals);
+        });
+    }
+
+    @Override
+    public void pairDevice(String deviceId) {
+        String userId = principalResolver.resolveUsername();
+        deviceRegistry.pair(deviceId, userId);
+
+        // Start from a clean window and whatever the shopper already has in their cart
+        weightEngine.reset(deviceId);
+        double totalWeight = cartTotalRepository.findById(userId).map(CartTotal::getTotalWeight).orElse(0.0);
+        weightEngine.setExpectedWeight(deviceId, totalWeight);
+    }
+
+    @Override
+    public void unpairDevice(String deviceId) {
+        String userId = principalResolver.resolveUsername();
+        if (!deviceRegistry.unpair(deviceId, userId)) {
+            logger.warn("❌ User {} tried to release device {} they are not using", userId, deviceId);
+            throw new IllegalArgumentException("Device " + deviceId + " is not paired with this user");
+        }
+        weightEngine.release(deviceId);
+    }
+
+    @Override
+    public Map<String, Object> getProductCacheStats() {
+        return productDetailsCache.getStats();
+    }
+
+    @Override
+    public Map<String, Object> getStreamStats() {
+        return updateBroadcaster.getStats();
+    }
 
 }
@@ -0,0 +1,176 @@
+package com.sb.cartservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.cartservice.dto.CartDTO;
+import com.sb.cartservice.dto.CartSnapshotDTO;
+import com.sb.cartservice.dto.CartTotalsDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Pushes cart changes to the shopper's open Server-Sent Events connections, so the apps no longer poll
+ * GET /cart/customer/all and GET /bill/customer/view.
+ * <p>
+ * Subscriptions are grouped by username. An idle connection is just an async request parked in the servlet
+ * container, with no thread behind it. Every connection gets a "snapshot" event first; changes committed while the
+ * snapshot is read are held back and sent after it, so a client never applies an older state over a newer one.
+ * Events: "cart-lines" (changed lines, quantity 0 = removed) and "totals" (the totals bill-service holds).
+ * Each event is serialised once and the same bytes are written to every connection of the user.
+ */
+@Service
+public class CartUpdateBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartUpdateBroadcaster.class);
+
+    private final Map<String, Set<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+    private final LongAdder eventsSent = new LongAdder();
+    private final ObjectMapper objectMapper;
+    private final long timeoutMillis;
+
+    public CartUpdateBroadcaster(ObjectMapper objectMapper, @Value("${cart.stream.timeout:30m}") Duration timeout) {
+        this.objectMapper = objectMapper;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    /**
+     * Opens a stream for the user. The snapshot is read after the subscription is registered, so nothing
+     * committed in between is lost.
+     */
+    public SseEmitter subscribe(String userId, Supplier<CartSnapshotDTO> snapshot) {
+        Subscription subscription = new Subscription(userId, new SseEmitter(timeoutMillis));
+        subscription.emitter.onCompletion(() -> remove(subscription));
+        subscription.emitter.onTimeout(() -> remove(subscription));
+        subscription.emitter.onError(e -> remove(subscription));
+
+        subscriptions.computeIfAbsent(userId, id -> ConcurrentHashMap.newKeySet()).add(subscription);
+        connections.incrementAndGet();
+        logger.info("📡 User {} subscribed to cart updates ({} open connection(s))", userId, connections.get());
+
+        try {
+            subscription.start(event("snapshot", null, snapshot.get()));
+        } catch (Exception e) {
+            logger.error("❌ Failed to send cart snapshot to user {}: {}", userId, e.getMessage(), e);
+            remove(subscription);
+            subscription.emitter.completeWithError(e);
+        }
+        return subscription.emitter;
+    }
+
+    public void publishLines(String userId, List<CartDTO> lines) {
+        if (!lines.isEmpty()) {
+            publish(userId, event("cart-lines", null, lines));
+        }
+    }
+
+    public void publishTotals(String userId, CartTotalsDTO totals) {
+        publish(userId, event("totals", String.valueOf(totals.getSequence()), totals));
+    }
+
+    // Keeps proxies and load balancers from closing idle streams, and weeds out clients that went away
+    @Scheduled(fixedDelayString = "${cart.stream.heartbeat-interval:25000}")
+    public void sendHeartbeats() {
+        Set<DataWithMediaType> ping = SseEmitter.event().comment("ping").build();
+        for (Set<Subscription> userSubscriptions : subscriptions.values()) {
+            for (Subscription subscription : userSubscriptions) {
+                subscription.send(ping);
+            }
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("users", subscriptions.size());
+        stats.put("connections", connections.get());
+        stats.put("eventsSent", eventsSent.sum());
+        return stats;
+    }
+
+    private void publish(String userId, Set<DataWithMediaType> event) {
+        Set<Subscription> userSubscriptions = subscriptions.get(userId);
+        if (userSubscriptions == null) {
+            return;
+        }
+        for (Subscription subscription : userSubscriptions) {
+            subscription.send(event);
+        }
+    }
+
+    private Set<DataWithMediaType> event(String name, String id, Object payload) {
+        SseEmitter.SseEventBuilder event = SseEmitter.event().name(name);
+        if (id != null) {
+            event.id(id);
+        }
+        try {
+            return event.data(objectMapper.writeValueAsString(payload)).build();
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialise " + name + " event", e);
+        }
+    }
+
+    private void remove(Subscription subscription) {
+        boolean[] removed = new boolean[1];
+        subscriptions.computeIfPresent(subscription.userId, (id, userSubscriptions) -> {
+            removed[0] = userSubscriptions.remove(subscription);
+            return userSubscriptions.isEmpty() ? null : userSubscriptions;
+        });
+        if (removed[0]) {
+            connections.decrementAndGet();
+            logger.info("🔌 User {} disconnected from cart updates", subscription.userId);
+        }
+    }
+
+    private final class Subscription {
+
+        private final String userId;
+        private final SseEmitter emitter;
+        private List<Set<DataWithMediaType>> heldBack = new ArrayList<>();
+
+        private Subscription(String userId, SseEmitter emitter) {
+            this.userId = userId;
+            this.emitter = emitter;
+        }
+
+        private synchronized void start(Set<DataWithMediaType> snapshot) throws Exception {
+            emitter.send(snapshot);
+            for (Set<DataWithMediaType> event : heldBack) {
+                emitter.send(event);
+            }
+            heldBack = null;
+        }
+
+        private synchronized void send(Set<DataWithMediaType> event) {
+            if (heldBack != null) {
+                heldBack.add(event);
+                return;
+            }
+            try {
+                emitter.send(event);
+                eventsSent.increment();
+            } catch (Exception e) {
+                // The client is gone; the container reports it through onError/onCompletion as well
+                remove(this);
+                emitter.completeWithError(e);
+            }
+        }
+
+    }
+
+}
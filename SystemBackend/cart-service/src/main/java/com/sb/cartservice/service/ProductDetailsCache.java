@@ -0,0 +1,183 @@
+package com.sb.cartservice.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.sb.productservice.grpc.ProductDetailsBatchRequest;
+import com.sb.productservice.grpc.ProductDetailsRequest;
+import com.sb.productservice.grpc.ProductDetailsResponse;
+import com.sb.productservice.grpc.ProductDetailsServiceGrpc;
+import io.grpc.Deadline;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded local cache of product details keyed by barcode.
+ * Entries are evicted by size and TTL, and dropped early when product-service publishes a change event.
+ * Misses are loaded with the non-blocking future stub, so no request thread waits on product-service while
+ * other work for the same request is still in flight.
+ */
+@Service
+public class ProductDetailsCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductDetailsCache.class);
+
+    private final AsyncCache<String, ProductDetailsResponse> cache;
+    private final Duration callTimeout;
+    private final Executor grpcCallbackExecutor;
+
+    @GrpcClient("product-service")
+    private ProductDetailsServiceGrpc.ProductDetailsServiceFutureStub productDetailsServiceStub;
+
+    public ProductDetailsCache(@Value("${cart.product-cache.max-size:10000}") long maxSize,
+                               @Value("${cart.product-cache.ttl:5m}") Duration ttl,
+                               @Value("${cart.grpc.call-timeout:1500ms}") Duration callTimeout,
+                               @Qualifier("grpcCallbackExecutor") Executor grpcCallbackExecutor) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .executor(grpcCallbackExecutor)
+                .recordStats()
+                .buildAsync();
+        this.callTimeout = callTimeout;
+        this.grpcCallbackExecutor = grpcCallbackExecutor;
+        logger.info("🗃️ Product details cache initialised (maxSize={}, ttl={}, callTimeout={})", maxSize, ttl, callTimeout);
+    }
+
+    /**
+     * Returns the product details for a barcode, calling product-service only on a miss.
+     * Unknown barcodes are not cached so a product added later is visible immediately.
+     */
+    public ProductDetailsResponse get(String barcode) {
+        return await(getAsync(barcode, null));
+    }
+
+    /**
+     * Non-blocking variant of {@link #get(String)}. A miss is loaded under the per-call timeout, capped by the
+     * caller's request deadline when one is given.
+     */
+    public CompletableFuture<ProductDetailsResponse> getAsync(String barcode, Deadline requestDeadline) {
+        return cache.get(barcode, (key, executor) -> load(key, requestDeadline))
+                .thenApply(cached -> cached != null ? cached : notFound());
+    }
+
+    /**
+     * Returns product details for several barcodes, fetching all misses with one GetProductDetailsBatch call.
+     * Every requested barcode is present in the result; unknown ones have exists = false.
+     */
+    public Map<String, ProductDetailsResponse> getAll(Collection<String> barcodes) {
+        return await(getAllAsync(barcodes, null));
+    }
+
+    public CompletableFuture<Map<String, ProductDetailsResponse>> getAllAsync(Collection<String> barcodes, Deadline requestDeadline) {
+        return cache.getAll(barcodes, (keys, executor) -> loadAll(keys, requestDeadline))
+                .thenApply(found -> {
+                    Map<String, ProductDetailsResponse> result = new HashMap<>(found);
+                    for (String barcode : barcodes) {
+                        result.computeIfAbsent(barcode, missing -> notFound());
+                    }
+                    return result;
+                });
+    }
+
+    private CompletableFuture<ProductDetailsResponse> load(String barcode, Deadline requestDeadline) {
+        ProductDetailsRequest req = ProductDetailsRequest.newBuilder()
+                .setBarcode(barcode)
+                .build();
+        return toCompletable(productDetailsServiceStub.withDeadline(callDeadline(requestDeadline)).getProductDetails(req))
+                .thenApply(response -> response.getExists() ? response : null);
+    }
+
+    private CompletableFuture<Map<String, ProductDetailsResponse>> loadAll(Set<? extends String> barcodes, Deadline requestDeadline) {
+        ProductDetailsBatchRequest req = ProductDetailsBatchRequest.newBuilder()
+                .addAllBarcodes(List.copyOf(barcodes))
+                .build();
+        return toCompletable(productDetailsServiceStub.withDeadline(callDeadline(requestDeadline)).getProductDetailsBatch(req))
+                .thenApply(response -> {
+                    Map<String, ProductDetailsResponse> loaded = new HashMap<>();
+                    response.getProductsMap().forEach((barcode, details) -> {
+                        if (details.getExists()) {
+                            loaded.put(barcode, details);
+                        }
+                    });
+                    return loaded;
+                });
+    }
+
+    // Per-call timeout, never later than the deadline of the request that triggered the call
+    private Deadline callDeadline(Deadline requestDeadline) {
+        Deadline callDeadline = Deadline.after(callTimeout.toMillis(), TimeUnit.MILLISECONDS);
+        return requestDeadline != null ? callDeadline.minimum(requestDeadline) : callDeadline;
+    }
+
+    private <T> CompletableFuture<T> toCompletable(ListenableFuture<T> future) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Futures.addCallback(future, new FutureCallback<>() {
+            @Override
+            public void onSuccess(T value) {
+                result.complete(value);
+            }
+
+            @Override
+            public void onFailure(Throwable t) {
+                result.completeExceptionally(t);
+            }
+        }, grpcCallbackExecutor);
+        return result;
+    }
+
+    private static ProductDetailsResponse notFound() {
+        return ProductDetailsResponse.newBuilder()
+                .setExists(false)
+                .setMessage("Product not found")
+                .build();
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    public void invalidate(String barcode) {
+        cache.synchronous().invalidate(barcode);
+        logger.info("🧹 Invalidated cached product details for barcode: {}", barcode);
+    }
+
+    public Map<String, Object> getStats() {
+        CacheStats stats = cache.synchronous().stats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("size", cache.synchronous().estimatedSize());
+        result.put("hitCount", stats.hitCount());
+        result.put("missCount", stats.missCount());
+        result.put("hitRate", stats.hitRate());
+        result.put("evictionCount", stats.evictionCount());
+        result.put("loadFailureCount", stats.loadFailureCount());
+        return result;
+    }
+
+}
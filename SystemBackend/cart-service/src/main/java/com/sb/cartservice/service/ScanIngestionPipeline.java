@@ -0,0 +1,298 @@
+package com.sb.cartservice.service;
+
+import com.sb.cartservice.dto.CartBatchItemResultDTO;
+import com.sb.cartservice.dto.CartBatchResultDTO;
+import com.sb.cartservice.dto.CartDTO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Turns raw barcode scans from cart devices into cart writes.
+ * <p>
+ * Each device keeps its own state: repeat reads of the same barcode within the debounce window are dropped,
+ * and accepted scans are collected per device and written as one batch when the batch fills up or the
+ * batch interval passes. Writes happen on a single flusher thread. A bounded number of scans may wait for it.
+ * {@link #accept} never blocks its caller, the MQTT callback thread that also carries the weight readings: scans are
+ * handed to an intake thread through a bounded queue, and that thread waits for room in the pipeline for up to the
+ * backpressure timeout. Scans that find the hand-off queue full, or wait longer than that, are refused. Devices not
+ * heard from for the idle timeout are forgotten once their scans are written.
+ */
+@Service
+public class ScanIngestionPipeline {
+
+    private static final Logger logger = LoggerFactory.getLogger(ScanIngestionPipeline.class);
+
+    private final CartService cartService;
+    private final CartDeviceRegistry deviceRegistry;
+    private final long debounceNanos;
+    private final int batchSize;
+    private final Duration batchInterval;
+    private final Duration backpressureTimeout;
+    private final long idleNanos;
+    private final int maxPending;
+    private final Semaphore pendingPermits;
+
+    private final Map<String, DeviceState> devices = new ConcurrentHashMap<>();
+    private ThreadPoolExecutor intake;
+    private ScheduledExecutorService flusher;
+
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong debounced = new AtomicLong();
+    private final AtomicLong unpaired = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    public ScanIngestionPipeline(CartService cartService,
+                                 CartDeviceRegistry deviceRegistry,
+                                 @Value("${cart.scan.debounce:750ms}") Duration debounce,
+                                 @Value("${cart.scan.batch-size:20}") int batchSize,
+                                 @Value("${cart.scan.batch-interval:200ms}") Duration batchInterval,
+                                 @Value("${cart.scan.max-pending:1000}") int maxPending,
+                                 @Value("${cart.scan.backpressure-timeout:5s}") Duration backpressureTimeout,
+                                 @Value("${cart.scan.idle-timeout:10m}") Duration idleTimeout) {
+        this.cartService = cartService;
+        this.deviceRegistry = deviceRegistry;
+        this.debounceNanos = debounce.toNanos();
+        this.batchSize = batchSize;
+        this.batchInterval = batchInterval;
+        this.backpressureTimeout = backpressureTimeout;
+        this.idleNanos = idleTimeout.toNanos();
+        this.maxPending = maxPending;
+        this.pendingPermits = new Semaphore(maxPending);
+    }
+
+    @PostConstruct
+    public void start() {
+        intake = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(maxPending), runnable -> {
+            Thread thread = new Thread(runnable, "cart-scan-intake");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-scan-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushAll, batchInterval.toMillis(), batchInterval.toMillis(), TimeUnit.MILLISECONDS);
+        logger.info("📡 Scan ingestion pipeline started (batchSize={}, batchInterval={})", batchSize, batchInterval);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (flusher == null) {
+            return;
+        }
+        intake.shutdown();
+        flusher.shutdown();
+        try {
+            intake.awaitTermination(5, TimeUnit.SECONDS);
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushAll(); // write whatever is still queued
+    }
+
+    /**
+     * Queues one scan from a device without blocking.
+     *
+     * @return false if the scan was dropped (duplicate, unpaired device, or the hand-off queue is full); a queued scan
+     * can still be refused later if the pipeline stays full for the backpressure timeout
+     */
+    public boolean accept(String deviceId, String barcode) {
+        received.incrementAndGet();
+        long now = System.nanoTime();
+        while (true) {
+            DeviceState state = devices.computeIfAbsent(deviceId, id -> new DeviceState());
+            synchronized (state) {
+                if (state.evicted) {
+                    continue; // lost a race with eviction; the device starts afresh
+                }
+                boolean duplicate = barcode.equals(state.lastBarcode) && now - state.lastScanNanos < debounceNanos;
+                state.lastBarcode = barcode;
+                state.lastScanNanos = now;
+                if (duplicate) {
+                    debounced.incrementAndGet();
+                    return false;
+                }
+                break;
+            }
+        }
+
+        if (deviceRegistry.userFor(deviceId) == null) {
+            unpaired.incrementAndGet();
+            logger.warn("⚠️ Dropping scan {} from unpaired device {}", barcode, deviceId);
+            return false;
+        }
+
+        try {
+            intake.execute(() -> admit(deviceId, barcode));
+            return true;
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            logger.error("❌ Scan pipeline full, dropping scan {} from device {}", barcode, deviceId);
+            return false;
+        }
+    }
+
+    // On the intake thread: waits for room in the pipeline, then adds the scan to its device's batch
+    private void admit(String deviceId, String barcode) {
+        try {
+            if (!pendingPermits.tryAcquire(backpressureTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                rejected.incrementAndGet();
+                logger.error("❌ Scan pipeline full for {}, dropping scan {} from device {}", backpressureTimeout, barcode, deviceId);
+                return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            rejected.incrementAndGet();
+            return;
+        }
+
+        boolean batchFull;
+        while (true) {
+            DeviceState state = devices.computeIfAbsent(deviceId, id -> new DeviceState());
+            synchronized (state) {
+                if (state.evicted) {
+                    continue;
+                }
+                state.pending.merge(barcode, 1, Integer::sum);
+                state.pendingScans++;
+                batchFull = state.pendingScans >= batchSize;
+                break;
+            }
+        }
+        if (batchFull && !flusher.isShutdown()) {
+            flusher.execute(() -> flush(deviceId));
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("devices", devices.size());
+        stats.put("received", received.get());
+        stats.put("debounced", debounced.get());
+        stats.put("unpaired", unpaired.get());
+        stats.put("rejected", rejected.get());
+        stats.put("written", written.get());
+        stats.put("failed", failed.get());
+        stats.put("evicted", evicted.get());
+        stats.put("queued", intake != null ? intake.getQueue().size() : 0);
+        stats.put("availablePermits", pendingPermits.availablePermits());
+        return stats;
+    }
+
+    private void flushAll() {
+        for (String deviceId : devices.keySet()) {
+            flush(deviceId);
+        }
+        evictIdle(System.nanoTime());
+    }
+
+    /**
+     * Forgets devices with nothing left to write that have sent nothing for the idle timeout; returns how many. A scan
+     * racing with eviction sees the flag and starts a new state.
+     */
+    public int evictIdle(long nowNanos) {
+        int count = 0;
+        for (Map.Entry<String, DeviceState> entry : devices.entrySet()) {
+            DeviceState state = entry.getValue();
+            synchronized (state) {
+                if (state.pendingScans == 0 && nowNanos - state.lastScanNanos > idleNanos) {
+                    state.evicted = true;
+                    devices.remove(entry.getKey(), state);
+                    evicted.incrementAndGet();
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void flush(String deviceId) {
+        DeviceState state = devices.get(deviceId);
+        if (state == null) {
+            return;
+        }
+
+        List<CartDTO> items = new ArrayList<>();
+        int scans;
+        synchronized (state) {
+            if (state.pendingScans == 0) {
+                return;
+            }
+            state.pending.forEach((barcode, count) -> {
+                CartDTO item = new CartDTO();
+                item.setBarcode(barcode);
+                item.setQuantity(count);
+                items.add(item);
+            });
+            scans = state.pendingScans;
+            state.pending.clear();
+            state.pendingScans = 0;
+        }
+
+        String userId = deviceRegistry.userFor(deviceId);
+        try {
+            if (userId == null) {
+                unpaired.addAndGet(scans);
+                logger.warn("⚠️ Device {} was released before {} scan(s) were written, dropping them", deviceId, scans);
+                return;
+            }
+            CartBatchResultDTO result = cartService.addScannedItems(userId, items);
+            int failedScans = failedScans(items, result);
+            written.addAndGet(scans - failedScans);
+            failed.addAndGet(failedScans);
+            logger.info("✅ Wrote {} scan(s) from device {} for user {} ({} failed)", scans - failedScans, deviceId, userId, failedScans);
+        } catch (Exception e) {
+            failed.addAndGet(scans);
+            logger.error("❌ Failed to write {} scan(s) from device {}: {}", scans, deviceId, e.getMessage(), e);
+        } finally {
+            pendingPermits.release(scans);
+        }
+    }
+
+    // Items are one per barcode with the scans as their quantity, so a failed item fails all of its scans
+    private static int failedScans(List<CartDTO> items, CartBatchResultDTO result) {
+        if (result.getResults() == null) {
+            return result.getFailed();
+        }
+        int failedScans = 0;
+        for (CartBatchItemResultDTO item : result.getResults()) {
+            if (item != null && !item.isSuccess()) {
+                failedScans += items.get(item.getIndex()).getQuantity();
+            }
+        }
+        return failedScans;
+    }
+
+    private static final class DeviceState {
+        private boolean evicted;
+        private String lastBarcode;
+        private long lastScanNanos;
+        private final Map<String, Integer> pending = new LinkedHashMap<>();
+        private int pendingScans;
+    }
+
+}
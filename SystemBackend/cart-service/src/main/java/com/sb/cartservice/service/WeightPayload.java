@@ -0,0 +1,117 @@
+package com.sb.cartservice.service;
+
+/**
+ * Reads the load-cell value out of a weight message straight from its bytes: either {"weight": 1234.5} or the bare
+ * number. Readings arrive about 10 times a second per cart, so no string or JSON tree is built for them.
+ */
+public final class WeightPayload {
+
+    private static final byte[] KEY = {'"', 'w', 'e', 'i', 'g', 'h', 't', '"'};
+    private static final double[] POWERS_OF_TEN = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    private WeightPayload() {
+    }
+
+    /** The weight in the payload, or NaN when it has none or it is not a plain number. */
+    public static float parse(byte[] payload) {
+        int p = skipWhitespace(payload, 0);
+        if (p < payload.length && payload[p] == '{') {
+            int key = indexOf(payload, p);
+            if (key < 0) {
+                return Float.NaN;
+            }
+            p = skipWhitespace(payload, key + KEY.length);
+            if (p == payload.length || payload[p] != ':') {
+                return Float.NaN;
+            }
+            p = skipWhitespace(payload, p + 1);
+            int end = numberEnd(payload, p);
+            return end > p ? number(payload, p, end) : Float.NaN;
+        }
+        // A bare number must be the whole message
+        int end = numberEnd(payload, p);
+        return end > p && skipWhitespace(payload, end) == payload.length ? number(payload, p, end) : Float.NaN;
+    }
+
+    private static int indexOf(byte[] payload, int from) {
+        outer:
+        for (int i = from; i + KEY.length <= payload.length; i++) {
+            for (int k = 0; k < KEY.length; k++) {
+                if (payload[i + k] != KEY[k]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] payload, int p) {
+        while (p < payload.length && (payload[p] == ' ' || payload[p] == '\t' || payload[p] == '\r' || payload[p] == '\n')) {
+            p++;
+        }
+        return p;
+    }
+
+    private static int numberEnd(byte[] payload, int p) {
+        while (p < payload.length && ((payload[p] >= '0' && payload[p] <= '9') || payload[p] == '-' || payload[p] == '+'
+                || payload[p] == '.' || payload[p] == 'e' || payload[p] == 'E')) {
+            p++;
+        }
+        return p;
+    }
+
+    // Decimal number with optional sign, fraction and exponent over [p, end); NaN if any of it is malformed
+    private static float number(byte[] payload, int p, int end) {
+        boolean negative = payload[p] == '-';
+        if (negative || payload[p] == '+') {
+            p++;
+        }
+        long mantissa = 0;
+        int digits = 0, exponent = 0, integerDigits = 0, fractionDigits = 0;
+        for (; p < end && payload[p] >= '0' && payload[p] <= '9'; p++, integerDigits++) {
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (payload[p] - '0');
+                digits += mantissa > 0 ? 1 : 0;
+            } else {
+                exponent++;
+            }
+        }
+        if (p < end && payload[p] == '.') {
+            for (p++; p < end && payload[p] >= '0' && payload[p] <= '9'; p++, fractionDigits++) {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (payload[p] - '0');
+                    digits += mantissa > 0 ? 1 : 0;
+                    exponent--;
+                }
+            }
+        }
+        if (integerDigits + fractionDigits == 0) {
+            return Float.NaN;
+        }
+        if (p < end && (payload[p] == 'e' || payload[p] == 'E')) {
+            p++;
+            boolean negativeExponent = p < end && payload[p] == '-';
+            if (negativeExponent || (p < end && payload[p] == '+')) {
+                p++;
+            }
+            int value = 0, exponentDigits = 0;
+            for (; p < end && payload[p] >= '0' && payload[p] <= '9'; p++, exponentDigits++) {
+                value = Math.min(value * 10 + (payload[p] - '0'), 1000);
+            }
+            if (exponentDigits == 0) {
+                return Float.NaN;
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        if (p != end) {
+            return Float.NaN;
+        }
+        double result = Math.abs(exponent) < POWERS_OF_TEN.length
+                ? (exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent])
+                : mantissa * Math.pow(10, exponent);
+        return (float) (negative ? -result : result);
+    }
+
+}
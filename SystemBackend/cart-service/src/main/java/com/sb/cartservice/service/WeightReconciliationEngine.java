@@ -0,0 +1,367 @@
+package com.sb.cartservice.service;
+
+import com.sb.cartservice.kafka.KafkaProducer;
+import com.sb.events.WeightMismatchEvent;
+import com.sb.events.WeightMismatchType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares the load-cell weight of each physical cart with the weight of the items scanned into it.
+ * <p>
+ * Every cart gets a slot in flat primitive arrays: a ring buffer of the last readings, the expected weight kept up
+ * to date from the cart totals, and the current mismatch state. A reading only touches its own slot and a
+ * per-stripe scratch buffer for the median, so steady-state ingestion allocates nothing. A state change must hold
+ * for the settle time before a {@link WeightMismatchEvent} is published, which hides the moment between putting an
+ * item in the cart and scanning it.
+ * <p>
+ * A slot goes back to the free list once its device has sent nothing for cart.weight.idle-timeout and nobody is paired
+ * with it, or as soon as it is released on unpairing. A paired cart keeps its slot, and with it the expected weight,
+ * however long it is quiet.
+ */
+@Service
+public class WeightReconciliationEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(WeightReconciliationEngine.class);
+
+    private static final String TOPIC = "cart-weight-events";
+    private static final int LOCK_STRIPES = 64;
+
+    private static final byte BALANCED = 0;
+    private static final byte UNSCANNED_ITEM = 1;
+    private static final byte REMOVED_ITEM = 2;
+
+    private final KafkaProducer kafkaProducer;
+    private final CartDeviceRegistry deviceRegistry;
+
+    private final int capacity;
+    private final int windowSize;
+    private final int minSamples;
+    private final double readingScale;
+    private final double absoluteTolerance;
+    private final double relativeTolerance;
+    private final long settleNanos;
+    private final long idleNanos;
+
+    private final Map<String, Integer> slots = new ConcurrentHashMap<>();
+    private final int[] freeSlots;  // released slots, reused before new ones; guarded by slots
+    private int freeCount;
+    private int nextSlot;
+
+    // Per-cart state, indexed by slot (readings by slot * windowSize)
+    private final float[] readings;
+    private final int[] head;
+    private final int[] count;
+    private final double[] expected;
+    private final byte[] reported;
+    private final byte[] candidate;
+    private final long[] candidateSince;
+    private final long[] lastSeen;
+    private final String[] owner;   // device holding the slot, null when free; a reading re-checks it under the lock
+
+    private final Object[] locks = new Object[LOCK_STRIPES];
+    private final float[] scratch;
+
+    private final LongAdder readingsProcessed = new LongAdder();
+    private final LongAdder eventsPublished = new LongAdder();
+    private final LongAdder slotsEvicted = new LongAdder();
+
+    public WeightReconciliationEngine(KafkaProducer kafkaProducer,
+                                      CartDeviceRegistry deviceRegistry,
+                                      @Value("${cart.weight.max-carts:10000}") int capacity,
+                                      @Value("${cart.weight.window-size:10}") int windowSize,
+                                      @Value("${cart.weight.reading-scale:0.001}") double readingScale,
+                                      @Value("${cart.weight.tolerance:0.05}") double absoluteTolerance,
+                                      @Value("${cart.weight.tolerance-ratio:0.05}") double relativeTolerance,
+                                      @Value("${cart.weight.settle-time:1500ms}") Duration settleTime,
+                                      @Value("${cart.weight.idle-timeout:10m}") Duration idleTimeout) {
+        this.kafkaProducer = kafkaProducer;
+        this.deviceRegistry = deviceRegistry;
+        this.capacity = capacity;
+        this.windowSize = windowSize;
+        this.minSamples = Math.max(1, windowSize / 2);
+        this.readingScale = readingScale;
+        this.absoluteTolerance = absoluteTolerance;
+        this.relativeTolerance = relativeTolerance;
+        this.settleNanos = settleTime.toNanos();
+        this.idleNanos = idleTimeout.toNanos();
+
+        this.readings = new float[capacity * windowSize];
+        this.head = new int[capacity];
+        this.count = new int[capacity];
+        this.expected = new double[capacity];
+        this.reported = new byte[capacity];
+        this.candidate = new byte[capacity];
+        this.candidateSince = new long[capacity];
+        this.lastSeen = new long[capacity];
+        this.owner = new String[capacity];
+        this.freeSlots = new int[capacity];
+        this.scratch = new float[LOCK_STRIPES * windowSize];
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+        logger.info("⚖️ Weight reconciliation engine initialised (maxCarts={}, window={})", capacity, windowSize);
+    }
+
+    public void onReading(String deviceId, float rawWeight) {
+        onReading(deviceId, rawWeight, System.nanoTime());
+    }
+
+    /**
+     * Records one load-cell reading (in firmware units, scaled by cart.weight.reading-scale) taken at nowNanos.
+     */
+    public void onReading(String deviceId, float rawWeight, long nowNanos) {
+        byte transition;
+        double expectedWeight;
+        float median;
+        while (true) {
+            int slot = slotFor(deviceId);
+            if (slot < 0) {
+                return;
+            }
+            int stripe = slot % LOCK_STRIPES;
+            synchronized (locks[stripe]) {
+                // Evicted (and maybe handed to another device) between the lookup and the lock: look it up again
+                if (!deviceId.equals(owner[slot])) {
+                    continue;
+                }
+                readingsProcessed.increment();
+                lastSeen[slot] = nowNanos;
+                int base = slot * windowSize;
+                readings[base + head[slot]] = (float) (rawWeight * readingScale);
+                head[slot] = (head[slot] + 1) % windowSize;
+                if (count[slot] < windowSize) {
+                    count[slot]++;
+                }
+                if (count[slot] < minSamples || deviceRegistry.userFor(deviceId) == null) {
+                    return;
+                }
+
+                median = median(base, count[slot], stripe * windowSize);
+                expectedWeight = expected[slot];
+                double tolerance = Math.max(absoluteTolerance, expectedWeight * relativeTolerance);
+                double difference = median - expectedWeight;
+                byte state = difference > tolerance ? UNSCANNED_ITEM : difference < -tolerance ? REMOVED_ITEM : BALANCED;
+
+                if (state == reported[slot]) {
+                    candidate[slot] = state;
+                    return;
+                }
+                if (state != candidate[slot]) {
+                    candidate[slot] = state;
+                    candidateSince[slot] = nowNanos;
+                    return;
+                }
+                if (nowNanos - candidateSince[slot] < settleNanos) {
+                    return;
+                }
+                reported[slot] = state;
+                transition = state;
+            }
+            break;
+        }
+
+        publish(deviceId, transition, expectedWeight, median);
+    }
+
+    /** Sets the weight the paired cart should hold, e.g. after pairing. */
+    public void setExpectedWeight(String deviceId, double expectedWeight) {
+        int slot = slotFor(deviceId);
+        if (slot < 0) {
+            return;
+        }
+        synchronized (locks[slot % LOCK_STRIPES]) {
+            if (deviceId.equals(owner[slot])) {
+                expected[slot] = expectedWeight;
+            }
+        }
+    }
+
+    /** Called with the user's new running total weight whenever their cart lines change. */
+    public void onCartWeightChanged(String userId, double totalWeight) {
+        String deviceId = deviceRegistry.deviceFor(userId);
+        if (deviceId != null) {
+            setExpectedWeight(deviceId, totalWeight);
+        }
+    }
+
+    /** Forgets readings and state for a device, e.g. when a shopper starts or stops using it. */
+    public void reset(String deviceId) {
+        Integer slot = slots.get(deviceId);
+        if (slot == null) {
+            return;
+        }
+        synchronized (locks[slot % LOCK_STRIPES]) {
+            if (deviceId.equals(owner[slot])) {
+                clear(slot);
+            }
+        }
+    }
+
+    /** Frees the device's slot right away, e.g. once its shopper has unpaired. */
+    public void release(String deviceId) {
+        synchronized (slots) {
+            Integer slot = slots.get(deviceId);
+            if (slot != null) {
+                free(deviceId, slot);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${cart.weight.evict-interval:60000}")
+    public void evictIdle() {
+        evictIdle(System.nanoTime());
+    }
+
+    /** Frees the slots of unpaired devices that have sent nothing for the idle timeout; returns how many. */
+    public int evictIdle(long nowNanos) {
+        int evicted = 0;
+        synchronized (slots) {
+            List<Map.Entry<String, Integer>> entries = new ArrayList<>(slots.entrySet());
+            for (Map.Entry<String, Integer> entry : entries) {
+                int slot = entry.getValue();
+                boolean idle;
+                synchronized (locks[slot % LOCK_STRIPES]) {
+                    idle = nowNanos - lastSeen[slot] >= idleNanos;
+                }
+                if (idle && deviceRegistry.userFor(entry.getKey()) == null) {
+                    free(entry.getKey(), slot);
+                    evicted++;
+                }
+            }
+        }
+        if (evicted > 0) {
+            slotsEvicted.add(evicted);
+            logger.info("⚖️ Released {} idle weight slot(s), {} in use", evicted, slots.size());
+        }
+        return evicted;
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("carts", slots.size());
+        stats.put("capacity", capacity);
+        stats.put("readingsProcessed", readingsProcessed.sum());
+        stats.put("eventsPublished", eventsPublished.sum());
+        stats.put("slotsEvicted", slotsEvicted.sum());
+        return stats;
+    }
+
+    private int slotFor(String deviceId) {
+        Integer slot = slots.get(deviceId);
+        if (slot != null) {
+            return slot;
+        }
+        synchronized (slots) {
+            slot = slots.get(deviceId);
+            if (slot != null) {
+                return slot;
+            }
+            int next;
+            if (freeCount > 0) {
+                next = freeSlots[--freeCount];
+            } else if (nextSlot < capacity) {
+                next = nextSlot++;
+            } else {
+                logger.error("❌ Weight engine full ({} carts), ignoring device {}", capacity, deviceId);
+                return -1;
+            }
+            synchronized (locks[next % LOCK_STRIPES]) {
+                clear(next);
+                owner[next] = deviceId;
+                lastSeen[next] = System.nanoTime();
+            }
+            slots.put(deviceId, next);
+            return next;
+        }
+    }
+
+    // Caller holds the slots lock
+    private void free(String deviceId, int slot) {
+        synchronized (locks[slot % LOCK_STRIPES]) {
+            clear(slot);
+            owner[slot] = null;
+        }
+        slots.remove(deviceId);
+        freeSlots[freeCount++] = slot;
+    }
+
+    // Caller holds the slot's stripe lock
+    private void clear(int slot) {
+        head[slot] = 0;
+        count[slot] = 0;
+        expected[slot] = 0;
+        reported[slot] = BALANCED;
+        candidate[slot] = BALANCED;
+    }
+
+    // Median of the slot's ring buffer, computed in place on the stripe's scratch area
+    private float median(int base, int n, int scratchBase) {
+        System.arraycopy(readings, base, scratch, scratchBase, n);
+        int k = scratchBase + n / 2;
+        int left = scratchBase;
+        int right = scratchBase + n - 1;
+        while (left < right) {
+            float pivot = scratch[(left + right) >>> 1];
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (scratch[i] < pivot) i++;
+                while (scratch[j] > pivot) j--;
+                if (i <= j) {
+                    float tmp = scratch[i];
+                    scratch[i] = scratch[j];
+                    scratch[j] = tmp;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                break;
+            }
+        }
+        return scratch[k];
+    }
+
+    private void publish(String deviceId, byte state, double expectedWeight, float measuredWeight) {
+        WeightMismatchType type = switch (state) {
+            case UNSCANNED_ITEM -> WeightMismatchType.UNSCANNED_ITEM;
+            case REMOVED_ITEM -> WeightMismatchType.REMOVED_ITEM;
+            default -> WeightMismatchType.BALANCED;
+        };
+        String username = deviceRegistry.userFor(deviceId);
+        logger.info("⚖️ Cart {} ({}) is now {}: expected {} measured {}", deviceId, username, type, expectedWeight, measuredWeight);
+
+        try {
+            WeightMismatchEvent event = WeightMismatchEvent.newBuilder()
+                    .setDeviceId(deviceId)
+                    .setUsername(username != null ? username : "")
+                    .setType(type)
+                    .setExpectedWeight(expectedWeight)
+                    .setMeasuredWeight(measuredWeight)
+                    .setDetectedAt(LocalDateTime.now().toString())
+                    .build();
+            kafkaProducer.sendWeightMismatchEvent(TOPIC, event);
+            eventsPublished.increment();
+        } catch (Exception e) {
+            logger.error("❌ Failed to publish weight event for device {}: {}", deviceId, e.getMessage(), e);
+        }
+    }
+
+}
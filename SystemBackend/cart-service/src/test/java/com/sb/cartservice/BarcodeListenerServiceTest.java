@@ -0,0 +1,139 @@
+package com.sb.cartservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.cartservice.dto.CartBatchResultDTO;
+import com.sb.cartservice.dto.CartDTO;
+import com.sb.cartservice.service.BarcodeListenerService;
+import com.sb.cartservice.service.CartDeviceRegistry;
+import com.sb.cartservice.service.CartService;
+import com.sb.cartservice.service.ScanIngestionPipeline;
+import com.sb.cartservice.service.WeightReconciliationEngine;
+import io.moquette.broker.Server;
+import io.moquette.broker.config.MemoryConfig;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Properties;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * End-to-end ingestion against an in-process MQTT broker: device publishes, listener subscribes, pipeline writes.
+ */
+public class BarcodeListenerServiceTest {
+
+    @Mock
+    private CartService cartService;
+
+    @Mock
+    private WeightReconciliationEngine weightEngine;
+
+    private Server broker;
+    private ScanIngestionPipeline pipeline;
+    private BarcodeListenerService listener;
+    private MqttClient device;
+
+    @TempDir
+    Path dataDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        when(cartService.addScannedItems(any(), anyList())).thenReturn(new CartBatchResultDTO());
+
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Properties props = new Properties();
+        props.setProperty("host", "127.0.0.1");
+        props.setProperty("port", String.valueOf(port));
+        props.setProperty("allow_anonymous", "true");
+        props.setProperty("persistence_enabled", "false");
+        props.setProperty("data_path", dataDir.toString());
+        broker = new Server();
+        broker.startServer(new MemoryConfig(props));
+
+        CartDeviceRegistry deviceRegistry = new CartDeviceRegistry();
+        deviceRegistry.pair("cart001", "alice");
+        pipeline = new ScanIngestionPipeline(cartService, deviceRegistry, Duration.ofMillis(500),
+                20, Duration.ofMillis(100), 100, Duration.ofSeconds(1), Duration.ofMinutes(10));
+        pipeline.start();
+
+        listener = new BarcodeListenerService(pipeline, weightEngine, new ObjectMapper());
+        ReflectionTestUtils.setField(listener, "brokerUrl", "tcp://127.0.0.1:" + port);
+        ReflectionTestUtils.setField(listener, "endpoint", "");
+        ReflectionTestUtils.setField(listener, "clientId", "cart-service-test");
+        ReflectionTestUtils.setField(listener, "topic", "products/barcode/+");
+        ReflectionTestUtils.setField(listener, "weightTopic", "products/weight/+");
+        ReflectionTestUtils.setField(listener, "qos", 1);
+        listener.init();
+
+        device = new MqttClient("tcp://127.0.0.1:" + port, "cart001-device", new MemoryPersistence());
+        device.connect();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        device.disconnect();
+        device.close();
+        listener.cleanup();
+        pipeline.stop();
+        broker.stopServer();
+    }
+
+    private void publish(String topic, String payload) throws Exception {
+        device.publish(topic, payload.getBytes(StandardCharsets.UTF_8), 1, false);
+    }
+
+    //1. Scans published by a paired device end up as one debounced batch write for its shopper
+    @Test
+    @SuppressWarnings("unchecked")
+    void devicePublishes_ScansWrittenToPairedUsersCart() throws Exception {
+        publish("products/barcode/cart001", "{\"barcode\": \"4791234\"}");
+        publish("products/barcode/cart001", "{\"barcode\": \"4791234\"}"); // scanner re-read
+        publish("products/barcode/cart001", "4795678");
+        publish("products/barcode/cart002", "{\"barcode\": \"4791234\"}"); // nobody on cart002
+
+        ArgumentCaptor<List<CartDTO>> items = ArgumentCaptor.forClass(List.class);
+        verify(cartService, timeout(5000).atLeastOnce()).addScannedItems(eq("alice"), items.capture());
+        verify(cartService, after(300).atMost(2)).addScannedItems(eq("alice"), anyList());
+
+        List<String> barcodes = items.getAllValues().stream().flatMap(List::stream).map(CartDTO::getBarcode).toList();
+        assertThat(barcodes).containsExactlyInAnyOrder("4791234", "4795678");
+        verify(cartService, never()).addScannedItems(eq("bob"), anyList());
+        assertThat(pipeline.getStats().get("debounced")).isEqualTo(1L);
+        assertThat(pipeline.getStats().get("unpaired")).isEqualTo(1L);
+    }
+
+    //2. Weight readings go to the reconciliation engine, not the scan pipeline
+    @Test
+    void devicePublishesWeight_ReadingsRoutedToEngine() throws Exception {
+        publish("products/weight/cart001", "{\"weight\": 1250.5}");
+        publish("products/weight/cart001", "1300");
+        publish("products/weight/cart001", "{\"barcode\": \"4791234\"}"); // no weight field
+
+        verify(weightEngine, timeout(5000)).onReading("cart001", 1250.5f);
+        verify(weightEngine, timeout(5000)).onReading("cart001", 1300f);
+        verify(weightEngine, after(300).times(2)).onReading(any(), anyFloat());
+        verify(cartService, never()).addScannedItems(any(), anyList());
+    }
+
+}
@@ -0,0 +1,96 @@
+package com.sb.cartservice;
+
+import com.sb.billservice.grpc.BillDelta;
+import com.sb.billservice.grpc.BillDeltaAck;
+import com.sb.billservice.grpc.BillUpdateServiceGrpc;
+import com.sb.cartservice.service.BillDeltaStreamer;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BillDeltaStreamerTest {
+
+    private BillDeltaStreamer streamer;
+
+    // Every stream the client opened, with what it sent and where bill-service answers
+    private final List<List<BillDelta>> streams = new ArrayList<>();
+    private final List<StreamObserver<BillDeltaAck>> responses = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        BillUpdateServiceGrpc.BillUpdateServiceStub stub = mock(BillUpdateServiceGrpc.BillUpdateServiceStub.class);
+        when(stub.streamBillDeltas(any())).thenAnswer(invocation -> {
+            List<BillDelta> sent = new ArrayList<>();
+            streams.add(sent);
+            responses.add(invocation.getArgument(0));
+            return new StreamObserver<BillDelta>() {
+                @Override
+                public void onNext(BillDelta delta) {
+                    sent.add(delta);
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                }
+
+                @Override
+                public void onCompleted() {
+                }
+            };
+        });
+        streamer = new BillDeltaStreamer();
+        ReflectionTestUtils.setField(streamer, "billUpdateServiceStub", stub);
+    }
+
+    private static BillDelta delta(String username, long sequence, double totalPrice) {
+        return BillDelta.newBuilder().setUsername(username).setCartId("cart-1").setSequence(sequence)
+                .setPriceDelta(100).setTotalPrice(totalPrice).build();
+    }
+
+    private void ack(int stream, String username, long sequence) {
+        responses.get(stream).onNext(BillDeltaAck.newBuilder().setApplied(1).putLastSequences(username, sequence).build());
+    }
+
+    //1. A delta bill-service left out of its ack is replayed on the next stream, even with nothing new to send
+    @Test
+    void ack_OmitsUser_DeltaReplayed() {
+        streamer.send(delta("alice", 3, 300));
+        streamer.send(delta("bob", 7, 700));
+        streamer.flush();
+        ack(0, "alice", 3); // bob's delta failed to apply
+
+        streamer.flush();
+
+        assertThat(streams).hasSize(2);
+        assertThat(streams.get(1)).extracting(BillDelta::getUsername).containsExactly("bob");
+
+        ack(1, "bob", 7);
+        streamer.flush();
+        assertThat(streams).hasSize(2);
+    }
+
+    //2. A pending delta sent on a later stream is not replayed because an earlier stream's ack left it out
+    @Test
+    void ack_NewerDeltaInFlight_NotReplayed() {
+        streamer.send(delta("alice", 3, 300));
+        streamer.flush();
+        streamer.send(delta("alice", 4, 400));
+        ack(0, "alice", 3);
+
+        streamer.flush();
+
+        assertThat(streams).hasSize(2);
+        assertThat(streams.get(1)).extracting(BillDelta::getSequence).containsExactly(4L);
+    }
+
+}
@@ -0,0 +1,26 @@
+package com.sb.cartservice;
+
+import com.sb.cartservice.service.CartPricing;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class CartPricingTest {
+
+    //1. Without a measured weight, or with the master weight, a line is unit price x quantity
+    @Test
+    void noOrMasterWeight_UnitPriced() {
+        assertThat(CartPricing.linePrice(450.0, 1.0, 3, null)).isEqualTo(1350.0);
+        assertThat(CartPricing.linePrice(450.0, 1.0, 3, 1.0)).isEqualTo(1350.0);
+        assertThat(CartPricing.linePrice(450.0, 1.0, 3, 0.0)).isEqualTo(1350.0);
+    }
+
+    //2. A measured weight that differs from the master weight prices the line by weight, ignoring quantity
+    @Test
+    void differentWeight_WeightPriced() {
+        assertThat(CartPricing.isWeightBased(1.5, 1.0)).isTrue();
+        assertThat(CartPricing.linePrice(450.0, 1.0, 3, 1.5)).isCloseTo(675.0, within(1e-9));
+    }
+
+}
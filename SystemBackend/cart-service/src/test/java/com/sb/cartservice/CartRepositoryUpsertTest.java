@@ -0,0 +1,114 @@
+package com.sb.cartservice;
+
+import com.sb.cartservice.model.Cart;
+import com.sb.cartservice.repository.CartRepositoryCustomImpl;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Batched cart line upserts against an in-memory database in MySQL mode, with the same unique (user_id, barcode)
+ * index as the cart table.
+ */
+public class CartRepositoryUpsertTest {
+
+    private JdbcTemplate jdbcTemplate;
+    private CartRepositoryCustomImpl repository;
+
+    @BeforeEach
+    void setUp() {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(
+                "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE cart (id BIGINT AUTO_INCREMENT PRIMARY KEY, user_id VARCHAR(255) NOT NULL, " +
+                "barcode VARCHAR(255) NOT NULL, name VARCHAR(255) NOT NULL, quantity INT NOT NULL, " +
+                "price DOUBLE NOT NULL, weight DOUBLE NOT NULL)");
+        jdbcTemplate.execute("CREATE UNIQUE INDEX ux_cart_user_barcode ON cart (user_id, barcode)");
+        repository = new CartRepositoryCustomImpl(jdbcTemplate, mock(EntityManager.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("SHUTDOWN");
+    }
+
+    private static Cart line(String userId, String barcode, int quantity, double price) {
+        Cart cart = new Cart();
+        cart.setUserId(userId);
+        cart.setBarcode(barcode);
+        cart.setName("Product " + barcode);
+        cart.setQuantity(quantity);
+        cart.setPrice(price);
+        cart.setWeight(quantity * 100.0);
+        return cart;
+    }
+
+    private Map<String, Object> row(String userId, String barcode) {
+        return jdbcTemplate.queryForMap("SELECT quantity, price, weight FROM cart WHERE user_id = ? AND barcode = ?",
+                userId, barcode);
+    }
+
+    //1. Repeats within a batch and lines already in the cart are merged into one row per (user, barcode)
+    @Test
+    void upsertItems_MergesIntoExistingLines() {
+        repository.upsertItems(List.of(line("alice", "4791", 1, 250)));
+
+        int[] counts = repository.upsertItems(List.of(
+                line("alice", "4791", 2, 500),
+                line("alice", "4795", 1, 120),
+                line("alice", "4791", 1, 250),
+                line("bob", "4791", 3, 750)));
+
+        assertThat(counts).hasSize(3);
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart", Integer.class)).isEqualTo(3);
+        assertThat(row("alice", "4791")).containsEntry("QUANTITY", 4).containsEntry("PRICE", 1000.0)
+                .containsEntry("WEIGHT", 400.0);
+        assertThat(row("alice", "4795")).containsEntry("QUANTITY", 1);
+        assertThat(row("bob", "4791")).containsEntry("QUANTITY", 3);
+        assertThat(repository.upsertItems(List.of())).isEmpty();
+    }
+
+    //2. Concurrent adds of the same barcode all land on the one line; none is lost and no duplicate row appears
+    @Test
+    void upsertItems_ConcurrentSameBarcode_QuantitiesAdd() throws Exception {
+        int writers = 8, batches = 25;
+        ExecutorService executor = Executors.newFixedThreadPool(writers);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (int b = 0; b < batches; b++) {
+                    repository.upsertItems(List.of(line("alice", "4791", 1, 250), line("alice", "4795", 2, 240)));
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        assertThat(jdbcTemplate.queryForObject("SELECT COUNT(*) FROM cart", Integer.class)).isEqualTo(2);
+        assertThat(row("alice", "4791")).containsEntry("QUANTITY", writers * batches)
+                .containsEntry("PRICE", writers * batches * 250.0);
+        assertThat(row("alice", "4795")).containsEntry("QUANTITY", writers * batches * 2);
+    }
+
+}
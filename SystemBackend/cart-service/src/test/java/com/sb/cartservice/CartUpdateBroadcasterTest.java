@@ -0,0 +1,100 @@
+package com.sb.cartservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.cartservice.controller.CartController;
+import com.sb.cartservice.dto.CartDTO;
+import com.sb.cartservice.dto.CartSnapshotDTO;
+import com.sb.cartservice.dto.CartTotalsDTO;
+import com.sb.cartservice.service.CartService;
+import com.sb.cartservice.service.CartUpdateBroadcaster;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+public class CartUpdateBroadcasterTest {
+
+    @Mock
+    private CartService cartService;
+
+    private CartUpdateBroadcaster broadcaster;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        broadcaster = new CartUpdateBroadcaster(new ObjectMapper(), Duration.ofMinutes(1));
+        mockMvc = MockMvcBuilders.standaloneSetup(new CartController(cartService)).build();
+    }
+
+    private MvcResult subscribe(String userId, CartSnapshotDTO snapshot) throws Exception {
+        doAnswer(invocation -> broadcaster.subscribe(userId, () -> snapshot)).when(cartService).subscribeToUpdates();
+        return mockMvc.perform(get("/cart/customer/stream"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    private static CartDTO line(String barcode, int quantity) {
+        CartDTO dto = new CartDTO();
+        dto.setBarcode(barcode);
+        dto.setQuantity(quantity);
+        return dto;
+    }
+
+    //1. A new stream starts with the current cart, then receives the shopper's own changes
+    @Test
+    void subscribe_SnapshotThenUpdates() throws Exception {
+        MvcResult alice = subscribe("alice", new CartSnapshotDTO(List.of(line("4791234", 1)), new CartTotalsDTO(100, 0.5, 3)));
+        MvcResult bob = subscribe("bob", new CartSnapshotDTO(List.of(), new CartTotalsDTO()));
+
+        broadcaster.publishLines("alice", List.of(line("4791234", 2)));
+        broadcaster.publishTotals("alice", new CartTotalsDTO(200, 1.0, 4));
+
+        String stream = alice.getResponse().getContentAsString();
+        assertThat(stream).startsWith("event:snapshot\ndata:{\"items\":[{");
+        assertThat(stream).contains("event:cart-lines\ndata:[{");
+        assertThat(stream).contains("\"quantity\":2");
+        assertThat(stream).contains("event:totals\nid:4\ndata:{\"totalPrice\":200.0,\"totalWeight\":1.0,\"sequence\":4}");
+        assertThat(stream.indexOf("event:snapshot")).isLessThan(stream.indexOf("event:cart-lines"));
+
+        assertThat(bob.getResponse().getContentAsString()).doesNotContain("event:cart-lines", "event:totals");
+        assertThat(broadcaster.getStats().get("users")).isEqualTo(2);
+        assertThat(broadcaster.getStats().get("connections")).isEqualTo(2);
+    }
+
+    //2. Changes committed while the snapshot is being read are delivered after it, not before
+    @Test
+    void changeDuringSnapshot_DeliveredAfterSnapshot() throws Exception {
+        when(cartService.subscribeToUpdates()).thenAnswer(invocation -> broadcaster.subscribe("alice", () -> {
+            broadcaster.publishTotals("alice", new CartTotalsDTO(50, 0.2, 7));
+            return new CartSnapshotDTO(List.of(), new CartTotalsDTO(40, 0.1, 6));
+        }));
+        MvcResult alice = mockMvc.perform(get("/cart/customer/stream")).andReturn();
+
+        String stream = alice.getResponse().getContentAsString();
+        assertThat(stream.indexOf("event:snapshot")).isLessThan(stream.indexOf("event:totals"));
+        assertThat(stream).contains("id:7");
+    }
+
+    //3. Users without an open stream cost nothing
+    @Test
+    void publishWithoutSubscribers_Ignored() {
+        broadcaster.publishLines("carol", List.of(line("4791234", 1)));
+        broadcaster.sendHeartbeats();
+
+        assertThat(broadcaster.getStats().get("eventsSent")).isEqualTo(0L);
+    }
+
+}
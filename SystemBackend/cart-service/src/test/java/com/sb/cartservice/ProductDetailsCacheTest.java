@@ -0,0 +1,112 @@
+package com.sb.cartservice;
+
+import com.google.common.util.concurrent.Futures;
+import com.sb.cartservice.service.ProductDetailsCache;
+import com.sb.productservice.grpc.ProductDetailsBatchRequest;
+import com.sb.productservice.grpc.ProductDetailsBatchResponse;
+import com.sb.productservice.grpc.ProductDetailsRequest;
+import com.sb.productservice.grpc.ProductDetailsResponse;
+import com.sb.productservice.grpc.ProductDetailsServiceGrpc;
+import io.grpc.Deadline;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ProductDetailsCacheTest {
+
+    @Mock
+    private ProductDetailsServiceGrpc.ProductDetailsServiceFutureStub productDetailsServiceStub;
+
+    private ProductDetailsCache productDetailsCache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        productDetailsCache = new ProductDetailsCache(100, Duration.ofMinutes(5), Duration.ofSeconds(1), Runnable::run);
+        when(productDetailsServiceStub.withDeadline(any(Deadline.class))).thenReturn(productDetailsServiceStub);
+        ReflectionTestUtils.setField(productDetailsCache, "productDetailsServiceStub", productDetailsServiceStub);
+    }
+
+    private static ProductDetailsResponse found(String name) {
+        return ProductDetailsResponse.newBuilder()
+                .setExists(true)
+                .setProductName(name)
+                .setProductPrice(250.0)
+                .setProductWeight(0.5)
+                .build();
+    }
+
+    //1. Repeat lookups for the same barcode hit product-service only once
+    @Test
+    void get_RepeatedBarcode_CallsProductServiceOnce() {
+        when(productDetailsServiceStub.getProductDetails(any(ProductDetailsRequest.class))).thenReturn(Futures.immediateFuture(found("Milo")));
+
+        ProductDetailsResponse first = productDetailsCache.get("4791234");
+        ProductDetailsResponse second = productDetailsCache.get("4791234");
+
+        assertThat(first.getProductName()).isEqualTo("Milo");
+        assertThat(second).isSameAs(first);
+        verify(productDetailsServiceStub, times(1)).getProductDetails(any(ProductDetailsRequest.class));
+
+        Map<String, Object> stats = productDetailsCache.getStats();
+        assertThat(stats.get("hitCount")).isEqualTo(1L);
+        assertThat(stats.get("missCount")).isEqualTo(1L);
+    }
+
+    //2. Invalidation forces the next lookup back to product-service
+    @Test
+    void invalidate_CachedBarcode_ReloadsOnNextLookup() {
+        when(productDetailsServiceStub.getProductDetails(any(ProductDetailsRequest.class)))
+                .thenReturn(Futures.immediateFuture(found("Milo")), Futures.immediateFuture(found("Milo 400g")));
+
+        productDetailsCache.get("4791234");
+        productDetailsCache.invalidate("4791234");
+        ProductDetailsResponse reloaded = productDetailsCache.get("4791234");
+
+        assertThat(reloaded.getProductName()).isEqualTo("Milo 400g");
+        verify(productDetailsServiceStub, times(2)).getProductDetails(any(ProductDetailsRequest.class));
+    }
+
+    //3. Unknown barcodes are not cached
+    @Test
+    void get_UnknownBarcode_IsNotCached() {
+        when(productDetailsServiceStub.getProductDetails(any(ProductDetailsRequest.class)))
+                .thenReturn(Futures.immediateFuture(ProductDetailsResponse.newBuilder().setExists(false).build()));
+
+        assertThat(productDetailsCache.get("0000").getExists()).isFalse();
+        assertThat(productDetailsCache.get("0000").getExists()).isFalse();
+
+        verify(productDetailsServiceStub, times(2)).getProductDetails(any(ProductDetailsRequest.class));
+    }
+
+    //4. Bulk lookups fetch only the misses, in a single batched call
+    @Test
+    void getAll_MixedHitsAndMisses_FetchesMissesInOneCall() {
+        when(productDetailsServiceStub.getProductDetails(any(ProductDetailsRequest.class))).thenReturn(Futures.immediateFuture(found("Milo")));
+        when(productDetailsServiceStub.getProductDetailsBatch(any(ProductDetailsBatchRequest.class)))
+                .thenReturn(Futures.immediateFuture(ProductDetailsBatchResponse.newBuilder()
+                        .putProducts("111", found("Sugar"))
+                        .putProducts("0000", ProductDetailsResponse.newBuilder().setExists(false).build())
+                        .build()));
+
+        productDetailsCache.get("4791234");
+        Map<String, ProductDetailsResponse> result = productDetailsCache.getAll(List.of("4791234", "111", "0000"));
+
+        assertThat(result.get("4791234").getProductName()).isEqualTo("Milo");
+        assertThat(result.get("111").getProductName()).isEqualTo("Sugar");
+        assertThat(result.get("0000").getExists()).isFalse();
+        verify(productDetailsServiceStub).getProductDetailsBatch(
+                ProductDetailsBatchRequest.newBuilder().addBarcodes("111").addBarcodes("0000").build());
+    }
+
+}
@@ -0,0 +1,152 @@
+package com.sb.cartservice;
+
+import com.sb.cartservice.dto.CartBatchItemResultDTO;
+import com.sb.cartservice.dto.CartBatchResultDTO;
+import com.sb.cartservice.dto.CartDTO;
+import com.sb.cartservice.service.CartDeviceRegistry;
+import com.sb.cartservice.service.CartService;
+import com.sb.cartservice.service.ScanIngestionPipeline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ScanIngestionPipelineTest {
+
+    @Mock
+    private CartService cartService;
+
+    private final CartDeviceRegistry deviceRegistry = new CartDeviceRegistry();
+
+    private ScanIngestionPipeline pipeline;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(cartService.addScannedItems(any(), anyList())).thenReturn(new CartBatchResultDTO());
+        deviceRegistry.pair("cart001", "alice");
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (pipeline != null) {
+            pipeline.stop();
+        }
+    }
+
+    private ScanIngestionPipeline pipeline(int batchSize, Duration batchInterval, int maxPending) {
+        pipeline = new ScanIngestionPipeline(cartService, deviceRegistry, Duration.ofMillis(500),
+                batchSize, batchInterval, maxPending, Duration.ofMillis(100), Duration.ofMinutes(10));
+        pipeline.start();
+        return pipeline;
+    }
+
+    //1. Repeat reads of the same barcode within the window count once; other barcodes are batched together
+    @Test
+    @SuppressWarnings("unchecked")
+    void accept_DuplicateScans_DebouncedAndBatched() {
+        pipeline(3, Duration.ofHours(1), 100);
+
+        assertThat(pipeline.accept("cart001", "111")).isTrue();
+        assertThat(pipeline.accept("cart001", "111")).isFalse();
+        assertThat(pipeline.accept("cart001", "222")).isTrue();
+        assertThat(pipeline.accept("cart001", "111")).isTrue();
+
+        ArgumentCaptor<List<CartDTO>> items = ArgumentCaptor.forClass(List.class);
+        verify(cartService, timeout(2000)).addScannedItems(eq("alice"), items.capture());
+
+        assertThat(items.getValue()).extracting(CartDTO::getBarcode).containsExactly("111", "222");
+        assertThat(items.getValue()).extracting(CartDTO::getQuantity).containsExactly(2, 1);
+        assertThat(pipeline.getStats().get("debounced")).isEqualTo(1L);
+    }
+
+    //2. Scans from a device nobody has paired with are dropped
+    @Test
+    void accept_UnpairedDevice_Dropped() {
+        pipeline(1, Duration.ofMillis(50), 100);
+
+        assertThat(pipeline.accept("cart999", "111")).isFalse();
+
+        verify(cartService, after(200).never()).addScannedItems(any(), anyList());
+        assertThat(pipeline.getStats().get("unpaired")).isEqualTo(1L);
+    }
+
+    //3. Partial batches are written when the batch interval passes
+    @Test
+    void accept_PartialBatch_FlushedOnInterval() {
+        pipeline(50, Duration.ofMillis(50), 100);
+
+        pipeline.accept("cart001", "111");
+
+        verify(cartService, timeout(2000)).addScannedItems(eq("alice"), anyList());
+    }
+
+    //4. When the writes cannot keep up the caller is never held back: scans wait off its thread and are finally refused
+    @Test
+    void accept_PipelineFull_RefusedWithoutBlockingCaller() throws Exception {
+        pipeline(50, Duration.ofHours(1), 2);
+
+        List<Boolean> accepted = new ArrayList<>();
+        long start = System.nanoTime();
+        for (String barcode : List.of("111", "222", "333", "444", "555", "666")) {
+            accepted.add(pipeline.accept("cart001", barcode));
+        }
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofMillis(100));
+        assertThat(accepted).contains(false);
+
+        // Two fit the pipeline; the rest are refused at the hand-off or after waiting out the backpressure timeout
+        long deadline = System.nanoTime() + Duration.ofSeconds(2).toNanos();
+        while (!pipeline.getStats().get("rejected").equals(4L) && System.nanoTime() < deadline) {
+            Thread.sleep(20);
+        }
+        assertThat(pipeline.getStats()).containsEntry("rejected", 4L).containsEntry("availablePermits", 0);
+    }
+
+    //5. Items the batch write reports as failed are counted as failed scans, not written ones
+    @Test
+    void flush_FailedItems_CountedAsFailed() {
+        CartBatchResultDTO result = new CartBatchResultDTO();
+        result.setFailed(1);
+        result.setResults(List.of(new CartBatchItemResultDTO(0, "111", false, "Product not found", null),
+                new CartBatchItemResultDTO(1, "222", true, null, null)));
+        when(cartService.addScannedItems(any(), anyList())).thenReturn(result);
+        pipeline(3, Duration.ofHours(1), 100);
+
+        pipeline.accept("cart001", "111");
+        pipeline.accept("cart001", "222");
+        pipeline.accept("cart001", "111");
+
+        verify(cartService, timeout(2000)).addScannedItems(eq("alice"), anyList());
+        verify(cartService, after(100).times(1)).addScannedItems(any(), anyList());
+        assertThat(pipeline.getStats()).containsEntry("written", 1L).containsEntry("failed", 2L);
+    }
+
+    //6. Devices idle for the timeout are forgotten once their scans are written, and start afresh when heard again
+    @Test
+    void evictIdle_IdleDevicesForgotten() {
+        pipeline(1, Duration.ofHours(1), 100);
+        pipeline.accept("cart001", "111");
+        verify(cartService, timeout(2000)).addScannedItems(eq("alice"), anyList());
+        long now = System.nanoTime();
+
+        assertThat(pipeline.evictIdle(now)).isZero();
+        assertThat(pipeline.evictIdle(now + Duration.ofMinutes(11).toNanos())).isEqualTo(1);
+        assertThat(pipeline.getStats()).containsEntry("devices", 0).containsEntry("evicted", 1L);
+
+        assertThat(pipeline.accept("cart001", "111")).isTrue(); // no longer a repeat read
+        assertThat(pipeline.getStats().get("devices")).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.sb.cartservice;
+
+import com.sb.cartservice.kafka.KafkaProducer;
+import com.sb.cartservice.service.CartDeviceRegistry;
+import com.sb.cartservice.service.WeightPayload;
+import com.sb.cartservice.service.WeightReconciliationEngine;
+import com.sb.events.WeightMismatchEvent;
+import com.sb.events.WeightMismatchType;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class WeightReconciliationEngineTest {
+
+    private static final long TICK = 100_000_000L; // 10 Hz
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    private CartDeviceRegistry deviceRegistry;
+    private WeightReconciliationEngine engine;
+    private long now;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        deviceRegistry = new CartDeviceRegistry();
+        deviceRegistry.pair("cart001", "alice");
+        // grams in, kg compared; 50 g or 5% tolerance; 1 s settle time
+        engine = new WeightReconciliationEngine(kafkaProducer, deviceRegistry, 100, 10, 0.001, 0.05, 0.05, Duration.ofSeconds(1),
+                Duration.ofMinutes(10));
+        engine.onCartWeightChanged("alice", 1.0);
+    }
+
+    private void feed(float grams, int readings) {
+        for (int i = 0; i < readings; i++) {
+            now += TICK;
+            engine.onReading("cart001", grams, now);
+        }
+    }
+
+    private WeightMismatchEvent lastEvent() {
+        ArgumentCaptor<WeightMismatchEvent> event = ArgumentCaptor.forClass(WeightMismatchEvent.class);
+        verify(kafkaProducer, atLeastOnce()).sendWeightMismatchEvent(eq("cart-weight-events"), event.capture());
+        return event.getValue();
+    }
+
+    //1. Readings within tolerance of the scanned weight raise nothing
+    @Test
+    void readingsMatchScannedWeight_NoEvent() {
+        feed(1020f, 30);
+
+        verify(kafkaProducer, never()).sendWeightMismatchEvent(any(), any());
+    }
+
+    //2. An item put in without scanning is reported once it has settled, and cleared once it is scanned
+    @Test
+    void unscannedItem_ReportedAfterSettleThenCleared() {
+        feed(1000f, 10);
+        feed(1500f, 10); // shorter than window fill + settle time
+        verify(kafkaProducer, never()).sendWeightMismatchEvent(any(), any());
+
+        feed(1500f, 10);
+        WeightMismatchEvent event = lastEvent();
+        assertThat(event.getType()).isEqualTo(WeightMismatchType.UNSCANNED_ITEM);
+        assertThat(event.getDeviceId()).isEqualTo("cart001");
+        assertThat(event.getUsername()).isEqualTo("alice");
+        assertThat(event.getExpectedWeight()).isEqualTo(1.0);
+        assertThat(event.getMeasuredWeight()).isEqualTo(1.5);
+
+        engine.onCartWeightChanged("alice", 1.5);
+        feed(1500f, 15);
+        assertThat(lastEvent().getType()).isEqualTo(WeightMismatchType.BALANCED);
+        verify(kafkaProducer, times(2)).sendWeightMismatchEvent(any(), any());
+    }
+
+    //3. Taking a scanned item back out is reported as a removal
+    @Test
+    void itemRemoved_ReportedAsRemoval() {
+        feed(400f, 30);
+
+        assertThat(lastEvent().getType()).isEqualTo(WeightMismatchType.REMOVED_ITEM);
+    }
+
+    //4. Short spikes (an item dropped in and bouncing) are filtered by the median
+    @Test
+    void spikes_IgnoredByMedian() {
+        for (int i = 0; i < 30; i++) {
+            feed(i % 3 == 0 ? 5000f : 1000f, 1);
+        }
+
+        verify(kafkaProducer, never()).sendWeightMismatchEvent(any(), any());
+    }
+
+    //5. Readings from a cart nobody is using are buffered but never reported
+    @Test
+    void unpairedDevice_NoEvent() {
+        deviceRegistry.unpair("cart001", "alice");
+        engine.reset("cart001");
+
+        feed(3000f, 30);
+
+        verify(kafkaProducer, never()).sendWeightMismatchEvent(any(), any());
+        assertThat(engine.getStats().get("readingsProcessed")).isEqualTo(30L);
+    }
+
+    //6. Idle carts nobody is using give their slot back, paired ones keep theirs, and freed slots are reused
+    @Test
+    void idleUnpairedDevice_SlotEvictedAndReused() {
+        engine = new WeightReconciliationEngine(kafkaProducer, deviceRegistry, 2, 10, 0.001, 0.05, 0.05,
+                Duration.ofSeconds(1), Duration.ofMinutes(1));
+        engine.onCartWeightChanged("alice", 1.0);
+        feed(1000f, 5);
+        now += TICK;
+        engine.onReading("cart002", 700f, now);
+        engine.onReading("cart003", 700f, now); // over capacity
+        assertThat(engine.getStats().get("carts")).isEqualTo(2);
+
+        assertThat(engine.evictIdle(now + Duration.ofSeconds(30).toNanos())).isZero();
+        assertThat(engine.evictIdle(now + Duration.ofMinutes(2).toNanos())).isEqualTo(1);
+        assertThat(engine.getStats()).containsEntry("carts", 1).containsEntry("slotsEvicted", 1L);
+
+        // cart003 takes cart002's slot with a fresh window; alice's cart still reconciles against 1 kg
+        now += Duration.ofMinutes(2).toNanos();
+        engine.onReading("cart003", 700f, now);
+        assertThat(engine.getStats().get("carts")).isEqualTo(2);
+        feed(1000f, 30);
+        verify(kafkaProducer, never()).sendWeightMismatchEvent(any(), any());
+
+        // Unpairing releases the slot straight away
+        deviceRegistry.unpair("cart001", "alice");
+        engine.release("cart001");
+        assertThat(engine.getStats().get("carts")).isEqualTo(1);
+    }
+
+    //7. The weight is read straight from the payload bytes, as JSON or the bare number
+    @Test
+    void weightPayload_ParsedFromBytes() {
+        assertThat(WeightPayload.parse("{\"weight\": 1250.5}".getBytes())).isEqualTo(1250.5f);
+        assertThat(WeightPayload.parse("{\"device\":\"c1\",\"weight\":-3e2}".getBytes())).isEqualTo(-300f);
+        assertThat(WeightPayload.parse(" 1300\n".getBytes())).isEqualTo(1300f);
+        assertThat(WeightPayload.parse("0.125".getBytes())).isEqualTo(0.125f);
+        assertThat(WeightPayload.parse("{\"barcode\": \"123\"}".getBytes())).isNaN();
+        assertThat(WeightPayload.parse("{\"weight\": \"heavy\"}".getBytes())).isNaN();
+        assertThat(WeightPayload.parse("12kg".getBytes())).isNaN();
+        assertThat(WeightPayload.parse("1.2.3".getBytes())).isNaN();
+        assertThat(WeightPayload.parse(new byte[0])).isNaN();
+    }
+
+}
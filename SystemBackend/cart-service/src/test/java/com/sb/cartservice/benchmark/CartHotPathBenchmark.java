@@ -0,0 +1,154 @@
+package com.sb.cartservice.benchmark;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.OutputStreamAppender;
+import com.sb.billservice.grpc.BillDelta;
+import com.sb.cartservice.dto.CartDTO;
+import com.sb.cartservice.model.Cart;
+import com.sb.cartservice.service.CartMapper;
+import com.sb.cartservice.service.CartPricing;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-scan CPU and allocation cost of the cart write path outside the database: line pricing, Cart -> CartDTO
+ * mapping, building and serialising the bill delta, and the pricing log line.
+ * <p>
+ * Logging is measured against a real logback appender writing to a null stream, once at INFO (formatted and
+ * encoded), once as an unguarded disabled debug call (still boxes its arguments) and once guarded.
+ * Run all benchmarks with mvn -Pbenchmarks verify; results land in target/jmh-result.json.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CartHotPathBenchmark {
+
+    private double pricePerUnit;
+    private double defaultWeight;
+    private int quantity;
+    private Double scaleWeight;
+    private Cart cart;
+
+    private Logger logger;
+
+    @Setup
+    public void setUp() {
+        pricePerUnit = 450.0;
+        defaultWeight = 1.0;
+        quantity = 2;
+        scaleWeight = 1.37;
+
+        cart = new Cart();
+        cart.setId(42L);
+        cart.setUserId("customer1");
+        cart.setBarcode("4791234567890");
+        cart.setName("Basmati Rice 1kg");
+        cart.setQuantity(2);
+        cart.setPrice(900.0);
+        cart.setWeight(2.0);
+
+        logger = nullLogger("benchmark.cart", Level.INFO);
+    }
+
+    // Logger with a real pattern encoder whose output is thrown away
+    private static Logger nullLogger(String name, Level level) {
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(context);
+        encoder.setPattern("%d{yyyy-MM-dd'T'HH:mm:ss.SSSXXX} %5p [%t] %logger{39} : %m%n");
+        encoder.start();
+
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(OutputStream.nullOutputStream());
+        appender.start();
+
+        ch.qos.logback.classic.Logger logger = context.getLogger(name);
+        logger.detachAndStopAllAppenders();
+        logger.addAppender(appender);
+        logger.setAdditive(false);
+        logger.setLevel(level);
+        return logger;
+    }
+
+    @Benchmark
+    public double unitPricing() {
+        return CartPricing.linePrice(pricePerUnit, defaultWeight, quantity, null);
+    }
+
+    @Benchmark
+    public double weightPricing() {
+        return CartPricing.linePrice(pricePerUnit, defaultWeight, quantity, scaleWeight);
+    }
+
+    @Benchmark
+    public CartDTO mapToDTO() {
+        return CartMapper.toDTO(cart);
+    }
+
+    @Benchmark
+    public CartDTO mapToLineDTO() {
+        return CartMapper.toLineDTO(cart);
+    }
+
+    @Benchmark
+    public BillDelta buildBillDelta() {
+        return BillDelta.newBuilder()
+                .setUsername(cart.getUserId())
+                .setCartId(cart.getUserId())
+                .setSequence(17)
+                .setPriceDelta(cart.getPrice())
+                .setWeightDelta(cart.getWeight())
+                .setTotalPrice(5400.0)
+                .setTotalWeight(8.5)
+                .build();
+    }
+
+    @Benchmark
+    public byte[] buildAndSerialiseBillDelta() {
+        return buildBillDelta().toByteArray();
+    }
+
+    @Benchmark
+    public void logPricingAtInfo() {
+        logger.info("📦 Unit-based pricing: {} x {} = {}", pricePerUnit, quantity, pricePerUnit * quantity);
+    }
+
+    @Benchmark
+    public void logPricingDisabledDebug() {
+        logger.debug("📦 Unit-based pricing: {} x {} = {}", pricePerUnit, quantity, pricePerUnit * quantity);
+    }
+
+    @Benchmark
+    public void logPricingGuardedDebug(Blackhole blackhole) {
+        if (logger.isDebugEnabled()) {
+            logger.debug("📦 Unit-based pricing: {} x {} = {}", pricePerUnit, quantity, pricePerUnit * quantity);
+        }
+        blackhole.consume(quantity);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(CartHotPathBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
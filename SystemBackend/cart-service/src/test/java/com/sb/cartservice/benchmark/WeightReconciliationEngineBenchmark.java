@@ -0,0 +1,90 @@
+package com.sb.cartservice.benchmark;
+
+import com.sb.cartservice.kafka.KafkaProducer;
+import com.sb.cartservice.service.CartDeviceRegistry;
+import com.sb.cartservice.service.WeightPayload;
+import com.sb.cartservice.service.WeightReconciliationEngine;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+
+/**
+ * Throughput of {@link WeightReconciliationEngine#onReading} with thousands of paired carts. ingest adds the
+ * {@link WeightPayload} parse of the MQTT message in front of it, as the listener runs it per reading.
+ * Run from the IDE or with
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.sb.cartservice.benchmark.WeightReconciliationEngineBenchmark
+ * The gc profiler's gc.alloc.rate.norm should stay at ~0 B/op.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WeightReconciliationEngineBenchmark {
+
+    @Param({"5000"})
+    private int carts;
+
+    private WeightReconciliationEngine engine;
+    private String[] deviceIds;
+    private byte[][] payloads; // {"weight": ...} for each jitter step
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+        long now;
+    }
+
+    @Setup
+    public void setUp() {
+        CartDeviceRegistry registry = new CartDeviceRegistry();
+        engine = new WeightReconciliationEngine(mock(KafkaProducer.class), registry, carts, 10, 0.001, 0.05, 0.05, Duration.ofSeconds(1),
+                Duration.ofMinutes(10));
+        deviceIds = new String[carts];
+        for (int i = 0; i < carts; i++) {
+            deviceIds[i] = "cart" + i;
+            registry.pair(deviceIds[i], "user" + i);
+            engine.setExpectedWeight(deviceIds[i], 2.0);
+        }
+        payloads = new byte[16][];
+        for (int i = 0; i < 16; i++) {
+            payloads[i] = ("{\"weight\": " + (1990 + i) + ".25}").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void onReading(Cursor cursor) {
+        int i = cursor.next;
+        cursor.next = i + 1 == carts ? 0 : i + 1;
+        cursor.now += 1_000_000L;
+        // Jitter around the expected weight so every reading runs the full median and comparison path
+        engine.onReading(deviceIds[i], 1990f + (cursor.now >>> 20 & 15), cursor.now);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void ingest(Cursor cursor) {
+        int i = cursor.next;
+        cursor.next = i + 1 == carts ? 0 : i + 1;
+        cursor.now += 1_000_000L;
+        engine.onReading(deviceIds[i], WeightPayload.parse(payloads[(int) (cursor.now >>> 20 & 15)]), cursor.now);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(WeightReconciliationEngineBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.sb.productservice.config;
+
+import com.sb.productservice.model.LayoutEntity;
+import com.sb.productservice.service.LayoutCodec;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes {@link LayoutEntity} in the packed {@link LayoutCodec} form when the client asks for
+ * {@value LayoutCodec#MEDIA_TYPE}, through Accept or Content-Type. JSON stays the default.
+ */
+public class LayoutHttpMessageConverter extends AbstractHttpMessageConverter<LayoutEntity> {
+
+    public LayoutHttpMessageConverter() {
+        super(MediaType.parseMediaType(LayoutCodec.MEDIA_TYPE));
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return LayoutEntity.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    protected LayoutEntity readInternal(Class<? extends LayoutEntity> clazz, HttpInputMessage inputMessage)
+            throws IOException {
+        try {
+            return LayoutCodec.decode(inputMessage.getBody().readAllBytes());
+        } catch (IllegalArgumentException e) {
+            throw new HttpMessageNotReadableException(e.getMessage(), e, inputMessage);
+        }
+    }
+
+    @Override
+    protected void writeInternal(LayoutEntity layout, HttpOutputMessage outputMessage) throws IOException {
+        outputMessage.getBody().write(LayoutCodec.encode(layout));
+    }
+
+}
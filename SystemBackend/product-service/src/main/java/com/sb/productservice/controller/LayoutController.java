@@ -1,7 +1,10 @@
 package com.sb.productservice.controller;
 
 import com.sb.productservice.dto.DeleteLayoutRequestDTO;
+import com.sb.productservice.dto.LayoutPatchDTO;
+import com.sb.productservice.dto.LayoutSummaryDTO;
 import com.sb.productservice.dto.UpdateLayoutDTO;
+import com.sb.productservice.exception.LayoutVersionConflictException;
 import com.sb.productservice.model.LayoutEntity;
 import com.sb.productservice.service.LayoutService;
 import org.slf4j.Logger;
@@ -10,6 +13,8 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 
 @RestController
 @RequestMapping("/layout/auth")
@@ -22,11 +27,15 @@ public class LayoutController {
         this.layoutService = layoutService;
     }
 
+    // Layouts are read and written as JSON, or packed when the request uses LayoutCodec.MEDIA_TYPE
     @PostMapping("/save")
     public ResponseEntity<?> saveLayout(@RequestBody LayoutEntity layout) {
         try {
             layoutService.saveLayout(layout);
             return ResponseEntity.ok("✅ Layout saved successfully");
+        } catch (LayoutVersionConflictException e) {
+            logger.warn("⚠️ Layout save conflict: {}", e.getMessage());
+            return conflict(e);
         } catch (Exception e) {
             logger.error("❌ Error saving layout: {}", e.getMessage(), e);
             return ResponseEntity.internalServerError().body("Failed to save layout");
@@ -48,10 +57,11 @@ public class LayoutController {
         }
     }
 
+    // Summaries only; whole layouts come from /get/{layoutId} or page by page from /all/page
     @GetMapping("/all")
     public ResponseEntity<?> getAllLayouts() {
         try {
-            List<LayoutEntity> layouts = layoutService.getAllLayouts();
+            List<LayoutSummaryDTO> layouts = layoutService.getLayoutSummaries();
             return ResponseEntity.ok(layouts);
         } catch (Exception e) {
             logger.error("❌ Error fetching all layouts: {}", e.getMessage(), e);
@@ -59,11 +69,25 @@ public class LayoutController {
         }
     }
 
+    @GetMapping("/all/page")
+    public ResponseEntity<?> getLayoutsPage(@RequestParam(required = false) String after,
+                                            @RequestParam(required = false) Integer size) {
+        try {
+            return ResponseEntity.ok(layoutService.getLayoutsPage(after, size));
+        } catch (Exception e) {
+            logger.error("❌ Error fetching layout page: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Failed to fetch layouts");
+        }
+    }
+
     @PutMapping("/update")
     public ResponseEntity<?> updateLayout(@RequestBody UpdateLayoutDTO dto) {
         try {
             layoutService.updateLayout(dto);
             return ResponseEntity.ok("✅ Layout updated successfully");
+        } catch (LayoutVersionConflictException e) {
+            logger.warn("⚠️ Layout update conflict: {}", e.getMessage());
+            return conflict(e);
         } catch (IllegalArgumentException e) {
             logger.warn("⚠️ Layout not found: {}", e.getMessage());
             return ResponseEntity.status(404).body(e.getMessage());
@@ -73,6 +97,27 @@ public class LayoutController {
         }
     }
 
+    // Moves, adds or removes single fixtures and shelf cells without resending the whole layout
+    @PatchMapping("/patch/{layoutId}")
+    public ResponseEntity<?> patchLayout(@PathVariable String layoutId, @RequestBody LayoutPatchDTO dto) {
+        try {
+            long version = layoutService.patchLayout(layoutId, dto);
+            return ResponseEntity.ok(Map.of("layoutId", layoutId, "version", version));
+        } catch (LayoutVersionConflictException e) {
+            logger.warn("⚠️ Layout patch conflict: {}", e.getMessage());
+            return conflict(e);
+        } catch (NoSuchElementException e) {
+            logger.warn("⚠️ Layout not found: {}", e.getMessage());
+            return ResponseEntity.status(404).body(e.getMessage());
+        } catch (IllegalArgumentException e) {
+            logger.warn("⚠️ Invalid layout patch: {}", e.getMessage());
+            return ResponseEntity.badRequest().body(e.getMessage());
+        } catch (Exception e) {
+            logger.error("❌ Error patching layout: {}", e.getMessage(), e);
+            return ResponseEntity.internalServerError().body("Failed to patch layout");
+        }
+    }
+
     @DeleteMapping("/delete")
     public ResponseEntity<?> deleteLayout(@RequestBody DeleteLayoutRequestDTO dto) {
         try {
@@ -83,4 +128,9 @@ public class LayoutController {
             return ResponseEntity.internalServerError().body("Failed to delete layout");
         }
     }
+
+    // 409 with the version the editor should reload
+    private static ResponseEntity<?> conflict(LayoutVersionConflictException e) {
+        return ResponseEntity.status(409).body(Map.of("error", e.getMessage(), "currentVersion", e.getCurrentVersion()));
+    }
 }
@@ -0,0 +1,38 @@
+package com.sb.productservice.controller;
+
+import com.sb.productservice.service.NearbyProductFinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/product")
+public class NearbyController {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearbyController.class);
+    private final NearbyProductFinder nearbyProductFinder;
+
+    public NearbyController(NearbyProductFinder nearbyProductFinder) {
+        this.nearbyProductFinder = nearbyProductFinder;
+    }
+
+    // ✅ Nearest fixture and the products on fixtures within radius of a cart's position (layout coordinates)
+    @GetMapping({"/all/nearby", "/auth/all/nearby"})
+    public ResponseEntity<?> nearby(@RequestParam String layoutId,
+                                    @RequestParam float x,
+                                    @RequestParam float y,
+                                    @RequestParam(required = false) Float radius,
+                                    @RequestParam(required = false) Integer limit) {
+        try {
+            return ResponseEntity.ok(nearbyProductFinder.nearby(layoutId, x, y, radius, limit));
+        } catch (IllegalArgumentException e) {
+            logger.warn("⚠️ Nearby lookup failed: {}", e.getMessage());
+            return ResponseEntity.status(404).body(e.getMessage());
+        }
+    }
+
+}
@@ -2,15 +2,26 @@ package com.sb.productservice.controller;
 
 import com.sb.productservice.dto.AddProductDTO;
 import com.sb.productservice.dto.GetProductDTO;
+import com.sb.productservice.dto.ImportReportDTO;
+import com.sb.productservice.dto.ProductPageDTO;
 import com.sb.productservice.dto.UpdateProductDTO;
 import com.sb.productservice.model.Products;
+import com.sb.productservice.service.ImageCache;
 import com.sb.productservice.service.ProductService;
 import jakarta.validation.Valid;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/product")
@@ -29,6 +40,15 @@ public class ProductController {
         return ResponseEntity.ok(response);
     }
 
+    // ✅ Bulk import products from a CSV (with header row) or NDJSON request body, read as it arrives; the report
+    //    lists every rejected row with its line number
+    @PostMapping(value = "/auth/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<ImportReportDTO> importProducts(@RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                                          InputStream body) throws IOException {
+        ImportReportDTO report = productService.importProducts(body, contentType);
+        return ResponseEntity.ok(report);
+    }
+
     // ✅ Update existing product by barcode
     @PutMapping(value = "/auth/update", consumes = "multipart/form-data")
     public ResponseEntity<String> updateProduct(@ModelAttribute @Valid UpdateProductDTO dto) {
@@ -75,6 +95,64 @@ public class ProductController {
     }
 
 
+    // ✅ Page through products in barcode order; pass the returned nextCursor as "after" for the next page
+    @GetMapping({"/all/page", "/auth/all/page"})
+    public ResponseEntity<ProductPageDTO> getProductsPage(@RequestParam(required = false) String after,
+                                                          @RequestParam(required = false) Integer size,
+                                                          @RequestParam(required = false) String category,
+                                                          @RequestParam(required = false) String brand) {
+        return ResponseEntity.ok(productService.getProductsPage(after, size, category, brand));
+    }
+
+    // ✅ Stream all products as NDJSON (one product per line), written while the rows are read
+    @GetMapping(value = {"/all/stream", "/auth/all/stream"}, produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamProducts(@RequestParam(required = false) String category,
+                                                                @RequestParam(required = false) String brand) {
+        StreamingResponseBody body = out -> productService.streamProducts(category, brand, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    // ✅ Search products by name, brand, category or description; matches word prefixes and single typos
+    @GetMapping({"/all/search", "/auth/all/search"})
+    public ResponseEntity<List<GetProductDTO>> searchProducts(@RequestParam("q") String query,
+                                                              @RequestParam(required = false) Integer limit) {
+        return ResponseEntity.ok(productService.searchProducts(query, limit));
+    }
+
+    // ✅ Product image from the image cache, optionally a resized variant (thumb, small, medium) listed as ready on
+    //    the product; ETag/Last-Modified let clients revalidate and get 304 Not Modified
+    @GetMapping("/all/image/{barcode}")
+    public ResponseEntity<StreamingResponseBody> getProductImage(@PathVariable String barcode,
+                                                                 @RequestParam(required = false) String variant,
+                                                                 WebRequest request) {
+        ImageCache.CachedImage image = productService.getProductImage(barcode, variant);
+        if (request.checkNotModified(image.eTag(), image.lastModified().toEpochMilli())) {
+            return null; // 304 already written
+        }
+        StreamingResponseBody body = image::writeTo;
+        return ResponseEntity.ok()
+                .eTag(image.eTag())
+                .lastModified(image.lastModified())
+                .cacheControl(CacheControl.noCache())
+                .contentType(image.contentType() != null ? MediaType.parseMediaType(image.contentType()) : MediaType.APPLICATION_OCTET_STREAM)
+                .contentLength(image.size())
+                .body(body);
+    }
+
+    // ✅ Image cache size and hit ratio
+    @GetMapping("/auth/image-cache/stats")
+    public ResponseEntity<Map<String, Object>> getImageCacheStats() {
+        return ResponseEntity.ok(productService.getImageCacheStats());
+    }
+
+    // ✅ Backup replication backlog and lag
+    @GetMapping("/auth/backup-outbox/stats")
+    public ResponseEntity<Map<String, Object>> getBackupOutboxStats() {
+        return ResponseEntity.ok(productService.getBackupOutboxStats());
+    }
+
     // ✅ Get products by category
     @GetMapping("/all/by-category")
     public ResponseEntity<List<GetProductDTO>> getByCategory(@RequestParam String category) {
@@ -5,6 +5,8 @@ import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Size;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.List;
+
 public class GetProductDTO {
 
     @NotBlank(message = "Barcode is required")
@@ -31,6 +33,9 @@ public class GetProductDTO {
 
     private String productImage;
 
+    // Ready resized variants of productImage, smallest first; each is stored as {barcode}_{variant}.jpg beside it
+    private List<String> imageVariants = List.of();
+
     @NotBlank(message = "Product Brand is required")
     @Size(min = 3, max = 50, message = "Product Brand must be between 3 and 50 characters")
     private String productBrand;
@@ -38,6 +43,29 @@ public class GetProductDTO {
     @NotNull(message = "Product Weight is required")
     private Double productWeight;
 
+    public GetProductDTO() {}
+
+    // Used by the JPQL constructor projections, so listing queries never load managed entities
+    public GetProductDTO(String barcode, String productName, String productDescription, Double productPrice,
+                         Integer productQuantity, String productCategory, String productBrand, Double productWeight,
+                         String productImage, String imageVariants) {
+        this.barcode = barcode;
+        this.productName = productName;
+        this.productDescription = productDescription;
+        this.productPrice = productPrice;
+        this.productQuantity = productQuantity;
+        this.productCategory = productCategory;
+        this.productBrand = productBrand;
+        this.productWeight = productWeight;
+        this.productImage = productImage;
+        this.imageVariants = parseVariants(imageVariants);
+    }
+
+    /** Splits the comma-separated variant names stored on the product row. */
+    public static List<String> parseVariants(String imageVariants) {
+        return imageVariants == null || imageVariants.isBlank() ? List.of() : List.of(imageVariants.split(","));
+    }
+
     public String getProductName() {
         return productName;
     }
@@ -102,6 +130,14 @@ public class GetProductDTO {
         this.productWeight = productWeight;
     }
 
+    public List<String> getImageVariants() {
+        return imageVariants;
+    }
+
+    public void setImageVariants(List<String> imageVariants) {
+        this.imageVariants = imageVariants;
+    }
+
     public String getBarcode() {
         return barcode;
     }
@@ -0,0 +1,84 @@
+package com.sb.productservice.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportReportDTO {
+
+    public record RowError(long line, String barcode, String message) {
+    }
+
+    private long totalRows;
+    private long imported;
+    private long failed;
+    private long backedUp;
+    private String backupStatus;
+    private long durationMs;
+    private List<RowError> errors = new ArrayList<>();
+    private boolean errorsTruncated; // more rows failed than are listed in errors
+
+    public long getTotalRows() {
+        return totalRows;
+    }
+
+    public void setTotalRows(long totalRows) {
+        this.totalRows = totalRows;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+
+    public void setImported(long imported) {
+        this.imported = imported;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public void setFailed(long failed) {
+        this.failed = failed;
+    }
+
+    public long getBackedUp() {
+        return backedUp;
+    }
+
+    public void setBackedUp(long backedUp) {
+        this.backedUp = backedUp;
+    }
+
+    public String getBackupStatus() {
+        return backupStatus;
+    }
+
+    public void setBackupStatus(String backupStatus) {
+        this.backupStatus = backupStatus;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public List<RowError> getErrors() {
+        return errors;
+    }
+
+    public void setErrors(List<RowError> errors) {
+        this.errors = errors;
+    }
+
+    public boolean isErrorsTruncated() {
+        return errorsTruncated;
+    }
+
+    public void setErrorsTruncated(boolean errorsTruncated) {
+        this.errorsTruncated = errorsTruncated;
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.sb.productservice.dto;
+
+import com.sb.productservice.model.LayoutEntity;
+
+import java.util.List;
+
+public class LayoutPageDTO {
+
+    private List<LayoutEntity> items;
+    private String nextCursor; // layoutId to pass as "after" for the next page, null on the last page
+    private int size;
+
+    public LayoutPageDTO() {}
+
+    public LayoutPageDTO(List<LayoutEntity> items, String nextCursor, int size) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.size = size;
+    }
+
+    public List<LayoutEntity> getItems() {
+        return items;
+    }
+
+    public void setItems(List<LayoutEntity> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+}
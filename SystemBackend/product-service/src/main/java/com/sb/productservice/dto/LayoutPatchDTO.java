@@ -0,0 +1,106 @@
+package com.sb.productservice.dto;
+
+import com.sb.events.LayoutOperationType;
+
+import java.util.List;
+
+public class LayoutPatchDTO {
+
+    // The layout version the editor last read; the patch is refused if the layout has changed since
+    private Long version;
+
+    private List<Operation> operations;
+
+    public static class Operation {
+
+        private LayoutOperationType op;
+
+        private String fixtureId;
+
+        // PUT_FIXTURE: the fixture as it should be stored
+        private FixtureEntity fixture;
+
+        // SET_CELL: one cell of the fixture's shelf grid and the items stacked in it
+        private Integer row;
+
+        private Integer col;
+
+        private List<ItemEntity> items;
+
+        // SET_SHELVES: the fixture's whole shelf grid, rows of cells
+        private List<List<List<ItemEntity>>> shelves;
+
+        public LayoutOperationType getOp() {
+            return op;
+        }
+
+        public void setOp(LayoutOperationType op) {
+            this.op = op;
+        }
+
+        public String getFixtureId() {
+            return fixtureId;
+        }
+
+        public void setFixtureId(String fixtureId) {
+            this.fixtureId = fixtureId;
+        }
+
+        public FixtureEntity getFixture() {
+            return fixture;
+        }
+
+        public void setFixture(FixtureEntity fixture) {
+            this.fixture = fixture;
+        }
+
+        public Integer getRow() {
+            return row;
+        }
+
+        public void setRow(Integer row) {
+            this.row = row;
+        }
+
+        public Integer getCol() {
+            return col;
+        }
+
+        public void setCol(Integer col) {
+            this.col = col;
+        }
+
+        public List<ItemEntity> getItems() {
+            return items;
+        }
+
+        public void setItems(List<ItemEntity> items) {
+            this.items = items;
+        }
+
+        public List<List<List<ItemEntity>>> getShelves() {
+            return shelves;
+        }
+
+        public void setShelves(List<List<List<ItemEntity>>> shelves) {
+            this.shelves = shelves;
+        }
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public List<Operation> getOperations() {
+        return operations;
+    }
+
+    public void setOperations(List<Operation> operations) {
+        this.operations = operations;
+    }
+
+}
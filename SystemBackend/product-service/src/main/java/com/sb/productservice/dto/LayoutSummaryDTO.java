@@ -0,0 +1,61 @@
+package com.sb.productservice.dto;
+
+public class LayoutSummaryDTO {
+
+    private String layoutId;
+    private String name;
+    private Long version;
+    private Integer fixtureCount;
+    private Integer itemCount;
+
+    public LayoutSummaryDTO() {}
+
+    public LayoutSummaryDTO(String layoutId, String name, Long version, Integer fixtureCount, Integer itemCount) {
+        this.layoutId = layoutId;
+        this.name = name;
+        this.version = version;
+        this.fixtureCount = fixtureCount;
+        this.itemCount = itemCount;
+    }
+
+    public String getLayoutId() {
+        return layoutId;
+    }
+
+    public void setLayoutId(String layoutId) {
+        this.layoutId = layoutId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Integer getFixtureCount() {
+        return fixtureCount;
+    }
+
+    public void setFixtureCount(Integer fixtureCount) {
+        this.fixtureCount = fixtureCount;
+    }
+
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
+}
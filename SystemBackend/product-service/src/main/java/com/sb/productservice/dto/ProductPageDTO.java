@@ -0,0 +1,43 @@
+package com.sb.productservice.dto;
+
+import java.util.List;
+
+public class ProductPageDTO {
+
+    private List<GetProductDTO> items;
+    private String nextCursor; // barcode to pass as "after" for the next page, null on the last page
+    private int size;
+
+    public ProductPageDTO() {}
+
+    public ProductPageDTO(List<GetProductDTO> items, String nextCursor, int size) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+        this.size = size;
+    }
+
+    public List<GetProductDTO> getItems() {
+        return items;
+    }
+
+    public void setItems(List<GetProductDTO> items) {
+        this.items = items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public void setSize(int size) {
+        this.size = size;
+    }
+
+}
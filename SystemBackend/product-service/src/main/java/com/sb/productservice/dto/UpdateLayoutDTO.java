@@ -11,6 +11,9 @@ public class UpdateLayoutDTO {
 
     private Map<String, List<List<List<ItemEntity>>>> itemMap;
 
+    // Optional: the version the editor last read; if set, the update is refused when the layout has changed since
+    private Long version;
+
 
     public String getLayoutId() {
         return layoutId;
@@ -35,4 +38,12 @@ public class UpdateLayoutDTO {
     public void setItemMap(Map<String, List<List<List<ItemEntity>>>> itemMap) {
         this.itemMap = itemMap;
     }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
 }
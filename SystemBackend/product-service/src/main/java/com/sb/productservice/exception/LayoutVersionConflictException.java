@@ -0,0 +1,20 @@
+package com.sb.productservice.exception;
+
+/**
+ * A layout write was made against a version that is no longer current, i.e. someone else saved the layout in between.
+ */
+public class LayoutVersionConflictException extends RuntimeException {
+
+    private final long currentVersion;
+
+    public LayoutVersionConflictException(String layoutId, Long expectedVersion, long currentVersion) {
+        super("Layout " + layoutId + " is at version " + currentVersion
+                + (expectedVersion != null ? ", not " + expectedVersion : "") + "; reload it and apply the change again");
+        this.currentVersion = currentVersion;
+    }
+
+    public long getCurrentVersion() {
+        return currentVersion;
+    }
+
+}
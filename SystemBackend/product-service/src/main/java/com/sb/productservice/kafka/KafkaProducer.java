@@ -0,0 +1,27 @@
+package com.sb.productservice.kafka;
+
+import com.sb.events.LayoutEvent;
+import com.sb.events.ProductEvent;
+import org.springframework.kafka.core.KafkaTemplate;
+import org.springframework.stereotype.Service;
+
+@Service
+public class KafkaProducer {
+
+    private final KafkaTemplate<String, byte[]> kafkaTemplate;
+
+    public KafkaProducer(KafkaTemplate<String, byte[]> kafkaTemplate) {
+        this.kafkaTemplate = kafkaTemplate;
+    }
+
+    public void sendProductChangedEvent(String topic, ProductEvent productEvent) {
+        byte[] messageBytes = productEvent.toByteArray(); // Protobuf serialization
+        kafkaTemplate.send(topic, productEvent.getBarcode(), messageBytes);
+    }
+
+    // Keyed by layout, so one layout's events stay in order on a single partition
+    public void sendLayoutEvent(String topic, LayoutEvent layoutEvent) {
+        kafkaTemplate.send(topic, layoutEvent.getLayoutId(), layoutEvent.toByteArray());
+    }
+
+}
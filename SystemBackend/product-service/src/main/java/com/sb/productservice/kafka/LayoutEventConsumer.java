@@ -0,0 +1,182 @@
+package com.sb.productservice.kafka;
+
+import com.sb.events.LayoutEvent;
+import com.sb.productservice.service.LayoutPatches;
+import com.sb.productservice.service.LayoutServiceImpl;
+import com.sb.productservice.service.ProductLocationIndex;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.kafka.clients.consumer.Consumer;
+import org.apache.kafka.clients.consumer.ConsumerConfig;
+import org.apache.kafka.clients.consumer.ConsumerRecord;
+import org.apache.kafka.common.PartitionInfo;
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.errors.WakeupException;
+import org.apache.kafka.common.serialization.ByteArrayDeserializer;
+import org.apache.kafka.common.serialization.StringDeserializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.kafka.core.ConsumerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+
+@Component
+public class LayoutEventConsumer {
+
+    private static final String TOPIC = "layout-events";
+
+    private final ProductLocationIndex productLocationIndex;
+
+    private final LayoutServiceImpl layoutService;
+
+    private final ConsumerFactory<?, ?> consumerFactory;
+
+    private static final Logger logger = LoggerFactory.getLogger(LayoutEventConsumer.class);
+
+    @Value("${product.layout-events.partition-check-interval:60s}")
+    private Duration partitionCheckInterval;
+
+    private Consumer<String, byte[]> consumer;
+    private Thread thread;
+    private volatile boolean running;
+    private boolean startupChecked; // only touched by the consumer thread
+
+    public LayoutEventConsumer(ProductLocationIndex productLocationIndex, LayoutServiceImpl layoutService,
+                               ConsumerFactory<?, ?> consumerFactory) {
+        this.productLocationIndex = productLocationIndex;
+        this.layoutService = layoutService;
+        this.consumerFactory = consumerFactory;
+    }
+
+    // Every product-service instance holds its own location index, so each one reads every partition itself.
+    // Partitions are assigned by hand and no offsets are committed, so no consumer group is left on the broker;
+    // a restart reloads the whole index anyway and only needs the events from then on.
+    // Events this instance published itself are already in its index and are skipped by version.
+    @PostConstruct
+    @SuppressWarnings("unchecked")
+    public void start() {
+        Properties overrides = new Properties();
+        overrides.put(ConsumerConfig.KEY_DESERIALIZER_CLASS_CONFIG, StringDeserializer.class.getName());
+        overrides.put(ConsumerConfig.VALUE_DESERIALIZER_CLASS_CONFIG, ByteArrayDeserializer.class.getName());
+        overrides.put(ConsumerConfig.ENABLE_AUTO_COMMIT_CONFIG, "false");
+        overrides.put(ConsumerConfig.AUTO_OFFSET_RESET_CONFIG, "latest");
+        consumer = (Consumer<String, byte[]>) consumerFactory.createConsumer(null, "product-layout-index", null, overrides);
+
+        running = true;
+        thread = new Thread(this::run, "layout-events-consumer");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (consumer != null) {
+            consumer.wakeup();
+        }
+        if (thread != null) {
+            try {
+                thread.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        long nextPartitionCheck = 0;
+        try {
+            while (running) {
+                if (consumer.assignment().isEmpty() || System.nanoTime() - nextPartitionCheck >= 0) {
+                    assignPartitions();
+                    nextPartitionCheck = System.nanoTime() + partitionCheckInterval.toNanos();
+                }
+                if (consumer.assignment().isEmpty()) {
+                    Thread.sleep(1000);
+                    continue;
+                }
+                for (ConsumerRecord<String, byte[]> record : consumer.poll(Duration.ofSeconds(1))) {
+                    consumeLayoutEvent(record);
+                }
+            }
+        } catch (WakeupException e) {
+            if (running) {
+                logger.error("❌ layout-events consumer woken up while running", e);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            logger.error("❌ layout-events consumer stopped, the location index only catches up on reload", e);
+        } finally {
+            consumer.close();
+        }
+    }
+
+    // Partitions that exist at startup are read from their end; a partition that shows up later (the topic was
+    // created or grown after startup) only holds events from after startup and is read from its beginning
+    private void assignPartitions() {
+        List<PartitionInfo> partitions;
+        try {
+            partitions = consumer.partitionsFor(TOPIC);
+        } catch (Exception e) {
+            logger.warn("⚠️ Could not list {} partitions: {}", TOPIC, e.getMessage());
+            return;
+        }
+        boolean atStartup = !startupChecked;
+        startupChecked = true;
+        if (partitions == null || partitions.isEmpty()) {
+            return;
+        }
+        Set<TopicPartition> assigned = consumer.assignment();
+        Set<TopicPartition> all = new HashSet<>();
+        for (PartitionInfo partition : partitions) {
+            all.add(new TopicPartition(TOPIC, partition.partition()));
+        }
+        if (all.equals(assigned)) {
+            return;
+        }
+        Set<TopicPartition> added = new HashSet<>(all);
+        added.removeAll(assigned);
+        consumer.assign(all);
+        if (atStartup) {
+            consumer.seekToEnd(added);
+        } else {
+            consumer.seekToBeginning(added);
+        }
+        logger.info("✅ Reading {} partition(s) of {}", all.size(), TOPIC);
+    }
+
+    void consumeLayoutEvent(ConsumerRecord<String, byte[]> record) {
+        try {
+            LayoutEvent event = LayoutEvent.parseFrom(record.value());
+            String layoutId = event.getLayoutId();
+            layoutService.invalidateLayoutSummaries();
+            switch (event.getChangeType()) {
+                case LAYOUT_PATCHED -> {
+                    if (!productLocationIndex.apply(layoutId, event.getVersion() - 1, event.getVersion(),
+                            LayoutPatches.fromEvent(event.getOperationsList()))) {
+                        logger.info("Layout {} v{} patch does not follow the indexed version, reloading it", layoutId, event.getVersion());
+                        layoutService.refreshLocationIndex(layoutId);
+                    }
+                }
+                case LAYOUT_SAVED -> {
+                    ProductLocationIndex.LayoutLocations indexed = productLocationIndex.layout(layoutId);
+                    if (indexed == null || indexed.version() < event.getVersion()) {
+                        layoutService.refreshLocationIndex(layoutId);
+                    }
+                }
+                case LAYOUT_DELETED -> productLocationIndex.remove(layoutId);
+                default -> logger.warn("Unknown layout event type {} for layout {}", event.getChangeType(), layoutId);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to handle layout-events Kafka message", e);
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.sb.productservice.model;
+
+import com.sb.events.ProductChangeType;
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A product write waiting to be replicated to backup-service. Rows are written in the same transaction as the
+ * product change and deleted once backup-service has applied them; the id gives the write order. A row that keeps
+ * failing is dead-lettered: it is no longer retried and waits for an operator, holding back its barcode's later rows.
+ */
+@Entity
+@Table(name = "backup_outbox", indexes = {
+        @Index(name = "ix_backup_outbox_barcode_id", columnList = "barcode, id"),
+        @Index(name = "ix_backup_outbox_next_attempt_at", columnList = "next_attempt_at")
+})
+public class BackupOutbox {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "barcode", nullable = false)
+    private String barcode;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type", nullable = false, length = 16)
+    private ProductChangeType changeType;
+
+    // Serialized backup ProductRequest; null for deletions
+    @Column(name = "payload", length = 4096)
+    private byte[] payload;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(name = "dead_lettered_at")
+    private LocalDateTime deadLetteredAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getBarcode() {
+        return barcode;
+    }
+
+    public void setBarcode(String barcode) {
+        this.barcode = barcode;
+    }
+
+    public ProductChangeType getChangeType() {
+        return changeType;
+    }
+
+    public void setChangeType(ProductChangeType changeType) {
+        this.changeType = changeType;
+    }
+
+    public byte[] getPayload() {
+        return payload;
+    }
+
+    public void setPayload(byte[] payload) {
+        this.payload = payload;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
+    public LocalDateTime getDeadLetteredAt() {
+        return deadLetteredAt;
+    }
+
+    public void setDeadLetteredAt(LocalDateTime deadLetteredAt) {
+        this.deadLetteredAt = deadLetteredAt;
+    }
+
+}
@@ -1,7 +1,9 @@
 package com.sb.productservice.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.sb.productservice.dto.FixtureEntity;
 import com.sb.productservice.dto.ItemEntity;
+import software.amazon.awssdk.enhanced.dynamodb.extensions.annotations.DynamoDbVersionAttribute;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbBean;
 import software.amazon.awssdk.enhanced.dynamodb.mapper.annotations.DynamoDbPartitionKey;
 
@@ -14,6 +16,13 @@ public class LayoutEntity {
     private String layoutId; // Partition key
     private Map<String, FixtureEntity> fixtureLayout;
     private Map<String, List<List<List<ItemEntity>>>> itemMap;
+    private Long version; // Bumped on every write; a write made against an older version is refused
+    private String name;
+    // Kept up to date on every write so the layout listing can be read without the fixture and item maps
+    private Integer fixtureCount;
+    private Integer itemCount;
+    // A large layout is stored as LayoutCodec bytes here instead of fixtureLayout and itemMap
+    private byte[] layoutData;
 
     @DynamoDbPartitionKey
     public String getLayoutId() {
@@ -39,4 +48,46 @@ public class LayoutEntity {
     public void setItemMap(Map<String, List<List<List<ItemEntity>>>> itemMap) {
         this.itemMap = itemMap;
     }
+
+    @DynamoDbVersionAttribute
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public Integer getFixtureCount() {
+        return fixtureCount;
+    }
+
+    public void setFixtureCount(Integer fixtureCount) {
+        this.fixtureCount = fixtureCount;
+    }
+
+    public Integer getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(Integer itemCount) {
+        this.itemCount = itemCount;
+    }
+
+    @JsonIgnore
+    public byte[] getLayoutData() {
+        return layoutData;
+    }
+
+    public void setLayoutData(byte[] layoutData) {
+        this.layoutData = layoutData;
+    }
 }
@@ -6,7 +6,10 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "products")
+@Table(name = "products", indexes = {
+        @Index(name = "ix_products_category_barcode", columnList = "product_category, barcode"),
+        @Index(name = "ix_products_brand_barcode", columnList = "product_brand, barcode")
+})
 public class Products {
 
     @Id
@@ -34,6 +37,10 @@ public class Products {
     @Column(name = "product_image")
     private String productImage;
 
+    // Comma-separated names of the resized image variants already stored next to the original, e.g. "thumb,small"
+    @Column(name = "image_variants")
+    private String imageVariants;
+
     @Column(name = "product_brand", nullable = false)
     private String productBrand;
 
@@ -123,6 +130,14 @@ public class Products {
         this.productWeight = productWeight;
     }
 
+    public String getImageVariants() {
+        return imageVariants;
+    }
+
+    public void setImageVariants(String imageVariants) {
+        this.imageVariants = imageVariants;
+    }
+
     public LocalDateTime getAddedDate() {
         return addedDate;
     }
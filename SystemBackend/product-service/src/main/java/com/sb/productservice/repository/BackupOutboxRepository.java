@@ -0,0 +1,35 @@
+package com.sb.productservice.repository;
+
+import com.sb.productservice.model.BackupOutbox;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface BackupOutboxRepository extends JpaRepository<BackupOutbox, Long> {
+
+    /**
+     * The oldest changes that are due to be sent, in write order. A change whose barcode has an earlier change still
+     * waiting out its backoff, or dead-lettered, is not due: it must not overtake that change. An earlier change that
+     * is itself due sorts ahead of it, so the limit never cuts a barcode's changes out of order.
+     */
+    @Query("select o from BackupOutbox o "
+            + "where o.deadLetteredAt is null and (o.nextAttemptAt is null or o.nextAttemptAt <= :now) "
+            + "and not exists (select e.id from BackupOutbox e where e.barcode = o.barcode and e.id < o.id "
+            + "and (e.deadLetteredAt is not null or e.nextAttemptAt > :now)) "
+            + "order by o.id")
+    List<BackupOutbox> findDue(@Param("now") LocalDateTime now, Limit limit);
+
+    Optional<BackupOutbox> findFirstByDeadLetteredAtIsNullOrderByIdAsc();
+
+    long countByDeadLetteredAtIsNull();
+
+    long countByDeadLetteredAtIsNotNull();
+
+}
@@ -1,18 +1,65 @@
 package com.sb.productservice.repository;
 
+import com.sb.productservice.dto.GetProductDTO;
 import com.sb.productservice.model.Products;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Repository
 public interface ProductRepository extends JpaRepository<Products, UUID> {
 
+    // Category and brand compare with the column collation (case-insensitive on MySQL's default), so the
+    // (category, barcode) and (brand, barcode) indexes can serve both the filter and the ordering
+    String LISTING = "select new com.sb.productservice.dto.GetProductDTO(p.barcode, p.productName, p.productDescription, "
+            + "p.productPrice, p.productQuantity, p.productCategory, p.productBrand, p.productWeight, p.productImage, "
+            + "p.imageVariants) "
+            + "from Products p "
+            + "where (:category is null or p.productCategory = :category) "
+            + "and (:brand is null or p.productBrand = :brand) ";
+
     Optional<Products> findByProductName(String productName);
 
     Optional<Products> findByBarcode(String barcode);
 
+    boolean existsByBarcode(String barcode);
+
+    List<Products> findByBarcodeIn(Collection<String> barcodes);
+
+    /** Only while the product still shows the image the variants were made from; 0 once it was replaced or removed. */
+    @Transactional
+    @Modifying
+    @Query("update Products p set p.imageVariants = :variants where p.barcode = :barcode and p.productImage = :image")
+    int updateImageVariants(@Param("barcode") String barcode, @Param("image") String image,
+                            @Param("variants") String variants);
+
+    /** One keyset page: the first rows after the given barcode (null = from the start), in barcode order. */
+    @Query(LISTING + "and (:after is null or p.barcode > :after) order by p.barcode")
+    List<GetProductDTO> findPage(@Param("after") String after,
+                                 @Param("category") String category,
+                                 @Param("brand") String brand,
+                                 Limit limit);
+
+    /**
+     * Every matching row in barcode order, read as the caller consumes the stream. Integer.MIN_VALUE is the
+     * MySQL driver's signal to stream rows instead of buffering the whole result. Must be consumed inside a
+     * transaction and closed.
+     */
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "" + Integer.MIN_VALUE))
+    @Query(LISTING + "order by p.barcode")
+    Stream<GetProductDTO> streamAll(@Param("category") String category, @Param("brand") String brand);
 
 }
@@ -0,0 +1,230 @@
+package com.sb.productservice.service;
+
+import com.sb.productservice.dto.FixtureEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Walking distances between every pair of fixtures of one store layout.
+ * <p>
+ * The floor is rasterised into a grid of square cells, about {@code resolution} cells along its longer side. A cell
+ * is blocked when its centre lies inside a fixture outline ({@link FixtureEntity#getPoints()}, relative to the
+ * fixture's x and y). Each fixture is reached from the free cell nearest its centre, and one breadth-first search per
+ * fixture over the free cells fills the distance matrix. Moves are to the four neighbouring cells, so distances follow
+ * the aisles rather than cutting across shelves. Fixtures with no outline are points on the floor.
+ */
+public final class AisleGraph {
+
+    private final long geometryVersion;
+    private final Map<String, Integer> indexByFixtureId;
+    private final float[] distances; // row-major, fixtures x fixtures
+
+    private AisleGraph(long geometryVersion, Map<String, Integer> indexByFixtureId, float[] distances) {
+        this.geometryVersion = geometryVersion;
+        this.indexByFixtureId = indexByFixtureId;
+        this.distances = distances;
+    }
+
+    public long geometryVersion() {
+        return geometryVersion;
+    }
+
+    public int size() {
+        return indexByFixtureId.size();
+    }
+
+    /** Position of the fixture in the distance matrix, or -1 if the layout has no such fixture. */
+    public int indexOf(String fixtureId) {
+        Integer index = indexByFixtureId.get(fixtureId);
+        return index != null ? index : -1;
+    }
+
+    public float distance(int from, int to) {
+        return distances[from * indexByFixtureId.size() + to];
+    }
+
+    public static AisleGraph build(Map<String, FixtureEntity> fixtures, long geometryVersion, int resolution) {
+        List<String> ids = fixtures.keySet().stream().sorted().toList();
+        int n = ids.size();
+        Map<String, Integer> indexByFixtureId = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            indexByFixtureId.put(ids.get(i), i);
+        }
+        if (n == 0) {
+            return new AisleGraph(geometryVersion, indexByFixtureId, new float[0]);
+        }
+
+        // Absolute outlines and centres
+        List<float[]> outlines = new ArrayList<>(n);
+        float[] centreX = new float[n];
+        float[] centreY = new float[n];
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int i = 0; i < n; i++) {
+            FixtureEntity fixture = fixtures.get(ids.get(i));
+            float[] outline = outline(fixture);
+            outlines.add(outline);
+            if (outline.length >= 6) {
+                for (int k = 0; k < outline.length; k += 2) {
+                    centreX[i] += outline[k];
+                    centreY[i] += outline[k + 1];
+                    minX = Math.min(minX, outline[k]);
+                    maxX = Math.max(maxX, outline[k]);
+                    minY = Math.min(minY, outline[k + 1]);
+                    maxY = Math.max(maxY, outline[k + 1]);
+                }
+                centreX[i] /= outline.length / 2f;
+                centreY[i] /= outline.length / 2f;
+            } else {
+                centreX[i] = fixture != null ? fixture.getX() : 0;
+                centreY[i] = fixture != null ? fixture.getY() : 0;
+                minX = Math.min(minX, centreX[i]);
+                maxX = Math.max(maxX, centreX[i]);
+                minY = Math.min(minY, centreY[i]);
+                maxY = Math.max(maxY, centreY[i]);
+            }
+        }
+
+        // One free cell of margin all round, so the outer aisle exists even when fixtures touch the walls
+        float cellSize = Math.max(Math.max(maxX - minX, maxY - minY), 1f) / Math.max(resolution, 1);
+        float originX = minX - cellSize;
+        float originY = minY - cellSize;
+        int cols = (int) Math.ceil((maxX - minX) / cellSize) + 3;
+        int rows = (int) Math.ceil((maxY - minY) / cellSize) + 3;
+
+        boolean[] blocked = new boolean[cols * rows];
+        for (float[] outline : outlines) {
+            if (outline.length >= 6) {
+                block(outline, blocked, cols, rows, originX, originY, cellSize);
+            }
+        }
+
+        int[] access = new int[n];
+        for (int i = 0; i < n; i++) {
+            int col = clamp((int) ((centreX[i] - originX) / cellSize), cols);
+            int row = clamp((int) ((centreY[i] - originY) / cellSize), rows);
+            access[i] = nearestFree(row * cols + col, blocked, cols, rows);
+        }
+
+        float[] distances = new float[n * n];
+        int[] steps = new int[cols * rows];
+        int[] queue = new int[cols * rows];
+        for (int i = 0; i < n; i++) {
+            if (access[i] >= 0) {
+                walk(access[i], blocked, cols, rows, steps, queue);
+            }
+            for (int j = 0; j < n; j++) {
+                if (i == j) {
+                    continue;
+                }
+                int walked = access[i] >= 0 && access[j] >= 0 ? steps[access[j]] : -1;
+                // Enclosed fixtures fall back to the straight line, so a route can still be ordered
+                distances[i * n + j] = walked >= 0
+                        ? walked * cellSize
+                        : (float) Math.hypot(centreX[i] - centreX[j], centreY[i] - centreY[j]);
+            }
+        }
+        return new AisleGraph(geometryVersion, indexByFixtureId, distances);
+    }
+
+    // Absolute outline as x,y pairs; empty unless the fixture has at least a triangle
+    static float[] outline(FixtureEntity fixture) {
+        if (fixture == null || fixture.getPoints() == null || fixture.getPoints().size() < 6) {
+            return new float[0];
+        }
+        List<Float> points = fixture.getPoints();
+        float[] outline = new float[points.size() & ~1];
+        for (int k = 0; k < outline.length; k += 2) {
+            outline[k] = fixture.getX() + (points.get(k) != null ? points.get(k) : 0f);
+            outline[k + 1] = fixture.getY() + (points.get(k + 1) != null ? points.get(k + 1) : 0f);
+        }
+        return outline;
+    }
+
+    // Marks the cells whose centre is inside the outline (even-odd rule), checking only the outline's bounding box
+    static void block(float[] outline, boolean[] blocked, int cols, int rows,
+                              float originX, float originY, float cellSize) {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int k = 0; k < outline.length; k += 2) {
+            minX = Math.min(minX, outline[k]);
+            maxX = Math.max(maxX, outline[k]);
+            minY = Math.min(minY, outline[k + 1]);
+            maxY = Math.max(maxY, outline[k + 1]);
+        }
+        int fromCol = clamp((int) ((minX - originX) / cellSize), cols);
+        int toCol = clamp((int) ((maxX - originX) / cellSize), cols);
+        int fromRow = clamp((int) ((minY - originY) / cellSize), rows);
+        int toRow = clamp((int) ((maxY - originY) / cellSize), rows);
+        for (int row = fromRow; row <= toRow; row++) {
+            float y = originY + (row + 0.5f) * cellSize;
+            for (int col = fromCol; col <= toCol; col++) {
+                float x = originX + (col + 0.5f) * cellSize;
+                if (contains(outline, x, y)) {
+                    blocked[row * cols + col] = true;
+                }
+            }
+        }
+    }
+
+    static boolean contains(float[] outline, float x, float y) {
+        boolean inside = false;
+        int vertices = outline.length / 2;
+        for (int a = 0, b = vertices - 1; a < vertices; b = a++) {
+            float ax = outline[2 * a], ay = outline[2 * a + 1];
+            float bx = outline[2 * b], by = outline[2 * b + 1];
+            if ((ay > y) != (by > y) && x < (bx - ax) * (y - ay) / (by - ay) + ax) {
+                inside = !inside;
+            }
+        }
+        return inside;
+    }
+
+    // Breadth-first search out from a cell (through blocked cells too) to the closest free one
+    private static int nearestFree(int start, boolean[] blocked, int cols, int rows) {
+        if (!blocked[start]) {
+            return start;
+        }
+        boolean[] seen = new boolean[blocked.length];
+        int[] queue = new int[blocked.length];
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        seen[start] = true;
+        while (head < tail) {
+            int cell = queue[head++];
+            if (!blocked[cell]) {
+                return cell;
+            }
+            int row = cell / cols, col = cell % cols;
+            if (col > 0 && !seen[cell - 1]) { seen[cell - 1] = true; queue[tail++] = cell - 1; }
+            if (col < cols - 1 && !seen[cell + 1]) { seen[cell + 1] = true; queue[tail++] = cell + 1; }
+            if (row > 0 && !seen[cell - cols]) { seen[cell - cols] = true; queue[tail++] = cell - cols; }
+            if (row < rows - 1 && !seen[cell + cols]) { seen[cell + cols] = true; queue[tail++] = cell + cols; }
+        }
+        return -1;
+    }
+
+    // Fills steps with the number of moves from start to every free cell, -1 where unreachable
+    private static void walk(int start, boolean[] blocked, int cols, int rows, int[] steps, int[] queue) {
+        Arrays.fill(steps, -1);
+        int head = 0, tail = 0;
+        queue[tail++] = start;
+        steps[start] = 0;
+        while (head < tail) {
+            int cell = queue[head++];
+            int next = steps[cell] + 1;
+            int row = cell / cols, col = cell % cols;
+            if (col > 0 && steps[cell - 1] < 0 && !blocked[cell - 1]) { steps[cell - 1] = next; queue[tail++] = cell - 1; }
+            if (col < cols - 1 && steps[cell + 1] < 0 && !blocked[cell + 1]) { steps[cell + 1] = next; queue[tail++] = cell + 1; }
+            if (row > 0 && steps[cell - cols] < 0 && !blocked[cell - cols]) { steps[cell - cols] = next; queue[tail++] = cell - cols; }
+            if (row < rows - 1 && steps[cell + cols] < 0 && !blocked[cell + cols]) { steps[cell + cols] = next; queue[tail++] = cell + cols; }
+        }
+    }
+
+    static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+}
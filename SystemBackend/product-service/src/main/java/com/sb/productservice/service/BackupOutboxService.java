@@ -0,0 +1,248 @@
+package com.sb.productservice.service;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.sb.backupservice.grpc.ChangeBatch;
+import com.sb.backupservice.grpc.ChangeBatchResponse;
+import com.sb.backupservice.grpc.ChangeType;
+import com.sb.backupservice.grpc.FailedChange;
+import com.sb.backupservice.grpc.ProductBackupServiceGrpc;
+import com.sb.backupservice.grpc.ProductChange;
+import com.sb.backupservice.grpc.ProductRequest;
+import com.sb.events.ProductChangeType;
+import com.sb.productservice.model.BackupOutbox;
+import com.sb.productservice.repository.BackupOutboxRepository;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Replicates product writes to backup-service through an outbox table instead of calling it inside the write.
+ * <p>
+ * {@link #append} stores the change in the caller's transaction, so it is kept exactly when the product change is.
+ * {@link #relay} then sends the oldest due changes in batches, deletes the ones backup-service applied and
+ * retries the rest with exponential backoff. Changes are sent in write order, and a change waiting to be retried holds
+ * back every later change for the same barcode, so each product's changes arrive in order. Delivery is at least once
+ * (a batch applied but not acknowledged is sent again), which backup-service handles by applying changes idempotently.
+ * <p>
+ * After {@code product.backup.outbox.max-attempts} failures a change is dead-lettered: it stays in the table with its
+ * last error, is no longer retried and keeps holding back its barcode, and is counted in {@link #getStats()} until an
+ * operator fixes and requeues (clears dead_lettered_at) or deletes it.
+ * <p>
+ * Ordering assumes a single relay; with several instances, set {@code product.backup.outbox.relay-enabled=false} on
+ * all but one.
+ */
+@Service
+public class BackupOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(BackupOutboxService.class);
+
+    private final BackupOutboxRepository outboxRepository;
+
+    @Value("${product.backup.outbox.relay-enabled:true}")
+    private boolean relayEnabled;
+
+    @Value("${product.backup.outbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${product.backup.outbox.timeout-ms:10000}")
+    private long timeoutMs;
+
+    @Value("${product.backup.outbox.retry-initial-ms:1000}")
+    private long retryInitialMs;
+
+    @Value("${product.backup.outbox.retry-max-ms:300000}")
+    private long retryMaxMs;
+
+    @Value("${product.backup.outbox.max-attempts:20}")
+    private int maxAttempts;
+
+    @GrpcClient("product-backup-service")
+    private ProductBackupServiceGrpc.ProductBackupServiceBlockingStub productBackupStub;
+
+    private final AtomicLong replicated = new AtomicLong();
+    private final AtomicLong failedAttempts = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    private volatile long lastLagMs;
+    private volatile LocalDateTime lastReplicatedAt;
+    private volatile String lastError;
+
+    public BackupOutboxService(BackupOutboxRepository outboxRepository) {
+        this.outboxRepository = outboxRepository;
+    }
+
+    /** Queues the change for backup-service. Must be called inside the transaction that makes the product change. */
+    public void append(ProductChangeType changeType, String barcode, ProductRequest product) {
+        BackupOutbox record = new BackupOutbox();
+        record.setBarcode(barcode);
+        record.setChangeType(changeType);
+        record.setPayload(product != null ? product.toByteArray() : null);
+        record.setCreatedAt(LocalDateTime.now());
+        outboxRepository.save(record);
+        logger.debug("🗳️ Queued {} backup for barcode: {}", changeType, barcode);
+    }
+
+    @Scheduled(fixedDelayString = "${product.backup.outbox.poll-interval:1000}")
+    public void relay() {
+        if (!relayEnabled) {
+            return;
+        }
+        try {
+            // Keep going while full batches are applied, so a backlog drains without waiting for the next poll
+            while (relayBatch() == batchSize) {
+                logger.debug("🔁 Backup outbox backlog, relaying next batch");
+            }
+        } catch (Exception e) {
+            logger.error("❌ Backup outbox relay failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /** Sends one batch and returns how many changes backup-service applied. */
+    int relayBatch() {
+        // Only due rows are read, so a backlog of changes waiting out their backoff never fills the batch
+        List<BackupOutbox> due = outboxRepository.findDue(LocalDateTime.now(), Limit.of(batchSize));
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        Set<String> heldBack = new HashSet<>();
+        List<BackupOutbox> sending = new ArrayList<>();
+        ChangeBatch.Builder batch = ChangeBatch.newBuilder();
+        for (BackupOutbox record : due) {
+            // A change that cannot even be encoded holds back the rest of its product's changes in this batch
+            if (heldBack.contains(record.getBarcode())) {
+                continue;
+            }
+            try {
+                batch.addChanges(toChange(record));
+                sending.add(record);
+            } catch (IllegalStateException e) {
+                logger.error("❌ {}", e.getMessage());
+                markFailed(List.of(record), Map.of(), e.getMessage());
+                heldBack.add(record.getBarcode());
+            }
+        }
+        if (sending.isEmpty()) {
+            return 0;
+        }
+
+        ChangeBatchResponse response;
+        try {
+            response = productBackupStub.withDeadlineAfter(timeoutMs, TimeUnit.MILLISECONDS).replicateChanges(batch.build());
+        } catch (Exception e) {
+            logger.warn("⚠️ Backup replication of {} change(s) failed, will retry: {}", sending.size(), e.getMessage());
+            markFailed(sending, Map.of(), e.getMessage());
+            return 0;
+        }
+
+        Set<Long> applied = new HashSet<>(response.getAppliedSequencesList());
+        Map<Long, String> errors = new HashMap<>();
+        for (FailedChange failed : response.getFailedList()) {
+            errors.put(failed.getSequence(), failed.getError());
+        }
+
+        List<Long> done = new ArrayList<>();
+        List<BackupOutbox> notApplied = new ArrayList<>();
+        LocalDateTime oldestApplied = null;
+        for (BackupOutbox record : sending) {
+            if (applied.contains(record.getId())) {
+                done.add(record.getId());
+                if (oldestApplied == null || record.getCreatedAt().isBefore(oldestApplied)) {
+                    oldestApplied = record.getCreatedAt();
+                }
+            } else {
+                notApplied.add(record);
+            }
+        }
+
+        if (!done.isEmpty()) {
+            outboxRepository.deleteAllByIdInBatch(done);
+            replicated.addAndGet(done.size());
+            lastReplicatedAt = LocalDateTime.now();
+            lastLagMs = Duration.between(oldestApplied, lastReplicatedAt).toMillis();
+            logger.info("🔁 Replicated {} product change(s) to backup, lag {} ms", done.size(), lastLagMs);
+        }
+        if (!notApplied.isEmpty()) {
+            logger.warn("⚠️ Backup did not apply {} change(s), will retry", notApplied.size());
+            markFailed(notApplied, errors, "Not applied by backup-service");
+        }
+        return done.size();
+    }
+
+    private static ProductChange toChange(BackupOutbox record) {
+        ProductChange.Builder change = ProductChange.newBuilder()
+                .setSequence(record.getId())
+                .setBarcode(record.getBarcode())
+                .setType(switch (record.getChangeType()) {
+                    case ADDED -> ChangeType.ADD;
+                    case UPDATED -> ChangeType.UPDATE;
+                    case DELETED -> ChangeType.DELETE;
+                    default -> throw new IllegalStateException("Unknown change type: " + record.getChangeType());
+                });
+        if (record.getPayload() != null) {
+            try {
+                change.setProduct(ProductRequest.parseFrom(record.getPayload()));
+            } catch (InvalidProtocolBufferException e) {
+                throw new IllegalStateException("Corrupt backup outbox payload, id " + record.getId(), e);
+            }
+        }
+        return change.build();
+    }
+
+    private void markFailed(List<BackupOutbox> records, Map<Long, String> errors, String defaultError) {
+        LocalDateTime now = LocalDateTime.now();
+        for (BackupOutbox record : records) {
+            int attempts = record.getAttempts() + 1;
+            String error = errors.getOrDefault(record.getId(), defaultError);
+            record.setAttempts(attempts);
+            record.setNextAttemptAt(now.plus(Duration.ofMillis(backoffMs(attempts))));
+            record.setLastError(error != null && error.length() > 500 ? error.substring(0, 500) : error);
+            if (attempts >= maxAttempts) {
+                record.setDeadLetteredAt(now);
+                deadLettered.incrementAndGet();
+                logger.error("☠️ Dead-lettered backup outbox change {} ({} of barcode {}) after {} attempts: {}",
+                        record.getId(), record.getChangeType(), record.getBarcode(), attempts, record.getLastError());
+            }
+        }
+        outboxRepository.saveAll(records);
+        failedAttempts.addAndGet(records.size());
+        lastError = records.get(0).getLastError();
+    }
+
+    long backoffMs(int attempts) {
+        long delay = retryInitialMs << Math.min(attempts - 1, 20);
+        return Math.min(delay, retryMaxMs);
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pending", outboxRepository.countByDeadLetteredAtIsNull());
+        stats.put("oldestPendingAgeMs", outboxRepository.findFirstByDeadLetteredAtIsNullOrderByIdAsc()
+                .map(oldest -> Duration.between(oldest.getCreatedAt(), LocalDateTime.now()).toMillis())
+                .orElse(0L));
+        stats.put("deadLettered", outboxRepository.countByDeadLetteredAtIsNotNull());
+        stats.put("replicated", replicated.get());
+        stats.put("failedAttempts", failedAttempts.get());
+        stats.put("deadLetteredSinceStart", deadLettered.get());
+        stats.put("lastLagMs", lastLagMs);
+        stats.put("lastReplicatedAt", lastReplicatedAt);
+        stats.put("lastError", lastError);
+        return stats;
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.sb.productservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Wire formats of the cart position stream, read and written straight from and to bytes.
+ * <p>
+ * Readings come from the cart firmware as {@code {"x":1.2345,"y":0.5000,"z":0.0000}} (metres); {@link #coordinate}
+ * pulls one field out without building a string or a tree. Corrected positions go out one frame per publish tick:
+ * {@code {"layoutId":"...","t":<epoch ms>,"carts":[{"id":"cart001","x":12.34,"y":56.78},...]}}, coordinates in layout
+ * units to two decimals. A writer reuses its buffer between frames and is meant for one thread.
+ */
+public final class CartPositionFrames {
+
+    private static final byte[] CARTS = ",\"carts\":[".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] ID = "{\"id\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] X = ",\"x\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] Y = ",\"y\":".getBytes(StandardCharsets.US_ASCII);
+    private static final double[] POWERS_OF_TEN = {1, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18};
+
+    private final byte[] header;
+    private byte[] buffer = new byte[4096];
+    private int length;
+
+    /** A writer for frames about one layout. */
+    public CartPositionFrames(String layoutId) {
+        String escaped = layoutId.replace("\\", "\\\\").replace("\"", "\\\"");
+        this.header = ("{\"layoutId\":\"" + escaped + "\",\"t\":").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The number in the top-level field {@code "key"} of a JSON reading, or NaN when the field is missing or is not a
+     * plain number.
+     */
+    public static float coordinate(byte[] payload, char key) {
+        for (int i = 0; i + 2 < payload.length; i++) {
+            if (payload[i] != '"' || payload[i + 1] != key || payload[i + 2] != '"') {
+                continue;
+            }
+            int p = i + 3;
+            while (p < payload.length && (payload[p] == ' ' || payload[p] == ':' || payload[p] == '\t')) {
+                p++;
+            }
+            return number(payload, p);
+        }
+        return Float.NaN;
+    }
+
+    // Decimal number with optional sign, fraction and exponent; the digits past 18 only shift the exponent
+    private static float number(byte[] payload, int p) {
+        boolean negative = p < payload.length && payload[p] == '-';
+        if (negative || (p < payload.length && payload[p] == '+')) {
+            p++;
+        }
+        long mantissa = 0;
+        int digits = 0, exponent = 0, start = p;
+        for (; p < payload.length && payload[p] >= '0' && payload[p] <= '9'; p++) {
+            if (digits < 18) {
+                mantissa = mantissa * 10 + (payload[p] - '0');
+                digits += mantissa > 0 ? 1 : 0;
+            } else {
+                exponent++;
+            }
+        }
+        if (p < payload.length && payload[p] == '.') {
+            for (p++; p < payload.length && payload[p] >= '0' && payload[p] <= '9'; p++) {
+                if (digits < 18) {
+                    mantissa = mantissa * 10 + (payload[p] - '0');
+                    digits += mantissa > 0 ? 1 : 0;
+                    exponent--;
+                }
+            }
+        }
+        if (p == start || (p == start + 1 && payload[start] == '.')) {
+            return Float.NaN;
+        }
+        if (p < payload.length && (payload[p] == 'e' || payload[p] == 'E')) {
+            p++;
+            boolean negativeExponent = p < payload.length && payload[p] == '-';
+            if (negativeExponent || (p < payload.length && payload[p] == '+')) {
+                p++;
+            }
+            int value = 0;
+            for (; p < payload.length && payload[p] >= '0' && payload[p] <= '9'; p++) {
+                value = Math.min(value * 10 + (payload[p] - '0'), 1000);
+            }
+            exponent += negativeExponent ? -value : value;
+        }
+        double result = Math.abs(exponent) < POWERS_OF_TEN.length
+                ? (exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent])
+                : mantissa * Math.pow(10, exponent);
+        return (float) (negative ? -result : result);
+    }
+
+    /** Encodes the snapshot's carts into a new byte array, sized exactly. */
+    public byte[] encode(CartPositionTracker tracker, CartPositionTracker.Snapshot snapshot, long timeMillis) {
+        length = 0;
+        write(header);
+        writeLong(timeMillis);
+        write(CARTS);
+        for (int i = 0; i < snapshot.count; i++) {
+            if (i > 0) {
+                writeByte(',');
+            }
+            write(ID);
+            write(tracker.cartIdJson(snapshot.slots[i]));
+            write(X);
+            writeHundredths(snapshot.x[i]);
+            write(Y);
+            writeHundredths(snapshot.y[i]);
+            writeByte('}');
+        }
+        writeByte(']');
+        writeByte('}');
+        return Arrays.copyOf(buffer, length);
+    }
+
+    private void writeHundredths(float value) {
+        long hundredths = Math.round(value * 100.0);
+        if (hundredths < 0) {
+            writeByte('-');
+            hundredths = -hundredths;
+        }
+        writeLong(hundredths / 100);
+        writeByte('.');
+        writeByte((char) ('0' + hundredths / 10 % 10));
+        writeByte((char) ('0' + hundredths % 10));
+    }
+
+    private void writeLong(long value) {
+        if (value < 0) {
+            writeByte('-');
+            value = -value;
+        }
+        ensure(20);
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = length + digits;
+        int p = end;
+        do {
+            buffer[--p] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        length = end;
+    }
+
+    private void write(byte[] bytes) {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buffer, length, bytes.length);
+        length += bytes.length;
+    }
+
+    private void writeByte(char c) {
+        ensure(1);
+        buffer[length++] = (byte) c;
+    }
+
+    private void ensure(int extra) {
+        if (length + extra > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, length + extra));
+        }
+    }
+
+}
@@ -0,0 +1,289 @@
+package com.sb.productservice.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
+import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
+import org.eclipse.paho.client.mqttv3.MqttException;
+import org.eclipse.paho.client.mqttv3.MqttMessage;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ingests the dead-reckoned positions the carts publish over MQTT (topic smart_cart/position/{cartId}, payload
+ * {"x":..,"y":..,"z":..} in metres, from cart-position/src/main.cpp) and republishes them drift-corrected against the
+ * store layout, in layout units, as one frame of every active cart per tick on smart_cart/position-corrected.
+ * <p>
+ * Readings go into a {@link CartPositionTracker} on the MQTT callback thread; {@link #publish()} takes a snapshot at a
+ * fixed rate on a thread of its own, not the shared scheduler, so subscribers see a steady stream whatever rate each
+ * cart reports at and whatever else is scheduled. Carts silent for longer than product.cart-position.evict-after-ms
+ * are dropped on that thread too, freeing their slots for new carts. The floor the carts are kept on is the configured
+ * layout's {@link WalkableArea}, rebuilt when its fixtures move. Without product.mqtt.broker-url (e.g.
+ * tcp://localhost:1883 or the EMQX endpoint the carts use) ingestion stays off.
+ */
+@Service
+public class CartPositionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CartPositionService.class);
+
+    private final ProductLocationIndex productLocationIndex;
+
+    // The cart id is kept with the slot, so a reading for an evicted cart is noticed and the cart registered again
+    private record Cart(int slot, String cartId) {
+    }
+
+    private final Map<String, Cart> cartByTopic = new ConcurrentHashMap<>();
+    private final AtomicLong received = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong published = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+
+    private MqttClient mqttClient;
+    private ScheduledExecutorService ticker;
+    private CartPositionTracker tracker;
+    private CartPositionFrames frames;
+    private final CartPositionTracker.Snapshot snapshot = new CartPositionTracker.Snapshot();
+    private String topicPrefix;
+
+    @Value("${product.mqtt.broker-url:}")
+    private String brokerUrl;
+
+    @Value("${product.mqtt.username:}")
+    private String username;
+
+    @Value("${product.mqtt.password:}")
+    private String password;
+
+    @Value("${product.mqtt.client-id:product-service}")
+    private String clientId;
+
+    @Value("${product.cart-position.topic:smart_cart/position/+}")
+    private String topic;
+
+    @Value("${product.cart-position.publish-topic:smart_cart/position-corrected}")
+    private String publishTopic;
+
+    @Value("${product.cart-position.layout-id:}")
+    private String layoutId;
+
+    @Value("${product.cart-position.units-per-metre:10}")
+    private float unitsPerMetre;
+
+    @Value("${product.cart-position.origin-x:0}")
+    private float originX;
+
+    @Value("${product.cart-position.origin-y:0}")
+    private float originY;
+
+    @Value("${product.cart-position.max-speed:2.0}")
+    private float maxSpeed;
+
+    @Value("${product.cart-position.grid-resolution:400}")
+    private int gridResolution;
+
+    @Value("${product.cart-position.stale-after-ms:5000}")
+    private long staleAfterMs;
+
+    @Value("${product.cart-position.extrapolate-ms:250}")
+    private long extrapolateMs;
+
+    @Value("${product.cart-position.max-carts:10000}")
+    private int maxCarts;
+
+    @Value("${product.cart-position.publish-interval-ms:50}")
+    private long publishIntervalMs;
+
+    @Value("${product.cart-position.evict-after-ms:300000}")
+    private long evictAfterMs;
+
+    public CartPositionService(ProductLocationIndex productLocationIndex) {
+        this.productLocationIndex = productLocationIndex;
+    }
+
+    @PostConstruct
+    public void init() {
+        tracker = new CartPositionTracker(unitsPerMetre, originX, originY, maxSpeed, 1024, maxCarts);
+        frames = new CartPositionFrames(layoutId);
+        topicPrefix = topic.substring(0, topic.lastIndexOf('/') + 1);
+        if (brokerUrl.isBlank()) {
+            logger.warn("⚠️ No MQTT broker configured, cart position ingestion is disabled");
+            return;
+        }
+        try {
+            MqttConnectOptions connOpts = new MqttConnectOptions();
+            connOpts.setCleanSession(true);
+            connOpts.setAutomaticReconnect(true);
+            if (!username.isBlank()) {
+                connOpts.setUserName(username);
+                connOpts.setPassword(password.toCharArray());
+            }
+
+            mqttClient = new MqttClient(brokerUrl, clientId + "-" + UUID.randomUUID(), new MemoryPersistence());
+            mqttClient.setCallback(new MqttCallbackExtended() {
+                @Override
+                public void connectComplete(boolean reconnect, String serverURI) {
+                    // Clean sessions drop subscriptions, so subscribe again after every (re)connect
+                    try {
+                        mqttClient.subscribe(topic, 0);
+                        logger.info("📡 Subscribed to cart positions on {} ({})", topic, reconnect ? "reconnected" : "connected");
+                    } catch (MqttException e) {
+                        logger.error("❌ Failed to subscribe to {}: {}", topic, e.getMessage(), e);
+                    }
+                }
+
+                @Override
+                public void connectionLost(Throwable cause) {
+                    logger.warn("⚠️ MQTT connection lost, reconnecting: {}", cause.getMessage());
+                }
+
+                @Override
+                public void messageArrived(String messageTopic, MqttMessage message) {
+                    handleMessage(messageTopic, message.getPayload(), System.nanoTime());
+                }
+
+                @Override
+                public void deliveryComplete(IMqttDeliveryToken token) {
+                }
+            });
+
+            mqttClient.connect(connOpts);
+            logger.info("✅ Connected to MQTT broker {}", brokerUrl);
+
+        } catch (Exception e) {
+            logger.error("❌ Failed to connect to MQTT broker: {}", e.getMessage(), e);
+        }
+
+        ticker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cart-position-publisher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleAtFixedRate(this::tick, publishIntervalMs, publishIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void cleanup() {
+        if (ticker != null) {
+            ticker.shutdownNow();
+        }
+        try {
+            if (mqttClient != null && mqttClient.isConnected()) {
+                mqttClient.disconnect();
+                mqttClient.close();
+                logger.info("🛑 Disconnected from MQTT broker.");
+            }
+        } catch (Exception e) {
+            logger.warn("⚠️ Error while disconnecting MQTT client", e);
+        }
+    }
+
+    // Runs on the MQTT callback thread for every reading (thousands of carts at up to 20 Hz), so no logging or
+    // allocation on the happy path
+    void handleMessage(String messageTopic, byte[] payload, long nanos) {
+        received.incrementAndGet();
+        Cart cart = cartByTopic.get(messageTopic);
+        if (cart == null && (!messageTopic.startsWith(topicPrefix) || messageTopic.length() == topicPrefix.length())) {
+            rejected.incrementAndGet();
+            return;
+        }
+        float x = CartPositionFrames.coordinate(payload, 'x');
+        float y = CartPositionFrames.coordinate(payload, 'y');
+        if (!Float.isFinite(x) || !Float.isFinite(y)) {
+            rejected.incrementAndGet();
+            return;
+        }
+        if (cart != null && tracker.update(cart.slot(), cart.cartId(), x, y, nanos)) {
+            return;
+        }
+        // First reading, or the cart was evicted while silent: (re)register and start it afresh
+        String cartId = messageTopic.substring(topicPrefix.length());
+        int slot = tracker.register(cartId);
+        if (slot < 0) {
+            cartByTopic.remove(messageTopic);
+            rejected.incrementAndGet();
+            logger.warn("⚠️ Tracking the maximum of {} carts, ignoring {}", maxCarts, messageTopic);
+            return;
+        }
+        cart = new Cart(slot, cartId);
+        cartByTopic.put(messageTopic, cart);
+        tracker.update(slot, cartId, x, y, nanos);
+    }
+
+    // An exception would cancel the fixed-rate task, so one bad frame is logged and the next tick runs as usual
+    void tick() {
+        try {
+            publish();
+            evictIdle(System.nanoTime());
+        } catch (RuntimeException e) {
+            logger.error("❌ Cart position tick failed: {}", e.getMessage(), e);
+        }
+    }
+
+    /** One frame of every cart heard from recently; nothing is sent while no cart is active. */
+    public void publish() {
+        if (mqttClient == null || !mqttClient.isConnected()) {
+            return;
+        }
+        refreshArea();
+        tracker.snapshot(System.nanoTime(), TimeUnit.MILLISECONDS.toNanos(staleAfterMs),
+                TimeUnit.MILLISECONDS.toNanos(extrapolateMs), snapshot);
+        if (snapshot.count == 0) {
+            return;
+        }
+        try {
+            MqttMessage message = new MqttMessage(frames.encode(tracker, snapshot, System.currentTimeMillis()));
+            message.setQos(0);
+            mqttClient.publish(publishTopic, message);
+            published.incrementAndGet();
+        } catch (MqttException e) {
+            logger.warn("⚠️ Failed to publish cart positions: {}", e.getMessage());
+        }
+    }
+
+    // Runs between frames on the publish thread, so no slot is freed while a snapshot holding it is being encoded
+    void evictIdle(long nowNanos) {
+        for (String cartId : tracker.evictIdle(nowNanos, TimeUnit.MILLISECONDS.toNanos(evictAfterMs))) {
+            cartByTopic.remove(topicPrefix + cartId);
+            evicted.incrementAndGet();
+        }
+    }
+
+    public Map<String, Long> getStats() {
+        return Map.of(
+                "carts", (long) tracker.size(),
+                "received", received.get(),
+                "rejected", rejected.get(),
+                "published", published.get(),
+                "evicted", evicted.get());
+    }
+
+    // The floor follows the layout's fixtures; restocking alone keeps the current grid
+    private void refreshArea() {
+        if (layoutId.isBlank()) {
+            return;
+        }
+        ProductLocationIndex.LayoutLocations layout = productLocationIndex.layout(layoutId);
+        WalkableArea area = tracker.area();
+        if (layout == null || (area != null && area.geometryVersion() == layout.geometryVersion())) {
+            return;
+        }
+        long startedAt = System.nanoTime();
+        area = WalkableArea.build(layout.fixtures(), layout.geometryVersion(), gridResolution);
+        tracker.setArea(area);
+        logger.info("📍 Built walkable area for layout {} in {} ms", layoutId, (System.nanoTime() - startedAt) / 1_000_000);
+    }
+
+}
@@ -0,0 +1,304 @@
+package com.sb.productservice.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Latest corrected position of every cart, in the layout's coordinates.
+ * <p>
+ * The carts dead-reckon from their IMU and report an absolute position in metres that drifts further off with every
+ * second. Only the change between two readings is trusted: it is scaled into layout units, capped at what a cart can
+ * roll in the elapsed time, and applied to the last corrected position. A move that would cross a fixture or leave
+ * the floor ({@link WalkableArea}) slides along the obstacle on whichever axis is still clear, or stops at the edge,
+ * so the drift the device accumulates is shed at every shelf it runs into. The first reading places the cart at the
+ * configured origin plus the reading, snapped onto the floor.
+ * <p>
+ * State lives in parallel primitive arrays indexed by a slot handed out per cart id, so readings are applied without
+ * allocating. Carts not heard from for a while are evicted ({@link #evictIdle}) and their slots reused, so the
+ * {@code maxCarts} limit is on carts tracked at once rather than ever seen. All access is under the tracker's lock;
+ * readings and snapshots only touch a few array cells per cart.
+ */
+public final class CartPositionTracker {
+
+    /** Output of {@link #snapshot}; reused between calls, the arrays grow as carts are added. */
+    public static final class Snapshot {
+
+        public int count;
+        public int[] slots = new int[0];
+        public float[] x = new float[0];
+        public float[] y = new float[0];
+
+        void ensure(int size) {
+            if (slots.length < size) {
+                slots = new int[size];
+                x = new float[size];
+                y = new float[size];
+            }
+        }
+    }
+
+    private static final float VELOCITY_SMOOTHING = 0.5f;
+
+    private final float unitsPerMetre;
+    private final float originX;
+    private final float originY;
+    private final float maxSpeed; // layout units per second
+    private final int maxCarts;
+
+    private final Map<String, Integer> slotByCartId = new HashMap<>();
+    private String[] cartIds;
+    private byte[][] cartIdJson; // quoted and escaped, for publishing without re-encoding
+    private float[] x;
+    private float[] y;
+    private float[] vx;
+    private float[] vy;
+    private float[] rawX;
+    private float[] rawY;
+    private long[] lastNanos;
+    private boolean[] placed;
+    private int[] freeSlots;
+    private int freeCount;
+    private int size; // slots handed out so far, free ones included
+
+    private WalkableArea area;
+
+    public CartPositionTracker(float unitsPerMetre, float originX, float originY, float maxSpeedMetres,
+                               int initialCapacity, int maxCarts) {
+        this.unitsPerMetre = unitsPerMetre;
+        this.originX = originX;
+        this.originY = originY;
+        this.maxSpeed = maxSpeedMetres * Math.abs(unitsPerMetre);
+        this.maxCarts = maxCarts;
+        allocate(Math.max(1, Math.min(initialCapacity, maxCarts)));
+    }
+
+    /** Switches to a new floor plan; carts it leaves inside a fixture are moved to the nearest walkable spot. */
+    public synchronized void setArea(WalkableArea area) {
+        this.area = area;
+        for (int slot = 0; slot < size; slot++) {
+            if (placed[slot]) {
+                snapOntoFloor(slot);
+            }
+        }
+    }
+
+    public synchronized WalkableArea area() {
+        return area;
+    }
+
+    /** Carts currently tracked. */
+    public synchronized int size() {
+        return size - freeCount;
+    }
+
+    public synchronized String cartId(int slot) {
+        return cartIds[slot];
+    }
+
+    // Unlocked: slots come from a snapshot, whose lock already made their registration visible
+    byte[] cartIdJson(int slot) {
+        return cartIdJson[slot];
+    }
+
+    /** The cart's slot, assigning a free one on first sight; -1 while {@code maxCarts} are tracked. */
+    public synchronized int register(String cartId) {
+        Integer existing = slotByCartId.get(cartId);
+        if (existing != null) {
+            return existing;
+        }
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (size == maxCarts) {
+                return -1;
+            }
+            if (size == x.length) {
+                grow(Math.min(size * 2, maxCarts));
+            }
+            slot = size++;
+        }
+        cartIds[slot] = cartId;
+        cartIdJson[slot] = ('"' + cartId.replace("\\", "\\\\").replace("\"", "\\\"") + '"').getBytes(StandardCharsets.UTF_8);
+        slotByCartId.put(cartId, slot);
+        return slot;
+    }
+
+    /**
+     * Applies one reading (metres, device frame) taken at {@code nanos} ({@link System#nanoTime()} clock). Readings
+     * older than the last applied one are dropped.
+     *
+     * @return false, applying nothing, if the slot no longer belongs to {@code cartId} (it was evicted); register again
+     */
+    public synchronized boolean update(int slot, String cartId, float readingX, float readingY, long nanos) {
+        if (!cartId.equals(cartIds[slot])) {
+            return false;
+        }
+        float ux = originX + readingX * unitsPerMetre;
+        float uy = originY + readingY * unitsPerMetre;
+        if (!placed[slot]) {
+            placed[slot] = true;
+            x[slot] = ux;
+            y[slot] = uy;
+            snapOntoFloor(slot);
+        } else {
+            if (nanos <= lastNanos[slot]) {
+                return true;
+            }
+            float dt = (nanos - lastNanos[slot]) / 1e9f;
+            float dx = ux - rawX[slot];
+            float dy = uy - rawY[slot];
+            float length = (float) Math.sqrt(dx * dx + dy * dy);
+            float limit = maxSpeed * dt;
+            if (length > limit) {
+                dx *= limit / length;
+                dy *= limit / length;
+            }
+            float fromX = x[slot], fromY = y[slot];
+            move(slot, dx, dy);
+            vx[slot] += VELOCITY_SMOOTHING * ((x[slot] - fromX) / dt - vx[slot]);
+            vy[slot] += VELOCITY_SMOOTHING * ((y[slot] - fromY) / dt - vy[slot]);
+        }
+        rawX[slot] = ux;
+        rawY[slot] = uy;
+        lastNanos[slot] = nanos;
+        return true;
+    }
+
+    /**
+     * Frees the slots of carts not heard from for more than {@code idleNanos}. A slot is reused by the next cart
+     * registered, so callers must not hold on to it past this call, e.g. in a snapshot still being encoded.
+     *
+     * @return the ids of the evicted carts
+     */
+    public synchronized List<String> evictIdle(long nowNanos, long idleNanos) {
+        List<String> evicted = List.of();
+        for (int slot = 0; slot < size; slot++) {
+            if (!placed[slot] || nowNanos - lastNanos[slot] <= idleNanos) {
+                continue;
+            }
+            if (evicted.isEmpty()) {
+                evicted = new ArrayList<>();
+            }
+            evicted.add(cartIds[slot]);
+            slotByCartId.remove(cartIds[slot]);
+            cartIds[slot] = null;
+            cartIdJson[slot] = null;
+            placed[slot] = false;
+            vx[slot] = 0;
+            vy[slot] = 0;
+            lastNanos[slot] = 0;
+            freeSlots[freeCount++] = slot;
+        }
+        return evicted;
+    }
+
+    /**
+     * Positions of every cart heard from within {@code staleNanos} of {@code nowNanos}, each carried forward along its
+     * velocity for up to {@code extrapolateNanos} since its last reading (and kept on the floor), so a steady publish
+     * rate does not freeze carts between readings.
+     */
+    public synchronized void snapshot(long nowNanos, long staleNanos, long extrapolateNanos, Snapshot into) {
+        into.ensure(size);
+        WalkableArea area = this.area;
+        int count = 0;
+        for (int slot = 0; slot < size; slot++) {
+            long age = nowNanos - lastNanos[slot];
+            if (!placed[slot] || age > staleNanos) {
+                continue;
+            }
+            float ahead = Math.max(0, Math.min(age, extrapolateNanos)) / 1e9f;
+            float dx = vx[slot] * ahead, dy = vy[slot] * ahead;
+            float t = area == null || (dx == 0 && dy == 0) ? 1 : area.clearFraction(x[slot], y[slot], dx, dy);
+            into.slots[count] = slot;
+            into.x[count] = x[slot] + t * dx;
+            into.y[count] = y[slot] + t * dy;
+            count++;
+        }
+        into.count = count;
+    }
+
+    public synchronized float x(int slot) {
+        return x[slot];
+    }
+
+    public synchronized float y(int slot) {
+        return y[slot];
+    }
+
+    // Whole move if clear, else slide along the clear axis (the longer one first), else as far as the path allows
+    private void move(int slot, float dx, float dy) {
+        WalkableArea area = this.area;
+        float fromX = x[slot], fromY = y[slot];
+        if (area == null || (dx == 0 && dy == 0) || area.clearFraction(fromX, fromY, dx, dy) == 1) {
+            x[slot] = fromX + dx;
+            y[slot] = fromY + dy;
+            return;
+        }
+        boolean xFirst = Math.abs(dx) >= Math.abs(dy);
+        float t = xFirst ? area.clearFraction(fromX, fromY, dx, 0) : area.clearFraction(fromX, fromY, 0, dy);
+        if (t == 1) {
+            x[slot] = xFirst ? fromX + dx : fromX;
+            y[slot] = xFirst ? fromY : fromY + dy;
+            return;
+        }
+        t = xFirst ? area.clearFraction(fromX, fromY, 0, dy) : area.clearFraction(fromX, fromY, dx, 0);
+        if (t == 1) {
+            x[slot] = xFirst ? fromX : fromX + dx;
+            y[slot] = xFirst ? fromY + dy : fromY;
+            return;
+        }
+        t = area.clearFraction(fromX, fromY, dx, dy);
+        x[slot] = fromX + t * dx;
+        y[slot] = fromY + t * dy;
+        // Already off the floor (e.g. the floor plan changed under the cart): put it back on
+        snapOntoFloor(slot);
+    }
+
+    private void snapOntoFloor(int slot) {
+        WalkableArea area = this.area;
+        if (area == null || area.walkable(x[slot], y[slot])) {
+            return;
+        }
+        int cell = area.nearestWalkableCell(x[slot], y[slot]);
+        if (cell >= 0) {
+            x[slot] = area.cellX(cell);
+            y[slot] = area.cellY(cell);
+            vx[slot] = 0;
+            vy[slot] = 0;
+        }
+    }
+
+    private void allocate(int capacity) {
+        cartIds = new String[capacity];
+        cartIdJson = new byte[capacity][];
+        x = new float[capacity];
+        y = new float[capacity];
+        vx = new float[capacity];
+        vy = new float[capacity];
+        rawX = new float[capacity];
+        rawY = new float[capacity];
+        lastNanos = new long[capacity];
+        placed = new boolean[capacity];
+        freeSlots = new int[capacity];
+    }
+
+    private void grow(int capacity) {
+        cartIds = Arrays.copyOf(cartIds, capacity);
+        cartIdJson = Arrays.copyOf(cartIdJson, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        rawX = Arrays.copyOf(rawX, capacity);
+        rawY = Arrays.copyOf(rawY, capacity);
+        lastNanos = Arrays.copyOf(lastNanos, capacity);
+        placed = Arrays.copyOf(placed, capacity);
+        freeSlots = Arrays.copyOf(freeSlots, capacity);
+    }
+
+}
@@ -0,0 +1,294 @@
+package com.sb.productservice.service;
+
+import com.sb.productservice.dto.FixtureEntity;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Packed R-tree over one layout's fixture outlines, for "what is near this point" questions from a cart's position.
+ * <p>
+ * Fixtures are bulk-loaded once per geometry version with Sort-Tile-Recursive packing: sorted into vertical slices by
+ * centre x, each slice sorted by centre y, then grouped {@value #NODE_SIZE} to a node, and the nodes grouped the same
+ * way up to the root. Everything lives in flat arrays, so the tree is immutable and safe to share between threads.
+ * Distances are to the fixture's outline, 0 when the point is inside it; a fixture drawn without an outline counts as
+ * the point at its x, y.
+ */
+public final class FixtureSpatialIndex {
+
+    static final int NODE_SIZE = 16;
+
+    public record Hit(String fixtureId, float distance) {
+    }
+
+    private final long geometryVersion;
+    private final String[] ids;           // fixture index -> fixture id
+    private final float[][] outlines;     // absolute outline as x,y pairs, or a single x,y
+    private final float[] boxes;          // 4 per node (minX, minY, maxX, maxY): one leaf per fixture, then each level up
+    private final int[] refs;             // leaf: fixture index; above: first child node
+    private final int[] levelEnds;        // node index where each level ends, leaves first
+
+    private FixtureSpatialIndex(long geometryVersion, String[] ids, float[][] outlines, float[] boxes, int[] refs,
+                                int[] levelEnds) {
+        this.geometryVersion = geometryVersion;
+        this.ids = ids;
+        this.outlines = outlines;
+        this.boxes = boxes;
+        this.refs = refs;
+        this.levelEnds = levelEnds;
+    }
+
+    public long geometryVersion() {
+        return geometryVersion;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    public static FixtureSpatialIndex build(Map<String, FixtureEntity> fixtures, long geometryVersion) {
+        List<String> sorted = fixtures.keySet().stream().filter(id -> fixtures.get(id) != null).sorted().toList();
+        int n = sorted.size();
+        String[] ids = sorted.toArray(new String[0]);
+        float[][] outlines = new float[n][];
+        float[] itemBoxes = new float[n * 4];
+        float[] centreX = new float[n];
+        float[] centreY = new float[n];
+        for (int i = 0; i < n; i++) {
+            FixtureEntity fixture = fixtures.get(ids[i]);
+            float[] outline = AisleGraph.outline(fixture);
+            outlines[i] = outline.length >= 6 ? outline : new float[]{fixture.getX(), fixture.getY()};
+            bounds(outlines[i], itemBoxes, i);
+            centreX[i] = (itemBoxes[4 * i] + itemBoxes[4 * i + 2]) / 2;
+            centreY[i] = (itemBoxes[4 * i + 1] + itemBoxes[4 * i + 3]) / 2;
+        }
+
+        // Sort-Tile-Recursive order for the leaves
+        Integer[] order = new Integer[n];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingDouble(i -> centreX[i]));
+        int slices = (int) Math.ceil(Math.sqrt(Math.ceil(n / (double) NODE_SIZE)));
+        int perSlice = Math.max(slices * NODE_SIZE, 1);
+        for (int from = 0; from < n; from += perSlice) {
+            Arrays.sort(order, from, Math.min(from + perSlice, n), Comparator.comparingDouble(i -> centreY[i]));
+        }
+
+        // Node count: the leaves plus every level above them, up to a single root
+        int nodes = n;
+        List<Integer> ends = new ArrayList<>();
+        ends.add(n);
+        int count = n;
+        do {
+            count = (count + NODE_SIZE - 1) / NODE_SIZE;
+            nodes += count;
+            ends.add(nodes);
+        } while (count > 1);
+
+        float[] boxes = new float[nodes * 4];
+        int[] refs = new int[nodes];
+        for (int i = 0; i < n; i++) {
+            System.arraycopy(itemBoxes, 4 * order[i], boxes, 4 * i, 4);
+            refs[i] = order[i];
+        }
+        int levelStart = 0;
+        for (int level = 1; level < ends.size(); level++) {
+            int childEnd = ends.get(level - 1);
+            int node = childEnd;
+            for (int child = levelStart; child < childEnd; child += NODE_SIZE, node++) {
+                refs[node] = child;
+                float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+                for (int c = child; c < Math.min(child + NODE_SIZE, childEnd); c++) {
+                    minX = Math.min(minX, boxes[4 * c]);
+                    minY = Math.min(minY, boxes[4 * c + 1]);
+                    maxX = Math.max(maxX, boxes[4 * c + 2]);
+                    maxY = Math.max(maxY, boxes[4 * c + 3]);
+                }
+                boxes[4 * node] = minX;
+                boxes[4 * node + 1] = minY;
+                boxes[4 * node + 2] = maxX;
+                boxes[4 * node + 3] = maxY;
+            }
+            levelStart = childEnd;
+        }
+        int[] levelEnds = ends.stream().mapToInt(Integer::intValue).toArray();
+        return new FixtureSpatialIndex(geometryVersion, ids, outlines, boxes, refs, levelEnds);
+    }
+
+    /**
+     * The {@code count} fixtures closest to the point, nearest first. Best-first search: nodes come off a queue ordered
+     * by the distance to their box, so a fixture is returned once nothing left in the queue can be closer.
+     */
+    public List<Hit> nearest(float x, float y, int count) {
+        List<Hit> hits = new ArrayList<>(Math.max(Math.min(count, ids.length), 0));
+        if (ids.length == 0 || count <= 0) {
+            return hits;
+        }
+        Queue queue = new Queue();
+        queue.push(boxDistance(root(), x, y), root());
+        while (!queue.isEmpty() && hits.size() < count) {
+            float distance = queue.peekKey();
+            int node = queue.pop();
+            if (node < ids.length) {
+                hits.add(new Hit(ids[refs[node]], (float) Math.sqrt(distance)));
+                continue;
+            }
+            int first = refs[node];
+            int end = Math.min(first + NODE_SIZE, levelEnd(first));
+            for (int child = first; child < end; child++) {
+                queue.push(child < ids.length ? fixtureDistance(refs[child], x, y) : boxDistance(child, x, y), child);
+            }
+        }
+        return hits;
+    }
+
+    /** Every fixture within {@code radius} of the point, nearest first. */
+    public List<Hit> within(float x, float y, float radius) {
+        List<Hit> hits = new ArrayList<>();
+        if (ids.length == 0 || radius < 0) {
+            return hits;
+        }
+        float limit = radius * radius;
+        int[] stack = new int[levelEnds.length * NODE_SIZE];
+        int top = 0;
+        stack[top++] = root();
+        while (top > 0) {
+            int node = stack[--top];
+            int first = refs[node];
+            int end = Math.min(first + NODE_SIZE, levelEnd(first));
+            for (int child = first; child < end; child++) {
+                if (child < ids.length) {
+                    float distance = fixtureDistance(refs[child], x, y);
+                    if (distance <= limit) {
+                        hits.add(new Hit(ids[refs[child]], (float) Math.sqrt(distance)));
+                    }
+                } else if (boxDistance(child, x, y) <= limit) {
+                    stack[top++] = child;
+                }
+            }
+        }
+        hits.sort(Comparator.comparingDouble(Hit::distance));
+        return hits;
+    }
+
+    private int root() {
+        return levelEnds[levelEnds.length - 1] - 1;
+    }
+
+    private int levelEnd(int node) {
+        for (int end : levelEnds) {
+            if (node < end) {
+                return end;
+            }
+        }
+        return levelEnds[levelEnds.length - 1];
+    }
+
+    // Squared distance from the point to the node's box; 0 inside it
+    private float boxDistance(int node, float x, float y) {
+        float dx = Math.max(Math.max(boxes[4 * node] - x, x - boxes[4 * node + 2]), 0);
+        float dy = Math.max(Math.max(boxes[4 * node + 1] - y, y - boxes[4 * node + 3]), 0);
+        return dx * dx + dy * dy;
+    }
+
+    // Squared distance from the point to the fixture's outline; 0 inside it
+    private float fixtureDistance(int fixture, float x, float y) {
+        float[] outline = outlines[fixture];
+        if (outline.length == 2) {
+            float dx = outline[0] - x, dy = outline[1] - y;
+            return dx * dx + dy * dy;
+        }
+        if (AisleGraph.contains(outline, x, y)) {
+            return 0;
+        }
+        float best = Float.MAX_VALUE;
+        int vertices = outline.length / 2;
+        for (int a = 0, b = vertices - 1; a < vertices; b = a++) {
+            best = Math.min(best, segmentDistance(x, y, outline[2 * b], outline[2 * b + 1], outline[2 * a], outline[2 * a + 1]));
+        }
+        return best;
+    }
+
+    private static float segmentDistance(float x, float y, float ax, float ay, float bx, float by) {
+        float vx = bx - ax, vy = by - ay;
+        float lengthSquared = vx * vx + vy * vy;
+        float t = lengthSquared > 0 ? Math.max(0, Math.min(1, ((x - ax) * vx + (y - ay) * vy) / lengthSquared)) : 0;
+        float dx = ax + t * vx - x, dy = ay + t * vy - y;
+        return dx * dx + dy * dy;
+    }
+
+    private static void bounds(float[] outline, float[] boxes, int i) {
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (int k = 0; k < outline.length; k += 2) {
+            minX = Math.min(minX, outline[k]);
+            maxX = Math.max(maxX, outline[k]);
+            minY = Math.min(minY, outline[k + 1]);
+            maxY = Math.max(maxY, outline[k + 1]);
+        }
+        boxes[4 * i] = minX;
+        boxes[4 * i + 1] = minY;
+        boxes[4 * i + 2] = maxX;
+        boxes[4 * i + 3] = maxY;
+    }
+
+    // Binary min-heap of node indexes keyed by squared distance, in primitive arrays
+    private static final class Queue {
+
+        private float[] keys = new float[64];
+        private int[] values = new int[64];
+        private int size;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        float peekKey() {
+            return keys[0];
+        }
+
+        void push(float key, int value) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (keys[parent] <= key) {
+                    break;
+                }
+                keys[i] = keys[parent];
+                values[i] = values[parent];
+                i = parent;
+            }
+            keys[i] = key;
+            values[i] = value;
+        }
+
+        int pop() {
+            int top = values[0];
+            float key = keys[--size];
+            int value = values[size];
+            int i = 0;
+            int half = size >>> 1;
+            while (i < half) {
+                int child = 2 * i + 1;
+                if (child + 1 < size && keys[child + 1] < keys[child]) {
+                    child++;
+                }
+                if (key <= keys[child]) {
+                    break;
+                }
+                keys[i] = keys[child];
+                values[i] = values[child];
+                i = child;
+            }
+            keys[i] = key;
+            values[i] = value;
+            return top;
+        }
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.sb.productservice.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of product images keyed by S3 key.
+ * <p>
+ * Image bytes live in direct (off-heap) buffers, so a full cache adds almost nothing to the heap the collector has
+ * to scan; only the small per-entry metadata is on-heap. The total is capped at {@code product.image.cache.max-bytes}
+ * and least recently served images are evicted first. Entries older than {@code product.image.cache.ttl} are reloaded,
+ * which bounds how long an image overwritten through another instance can be served stale.
+ */
+@Service
+public class ImageCache {
+
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long ttlNanos;
+
+    private final LinkedHashMap<String, CachedImage> entries = new LinkedHashMap<>(64, 0.75f, true); // guarded by this
+    private long bytes;         // guarded by this
+    private long invalidations; // guarded by this
+    private long hits;          // guarded by this
+    private long misses;        // guarded by this
+    private long evictions;     // guarded by this
+
+    public ImageCache(@Value("${product.image.cache.max-bytes:67108864}") long maxBytes,
+                      @Value("${product.image.cache.max-entry-bytes:5242880}") long maxEntryBytes,
+                      @Value("${product.image.cache.ttl:10m}") Duration ttl) {
+        this.maxBytes = maxBytes;
+        this.maxEntryBytes = maxEntryBytes;
+        this.ttlNanos = ttl.toNanos();
+    }
+
+    /** One image with the validators it was stored with. {@code data} is read-only and positioned at the start. */
+    public record CachedImage(ByteBuffer data, String eTag, Instant lastModified, String contentType, long loadedAtNanos) {
+
+        public int size() {
+            return data.remaining();
+        }
+
+        // Copies through a small chunk buffer, never the whole image, onto the heap
+        public void writeTo(OutputStream out) throws IOException {
+            Channels.newChannel(out).write(data.duplicate());
+        }
+
+        public byte[] toByteArray() {
+            byte[] copy = new byte[size()];
+            data.duplicate().get(copy);
+            return copy;
+        }
+    }
+
+    public synchronized CachedImage get(String key) {
+        CachedImage image = entries.get(key);
+        if (image != null && System.nanoTime() - image.loadedAtNanos() > ttlNanos) {
+            entries.remove(key);
+            bytes -= image.size();
+            image = null;
+        }
+        if (image == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return image;
+    }
+
+    /** Marker to take before loading an image; {@link #put} drops the load if an invalidation happened since. */
+    public synchronized long stamp() {
+        return invalidations;
+    }
+
+    /** Whether an image of this size would be kept; larger ones are served without being cached. */
+    public boolean cacheable(long size) {
+        return size <= maxEntryBytes;
+    }
+
+    public synchronized void put(String key, CachedImage image, long stamp) {
+        if (!cacheable(image.size()) || stamp != invalidations) {
+            return;
+        }
+        CachedImage previous = entries.put(key, image);
+        if (previous != null) {
+            bytes -= previous.size();
+        }
+        bytes += image.size();
+
+        Iterator<CachedImage> eldest = entries.values().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            bytes -= eldest.next().size();
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    public synchronized void invalidate(String key) {
+        invalidations++;
+        CachedImage removed = entries.remove(key);
+        if (removed != null) {
+            bytes -= removed.size();
+        }
+    }
+
+    public synchronized Map<String, Object> getStats() {
+        long lookups = hits + misses;
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("entries", entries.size());
+        stats.put("bytes", bytes);
+        stats.put("maxBytes", maxBytes);
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", lookups == 0 ? 0.0 : (double) hits / lookups);
+        stats.put("evictions", evictions);
+        return stats;
+    }
+
+}
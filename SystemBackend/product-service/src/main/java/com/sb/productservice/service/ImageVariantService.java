@@ -0,0 +1,182 @@
+package com.sb.productservice.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Generates the resized product image variants in the background once a product's image has been stored.
+ * <p>
+ * Each variant is the original scaled down to fit {@link Variant#maxSize()} pixels on its longer side (never
+ * scaled up), re-encoded as JPEG and stored next to the original under the original's name with the variant appended
+ * ({@code 4791-1a2b.jpg} -> {@code 4791-1a2b_thumb.jpg}), so every image has variants of its own. Jobs run on
+ * {@code product.image.variants.workers} threads with a queue of {@code product.image.variants.queue}; when the
+ * queue is full the job is dropped and the product keeps serving only its original until its next image update.
+ */
+@Service
+public class ImageVariantService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImageVariantService.class);
+
+    public record Variant(String name, int maxSize) {
+    }
+
+    // Largest first: each variant is scaled from the previous one, which is both faster and smoother
+    public static final List<Variant> VARIANTS = List.of(
+            new Variant("medium", 640),
+            new Variant("small", 320),
+            new Variant("thumb", 160));
+
+    private final S3Service s3Service;
+    private final float quality;
+    private final ThreadPoolExecutor workers;
+
+    public ImageVariantService(S3Service s3Service,
+                               @Value("${product.image.variants.workers:2}") int workerCount,
+                               @Value("${product.image.variants.queue:100}") int queueSize,
+                               @Value("${product.image.variants.quality:0.8}") float quality) {
+        this.s3Service = s3Service;
+        this.quality = quality;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueSize), runnable -> {
+            Thread thread = new Thread(runnable, "image-variants-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        });
+    }
+
+    public static String variantFilename(String imageFilename, String variant) {
+        int dot = imageFilename.lastIndexOf('.');
+        return (dot > 0 ? imageFilename.substring(0, dot) : imageFilename) + "_" + variant + ".jpg";
+    }
+
+    /**
+     * Queues variant generation for the image stored at folder/filename. {@code onReady} receives the names of
+     * the variants that were stored, smallest first.
+     */
+    public void submit(String barcode, String folder, String filename, Consumer<List<String>> onReady) {
+        try {
+            workers.execute(() -> generate(barcode, folder, filename, onReady));
+        } catch (RejectedExecutionException e) {
+            logger.warn("⚠️ Image variant queue full, skipping variants for barcode: {}", barcode);
+        }
+    }
+
+    private void generate(String barcode, String folder, String filename, Consumer<List<String>> onReady) {
+        long started = System.nanoTime();
+        try {
+            BufferedImage source = ImageIO.read(new ByteArrayInputStream(s3Service.getImage(folder, filename)));
+            if (source == null) {
+                logger.warn("⚠️ Unsupported image format, no variants for barcode: {}", barcode);
+                return;
+            }
+
+            List<String> ready = new ArrayList<>();
+            BufferedImage current = toRgb(source);
+            for (Variant variant : VARIANTS) {
+                current = fit(current, variant.maxSize());
+                s3Service.putImage(folder, variantFilename(filename, variant.name()), encodeJpeg(current), "image/jpeg");
+                ready.add(0, variant.name());
+            }
+
+            onReady.accept(ready);
+            logger.info("🖼️ Stored {} image variant(s) for barcode {} in {} ms", ready.size(), barcode,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        } catch (Exception e) {
+            logger.error("❌ Failed to generate image variants for barcode {}: {}", barcode, e.getMessage(), e);
+        }
+    }
+
+    // JPEG has no alpha channel, and drawing onto an RGB canvas also normalises indexed and grey images
+    private static BufferedImage toRgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        try {
+            g.drawImage(image, 0, 0, Color.WHITE, null);
+        } finally {
+            g.dispose();
+        }
+        return rgb;
+    }
+
+    /** Scales down to fit maxSize on the longer side, halving first so bilinear sampling does not alias. */
+    static BufferedImage fit(BufferedImage image, int maxSize) {
+        int longer = Math.max(image.getWidth(), image.getHeight());
+        if (longer <= maxSize) {
+            return image;
+        }
+        double scale = (double) maxSize / longer;
+        int targetWidth = Math.max(1, (int) Math.round(image.getWidth() * scale));
+        int targetHeight = Math.max(1, (int) Math.round(image.getHeight() * scale));
+
+        BufferedImage current = image;
+        while (current.getWidth() / 2 >= targetWidth && current.getHeight() / 2 >= targetHeight) {
+            current = draw(current, current.getWidth() / 2, current.getHeight() / 2);
+        }
+        return current.getWidth() == targetWidth && current.getHeight() == targetHeight
+                ? current : draw(current, targetWidth, targetHeight);
+    }
+
+    private static BufferedImage draw(BufferedImage image, int width, int height) {
+        BufferedImage scaled = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = scaled.createGraphics();
+        try {
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            g.drawImage(image, 0, 0, width, height, null);
+        } finally {
+            g.dispose();
+        }
+        return scaled;
+    }
+
+    private byte[] encodeJpeg(BufferedImage image) throws IOException {
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ImageOutputStream stream = ImageIO.createImageOutputStream(out)) {
+            writer.setOutput(stream);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            param.setProgressiveMode(ImageWriteParam.MODE_DEFAULT);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return out.toByteArray();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+}
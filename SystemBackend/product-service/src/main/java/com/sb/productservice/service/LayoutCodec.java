@@ -0,0 +1,442 @@
+package com.sb.productservice.service;
+
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.model.LayoutEntity;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Compact binary form of a layout, for large stores whose JSON document runs into DynamoDB's item size limit or makes
+ * a slow download for the editor.
+ * <p>
+ * After a 4-byte header the rest is deflated: a table of every distinct string, the fixtures with their outlines as
+ * packed float32 arrays, a dictionary of distinct items, and each fixture's shelf grid as varint indexes into that
+ * dictionary. An item's row, col and index are taken from where it sits in the grid and are only written out when they
+ * disagree with it. Null and empty are kept apart throughout, so a layout decodes to exactly what was encoded.
+ */
+public final class LayoutCodec {
+
+    public static final String MEDIA_TYPE = "application/vnd.smartcart.layout";
+
+    private static final byte[] MAGIC = {'S', 'B', 'L', 1};
+
+    // Far above any real store, but stops a small request from inflating without bound
+    private static final int MAX_INFLATED_BYTES = 64 * 1024 * 1024;
+
+    private LayoutCodec() {
+    }
+
+    public static byte[] encode(LayoutEntity layout) {
+        Writer writer = new Writer();
+        writer.string(layout.getLayoutId());
+        writer.string(layout.getName());
+        writer.varint(layout.getVersion() != null ? layout.getVersion() + 1 : 0);
+        writer.fixtures(layout.getFixtureLayout());
+        writer.items(layout.getItemMap());
+
+        Buffer plain = new Buffer(writer.body.size + writer.strings.size() * 16 + writer.entries.size() * 4);
+        plain.varint(writer.strings.size());
+        for (String string : writer.strings.keySet()) {
+            byte[] utf8 = string.getBytes(StandardCharsets.UTF_8);
+            plain.varint(utf8.length);
+            plain.write(utf8, utf8.length);
+        }
+        plain.varint(writer.entries.size());
+        for (int[] entry : writer.entries) {
+            plain.varint(entry[0]);
+            plain.varint(entry[1]);
+        }
+        plain.write(writer.body.bytes, writer.body.size);
+
+        // The fastest level: the string table and varints leave little for the slower levels to find
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(plain.bytes, 0, plain.size);
+            deflater.finish();
+            Buffer packed = new Buffer(plain.size / 3 + 64);
+            packed.write(MAGIC, MAGIC.length);
+            byte[] chunk = new byte[8192];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(chunk);
+                packed.write(chunk, length);
+            }
+            return Arrays.copyOf(packed.bytes, packed.size);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if the bytes are not a layout in this format
+     */
+    public static LayoutEntity decode(byte[] bytes) {
+        if (bytes == null || bytes.length < MAGIC.length) {
+            throw new IllegalArgumentException("Not a packed layout");
+        }
+        for (int i = 0; i < MAGIC.length; i++) {
+            if (bytes[i] != MAGIC[i]) {
+                throw new IllegalArgumentException("Not a packed layout, or a format version this service cannot read");
+            }
+        }
+
+        InputStream stream = new ByteArrayInputStream(bytes, MAGIC.length, bytes.length - MAGIC.length);
+        try (InflaterInputStream inflater = new InflaterInputStream(stream)) {
+            byte[] plain = inflater.readNBytes(MAX_INFLATED_BYTES + 1);
+            if (plain.length > MAX_INFLATED_BYTES) {
+                throw new IllegalArgumentException("Packed layout inflates past " + MAX_INFLATED_BYTES + " bytes");
+            }
+            ByteBuffer in = ByteBuffer.wrap(plain);
+            Reader reader = new Reader(in);
+            LayoutEntity layout = new LayoutEntity();
+            layout.setLayoutId(reader.string());
+            layout.setName(reader.string());
+            long version = varlong(in);
+            layout.setVersion(version > 0 ? version - 1 : null);
+            layout.setFixtureLayout(reader.fixtures());
+            layout.setItemMap(reader.items());
+            return layout;
+        } catch (IOException | RuntimeException e) {
+            throw new IllegalArgumentException("Malformed packed layout: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * The size DynamoDB counts against its 400 KB item limit: attribute names plus values, with numbers counted as
+     * their decimal digits (a slight overestimate).
+     */
+    public static int itemSize(Map<String, AttributeValue> item) {
+        int size = 0;
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            size += utf8Length(attribute.getKey()) + attributeSize(attribute.getValue());
+        }
+        return size;
+    }
+
+    private static int attributeSize(AttributeValue value) {
+        if (value.s() != null) {
+            return utf8Length(value.s());
+        }
+        if (value.n() != null) {
+            return value.n().length() + 1;
+        }
+        if (value.b() != null) {
+            return value.b().asByteArrayUnsafe().length;
+        }
+        if (value.hasM()) {
+            return 3 + itemSize(value.m()) + value.m().size();
+        }
+        if (value.hasL()) {
+            int size = 3 + value.l().size();
+            for (AttributeValue element : value.l()) {
+                size += attributeSize(element);
+            }
+            return size;
+        }
+        return 1;
+    }
+
+    private static int utf8Length(String string) {
+        return string.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    // Strings and items are numbered from 1 in order of first use; 0 stands for null. Lengths are written as
+    // length + 1 for the same reason.
+    private static final class Writer {
+
+        final Map<String, Integer> strings = new LinkedHashMap<>();
+        // Keyed by the item's id and name string refs, mixed so that neighbouring refs do not share a hash bucket
+        final Map<Long, Integer> dictionary = new HashMap<>();
+        final List<int[]> entries = new ArrayList<>();
+        final Buffer body = new Buffer(64 * 1024);
+
+        void string(String value) {
+            varint(ref(value));
+        }
+
+        int ref(String value) {
+            return value == null ? 0 : strings.computeIfAbsent(value, k -> strings.size() + 1);
+        }
+
+        void varint(long value) {
+            body.varint(value);
+        }
+
+        void length(Object container, int size) {
+            varint(container == null ? 0 : size + 1);
+        }
+
+        void fixtures(Map<String, FixtureEntity> fixtures) {
+            length(fixtures, fixtures != null ? fixtures.size() : 0);
+            if (fixtures == null) {
+                return;
+            }
+            for (Map.Entry<String, FixtureEntity> entry : fixtures.entrySet()) {
+                FixtureEntity fixture = entry.getValue();
+                string(entry.getKey());
+                body.write(fixture != null ? 1 : 0);
+                if (fixture == null) {
+                    continue;
+                }
+                // The id is nearly always the map key, which is then written as a back-reference
+                string(fixture.getId());
+                string(fixture.getName());
+                string(fixture.getColor());
+                varint(zigzag(fixture.getX()));
+                varint(zigzag(fixture.getY()));
+                // A missing point is written as NaN, which is not a usable coordinate anyway
+                List<Float> points = fixture.getPoints();
+                length(points, points != null ? points.size() : 0);
+                if (points != null) {
+                    for (Float point : points) {
+                        body.writeFloat(point != null ? point : Float.NaN);
+                    }
+                }
+            }
+        }
+
+        void items(Map<String, List<List<List<ItemEntity>>>> itemMap) {
+            length(itemMap, itemMap != null ? itemMap.size() : 0);
+            if (itemMap == null) {
+                return;
+            }
+            for (Map.Entry<String, List<List<List<ItemEntity>>>> entry : itemMap.entrySet()) {
+                string(entry.getKey());
+                List<List<List<ItemEntity>>> rows = entry.getValue();
+                length(rows, rows != null ? rows.size() : 0);
+                for (int row = 0; rows != null && row < rows.size(); row++) {
+                    List<List<ItemEntity>> cols = rows.get(row);
+                    length(cols, cols != null ? cols.size() : 0);
+                    for (int col = 0; cols != null && col < cols.size(); col++) {
+                        List<ItemEntity> cell = cols.get(col);
+                        length(cell, cell != null ? cell.size() : 0);
+                        for (int index = 0; cell != null && index < cell.size(); index++) {
+                            item(cell.get(index), row, col, index);
+                        }
+                    }
+                }
+            }
+        }
+
+        // Dictionary reference shifted left one bit; the low bit flags an item whose position fields are its own
+        void item(ItemEntity item, int row, int col, int index) {
+            if (item == null) {
+                varint(0);
+                return;
+            }
+            int idRef = ref(item.getId());
+            int nameRef = ref(item.getName());
+            long key = (((long) idRef << 32) | nameRef) * 0x9E3779B97F4A7C15L;
+            int ref = dictionary.computeIfAbsent(key, k -> {
+                entries.add(new int[]{idRef, nameRef});
+                return entries.size();
+            });
+            boolean placed = item.getRow() == row && item.getCol() == col && item.getIndex() == index;
+            varint(((long) ref << 1) | (placed ? 0 : 1));
+            if (!placed) {
+                varint(zigzag(item.getRow()));
+                varint(zigzag(item.getCol()));
+                varint(zigzag(item.getIndex()));
+            }
+        }
+    }
+
+    // ByteArrayOutputStream synchronizes every single-byte write, which cost more than the encoding itself
+    private static final class Buffer {
+
+        byte[] bytes;
+        int size;
+
+        Buffer(int capacity) {
+            bytes = new byte[Math.max(capacity, 16)];
+        }
+
+        void write(int b) {
+            if (size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            }
+            bytes[size++] = (byte) b;
+        }
+
+        void write(byte[] source, int length) {
+            if (size + length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, size + length));
+            }
+            System.arraycopy(source, 0, bytes, size, length);
+            size += length;
+        }
+
+        void writeFloat(float value) {
+            int bits = Float.floatToIntBits(value);
+            write(bits >>> 24);
+            write(bits >>> 16);
+            write(bits >>> 8);
+            write(bits);
+        }
+
+        void varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+    }
+
+    private static final class Reader {
+
+        final ByteBuffer in;
+        final List<String> strings = new ArrayList<>();
+        final List<String[]> dictionary = new ArrayList<>();
+
+        Reader(ByteBuffer in) {
+            this.in = in;
+            int stringCount = fits(varint(in), 1);
+            for (int i = 0; i < stringCount; i++) {
+                byte[] utf8 = new byte[fits(varint(in), 1)];
+                in.get(utf8);
+                strings.add(new String(utf8, StandardCharsets.UTF_8));
+            }
+            int itemCount = fits(varint(in), 2);
+            for (int i = 0; i < itemCount; i++) {
+                dictionary.add(new String[]{ref(varint(in)), ref(varint(in))});
+            }
+        }
+
+        String string() {
+            return ref(varint(in));
+        }
+
+        String ref(int ref) {
+            return ref == 0 ? null : strings.get(ref - 1);
+        }
+
+        // -1 for null
+        int length(int bytesEach) {
+            int length = varint(in) - 1;
+            return length < 0 ? -1 : fits(length, bytesEach);
+        }
+
+        // Every length comes from the request body, so it is checked against what is left before anything is sized by it
+        int fits(int count, int bytesEach) {
+            if (count < 0 || count > in.remaining() / bytesEach) {
+                throw new IllegalArgumentException("length " + count + " runs past the end of the packed layout");
+            }
+            return count;
+        }
+
+        Map<String, FixtureEntity> fixtures() {
+            int count = length(2);
+            if (count < 0) {
+                return null;
+            }
+            Map<String, FixtureEntity> fixtures = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = string();
+                if (in.get() == 0) {
+                    fixtures.put(key, null);
+                    continue;
+                }
+                FixtureEntity fixture = new FixtureEntity();
+                fixture.setId(string());
+                fixture.setName(string());
+                fixture.setColor(string());
+                fixture.setX(unzigzag(varint(in)));
+                fixture.setY(unzigzag(varint(in)));
+                int points = length(Float.BYTES);
+                if (points >= 0) {
+                    List<Float> outline = new ArrayList<>();
+                    for (int p = 0; p < points; p++) {
+                        float point = in.getFloat();
+                        outline.add(Float.isNaN(point) ? null : point);
+                    }
+                    fixture.setPoints(outline);
+                }
+                fixtures.put(key, fixture);
+            }
+            return fixtures;
+        }
+
+        Map<String, List<List<List<ItemEntity>>>> items() {
+            int count = length(2);
+            if (count < 0) {
+                return null;
+            }
+            Map<String, List<List<List<ItemEntity>>>> itemMap = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                String key = string();
+                int rowCount = length(1);
+                List<List<List<ItemEntity>>> rows = rowCount < 0 ? null : new ArrayList<>();
+                for (int row = 0; row < rowCount; row++) {
+                    int colCount = length(1);
+                    List<List<ItemEntity>> cols = colCount < 0 ? null : new ArrayList<>();
+                    for (int col = 0; col < colCount; col++) {
+                        int cellSize = length(1);
+                        List<ItemEntity> cell = cellSize < 0 ? null : new ArrayList<>();
+                        for (int index = 0; index < cellSize; index++) {
+                            cell.add(item(row, col, index));
+                        }
+                        cols.add(cell);
+                    }
+                    rows.add(cols);
+                }
+                itemMap.put(key, rows);
+            }
+            return itemMap;
+        }
+
+        ItemEntity item(int row, int col, int index) {
+            long value = varlong(in);
+            if (value == 0) {
+                return null;
+            }
+            String[] entry = dictionary.get((int) (value >>> 1) - 1);
+            ItemEntity item = new ItemEntity();
+            item.setId(entry[0]);
+            item.setName(entry[1]);
+            boolean placed = (value & 1) == 0;
+            item.setRow(placed ? row : unzigzag(varint(in)));
+            item.setCol(placed ? col : unzigzag(varint(in)));
+            item.setIndex(placed ? index : unzigzag(varint(in)));
+            return item;
+        }
+    }
+
+    private static long varlong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.get() & 0xFF;
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("varint too long");
+    }
+
+    private static int varint(ByteBuffer in) {
+        return Math.toIntExact(varlong(in));
+    }
+
+    private static long zigzag(int value) {
+        return Integer.toUnsignedLong((value << 1) ^ (value >> 31));
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+}
@@ -0,0 +1,402 @@
+package com.sb.productservice.service;
+
+import com.sb.events.LayoutFixture;
+import com.sb.events.LayoutItem;
+import com.sb.events.LayoutOperation;
+import com.sb.events.LayoutOperationType;
+import com.sb.events.ShelfCell;
+import com.sb.events.ShelfRow;
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.dto.LayoutPatchDTO;
+import com.sb.productservice.model.LayoutEntity;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+
+/**
+ * Layout patches: validation, the DynamoDB update they turn into, and their form in a {@code LayoutEvent}.
+ * <p>
+ * A patch becomes one UpdateItem that sets or removes only the touched entries of {@code fixtureLayout} and
+ * {@code itemMap} (down to a single shelf cell) and bumps {@code version}, on condition that the stored version is the
+ * one the patch was made against. Values are written with the same bean schemas the enhanced client uses, so patched
+ * layouts read back exactly like saved ones.
+ */
+public final class LayoutPatches {
+
+    public static final int MAX_OPERATIONS = 100;
+
+    private static final TableSchema<FixtureEntity> FIXTURE_SCHEMA = TableSchema.fromBean(FixtureEntity.class);
+    private static final TableSchema<ItemEntity> ITEM_SCHEMA = TableSchema.fromBean(ItemEntity.class);
+
+    private LayoutPatches() {
+    }
+
+    /**
+     * Checks the patch can be applied as one update: every operation complete, and no two touching the same or
+     * overlapping paths (DynamoDB refuses those).
+     *
+     * @throws IllegalArgumentException describing the first problem found
+     */
+    public static List<LayoutPatchDTO.Operation> validate(LayoutPatchDTO patch) {
+        if (patch == null || patch.getOperations() == null || patch.getOperations().isEmpty()) {
+            throw new IllegalArgumentException("Patch has no operations");
+        }
+        if (patch.getVersion() == null || patch.getVersion() < 0) {
+            throw new IllegalArgumentException("Patch needs the layout version it was made against");
+        }
+        if (patch.getOperations().size() > MAX_OPERATIONS) {
+            throw new IllegalArgumentException("At most " + MAX_OPERATIONS + " operations per patch");
+        }
+
+        List<String> paths = new ArrayList<>();
+        for (int i = 0; i < patch.getOperations().size(); i++) {
+            LayoutPatchDTO.Operation operation = patch.getOperations().get(i);
+            String where = "Operation " + i + ": ";
+            if (operation == null || operation.getOp() == null || operation.getOp() == LayoutOperationType.UNRECOGNIZED) {
+                throw new IllegalArgumentException(where + "op must be one of PUT_FIXTURE, REMOVE_FIXTURE, SET_SHELVES, SET_CELL");
+            }
+            String fixtureId = operation.getFixtureId();
+            if (fixtureId == null || fixtureId.isBlank()) {
+                throw new IllegalArgumentException(where + "fixtureId is required");
+            }
+            switch (operation.getOp()) {
+                case PUT_FIXTURE -> {
+                    if (operation.getFixture() == null) {
+                        throw new IllegalArgumentException(where + "fixture is required");
+                    }
+                    if (operation.getFixture().getId() == null) {
+                        operation.getFixture().setId(fixtureId);
+                    } else if (!operation.getFixture().getId().equals(fixtureId)) {
+                        throw new IllegalArgumentException(where + "fixture.id does not match fixtureId");
+                    }
+                    claim(paths, "fixtureLayout/" + fixtureId, where);
+                }
+                case REMOVE_FIXTURE -> {
+                    claim(paths, "fixtureLayout/" + fixtureId, where);
+                    claim(paths, "itemMap/" + fixtureId, where);
+                }
+                case SET_SHELVES -> {
+                    if (operation.getShelves() == null) {
+                        throw new IllegalArgumentException(where + "shelves is required");
+                    }
+                    claim(paths, "itemMap/" + fixtureId, where);
+                }
+                case SET_CELL -> {
+                    if (operation.getRow() == null || operation.getRow() < 0 || operation.getCol() == null || operation.getCol() < 0) {
+                        throw new IllegalArgumentException(where + "row and col must be zero or more");
+                    }
+                    if (operation.getItems() == null) {
+                        throw new IllegalArgumentException(where + "items is required (empty to clear the cell)");
+                    }
+                    claim(paths, "itemMap/" + fixtureId + "/" + operation.getRow() + "/" + operation.getCol(), where);
+                }
+                default -> throw new IllegalArgumentException(where + "unsupported op " + operation.getOp());
+            }
+        }
+        return patch.getOperations();
+    }
+
+    // A path overlaps another if it is the same path or one contains the other
+    private static void claim(List<String> paths, String path, String where) {
+        for (String claimed : paths) {
+            if (claimed.equals(path) || claimed.startsWith(path + "/") || path.startsWith(claimed + "/")) {
+                throw new IllegalArgumentException(where + "overlaps another operation on " + claimed);
+            }
+        }
+        paths.add(path);
+    }
+
+    /**
+     * The conditional update for a validated patch. A layout saved before versioning has no version attribute and is
+     * patched as version 0. The fixture and item counts after the patch are stored with it when known.
+     */
+    public static UpdateItemRequest toUpdateRequest(String tableName, String layoutId, long expectedVersion,
+                                                    List<LayoutPatchDTO.Operation> operations,
+                                                    Integer fixtureCount, Integer itemCount) {
+        Map<String, String> names = new HashMap<>();
+        Map<String, AttributeValue> values = new HashMap<>();
+        StringJoiner set = new StringJoiner(", ", "SET ", "");
+        StringJoiner remove = new StringJoiner(", ", " REMOVE ", "").setEmptyValue("");
+        StringJoiner cells = new StringJoiner("");
+        names.put("#id", "layoutId");
+        names.put("#v", "version");
+
+        for (int i = 0; i < operations.size(); i++) {
+            LayoutPatchDTO.Operation operation = operations.get(i);
+            String fixture = "#f" + i;
+            String value = ":x" + i;
+            names.put(fixture, operation.getFixtureId());
+            switch (operation.getOp()) {
+                case PUT_FIXTURE -> {
+                    names.put("#fl", "fixtureLayout");
+                    set.add("#fl." + fixture + " = " + value);
+                    values.put(value, AttributeValue.fromM(FIXTURE_SCHEMA.itemToMap(operation.getFixture(), true)));
+                }
+                case REMOVE_FIXTURE -> {
+                    names.put("#fl", "fixtureLayout");
+                    names.put("#im", "itemMap");
+                    remove.add("#fl." + fixture);
+                    remove.add("#im." + fixture);
+                }
+                case SET_SHELVES -> {
+                    names.put("#im", "itemMap");
+                    set.add("#im." + fixture + " = " + value);
+                    values.put(value, shelvesValue(operation.getShelves()));
+                }
+                case SET_CELL -> {
+                    names.put("#im", "itemMap");
+                    set.add("#im." + fixture + "[" + operation.getRow() + "][" + operation.getCol() + "] = " + value);
+                    values.put(value, cellValue(operation.getItems()));
+                    // DynamoDB would append a column past the end of the row, so only existing cells are set
+                    cells.add(" AND size(#im." + fixture + "[" + operation.getRow() + "]) > :c" + i);
+                    values.put(":c" + i, AttributeValue.fromN(Integer.toString(operation.getCol())));
+                }
+                default -> throw new IllegalArgumentException("Unsupported op " + operation.getOp());
+            }
+        }
+        set.add("#v = :next");
+        values.put(":next", AttributeValue.fromN(Long.toString(expectedVersion + 1)));
+        if (fixtureCount != null && itemCount != null) {
+            set.add("#fc = :fc");
+            set.add("#ic = :ic");
+            names.put("#fc", "fixtureCount");
+            names.put("#ic", "itemCount");
+            values.put(":fc", AttributeValue.fromN(fixtureCount.toString()));
+            values.put(":ic", AttributeValue.fromN(itemCount.toString()));
+        }
+
+        // A packed layout has no maps to update in place and fails the condition, as does a cell outside its row;
+        // see applyTo
+        String condition;
+        if (expectedVersion == 0) {
+            condition = "attribute_exists(#id) AND attribute_not_exists(#v)";
+        } else {
+            condition = "#v = :expected";
+            values.put(":expected", AttributeValue.fromN(Long.toString(expectedVersion)));
+        }
+        condition += " AND attribute_not_exists(#d)" + cells;
+        names.put("#d", "layoutData");
+
+        return UpdateItemRequest.builder()
+                .tableName(tableName)
+                .key(Map.of("layoutId", AttributeValue.fromS(layoutId)))
+                .updateExpression(set + remove.toString())
+                .conditionExpression(condition)
+                .expressionAttributeNames(names)
+                .expressionAttributeValues(values)
+                .build();
+    }
+
+    /**
+     * Applies a validated patch to a layout in memory, with the same result the update request has on a stored layout.
+     * Used for layouts stored packed, which are read, patched and written back whole.
+     *
+     * @throws IllegalArgumentException where the update request would be refused, e.g. a cell in a missing row or
+     *                                  past the end of its row
+     */
+    public static void applyTo(LayoutEntity layout, List<LayoutPatchDTO.Operation> operations) {
+        Map<String, FixtureEntity> fixtures = layout.getFixtureLayout() != null ? new HashMap<>(layout.getFixtureLayout()) : new HashMap<>();
+        Map<String, List<List<List<ItemEntity>>>> itemMap = layout.getItemMap() != null ? new HashMap<>(layout.getItemMap()) : new HashMap<>();
+        for (LayoutPatchDTO.Operation operation : operations) {
+            String fixtureId = operation.getFixtureId();
+            switch (operation.getOp()) {
+                case PUT_FIXTURE -> fixtures.put(fixtureId, operation.getFixture());
+                case REMOVE_FIXTURE -> {
+                    fixtures.remove(fixtureId);
+                    itemMap.remove(fixtureId);
+                }
+                case SET_SHELVES -> itemMap.put(fixtureId, shelvesCopy(operation.getShelves()));
+                case SET_CELL -> {
+                    List<List<List<ItemEntity>>> shelves = itemMap.get(fixtureId);
+                    int row = operation.getRow();
+                    if (shelves == null || row >= shelves.size() || shelves.get(row) == null) {
+                        throw new IllegalArgumentException("Fixture " + fixtureId + " has no shelf row " + row);
+                    }
+                    if (operation.getCol() >= shelves.get(row).size()) {
+                        throw new IllegalArgumentException("Fixture " + fixtureId + " has no column " + operation.getCol()
+                                + " in shelf row " + row);
+                    }
+                    List<List<List<ItemEntity>>> rows = new ArrayList<>(shelves);
+                    List<List<ItemEntity>> cols = new ArrayList<>(rows.get(row));
+                    cols.set(operation.getCol(), cellCopy(operation.getItems()));
+                    rows.set(row, cols);
+                    itemMap.put(fixtureId, rows);
+                }
+                default -> throw new IllegalArgumentException("Unsupported op " + operation.getOp());
+            }
+        }
+        layout.setFixtureLayout(fixtures);
+        layout.setItemMap(itemMap);
+    }
+
+    private static List<List<List<ItemEntity>>> shelvesCopy(List<List<List<ItemEntity>>> shelves) {
+        List<List<List<ItemEntity>>> rows = new ArrayList<>(shelves.size());
+        for (List<List<ItemEntity>> row : shelves) {
+            List<List<ItemEntity>> cells = new ArrayList<>();
+            if (row != null) {
+                for (List<ItemEntity> cell : row) {
+                    cells.add(cellCopy(cell));
+                }
+            }
+            rows.add(cells);
+        }
+        return rows;
+    }
+
+    private static List<ItemEntity> cellCopy(List<ItemEntity> items) {
+        List<ItemEntity> cell = new ArrayList<>();
+        if (items != null) {
+            items.stream().filter(item -> item != null).forEach(cell::add);
+        }
+        return cell;
+    }
+
+    private static AttributeValue shelvesValue(List<List<List<ItemEntity>>> shelves) {
+        List<AttributeValue> rows = new ArrayList<>(shelves.size());
+        for (List<List<ItemEntity>> row : shelves) {
+            List<AttributeValue> cells = new ArrayList<>();
+            if (row != null) {
+                for (List<ItemEntity> cell : row) {
+                    cells.add(cellValue(cell));
+                }
+            }
+            rows.add(AttributeValue.fromL(cells));
+        }
+        return AttributeValue.fromL(rows);
+    }
+
+    private static AttributeValue cellValue(List<ItemEntity> items) {
+        List<AttributeValue> cell = new ArrayList<>();
+        if (items != null) {
+            for (ItemEntity item : items) {
+                if (item != null) {
+                    cell.add(AttributeValue.fromM(ITEM_SCHEMA.itemToMap(item, true)));
+                }
+            }
+        }
+        return AttributeValue.fromL(cell);
+    }
+
+    public static List<LayoutOperation> toEvent(List<LayoutPatchDTO.Operation> operations) {
+        List<LayoutOperation> events = new ArrayList<>(operations.size());
+        for (LayoutPatchDTO.Operation operation : operations) {
+            LayoutOperation.Builder event = LayoutOperation.newBuilder()
+                    .setOp(operation.getOp())
+                    .setFixtureId(operation.getFixtureId());
+            if (operation.getFixture() != null) {
+                event.setFixture(toEvent(operation.getFixture()));
+            }
+            if (operation.getRow() != null) {
+                event.setRow(operation.getRow());
+            }
+            if (operation.getCol() != null) {
+                event.setCol(operation.getCol());
+            }
+            if (operation.getItems() != null) {
+                operation.getItems().stream().filter(item -> item != null).forEach(item -> event.addItems(toEvent(item)));
+            }
+            if (operation.getShelves() != null) {
+                for (List<List<ItemEntity>> row : operation.getShelves()) {
+                    ShelfRow.Builder shelfRow = ShelfRow.newBuilder();
+                    for (List<ItemEntity> cell : row != null ? row : List.<List<ItemEntity>>of()) {
+                        ShelfCell.Builder shelfCell = ShelfCell.newBuilder();
+                        if (cell != null) {
+                            cell.stream().filter(item -> item != null).forEach(item -> shelfCell.addItems(toEvent(item)));
+                        }
+                        shelfRow.addCells(shelfCell);
+                    }
+                    event.addShelves(shelfRow);
+                }
+            }
+            events.add(event.build());
+        }
+        return events;
+    }
+
+    public static List<LayoutPatchDTO.Operation> fromEvent(List<LayoutOperation> events) {
+        List<LayoutPatchDTO.Operation> operations = new ArrayList<>(events.size());
+        for (LayoutOperation event : events) {
+            LayoutPatchDTO.Operation operation = new LayoutPatchDTO.Operation();
+            operation.setOp(event.getOp());
+            operation.setFixtureId(event.getFixtureId());
+            switch (event.getOp()) {
+                case PUT_FIXTURE -> operation.setFixture(fromEvent(event.getFixture()));
+                case SET_CELL -> {
+                    operation.setRow(event.getRow());
+                    operation.setCol(event.getCol());
+                    operation.setItems(event.getItemsList().stream().map(LayoutPatches::fromEvent).toList());
+                }
+                case SET_SHELVES -> operation.setShelves(event.getShelvesList().stream()
+                        .map(row -> row.getCellsList().stream()
+                                .map(cell -> cell.getItemsList().stream().map(LayoutPatches::fromEvent).toList())
+                                .toList())
+                        .toList());
+                default -> {
+                }
+            }
+            operations.add(operation);
+        }
+        return operations;
+    }
+
+    private static LayoutFixture toEvent(FixtureEntity fixture) {
+        LayoutFixture.Builder event = LayoutFixture.newBuilder().setX(fixture.getX()).setY(fixture.getY());
+        // Proto strings cannot be null
+        if (fixture.getId() != null) {
+            event.setId(fixture.getId());
+        }
+        if (fixture.getColor() != null) {
+            event.setColor(fixture.getColor());
+        }
+        if (fixture.getName() != null) {
+            event.setName(fixture.getName());
+        }
+        if (fixture.getPoints() != null) {
+            fixture.getPoints().forEach(point -> event.addPoints(point != null ? point : 0f));
+        }
+        return event.build();
+    }
+
+    private static FixtureEntity fromEvent(LayoutFixture event) {
+        FixtureEntity fixture = new FixtureEntity();
+        fixture.setId(event.getId());
+        fixture.setX(event.getX());
+        fixture.setY(event.getY());
+        fixture.setPoints(new ArrayList<>(event.getPointsList()));
+        fixture.setColor(event.getColor().isEmpty() ? null : event.getColor());
+        fixture.setName(event.getName().isEmpty() ? null : event.getName());
+        return fixture;
+    }
+
+    private static LayoutItem toEvent(ItemEntity item) {
+        LayoutItem.Builder event = LayoutItem.newBuilder()
+                .setRow(item.getRow())
+                .setCol(item.getCol())
+                .setIndex(item.getIndex());
+        if (item.getId() != null) {
+            event.setId(item.getId());
+        }
+        if (item.getName() != null) {
+            event.setName(item.getName());
+        }
+        return event.build();
+    }
+
+    private static ItemEntity fromEvent(LayoutItem event) {
+        ItemEntity item = new ItemEntity();
+        item.setId(event.getId().isEmpty() ? null : event.getId());
+        item.setName(event.getName().isEmpty() ? null : event.getName());
+        item.setRow(event.getRow());
+        item.setCol(event.getCol());
+        item.setIndex(event.getIndex());
+        return item;
+    }
+
+}
@@ -1,5 +1,8 @@
 package com.sb.productservice.service;
 
+import com.sb.productservice.dto.LayoutPageDTO;
+import com.sb.productservice.dto.LayoutPatchDTO;
+import com.sb.productservice.dto.LayoutSummaryDTO;
 import com.sb.productservice.dto.UpdateLayoutDTO;
 import com.sb.productservice.model.LayoutEntity;
 
@@ -13,8 +16,16 @@ public interface LayoutService {
 
     List<LayoutEntity> getAllLayouts();
 
+    /** Id, name, version and sizes of every layout, without the fixture and item maps. */
+    List<LayoutSummaryDTO> getLayoutSummaries();
+
+    LayoutPageDTO getLayoutsPage(String after, Integer size);
+
     void updateLayout(UpdateLayoutDTO updateDTO);
 
+    /** Applies fixture and shelf changes in place and returns the layout's new version. */
+    long patchLayout(String layoutId, LayoutPatchDTO patch);
+
     void deleteLayoutById(String layoutId);
 
 }
@@ -1,28 +1,112 @@
 package com.sb.productservice.service;
 
+import com.sb.events.LayoutChangeType;
+import com.sb.events.LayoutEvent;
+import com.sb.events.LayoutOperation;
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.dto.LayoutPageDTO;
+import com.sb.productservice.dto.LayoutPatchDTO;
+import com.sb.productservice.dto.LayoutSummaryDTO;
 import com.sb.productservice.dto.UpdateLayoutDTO;
+import com.sb.productservice.exception.LayoutVersionConflictException;
+import com.sb.productservice.kafka.KafkaProducer;
 import com.sb.productservice.model.LayoutEntity;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
 import software.amazon.awssdk.enhanced.dynamodb.DynamoDbTable;
 import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.enhanced.dynamodb.model.Page;
+import software.amazon.awssdk.enhanced.dynamodb.model.ScanEnhancedRequest;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
 
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.UUID;
 
+/**
+ * Layouts are versioned: every write bumps {@code version} and is refused if the stored version is not the one the
+ * writer read. Saves and full updates rewrite the whole item; {@link #patchLayout} changes only the fixtures and
+ * shelf cells it names. Every write is published on {@code layout-events} for the location index of each instance.
+ * <p>
+ * Each stored layout also carries its fixture and item counts, so the layout listing is a scan of a few small
+ * attributes rather than of whole documents. The listing is cached here and dropped on every write.
+ * <p>
+ * A layout whose document would come near DynamoDB's 400 KB item limit is stored packed ({@link LayoutCodec}) in
+ * {@code layoutData}. Reads unpack it, so callers always see {@code fixtureLayout} and {@code itemMap}; patches to a
+ * packed layout are applied to the whole layout and written back.
+ */
 @Service
 public class LayoutServiceImpl implements LayoutService{
 
+    static final String TABLE_NAME = "Layouts";
+
     private final DynamoDbTable<LayoutEntity> layoutTable;
 
+    private final DynamoDbClient dynamoDbClient;
+
+    private final ProductLocationIndex productLocationIndex;
+
+    private final KafkaProducer kafkaProducer;
+
     private static final Logger logger = LoggerFactory.getLogger(LayoutServiceImpl.class);
 
-    public LayoutServiceImpl(DynamoDbEnhancedClient enhancedClient) {
-        this.layoutTable = enhancedClient.table("Layouts", TableSchema.fromBean(LayoutEntity.class));
+    @Value("${product.layout.summary-ttl-ms:300000}")
+    private long summaryTtlMs;
+
+    // Stored document size above which a layout is packed; 0 never packs
+    @Value("${product.layout.pack-threshold-bytes:204800}")
+    private int packThresholdBytes;
+
+    @Value("${product.layout.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${product.layout.page.max-size:100}")
+    private int maxPageSize;
+
+    private record CachedSummaries(List<LayoutSummaryDTO> summaries, long loadedAt) {
+    }
+
+    private final Object summaryLock = new Object();
+
+    private volatile CachedSummaries cachedSummaries;
+
+    // Bumped by every invalidation, so a scan that overlapped a write is not cached
+    private long summaryGeneration;
+
+    public LayoutServiceImpl(DynamoDbEnhancedClient enhancedClient, DynamoDbClient dynamoDbClient,
+                             ProductLocationIndex productLocationIndex, KafkaProducer kafkaProducer) {
+        this.layoutTable = enhancedClient.table(TABLE_NAME, TableSchema.fromBean(LayoutEntity.class));
+        this.dynamoDbClient = dynamoDbClient;
+        this.productLocationIndex = productLocationIndex;
+        this.kafkaProducer = kafkaProducer;
+    }
+
+    // Layouts saved through another instance are picked up on the next reload
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${product.location.reload-interval:300000}", initialDelayString = "${product.location.reload-interval:300000}")
+    public void reloadLocationIndex() {
+        try {
+            productLocationIndex.reload(this::getAllLayouts);
+        } catch (Exception e) {
+            logger.error("❌ Failed to load product location index: {}", e.getMessage(), e);
+        }
     }
 
     @Override
@@ -33,8 +117,14 @@ public class LayoutServiceImpl implements LayoutService{
                 layout.setLayoutId(UUID.randomUUID().toString());
             }
 
-            layoutTable.putItem(layout);
-            logger.info("✅ Saved layout with ID: {}", layout.getLayoutId());
+            countContents(layout);
+            putVersioned(layout, layout.getVersion());
+            invalidateLayoutSummaries();
+            productLocationIndex.put(layout);
+            publish(layout.getLayoutId(), layout.getVersion(), LayoutChangeType.LAYOUT_SAVED, List.of());
+            logger.info("✅ Saved layout with ID: {} (v{})", layout.getLayoutId(), layout.getVersion());
+        } catch (LayoutVersionConflictException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("❌ Failed to save layout: {}", e.getMessage(), e);
             throw new RuntimeException("Failed to save layout", e);
@@ -45,7 +135,7 @@ public class LayoutServiceImpl implements LayoutService{
     @Transactional(readOnly = true)
     public LayoutEntity getLayoutById(String layoutId) {
         try {
-            LayoutEntity layout = layoutTable.getItem(r -> r.key(k -> k.partitionValue(layoutId)));
+            LayoutEntity layout = unpacked(layoutTable.getItem(r -> r.key(k -> k.partitionValue(layoutId))));
             if (layout != null) {
                 logger.info("✅ Retrieved layout with ID: {}", layoutId);
             } else {
@@ -63,7 +153,7 @@ public class LayoutServiceImpl implements LayoutService{
     public List<LayoutEntity> getAllLayouts() {
         try {
             List<LayoutEntity> allLayouts = new ArrayList<>();
-            layoutTable.scan().items().forEach(allLayouts::add);
+            layoutTable.scan().items().forEach(layout -> allLayouts.add(unpacked(layout)));
             logger.info("✅ Retrieved {} layout(s) from DynamoDB", allLayouts.size());
             return allLayouts;
         } catch (Exception e) {
@@ -72,22 +162,92 @@ public class LayoutServiceImpl implements LayoutService{
         }
     }
 
+    @Override
+    public List<LayoutSummaryDTO> getLayoutSummaries() {
+        CachedSummaries cached = cachedSummaries;
+        if (cached != null && System.currentTimeMillis() - cached.loadedAt() < summaryTtlMs) {
+            return cached.summaries();
+        }
+
+        long generation;
+        synchronized (summaryLock) {
+            generation = summaryGeneration;
+        }
+        List<LayoutSummaryDTO> summaries;
+        try {
+            summaries = scanSummaries();
+        } catch (Exception e) {
+            logger.error("❌ Failed to list layouts: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to list layouts", e);
+        }
+        synchronized (summaryLock) {
+            if (generation == summaryGeneration) {
+                cachedSummaries = new CachedSummaries(summaries, System.currentTimeMillis());
+            }
+        }
+        logger.info("✅ Listed {} layout(s) from DynamoDB", summaries.size());
+        return summaries;
+    }
+
+    /** Drops the cached layout listing; the next listing scans again. */
+    public void invalidateLayoutSummaries() {
+        synchronized (summaryLock) {
+            summaryGeneration++;
+            cachedSummaries = null;
+        }
+    }
+
+    /**
+     * One page of whole layouts. The cursor is DynamoDB's LastEvaluatedKey, so a page can come back short when it hits
+     * the 1 MB scan limit; only a null cursor means the last page.
+     */
+    @Override
+    public LayoutPageDTO getLayoutsPage(String after, Integer size) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+        ScanEnhancedRequest.Builder request = ScanEnhancedRequest.builder().limit(pageSize);
+        if (after != null && !after.isBlank()) {
+            request.exclusiveStartKey(Map.of("layoutId", AttributeValue.fromS(after)));
+        }
+
+        try {
+            Page<LayoutEntity> page = layoutTable.scan(request.build()).iterator().next();
+            Map<String, AttributeValue> lastKey = page.lastEvaluatedKey();
+            String nextCursor = lastKey != null && lastKey.containsKey("layoutId") ? lastKey.get("layoutId").s() : null;
+            logger.info("📄 Layout page after '{}': {} layout(s)", after, page.items().size());
+            List<LayoutEntity> layouts = page.items().stream().map(LayoutServiceImpl::unpacked).toList();
+            return new LayoutPageDTO(layouts, nextCursor, layouts.size());
+        } catch (Exception e) {
+            logger.error("❌ Failed to get layout page after '{}': {}", after, e.getMessage(), e);
+            throw new RuntimeException("Failed to get layout page", e);
+        }
+    }
+
     @Override
     @Transactional
     public void updateLayout(UpdateLayoutDTO updateDTO) {
         try {
-            LayoutEntity existing = layoutTable.getItem(r -> r.key(k -> k.partitionValue(updateDTO.getLayoutId())));
+            LayoutEntity existing = unpacked(layoutTable.getItem(r -> r.key(k -> k.partitionValue(updateDTO.getLayoutId()))));
 
             if (existing != null) {
                 existing.setFixtureLayout(updateDTO.getFixtureLayout());
                 existing.setItemMap(updateDTO.getItemMap());
+                // Without a version from the editor, still refuse to overwrite a write made since the read above
+                if (updateDTO.getVersion() != null) {
+                    existing.setVersion(updateDTO.getVersion());
+                }
 
-                layoutTable.putItem(existing);
-                logger.info("✅ Updated layout with ID: {}", updateDTO.getLayoutId());
+                countContents(existing);
+                putVersioned(existing, updateDTO.getVersion());
+                invalidateLayoutSummaries();
+                productLocationIndex.put(existing);
+                publish(existing.getLayoutId(), existing.getVersion(), LayoutChangeType.LAYOUT_SAVED, List.of());
+                logger.info("✅ Updated layout with ID: {} (v{})", updateDTO.getLayoutId(), existing.getVersion());
             } else {
                 logger.warn("⚠️ Cannot update — layout not found with ID: {}", updateDTO.getLayoutId());
                 throw new IllegalArgumentException("Layout with ID " + updateDTO.getLayoutId() + " not found.");
             }
+        } catch (IllegalArgumentException | LayoutVersionConflictException e) {
+            throw e;
         } catch (Exception e) {
             logger.error("❌ Failed to update layout ID {}: {}", updateDTO.getLayoutId(), e.getMessage(), e);
             throw new RuntimeException("Failed to update layout", e);
@@ -99,6 +259,9 @@ public class LayoutServiceImpl implements LayoutService{
     public void deleteLayoutById(String layoutId) {
         try {
             layoutTable.deleteItem(r -> r.key(k -> k.partitionValue(layoutId)));
+            invalidateLayoutSummaries();
+            productLocationIndex.remove(layoutId);
+            publish(layoutId, 0, LayoutChangeType.LAYOUT_DELETED, List.of());
             logger.info("🗑️ Deleted layout with ID: {}", layoutId);
         } catch (Exception e) {
             logger.error("❌ Failed to delete layout ID {}: {}", layoutId, e.getMessage(), e);
@@ -106,4 +269,225 @@ public class LayoutServiceImpl implements LayoutService{
         }
     }
 
+    /**
+     * One UpdateItem for the whole patch, so the request carries only the changed fixtures and cells. DynamoDB still
+     * bills the write by the size of the stored item, but nothing is read first and no unchanged data is sent.
+     */
+    @Override
+    public long patchLayout(String layoutId, LayoutPatchDTO patch) {
+        List<LayoutPatchDTO.Operation> operations = LayoutPatches.validate(patch);
+        long expected = patch.getVersion();
+
+        // Counts after the patch, from the location index; left as they are if the patch does not fit the index
+        ProductLocationIndex.LayoutLocations patched = productLocationIndex.preview(layoutId, expected, operations);
+        if (patched == null) {
+            refreshLocationIndex(layoutId);
+            patched = productLocationIndex.preview(layoutId, expected, operations);
+        }
+        Integer fixtureCount = patched != null ? patched.fixtures().size() : null;
+        Integer itemCount = patched != null ? patched.items() : null;
+
+        try {
+            dynamoDbClient.updateItem(LayoutPatches.toUpdateRequest(TABLE_NAME, layoutId, expected, operations,
+                    fixtureCount, itemCount));
+        } catch (ConditionalCheckFailedException e) {
+            Long current = currentVersion(layoutId);
+            if (current == null) {
+                throw new NoSuchElementException("Layout with ID " + layoutId + " not found.");
+            }
+            if (current == expected) {
+                // At the expected version, so the condition failed on the layout being packed or on a cell outside
+                // its row; patching it whole refuses the latter
+                patchPacked(layoutId, expected, operations);
+                return finishPatch(layoutId, expected, operations);
+            }
+            logger.warn("⚠️ Patch for layout {} made against v{}, but it is at v{}", layoutId, expected, current);
+            throw new LayoutVersionConflictException(layoutId, expected, current);
+        } catch (DynamoDbException e) {
+            // e.g. the patch grows the layout past DynamoDB's item size limit, or names a cell outside the fixture's
+            // shelf grid. Patched whole, the first is written packed; the second is refused by applyTo.
+            if (e.awsErrorDetails() != null && "ValidationException".equals(e.awsErrorDetails().errorCode())) {
+                logger.warn("⚠️ Patch for layout {} refused in place ({}), patching it whole", layoutId,
+                        e.awsErrorDetails().errorMessage());
+                patchPacked(layoutId, expected, operations);
+                return finishPatch(layoutId, expected, operations);
+            }
+            throw e;
+        }
+        return finishPatch(layoutId, expected, operations);
+    }
+
+    private long finishPatch(String layoutId, long expected, List<LayoutPatchDTO.Operation> operations) {
+        long next = expected + 1;
+        invalidateLayoutSummaries();
+        if (!productLocationIndex.apply(layoutId, expected, next, operations)) {
+            refreshLocationIndex(layoutId);
+        }
+        publish(layoutId, next, LayoutChangeType.LAYOUT_PATCHED, LayoutPatches.toEvent(operations));
+        logger.info("✅ Patched layout {} with {} change(s), now v{}", layoutId, operations.size(), next);
+        return next;
+    }
+
+    // Read, patch and write back the whole layout, still conditional on the version the patch was made against
+    private void patchPacked(String layoutId, long expected, List<LayoutPatchDTO.Operation> operations) {
+        LayoutEntity layout = unpacked(layoutTable.getItem(r -> r.key(k -> k.partitionValue(layoutId)).consistentRead(true)));
+        if (layout == null) {
+            throw new NoSuchElementException("Layout with ID " + layoutId + " not found.");
+        }
+        long current = layout.getVersion() != null ? layout.getVersion() : 0;
+        if (current != expected) {
+            throw new LayoutVersionConflictException(layoutId, expected, current);
+        }
+        LayoutPatches.applyTo(layout, operations);
+        countContents(layout);
+        putVersioned(layout, expected);
+    }
+
+    /** Re-reads one layout into the location index, e.g. after missing one of its patches. */
+    public void refreshLocationIndex(String layoutId) {
+        LayoutEntity layout = unpacked(layoutTable.getItem(r -> r.key(k -> k.partitionValue(layoutId))));
+        if (layout != null) {
+            productLocationIndex.put(layout);
+        } else {
+            productLocationIndex.remove(layoutId);
+        }
+    }
+
+    // The layout as stored: unchanged, or with its maps replaced by layoutData if the document is over the threshold
+    private LayoutEntity packedIfLarge(LayoutEntity layout) {
+        layout.setLayoutData(null);
+        if (packThresholdBytes <= 0
+                || LayoutCodec.itemSize(layoutTable.tableSchema().itemToMap(layout, true)) <= packThresholdBytes) {
+            return layout;
+        }
+        LayoutEntity packed = new LayoutEntity();
+        packed.setLayoutId(layout.getLayoutId());
+        packed.setName(layout.getName());
+        packed.setVersion(layout.getVersion());
+        packed.setFixtureCount(layout.getFixtureCount());
+        packed.setItemCount(layout.getItemCount());
+        packed.setLayoutData(LayoutCodec.encode(layout));
+        logger.info("📦 Packed layout {} into {} bytes", layout.getLayoutId(), packed.getLayoutData().length);
+        return packed;
+    }
+
+    // Only the maps come from the packed form; id, version and counts are the stored attributes
+    private static LayoutEntity unpacked(LayoutEntity layout) {
+        if (layout == null || layout.getLayoutData() == null) {
+            return layout;
+        }
+        LayoutEntity packed = LayoutCodec.decode(layout.getLayoutData());
+        layout.setFixtureLayout(packed.getFixtureLayout());
+        layout.setItemMap(packed.getItemMap());
+        layout.setLayoutData(null);
+        return layout;
+    }
+
+    // Only the summary attributes, one scan page after another
+    private List<LayoutSummaryDTO> scanSummaries() {
+        List<LayoutSummaryDTO> summaries = new ArrayList<>();
+        Map<String, AttributeValue> startKey = null;
+        do {
+            ScanRequest.Builder request = ScanRequest.builder()
+                    .tableName(TABLE_NAME)
+                    .projectionExpression("#id, #n, #v, #fc, #ic")
+                    .expressionAttributeNames(Map.of("#id", "layoutId", "#n", "name", "#v", "version",
+                            "#fc", "fixtureCount", "#ic", "itemCount"));
+            if (startKey != null) {
+                request.exclusiveStartKey(startKey);
+            }
+            ScanResponse response = dynamoDbClient.scan(request.build());
+            response.items().forEach(item -> summaries.add(toSummary(item)));
+            startKey = response.hasLastEvaluatedKey() && !response.lastEvaluatedKey().isEmpty()
+                    ? response.lastEvaluatedKey() : null;
+        } while (startKey != null);
+
+        summaries.sort(Comparator.comparing(LayoutSummaryDTO::getLayoutId));
+        return List.copyOf(summaries);
+    }
+
+    // Layouts written before the counts were stored take them from the location index
+    private LayoutSummaryDTO toSummary(Map<String, AttributeValue> item) {
+        String layoutId = item.get("layoutId").s();
+        Integer fixtureCount = number(item.get("fixtureCount"));
+        Integer itemCount = number(item.get("itemCount"));
+        if (fixtureCount == null || itemCount == null) {
+            ProductLocationIndex.LayoutLocations indexed = productLocationIndex.layout(layoutId);
+            if (indexed != null) {
+                fixtureCount = indexed.fixtures().size();
+                itemCount = indexed.items();
+            }
+        }
+        AttributeValue name = item.get("name");
+        AttributeValue version = item.get("version");
+        return new LayoutSummaryDTO(layoutId, name != null ? name.s() : null,
+                version != null && version.n() != null ? Long.parseLong(version.n()) : 0L, fixtureCount, itemCount);
+    }
+
+    private static Integer number(AttributeValue value) {
+        return value != null && value.n() != null ? Integer.valueOf(value.n()) : null;
+    }
+
+    private static void countContents(LayoutEntity layout) {
+        layout.setFixtureCount(layout.getFixtureLayout() != null ? layout.getFixtureLayout().size() : 0);
+        int items = 0;
+        if (layout.getItemMap() != null) {
+            for (List<List<List<ItemEntity>>> shelves : layout.getItemMap().values()) {
+                for (List<List<ItemEntity>> row : shelves != null ? shelves : List.<List<List<ItemEntity>>>of()) {
+                    for (List<ItemEntity> cell : row != null ? row : List.<List<ItemEntity>>of()) {
+                        for (ItemEntity entity : cell != null ? cell : List.<ItemEntity>of()) {
+                            if (entity != null) {
+                                items++;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        layout.setItemCount(items);
+    }
+
+    // putItem is conditional on the bean's version (VersionedRecordExtension) and stores version + 1
+    private void putVersioned(LayoutEntity layout, Long expectedVersion) {
+        Long version = layout.getVersion();
+        try {
+            layoutTable.putItem(packedIfLarge(layout));
+        } catch (ConditionalCheckFailedException e) {
+            Long current = currentVersion(layout.getLayoutId());
+            throw new LayoutVersionConflictException(layout.getLayoutId(), expectedVersion, current != null ? current : 0);
+        }
+        layout.setVersion(version != null ? version + 1 : 1);
+    }
+
+    // Just the version attribute, so checking a conflict does not read the whole layout
+    private Long currentVersion(String layoutId) {
+        GetItemResponse response = dynamoDbClient.getItem(GetItemRequest.builder()
+                .tableName(TABLE_NAME)
+                .key(Map.of("layoutId", AttributeValue.fromS(layoutId)))
+                .projectionExpression("#id, #v")
+                .expressionAttributeNames(Map.of("#id", "layoutId", "#v", "version"))
+                .consistentRead(true)
+                .build());
+        if (!response.hasItem() || response.item().isEmpty()) {
+            return null;
+        }
+        AttributeValue version = response.item().get("version");
+        return version != null && version.n() != null ? Long.parseLong(version.n()) : 0L;
+    }
+
+    private void publish(String layoutId, long version, LayoutChangeType changeType, List<LayoutOperation> operations) {
+        LayoutEvent event = LayoutEvent.newBuilder()
+                .setLayoutId(layoutId)
+                .setVersion(version)
+                .setChangeType(changeType)
+                .addAllOperations(operations)
+                .setChangedAt(LocalDateTime.now().toString())
+                .build();
+        try {
+            kafkaProducer.sendLayoutEvent("layout-events", event);
+        } catch (Exception e) {
+            logger.error("❌ Failed to publish layout event for layout {}: {}", layoutId, e.getMessage(), e);
+        }
+    }
+
 }
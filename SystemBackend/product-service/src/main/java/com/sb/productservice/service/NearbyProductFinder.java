@@ -0,0 +1,118 @@
+package com.sb.productservice.service;
+
+import com.sb.productservice.dto.FixtureEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Answers "what is near the cart" for a point in a layout's coordinates: the closest fixtures and the products
+ * stocked on every fixture within a radius.
+ * <p>
+ * Each layout's {@link FixtureSpatialIndex} is built on the first query and kept until the layout's fixtures move
+ * ({@link ProductLocationIndex.LayoutLocations#geometryVersion()}); restocking only changes which products a fixture
+ * lists, and those are read from {@link ProductLocationIndex} on every query.
+ */
+@Service
+public class NearbyProductFinder {
+
+    private static final Logger logger = LoggerFactory.getLogger(NearbyProductFinder.class);
+
+    /** distance is from the point to the fixture's outline, 0 inside it. */
+    public record NearbyFixture(String fixtureId, String fixtureName, double distance) {
+    }
+
+    public record NearbyProduct(ProductLocationIndex.Location location, double distance) {
+    }
+
+    public record Nearby(String layoutId, NearbyFixture nearestFixture, List<NearbyProduct> products) {
+    }
+
+    private final ProductLocationIndex productLocationIndex;
+
+    private final Map<String, FixtureSpatialIndex> indexes = new ConcurrentHashMap<>();
+
+    @Value("${product.nearby.default-radius:100}")
+    private float defaultRadius;
+
+    @Value("${product.nearby.max-radius:1000}")
+    private float maxRadius;
+
+    @Value("${product.nearby.max-products:200}")
+    private int maxProducts;
+
+    public NearbyProductFinder(ProductLocationIndex productLocationIndex) {
+        this.productLocationIndex = productLocationIndex;
+    }
+
+    /**
+     * The fixture nearest the point, and the products on fixtures within {@code radius} of it, nearest fixture first
+     * and shelf by shelf within a fixture.
+     *
+     * @throws IllegalArgumentException if the layout is not known
+     */
+    public Nearby nearby(String layoutId, float x, float y, Float radius, Integer limit) {
+        ProductLocationIndex.LayoutLocations layout = layout(layoutId);
+        FixtureSpatialIndex index = index(layoutId, layout);
+        float r = radius == null ? defaultRadius : Math.max(0, Math.min(radius, maxRadius));
+        int max = limit == null ? maxProducts : Math.max(1, Math.min(limit, maxProducts));
+
+        List<FixtureSpatialIndex.Hit> nearest = index.nearest(x, y, 1);
+        NearbyFixture nearestFixture = nearest.isEmpty() ? null : fixture(layout, nearest.get(0));
+
+        List<NearbyProduct> products = new ArrayList<>();
+        for (FixtureSpatialIndex.Hit hit : index.within(x, y, r)) {
+            for (ProductLocationIndex.Location location : layout.byFixture().getOrDefault(hit.fixtureId(), List.of())) {
+                if (products.size() == max) {
+                    return new Nearby(layoutId, nearestFixture, products);
+                }
+                products.add(new NearbyProduct(location, hit.distance()));
+            }
+        }
+        return new Nearby(layoutId, nearestFixture, products);
+    }
+
+    /**
+     * The {@code count} fixtures nearest the point, nearest first.
+     *
+     * @throws IllegalArgumentException if the layout is not known
+     */
+    public List<NearbyFixture> nearestFixtures(String layoutId, float x, float y, int count) {
+        ProductLocationIndex.LayoutLocations layout = layout(layoutId);
+        return index(layoutId, layout).nearest(x, y, count).stream().map(hit -> fixture(layout, hit)).toList();
+    }
+
+    private ProductLocationIndex.LayoutLocations layout(String layoutId) {
+        ProductLocationIndex.LayoutLocations layout = productLocationIndex.layout(layoutId);
+        if (layout == null) {
+            indexes.remove(layoutId);
+            throw new IllegalArgumentException("Layout not found: " + layoutId);
+        }
+        return layout;
+    }
+
+    private static NearbyFixture fixture(ProductLocationIndex.LayoutLocations layout, FixtureSpatialIndex.Hit hit) {
+        FixtureEntity fixture = layout.fixtures().get(hit.fixtureId());
+        return new NearbyFixture(hit.fixtureId(), fixture != null ? fixture.getName() : null, hit.distance());
+    }
+
+    private FixtureSpatialIndex index(String layoutId, ProductLocationIndex.LayoutLocations layout) {
+        FixtureSpatialIndex index = indexes.get(layoutId);
+        if (index == null || index.geometryVersion() != layout.geometryVersion()) {
+            // Two callers racing here both build it; the index is the same either way
+            long startedAt = System.nanoTime();
+            index = FixtureSpatialIndex.build(layout.fixtures(), layout.geometryVersion());
+            indexes.put(layoutId, index);
+            logger.info("📍 Built fixture spatial index for layout {} ({} fixtures) in {} ms",
+                    layoutId, index.size(), (System.nanoTime() - startedAt) / 1_000_000);
+        }
+        return index;
+    }
+
+}
@@ -0,0 +1,218 @@
+package com.sb.productservice.service;
+
+import com.sb.productservice.model.Products;
+import com.sb.productservice.repository.ProductRepository;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-memory snapshot of the products table with a barcode index and case-insensitive category and brand indices.
+ * <p>
+ * Readers get an immutable {@link Snapshot} through a single volatile read, so lookups never lock and always see
+ * one consistent catalog. Writers (add/update/delete after commit, and the periodic reload) build the next snapshot
+ * copy-on-write under one lock: the index maps are copied, but of the category/brand lists only those the change
+ * touches.
+ * The periodic reload picks up rows written by other instances or directly in the database.
+ */
+@Service
+public class ProductCatalog {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductCatalog.class);
+
+    private final ProductRepository productRepository;
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of(), Map.of());
+    private long version; // bumped by every write, guarded by this
+
+    public ProductCatalog(ProductRepository productRepository) {
+        this.productRepository = productRepository;
+    }
+
+    /**
+     * Immutable view of one product row. The catalog never hands out JPA entities, so a product being edited
+     * in a transaction that later rolls back cannot leak into lookups.
+     */
+    public record Entry(String barcode, String productName, String productDescription, Double productPrice,
+                        Integer productQuantity, String productCategory, String productBrand, Double productWeight,
+                        String productImage, LocalDateTime addedDate, String imageVariants) {
+
+        public static Entry of(Products product) {
+            return new Entry(product.getBarcode(), product.getProductName(), product.getProductDescription(),
+                    product.getProductPrice(), product.getProductQuantity(), product.getProductCategory(),
+                    product.getProductBrand(), product.getProductWeight(), product.getProductImage(),
+                    product.getAddedDate(), product.getImageVariants());
+        }
+
+        public Entry withImageVariants(String variants) {
+            return new Entry(barcode, productName, productDescription, productPrice, productQuantity, productCategory,
+                    productBrand, productWeight, productImage, addedDate, variants);
+        }
+    }
+
+    public record Snapshot(Map<String, Entry> byBarcode,
+                           Map<String, List<Entry>> byCategory,
+                           Map<String, List<Entry>> byBrand) {
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${product.catalog.reload-interval:300000}", initialDelayString = "${product.catalog.reload-interval:300000}")
+    public void reload() {
+        try {
+            long versionBeforeLoad;
+            synchronized (this) {
+                versionBeforeLoad = version;
+            }
+            List<Products> products = productRepository.findAll();
+            synchronized (this) {
+                if (version != versionBeforeLoad) {
+                    logger.info("🗂️ Product catalog changed while reloading, keeping the current snapshot");
+                    return;
+                }
+                replaceAll(products.stream().map(Entry::of).toList());
+            }
+            logger.info("🗂️ Product catalog loaded with {} product(s)", products.size());
+        } catch (Exception e) {
+            logger.error("❌ Failed to load product catalog: {}", e.getMessage(), e);
+        }
+    }
+
+    public Entry findByBarcode(String barcode) {
+        return snapshot.byBarcode().get(barcode);
+    }
+
+    public List<Entry> findByCategory(String category) {
+        return snapshot.byCategory().getOrDefault(key(category), List.of());
+    }
+
+    public List<Entry> findByBrand(String brand) {
+        return snapshot.byBrand().getOrDefault(key(brand), List.of());
+    }
+
+    public Collection<Entry> findAll() {
+        return snapshot.byBarcode().values();
+    }
+
+    public int size() {
+        return snapshot.byBarcode().size();
+    }
+
+    public synchronized void replaceAll(Collection<Entry> entries) {
+        Map<String, Entry> byBarcode = new HashMap<>();
+        Map<String, List<Entry>> byCategory = new HashMap<>();
+        Map<String, List<Entry>> byBrand = new HashMap<>();
+        for (Entry entry : entries) {
+            byBarcode.put(entry.barcode(), entry);
+            byCategory.computeIfAbsent(key(entry.productCategory()), k -> new ArrayList<>()).add(entry);
+            byBrand.computeIfAbsent(key(entry.productBrand()), k -> new ArrayList<>()).add(entry);
+        }
+        byCategory.replaceAll((k, list) -> List.copyOf(list));
+        byBrand.replaceAll((k, list) -> List.copyOf(list));
+        publish(byBarcode, byCategory, byBrand);
+    }
+
+    /** Adds the product, or replaces the entry with the same barcode (moving it if category or brand changed). */
+    public synchronized void put(Entry entry) {
+        Snapshot current = snapshot;
+        Entry previous = current.byBarcode().get(entry.barcode());
+
+        Map<String, Entry> byBarcode = new HashMap<>(current.byBarcode());
+        byBarcode.put(entry.barcode(), entry);
+
+        Map<String, List<Entry>> byCategory = new HashMap<>(current.byCategory());
+        Map<String, List<Entry>> byBrand = new HashMap<>(current.byBrand());
+        if (previous != null) {
+            without(byCategory, key(previous.productCategory()), previous.barcode());
+            without(byBrand, key(previous.productBrand()), previous.barcode());
+        }
+        with(byCategory, key(entry.productCategory()), entry);
+        with(byBrand, key(entry.productBrand()), entry);
+
+        publish(byBarcode, byCategory, byBrand);
+    }
+
+    /**
+     * Replaces the product with {@code change} applied to it, but only while it still shows {@code expectedImage}.
+     * Checked and replaced under the write lock, so a concurrent update is never overwritten with the older entry.
+     * Returns the new entry, or null if the product is gone or shows another image.
+     */
+    public synchronized Entry replaceIf(String barcode, String expectedImage, UnaryOperator<Entry> change) {
+        Entry current = snapshot.byBarcode().get(barcode);
+        if (current == null || !Objects.equals(current.productImage(), expectedImage)) {
+            return null;
+        }
+        Entry replaced = change.apply(current);
+        put(replaced);
+        return replaced;
+    }
+
+    /** Adds or replaces a batch of products with one snapshot rebuild, instead of one full copy per product. */
+    public synchronized void putAll(Collection<Entry> entries) {
+        Map<String, Entry> merged = new HashMap<>(snapshot.byBarcode());
+        for (Entry entry : entries) {
+            merged.put(entry.barcode(), entry);
+        }
+        replaceAll(merged.values());
+    }
+
+    public synchronized void remove(String barcode) {
+        Snapshot current = snapshot;
+        Entry previous = current.byBarcode().get(barcode);
+        if (previous == null) {
+            return;
+        }
+
+        Map<String, Entry> byBarcode = new HashMap<>(current.byBarcode());
+        byBarcode.remove(barcode);
+
+        Map<String, List<Entry>> byCategory = new HashMap<>(current.byCategory());
+        Map<String, List<Entry>> byBrand = new HashMap<>(current.byBrand());
+        without(byCategory, key(previous.productCategory()), barcode);
+        without(byBrand, key(previous.productBrand()), barcode);
+
+        publish(byBarcode, byCategory, byBrand);
+    }
+
+    // The maps are freshly built and never touched again, so wrapping them is enough to make them read-only
+    private void publish(Map<String, Entry> byBarcode, Map<String, List<Entry>> byCategory, Map<String, List<Entry>> byBrand) {
+        version++;
+        snapshot = new Snapshot(Collections.unmodifiableMap(byBarcode), Collections.unmodifiableMap(byCategory),
+                Collections.unmodifiableMap(byBrand));
+    }
+
+    private static void with(Map<String, List<Entry>> index, String key, Entry entry) {
+        List<Entry> list = new ArrayList<>(index.getOrDefault(key, List.of()));
+        list.add(entry);
+        index.put(key, List.copyOf(list));
+    }
+
+    private static void without(Map<String, List<Entry>> index, String key, String barcode) {
+        List<Entry> list = index.get(key);
+        if (list == null) {
+            return;
+        }
+        List<Entry> remaining = list.stream().filter(e -> !e.barcode().equals(barcode)).toList();
+        if (remaining.isEmpty()) {
+            index.remove(key);
+        } else {
+            index.put(key, remaining);
+        }
+    }
+
+    private static String key(String value) {
+        return value == null ? "" : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+}
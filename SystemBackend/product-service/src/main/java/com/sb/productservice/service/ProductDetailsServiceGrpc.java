@@ -1,43 +1,58 @@
 package com.sb.productservice.service;
 
+import com.sb.productservice.grpc.ProductDetailsBatchRequest;
+import com.sb.productservice.grpc.ProductDetailsBatchResponse;
 import com.sb.productservice.grpc.ProductDetailsRequest;
 import com.sb.productservice.grpc.ProductDetailsResponse;
-import com.sb.productservice.model.Products;
-import com.sb.productservice.repository.ProductRepository;
 import io.grpc.stub.StreamObserver;
 import net.devh.boot.grpc.server.service.GrpcService;
-import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
 
 @GrpcService
 public class ProductDetailsServiceGrpc extends com.sb.productservice.grpc.ProductDetailsServiceGrpc.ProductDetailsServiceImplBase {
 
-    private final ProductRepository productRepository;
+    private final ProductCatalog productCatalog;
 
-    public ProductDetailsServiceGrpc(ProductRepository productRepository) {
-        this.productRepository = productRepository;
+    public ProductDetailsServiceGrpc(ProductCatalog productCatalog) {
+        this.productCatalog = productCatalog;
     }
 
     @Override
-    @Transactional(readOnly = true)
     public void getProductDetails(ProductDetailsRequest request, StreamObserver<ProductDetailsResponse> responseObserver) {
-        Products product = productRepository.findByBarcode(request.getBarcode())
-                .orElse(null);
+        responseObserver.onNext(toResponse(productCatalog.findByBarcode(request.getBarcode())));
+        responseObserver.onCompleted();
+    }
+
+    // Unknown barcodes are answered with exists = false
+    @Override
+    public void getProductDetailsBatch(ProductDetailsBatchRequest request, StreamObserver<ProductDetailsBatchResponse> responseObserver) {
+        Set<String> barcodes = new LinkedHashSet<>(request.getBarcodesList());
+
+        ProductDetailsBatchResponse.Builder response = ProductDetailsBatchResponse.newBuilder();
+        for (String barcode : barcodes) {
+            response.putProducts(barcode, toResponse(productCatalog.findByBarcode(barcode)));
+        }
 
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    private ProductDetailsResponse toResponse(ProductCatalog.Entry product) {
         ProductDetailsResponse.Builder response = ProductDetailsResponse.newBuilder();
         if (product != null) {
             response.setExists(true)
-                    .setProductName(product.getProductName())
-                    .setProductPrice(product.getProductPrice())
-                    .setProductQuantity(product.getProductQuantity())
-                    .setProductWeight(product.getProductWeight())
+                    .setProductName(product.productName())
+                    .setProductPrice(product.productPrice())
+                    .setProductQuantity(product.productQuantity())
+                    .setProductWeight(product.productWeight())
                     .setMessage("Product found");
         } else {
             response.setExists(false)
                     .setMessage("Product not found");
         }
-
-        responseObserver.onNext(response.build());
-        responseObserver.onCompleted();
+        return response.build();
     }
 
 }
@@ -0,0 +1,637 @@
+package com.sb.productservice.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.backupservice.grpc.BulkAddResponse;
+import com.sb.backupservice.grpc.ProductBackupServiceGrpc;
+import com.sb.backupservice.grpc.ProductBatch;
+import com.sb.backupservice.grpc.ProductRequest;
+import com.sb.events.ProductChangeType;
+import com.sb.events.ProductEvent;
+import com.sb.productservice.dto.AddProductDTO;
+import com.sb.productservice.dto.ImportReportDTO;
+import com.sb.productservice.kafka.KafkaProducer;
+import com.sb.productservice.model.Products;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import net.devh.boot.grpc.client.inject.GrpcClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bulk product import from a CSV (with a header row) or NDJSON stream.
+ * <p>
+ * Rows are read one at a time, validated with the same rules as a single add, and inserted in JDBC batches of
+ * {@code product.import.batch-size}, each in its own transaction. Every committed batch is then sent to backup-service
+ * over one client-streaming call and published as ADDED events. A backup failure does not undo the import: the
+ * committed batches stay and the report says what was not backed up.
+ * <p>
+ * Each batch's transaction also writes its backup outbox rows (see {@link BackupOutboxService}), held back until a
+ * time set per import so the relay leaves them to the stream. Rows the stream confirms are deleted when it finishes;
+ * the rest (a failed stream, barcodes backup-service refused) are released to the relay right away, and if the
+ * service dies mid-import they fall due once the hold runs out. Either way no committed product misses its backup.
+ * <p>
+ * With {@code rewriteBatchedStatements=true} on the MySQL JDBC URL the driver sends each batch as multi-row inserts.
+ */
+@Service
+public class ProductImportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductImportService.class);
+
+    public static final List<String> COLUMNS = List.of("barcode", "productName", "productDescription", "productPrice",
+            "productQuantity", "productCategory", "productBrand", "productWeight");
+
+    private static final String INSERT_PRODUCT = "insert into products (id, barcode, product_name, product_description, "
+            + "product_price, product_quantity, product_category, product_brand, product_weight, added_date) "
+            + "values (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_OUTBOX = "insert into backup_outbox (barcode, change_type, payload, created_at, "
+            + "attempts, next_attempt_at) values (?, 'ADDED', ?, ?, 0, ?)";
+
+    // An import's outbox rows are told apart by their hold time; a row that has been retried belongs to the relay
+    private static final String RELEASE_HELD_OUTBOX = "update backup_outbox set next_attempt_at = null "
+            + "where next_attempt_at = ? and change_type = 'ADDED' and attempts = 0";
+
+    private static final String DELETE_HELD_OUTBOX = "delete from backup_outbox "
+            + "where next_attempt_at = ? and change_type = 'ADDED' and attempts = 0";
+
+    private static final String ALREADY_EXISTS = "Product with the given barcode already exists.";
+
+    private static LocalDateTime lastHeldUntil = LocalDateTime.MIN;
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format of(String contentType) {
+            MediaType type = contentType != null ? MediaType.parseMediaType(contentType) : null;
+            if (type != null && type.isCompatibleWith(MediaType.parseMediaType("text/csv"))) {
+                return CSV;
+            }
+            if (type != null && type.isCompatibleWith(MediaType.APPLICATION_NDJSON)) {
+                return NDJSON;
+            }
+            throw new IllegalArgumentException("Unsupported import format: " + contentType + " (use text/csv or application/x-ndjson)");
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ProductCatalog productCatalog;
+    private final ProductSearchIndex productSearchIndex;
+    private final KafkaProducer kafkaProducer;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+
+    @Value("${product.import.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${product.import.max-errors:1000}")
+    private int maxErrors;
+
+    @Value("${product.import.backup-timeout-ms:60000}")
+    private long backupTimeoutMs;
+
+    @Value("${product.import.backup-hold-ms:600000}")
+    private long backupHoldMs;
+
+    @GrpcClient("product-backup-service")
+    private ProductBackupServiceGrpc.ProductBackupServiceStub productBackupAsyncStub;
+
+    public ProductImportService(JdbcTemplate jdbcTemplate, TransactionTemplate transactionTemplate,
+                                ProductCatalog productCatalog, ProductSearchIndex productSearchIndex,
+                                KafkaProducer kafkaProducer, ObjectMapper objectMapper, Validator validator) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.productCatalog = productCatalog;
+        this.productSearchIndex = productSearchIndex;
+        this.kafkaProducer = kafkaProducer;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+    }
+
+    // One input row: its line number and either the raw values by column name or why they could not be read
+    private record RawRow(long line, Map<String, String> values, String error) {
+    }
+
+    private interface RowReader {
+        RawRow next() throws IOException; // null at the end of the input
+    }
+
+    private record ImportRow(long line, Products product, ProductRequest backup) {
+    }
+
+    public ImportReportDTO importProducts(InputStream in, Format format) throws IOException {
+        long started = System.nanoTime();
+        logger.info("📥 Starting {} product import", format);
+
+        ImportReportDTO report = new ImportReportDTO();
+        Map<String, Long> seenBarcodes = new HashMap<>(); // barcode -> line it first appeared on
+        List<ImportRow> batch = new ArrayList<>(batchSize);
+        BackupReplication backup = new BackupReplication();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), 64 * 1024)) {
+            RowReader rows = format == Format.CSV ? csvRows(reader) : ndjsonRows(reader);
+            RawRow raw;
+            while ((raw = rows.next()) != null) {
+                report.setTotalRows(report.getTotalRows() + 1);
+                ImportRow row = validate(raw, seenBarcodes, report);
+                if (row == null) {
+                    continue;
+                }
+                batch.add(row);
+                if (batch.size() >= batchSize) {
+                    insertBatch(batch, report, backup);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                insertBatch(batch, report, backup);
+            }
+        } finally {
+            // Whatever was committed is replicated and searchable, even if reading the rest of the input failed
+            backup.finish(report);
+            if (report.getImported() > 0) {
+                productSearchIndex.rebuild();
+            }
+            report.setDurationMs(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            logger.info("📥 Import finished: {} row(s), {} imported, {} failed, {} backed up in {} ms", report.getTotalRows(),
+                    report.getImported(), report.getFailed(), report.getBackedUp(), report.getDurationMs());
+        }
+        return report;
+    }
+
+    private ImportRow validate(RawRow raw, Map<String, Long> seenBarcodes, ImportReportDTO report) {
+        String barcode = raw.values() != null ? trimToNull(raw.values().get("barcode")) : null;
+        if (raw.error() != null) {
+            reject(report, raw.line(), barcode, raw.error());
+            return null;
+        }
+
+        AddProductDTO dto = new AddProductDTO();
+        List<String> problems = new ArrayList<>();
+        dto.setBarcode(barcode);
+        dto.setProductName(trimToNull(raw.values().get("productName")));
+        dto.setProductDescription(trimToNull(raw.values().get("productDescription")));
+        dto.setProductPrice(parseNumber(raw.values(), "productPrice", problems));
+        dto.setProductQuantity(parseInteger(raw.values(), "productQuantity", problems));
+        dto.setProductCategory(trimToNull(raw.values().get("productCategory")));
+        dto.setProductBrand(trimToNull(raw.values().get("productBrand")));
+        dto.setProductWeight(parseNumber(raw.values(), "productWeight", problems));
+
+        for (ConstraintViolation<AddProductDTO> violation : validator.validate(dto)) {
+            problems.add(violation.getMessage());
+        }
+        if (!problems.isEmpty()) {
+            problems.sort(null); // violations come back in no particular order
+            reject(report, raw.line(), barcode, String.join("; ", problems));
+            return null;
+        }
+
+        Long firstLine = seenBarcodes.putIfAbsent(barcode, raw.line());
+        if (firstLine != null) {
+            reject(report, raw.line(), barcode, "Duplicate barcode, already on line " + firstLine);
+            return null;
+        }
+        if (productCatalog.findByBarcode(barcode) != null) {
+            reject(report, raw.line(), barcode, ALREADY_EXISTS);
+            return null;
+        }
+
+        Products product = new Products();
+        product.setId(UUID.randomUUID());
+        product.setBarcode(barcode);
+        product.setProductName(dto.getProductName());
+        product.setProductDescription(dto.getProductDescription());
+        product.setProductPrice(dto.getProductPrice());
+        product.setProductQuantity(dto.getProductQuantity());
+        product.setProductCategory(dto.getProductCategory());
+        product.setProductBrand(dto.getProductBrand());
+        product.setProductWeight(dto.getProductWeight());
+        product.setAddedDate(LocalDateTime.now());
+        return new ImportRow(raw.line(), product, backupRequest(product));
+    }
+
+    private static ProductRequest backupRequest(Products product) {
+        return ProductRequest.newBuilder()
+                .setId(product.getId().toString())
+                .setBarcode(product.getBarcode())
+                .setProductName(product.getProductName())
+                .setProductDescription(product.getProductDescription())
+                .setProductPrice(product.getProductPrice())
+                .setProductQuantity(product.getProductQuantity())
+                .setProductCategory(product.getProductCategory())
+                .setProductBrand(product.getProductBrand())
+                .setProductWeight(product.getProductWeight())
+                .setAddedDate(product.getAddedDate().toString())
+                .setProductImageUrl("")
+                .build();
+    }
+
+    private void insertBatch(List<ImportRow> batch, ImportReportDTO report, BackupReplication backup) {
+        List<ImportRow> inserted;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                jdbcTemplate.batchUpdate(INSERT_PRODUCT, batch, batch.size(), (ps, row) -> bind(ps, row.product()));
+                jdbcTemplate.batchUpdate(INSERT_OUTBOX, batch, batch.size(), (ps, row) -> bindOutbox(ps, row, backup.heldUntil));
+            });
+            inserted = List.copyOf(batch);
+        } catch (DataIntegrityViolationException e) {
+            // A row the checks could not catch, e.g. a barcode added by someone else meanwhile; find it row by row
+            logger.warn("⚠️ Import batch rejected, retrying {} row(s) one by one: {}", batch.size(), e.getMessage());
+            inserted = new ArrayList<>();
+            for (ImportRow row : batch) {
+                try {
+                    transactionTemplate.executeWithoutResult(status -> {
+                        jdbcTemplate.update(INSERT_PRODUCT, ps -> bind(ps, row.product()));
+                        jdbcTemplate.update(INSERT_OUTBOX, ps -> bindOutbox(ps, row, backup.heldUntil));
+                    });
+                    inserted.add(row);
+                } catch (DuplicateKeyException ex) {
+                    reject(report, row.line(), row.product().getBarcode(), ALREADY_EXISTS);
+                } catch (DataIntegrityViolationException ex) {
+                    reject(report, row.line(), row.product().getBarcode(),
+                            "Rejected by the database: " + ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+        if (inserted.isEmpty()) {
+            return;
+        }
+
+        report.setImported(report.getImported() + inserted.size());
+        productCatalog.putAll(inserted.stream().map(row -> ProductCatalog.Entry.of(row.product())).toList());
+        backup.send(inserted);
+        publishAdded(inserted);
+        logger.info("✅ Imported batch of {} product(s), {} so far", inserted.size(), report.getImported());
+    }
+
+    private static void bind(PreparedStatement ps, Products product) throws SQLException {
+        ps.setBytes(1, uuidBytes(product.getId()));
+        ps.setString(2, product.getBarcode());
+        ps.setString(3, product.getProductName());
+        ps.setString(4, product.getProductDescription());
+        ps.setDouble(5, product.getProductPrice());
+        ps.setInt(6, product.getProductQuantity());
+        ps.setString(7, product.getProductCategory());
+        ps.setString(8, product.getProductBrand());
+        ps.setDouble(9, product.getProductWeight());
+        ps.setTimestamp(10, Timestamp.valueOf(product.getAddedDate()));
+    }
+
+    private static void bindOutbox(PreparedStatement ps, ImportRow row, LocalDateTime heldUntil) throws SQLException {
+        ps.setString(1, row.product().getBarcode());
+        ps.setBytes(2, row.backup().toByteArray());
+        ps.setTimestamp(3, Timestamp.valueOf(row.product().getAddedDate()));
+        ps.setTimestamp(4, Timestamp.valueOf(heldUntil));
+    }
+
+    // Distinct per import (and in microseconds, which the column keeps), so one import never settles another's rows
+    private static synchronized LocalDateTime nextHeldUntil(Duration hold) {
+        LocalDateTime heldUntil = LocalDateTime.now().plus(hold).truncatedTo(ChronoUnit.MICROS);
+        if (!heldUntil.isAfter(lastHeldUntil)) {
+            heldUntil = lastHeldUntil.plus(1, ChronoUnit.MICROS);
+        }
+        lastHeldUntil = heldUntil;
+        return heldUntil;
+    }
+
+    // Same layout Hibernate uses for the UUID id on MySQL: binary(16), most significant bits first
+    private static byte[] uuidBytes(UUID id) {
+        return ByteBuffer.allocate(16).putLong(id.getMostSignificantBits()).putLong(id.getLeastSignificantBits()).array();
+    }
+
+    private void publishAdded(List<ImportRow> rows) {
+        String changedAt = LocalDateTime.now().toString();
+        for (ImportRow row : rows) {
+            ProductEvent event = ProductEvent.newBuilder()
+                    .setBarcode(row.product().getBarcode())
+                    .setChangeType(ProductChangeType.ADDED)
+                    .setChangedAt(changedAt)
+                    .build();
+            try {
+                kafkaProducer.sendProductChangedEvent("product-events", event);
+            } catch (Exception e) {
+                logger.error("❌ Failed to publish product event for barcode {}: {}", row.product().getBarcode(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void reject(ImportReportDTO report, long line, String barcode, String message) {
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < maxErrors) {
+            report.getErrors().add(new ImportReportDTO.RowError(line, barcode, message));
+        } else {
+            report.setErrorsTruncated(true);
+        }
+    }
+
+    private RowReader csvRows(BufferedReader reader) throws IOException {
+        long[] line = {0};
+        String header = nextNonBlank(reader, line);
+        if (header == null) {
+            return () -> null;
+        }
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+
+        Map<String, Integer> columnIndex = new HashMap<>();
+        List<String> names = splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            columnIndex.put(names.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+        List<String> missing = COLUMNS.stream().filter(c -> !columnIndex.containsKey(c.toLowerCase(Locale.ROOT))).toList();
+        if (!missing.isEmpty()) {
+            throw new IllegalArgumentException("CSV header is missing column(s): " + String.join(", ", missing));
+        }
+
+        return () -> {
+            String text = nextNonBlank(reader, line);
+            if (text == null) {
+                return null;
+            }
+            List<String> fields;
+            try {
+                fields = splitCsv(text);
+            } catch (IllegalArgumentException e) {
+                return new RawRow(line[0], null, e.getMessage());
+            }
+            Map<String, String> values = new HashMap<>();
+            for (String column : COLUMNS) {
+                int index = columnIndex.get(column.toLowerCase(Locale.ROOT));
+                values.put(column, index < fields.size() ? fields.get(index) : null);
+            }
+            return new RawRow(line[0], values, null);
+        };
+    }
+
+    private RowReader ndjsonRows(BufferedReader reader) {
+        long[] line = {0};
+        return () -> {
+            String text = nextNonBlank(reader, line);
+            if (text == null) {
+                return null;
+            }
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(text);
+            } catch (JsonProcessingException e) {
+                return new RawRow(line[0], null, "Malformed JSON: " + e.getOriginalMessage());
+            }
+            if (!node.isObject()) {
+                return new RawRow(line[0], null, "Expected a JSON object");
+            }
+            Map<String, String> values = new HashMap<>();
+            for (String column : COLUMNS) {
+                JsonNode value = node.get(column);
+                values.put(column, value == null || value.isNull() ? null : value.asText());
+            }
+            return new RawRow(line[0], values, null);
+        };
+    }
+
+    private static String nextNonBlank(BufferedReader reader, long[] line) throws IOException {
+        String text;
+        while ((text = reader.readLine()) != null) {
+            line[0]++;
+            if (!text.isBlank()) {
+                return text;
+            }
+        }
+        return null;
+    }
+
+    /** Splits one CSV line; fields may be quoted to contain commas, with "" for a literal quote. */
+    static List<String> splitCsv(String text) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < text.length() && text.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static Double parseNumber(Map<String, String> values, String column, List<String> problems) {
+        String text = trimToNull(values.get(column));
+        if (text == null) {
+            return null; // reported by the @NotNull rule
+        }
+        try {
+            double value = Double.parseDouble(text);
+            if (!Double.isFinite(value) || value < 0) {
+                problems.add(column + " must be a non-negative number");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            problems.add(column + " must be a number");
+            return 0.0;
+        }
+    }
+
+    private static Integer parseInteger(Map<String, String> values, String column, List<String> problems) {
+        String text = trimToNull(values.get(column));
+        if (text == null) {
+            return null;
+        }
+        try {
+            int value = Integer.parseInt(text);
+            if (value < 0) {
+                problems.add(column + " must not be negative");
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            problems.add(column + " must be a whole number");
+            return 0;
+        }
+    }
+
+    private static String trimToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    /**
+     * The client-streaming BulkAddProducts call for one import, opened with the first committed batch. Sending waits
+     * while gRPC reports the stream as not ready, so a slow backup-service holds the import back instead of the
+     * unsent batches piling up in memory.
+     */
+    private final class BackupReplication implements ClientResponseObserver<ProductBatch, BulkAddResponse> {
+
+        private final LocalDateTime heldUntil = nextHeldUntil(Duration.ofMillis(backupHoldMs));
+        private final CompletableFuture<BulkAddResponse> result = new CompletableFuture<>();
+        private final Object readyLock = new Object();
+        private ClientCallStreamObserver<ProductBatch> requestStream;
+        private long sent;
+
+        @Override
+        public void beforeStart(ClientCallStreamObserver<ProductBatch> requestStream) {
+            this.requestStream = requestStream;
+            requestStream.setOnReadyHandler(() -> {
+                synchronized (readyLock) {
+                    readyLock.notifyAll();
+                }
+            });
+        }
+
+        @Override
+        public void onNext(BulkAddResponse response) {
+            result.complete(response);
+        }
+
+        @Override
+        public void onError(Throwable t) {
+            result.completeExceptionally(t);
+        }
+
+        @Override
+        public void onCompleted() {
+            result.complete(BulkAddResponse.getDefaultInstance()); // no-op if the response already arrived
+        }
+
+        void send(List<ImportRow> rows) {
+            if (requestStream == null) {
+                productBackupAsyncStub.bulkAddProducts(this);
+            }
+            if (result.isDone() || !awaitReady()) {
+                return; // the stream already failed; finish() reports it
+            }
+
+            ProductBatch.Builder batch = ProductBatch.newBuilder();
+            for (ImportRow row : rows) {
+                batch.addProducts(row.backup());
+            }
+            requestStream.onNext(batch.build());
+            sent += rows.size();
+        }
+
+        private boolean awaitReady() {
+            long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(backupTimeoutMs);
+            synchronized (readyLock) {
+                while (!requestStream.isReady() && !result.isDone()) {
+                    long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+                    if (remaining <= 0) {
+                        requestStream.cancel("Backup stream not ready within " + backupTimeoutMs + " ms", null);
+                        return false;
+                    }
+                    try {
+                        readyLock.wait(Math.min(remaining, 100)); // re-checked periodically in case a wake-up is missed
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        requestStream.cancel("Import interrupted", e);
+                        return false;
+                    }
+                }
+            }
+            return !result.isDone();
+        }
+
+        void finish(ImportReportDTO report) {
+            if (requestStream == null) {
+                report.setBackupStatus("Nothing to back up");
+                return;
+            }
+            try {
+                if (!result.isDone()) {
+                    requestStream.onCompleted();
+                }
+                BulkAddResponse response = result.get(backupTimeoutMs, TimeUnit.MILLISECONDS);
+                report.setBackedUp(response.getSaved());
+                if (response.getFailedBarcodesCount() > 0) {
+                    logger.warn("⚠️ {} imported product(s) were not backed up, e.g. {}", response.getFailedBarcodesCount(),
+                            response.getFailedBarcodesList().subList(0, Math.min(10, response.getFailedBarcodesCount())));
+                }
+                report.setBackupStatus(response.getStatus());
+                logger.info("📡 gRPC BulkAddProducts response: {}", response.getStatus());
+                settleOutbox(response.getFailedBarcodesList());
+                return;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                report.setBackupStatus("❌ Backup interrupted after sending " + sent + " product(s), the rest goes through the outbox");
+            } catch (Exception e) {
+                requestStream.cancel("Import backup failed", e);
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                logger.error("❌ Bulk backup (gRPC) failed after sending {} product(s): {}", sent, cause.getMessage(), e);
+                report.setBackupStatus("❌ Backup failed: " + cause.getMessage() + ", the rest goes through the outbox");
+            }
+            releaseOutbox();
+        }
+
+        // The stream confirmed every product it did not list as failed: drop their rows, hand the failed ones to the relay
+        private void settleOutbox(List<String> failedBarcodes) {
+            try {
+                if (!failedBarcodes.isEmpty()) {
+                    jdbcTemplate.batchUpdate(RELEASE_HELD_OUTBOX + " and barcode = ?",
+                            failedBarcodes.stream().map(barcode -> new Object[]{Timestamp.valueOf(heldUntil), barcode}).toList());
+                }
+                int confirmed = jdbcTemplate.update(DELETE_HELD_OUTBOX, Timestamp.valueOf(heldUntil));
+                logger.info("🗳️ Cleared {} import backup outbox row(s) confirmed by the stream", confirmed);
+            } catch (Exception e) {
+                logger.warn("⚠️ Could not settle import backup outbox rows, the relay sends them when held until {}: {}",
+                        heldUntil, e.getMessage());
+            }
+        }
+
+        private void releaseOutbox() {
+            try {
+                int released = jdbcTemplate.update(RELEASE_HELD_OUTBOX, Timestamp.valueOf(heldUntil));
+                logger.info("🗳️ Released {} unconfirmed import backup(s) to the outbox relay", released);
+            } catch (Exception e) {
+                logger.warn("⚠️ Could not release import backup outbox rows, the relay sends them when held until {}: {}",
+                        heldUntil, e.getMessage());
+            }
+        }
+    }
+
+}
@@ -0,0 +1,335 @@
+package com.sb.productservice.service;
+
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.dto.LayoutPatchDTO;
+import com.sb.productservice.model.LayoutEntity;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * In-memory index from item id and item name to where the item sits in the store layouts, so "where is item X"
+ * is a map lookup instead of a DynamoDB read and a walk through every layout's item grid.
+ * <p>
+ * Like {@link ProductCatalog}, readers get an immutable {@link Snapshot} through one volatile read and writers
+ * (layout save, update and delete) publish a new one. A layout's item grid is {@code itemMap[fixtureId][row][col]},
+ * each cell holding the items stacked in it; the location is taken from that position. A layout patch is applied to
+ * the indexed layout directly ({@link #apply}), re-deriving only the fixtures it touched.
+ */
+@Service
+public class ProductLocationIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductLocationIndex.class);
+
+    public record Location(String layoutId, String fixtureId, String fixtureName, int row, int col, int index,
+                           String itemId, String itemName) {
+    }
+
+    // Only per-layout lookups are kept, sorted by layout id, so replacing one layout never re-walks the others;
+    // a lookup across all layouts visits the few layouts in id order instead
+    public record Snapshot(Map<String, LayoutLocations> byLayout) {
+    }
+
+    // fixtures and geometryVersion let the route planner reuse its aisle graph until the fixtures themselves move;
+    // version is the stored layout version these locations reflect
+    public record LayoutLocations(Map<String, List<Location>> byId, Map<String, List<Location>> byName, int items,
+                                  Map<String, FixtureEntity> fixtures, long geometryVersion,
+                                  Map<String, List<Location>> byFixture, long version) {
+    }
+
+    private static final Comparator<Location> SHELF_ORDER = Comparator.comparingInt(Location::row)
+            .thenComparingInt(Location::col)
+            .thenComparingInt(Location::index);
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of());
+    private long version; // guarded by this
+
+    /**
+     * Item id first, then item name; optionally limited to one layout. Empty if the item is not in any layout.
+     */
+    public List<Location> find(String itemIdOrName, String layoutId) {
+        if (itemIdOrName == null || itemIdOrName.isBlank()) {
+            return List.of();
+        }
+        Map<String, LayoutLocations> byLayout = snapshot.byLayout();
+        if (layoutId != null && !layoutId.isBlank()) {
+            LayoutLocations layout = byLayout.get(layoutId);
+            if (layout == null) {
+                return List.of();
+            }
+            List<Location> locations = layout.byId().get(itemIdOrName.trim());
+            return locations != null ? locations : layout.byName().getOrDefault(key(itemIdOrName), List.of());
+        }
+        List<Location> locations = merged(byLayout.values(), LayoutLocations::byId, itemIdOrName.trim());
+        return !locations.isEmpty() ? locations : merged(byLayout.values(), LayoutLocations::byName, key(itemIdOrName));
+    }
+
+    // An item stocked in several stores lists its locations in layout id order
+    private static List<Location> merged(Collection<LayoutLocations> layouts,
+                                        Function<LayoutLocations, Map<String, List<Location>>> lookup, String key) {
+        List<Location> merged = List.of();
+        boolean copied = false;
+        for (LayoutLocations layout : layouts) {
+            List<Location> locations = lookup.apply(layout).get(key);
+            if (locations == null) {
+                continue;
+            }
+            if (merged.isEmpty()) {
+                merged = locations;
+            } else {
+                if (!copied) {
+                    merged = new ArrayList<>(merged);
+                    copied = true;
+                }
+                merged.addAll(locations);
+            }
+        }
+        return copied ? Collections.unmodifiableList(merged) : merged;
+    }
+
+    /** One layout's locations and fixtures, or null if the layout is not indexed. */
+    public LayoutLocations layout(String layoutId) {
+        return layoutId != null ? snapshot.byLayout().get(layoutId) : null;
+    }
+
+    public int layoutCount() {
+        return snapshot.byLayout().size();
+    }
+
+    /** Re-indexes one layout after it was saved or updated; an older version than the one indexed is ignored. */
+    public synchronized void put(LayoutEntity layout) {
+        LayoutLocations current = snapshot.byLayout().get(layout.getLayoutId());
+        if (current != null && versionOf(layout) < current.version()) {
+            logger.info("📍 Layout {} v{} is older than the indexed v{}, skipped",
+                    layout.getLayoutId(), versionOf(layout), current.version());
+            return;
+        }
+        Map<String, LayoutLocations> byLayout = new HashMap<>(snapshot.byLayout());
+        LayoutLocations locations = index(layout);
+        byLayout.put(layout.getLayoutId(), locations);
+        publish(byLayout);
+        logger.info("📍 Indexed {} item location(s) for layout {}", locations.items(), layout.getLayoutId());
+    }
+
+    /**
+     * Applies a patch that took the layout from {@code fromVersion} to {@code toVersion}. Returns false if the index
+     * does not hold that layout at {@code fromVersion} (missing, or an earlier patch was missed); the caller then
+     * re-indexes the whole layout. A patch already reflected in the index is a no-op.
+     */
+    public synchronized boolean apply(String layoutId, long fromVersion, long toVersion,
+                                      List<LayoutPatchDTO.Operation> operations) {
+        LayoutLocations current = snapshot.byLayout().get(layoutId);
+        if (current == null) {
+            return false;
+        }
+        if (current.version() >= toVersion) {
+            return true;
+        }
+        if (current.version() != fromVersion) {
+            return false;
+        }
+
+        LayoutLocations patched = patched(current, layoutId, toVersion, operations);
+        if (patched == null) {
+            return false;
+        }
+        Map<String, LayoutLocations> byLayout = new HashMap<>(snapshot.byLayout());
+        byLayout.put(layoutId, patched);
+        publish(byLayout);
+        logger.info("📍 Applied {} change(s) to layout {} locations, now v{}", operations.size(), layoutId, toVersion);
+        return true;
+    }
+
+    /**
+     * What the layout's locations would be after the patch, without changing the index; null unless the index holds
+     * the layout at {@code fromVersion}.
+     */
+    public LayoutLocations preview(String layoutId, long fromVersion, List<LayoutPatchDTO.Operation> operations) {
+        LayoutLocations current = snapshot.byLayout().get(layoutId);
+        if (current == null || current.version() != fromVersion) {
+            return null;
+        }
+        return patched(current, layoutId, fromVersion + 1, operations);
+    }
+
+    private static LayoutLocations patched(LayoutLocations current, String layoutId, long toVersion,
+                                           List<LayoutPatchDTO.Operation> operations) {
+        Map<String, FixtureEntity> fixtures = new HashMap<>(current.fixtures());
+        Map<String, List<Location>> byFixture = new HashMap<>(current.byFixture());
+        for (LayoutPatchDTO.Operation operation : operations) {
+            String fixtureId = operation.getFixtureId();
+            switch (operation.getOp()) {
+                case PUT_FIXTURE -> {
+                    fixtures.put(fixtureId, operation.getFixture());
+                    String name = operation.getFixture().getName();
+                    byFixture.computeIfPresent(fixtureId, (k, list) -> list.stream()
+                            .map(l -> new Location(l.layoutId(), l.fixtureId(), name, l.row(), l.col(), l.index(),
+                                    l.itemId(), l.itemName()))
+                            .toList());
+                }
+                case REMOVE_FIXTURE -> {
+                    fixtures.remove(fixtureId);
+                    byFixture.remove(fixtureId);
+                }
+                case SET_SHELVES -> byFixture.put(fixtureId,
+                        fixtureLocations(layoutId, fixtureId, fixtureName(fixtures, fixtureId), operation.getShelves()));
+                // The update only sets a cell that already exists (see LayoutPatches), so the position is the one given
+                case SET_CELL -> {
+                    int row = operation.getRow(), col = operation.getCol();
+                    List<Location> list = new ArrayList<>(byFixture.getOrDefault(fixtureId, List.of()));
+                    list.removeIf(l -> l.row() == row && l.col() == col);
+                    addCell(list, layoutId, fixtureId, fixtureName(fixtures, fixtureId), row, col, operation.getItems());
+                    list.sort(SHELF_ORDER);
+                    byFixture.put(fixtureId, List.copyOf(list));
+                }
+                default -> {
+                    return null;
+                }
+            }
+        }
+        return layoutLocations(toVersion, fixtures, byFixture);
+    }
+
+    public synchronized void remove(String layoutId) {
+        if (!snapshot.byLayout().containsKey(layoutId)) {
+            return;
+        }
+        Map<String, LayoutLocations> byLayout = new HashMap<>(snapshot.byLayout());
+        byLayout.remove(layoutId);
+        publish(byLayout);
+        logger.info("📍 Removed item locations for layout {}", layoutId);
+    }
+
+    /**
+     * Replaces the whole index with the given layouts, unless a layout was saved or deleted while they were being
+     * read; that newer state is kept and the next reload catches up.
+     */
+    public void reload(Supplier<Collection<LayoutEntity>> loader) {
+        long versionBeforeLoad;
+        synchronized (this) {
+            versionBeforeLoad = version;
+        }
+        Collection<LayoutEntity> layouts = loader.get();
+
+        Map<String, LayoutLocations> byLayout = new HashMap<>();
+        for (LayoutEntity layout : layouts) {
+            byLayout.put(layout.getLayoutId(), index(layout));
+        }
+        synchronized (this) {
+            if (version != versionBeforeLoad) {
+                logger.info("📍 Layouts changed while reloading, keeping the current location index");
+                return;
+            }
+            publish(byLayout);
+        }
+        logger.info("📍 Location index loaded for {} layout(s)", byLayout.size());
+    }
+
+    private static LayoutLocations index(LayoutEntity layout) {
+        Map<String, FixtureEntity> fixtures = layout.getFixtureLayout() != null ? layout.getFixtureLayout() : Map.of();
+        Map<String, List<Location>> byFixture = new HashMap<>();
+        if (layout.getItemMap() != null) {
+            for (Map.Entry<String, List<List<List<ItemEntity>>>> fixture : layout.getItemMap().entrySet()) {
+                byFixture.put(fixture.getKey(), fixtureLocations(layout.getLayoutId(), fixture.getKey(),
+                        fixtureName(fixtures, fixture.getKey()), fixture.getValue()));
+            }
+        }
+        return layoutLocations(versionOf(layout), fixtures, byFixture);
+    }
+
+    private static List<Location> fixtureLocations(String layoutId, String fixtureId, String fixtureName,
+                                                   List<List<List<ItemEntity>>> shelves) {
+        List<Location> locations = new ArrayList<>();
+        List<List<List<ItemEntity>>> rows = shelves != null ? shelves : List.of();
+        for (int row = 0; row < rows.size(); row++) {
+            List<List<ItemEntity>> cols = rows.get(row) != null ? rows.get(row) : List.of();
+            for (int col = 0; col < cols.size(); col++) {
+                addCell(locations, layoutId, fixtureId, fixtureName, row, col, cols.get(col));
+            }
+        }
+        return List.copyOf(locations);
+    }
+
+    private static void addCell(List<Location> locations, String layoutId, String fixtureId, String fixtureName,
+                                int row, int col, List<ItemEntity> items) {
+        List<ItemEntity> cell = items != null ? items : List.of();
+        for (int index = 0; index < cell.size(); index++) {
+            ItemEntity item = cell.get(index);
+            if (item != null) {
+                locations.add(new Location(layoutId, fixtureId, fixtureName, row, col, index, item.getId(), item.getName()));
+            }
+        }
+    }
+
+    // Fixtures in id order, so an item stocked on several fixtures lists its locations in a stable order
+    private static LayoutLocations layoutLocations(long version, Map<String, FixtureEntity> fixtures,
+                                                   Map<String, List<Location>> byFixture) {
+        Map<String, List<Location>> byId = new HashMap<>();
+        Map<String, List<Location>> byName = new HashMap<>();
+        int items = 0;
+        for (String fixtureId : byFixture.keySet().stream().sorted().toList()) {
+            for (Location location : byFixture.get(fixtureId)) {
+                if (location.itemId() != null && !location.itemId().isBlank()) {
+                    byId.computeIfAbsent(location.itemId().trim(), k -> new ArrayList<>()).add(location);
+                }
+                if (location.itemName() != null && !location.itemName().isBlank()) {
+                    byName.computeIfAbsent(key(location.itemName()), k -> new ArrayList<>()).add(location);
+                }
+                items++;
+            }
+        }
+        byId.replaceAll((k, list) -> List.copyOf(list));
+        byName.replaceAll((k, list) -> List.copyOf(list));
+        return new LayoutLocations(Collections.unmodifiableMap(byId), Collections.unmodifiableMap(byName), items,
+                Collections.unmodifiableMap(new HashMap<>(fixtures)), geometryVersion(fixtures),
+                Collections.unmodifiableMap(new HashMap<>(byFixture)), version);
+    }
+
+    private static String fixtureName(Map<String, FixtureEntity> fixtures, String fixtureId) {
+        FixtureEntity fixture = fixtures.get(fixtureId);
+        return fixture != null ? fixture.getName() : null;
+    }
+
+    private static long versionOf(LayoutEntity layout) {
+        return layout.getVersion() != null ? layout.getVersion() : 0;
+    }
+
+    // Hash of every fixture's id, position and outline; only changes when the floor plan does
+    static long geometryVersion(Map<String, FixtureEntity> fixtures) {
+        long hash = 1125899906842597L;
+        for (String fixtureId : fixtures.keySet().stream().sorted().toList()) {
+            FixtureEntity fixture = fixtures.get(fixtureId);
+            hash = 31 * hash + fixtureId.hashCode();
+            if (fixture == null) {
+                continue;
+            }
+            hash = 31 * hash + fixture.getX();
+            hash = 31 * hash + fixture.getY();
+            hash = 31 * hash + (fixture.getPoints() != null ? fixture.getPoints().hashCode() : 0);
+        }
+        return hash;
+    }
+
+    private void publish(Map<String, LayoutLocations> byLayout) {
+        version++;
+        snapshot = new Snapshot(Collections.unmodifiableSortedMap(new TreeMap<>(byLayout)));
+    }
+
+    private static String key(String value) {
+        return value.trim().toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -1,43 +1,98 @@
-//package com.sb.productservice.service;
-//
-//import com.sb.productservice.grpc.ProductLookupRequest;
-//import com.sb.productservice.grpc.ProductServiceGrpc;
-//import com.sb.productservice.grpc.ProductShelfRowResponse;
-//import com.sb.productservice.model.Products;
-//import com.sb.productservice.repository.ProductRepository;
-//import io.grpc.stub.StreamObserver;
-//import net.devh.boot.grpc.server.service.GrpcService;
-//
-//@GrpcService
-//public class ProductLookUpGrpc extends ProductServiceGrpc.ProductServiceImplBase {
-//
-//    private final ProductRepository productRepository;
-//
-//    public ProductLookUpGrpc(ProductRepository productRepository) {
-//        this.productRepository = productRepository;
-//    }
-//
-//    @Override
-//    public void getProductShelfRow(ProductLookupRequest request, StreamObserver<ProductShelfRowResponse> responseObserver) {
-//        // Lookup by item name
-//        Products product = productRepository.findByProductName(request.getItemName())
-//                .orElse(null);
-//
-//        ProductShelfRowResponse.Builder response = ProductShelfRowResponse.newBuilder();
-//
-//        if (product != null) {
-//            response.setExists(true)
-//                    .setShelfNumber(product.getProductShelfNumber())
-//                    .setRowNumber(product.getProductRowNumber())
-//                    .setMessage("Product found");
-//        } else {
-//            response.setExists(false)
-//                    .setShelfNumber(0)
-//                    .setRowNumber(0)
-//                    .setMessage("Product not found");
-//        }
-//
-//        responseObserver.onNext(response.build());
-//        responseObserver.onCompleted();
-//    }
-//}
+package com.sb.productservice.service;
+
+import com.sb.productservice.grpc.ProductLocation;
+import com.sb.productservice.grpc.ProductLookupRequest;
+import com.sb.productservice.grpc.ProductServiceGrpc;
+import com.sb.productservice.grpc.ProductShelfRowResponse;
+import com.sb.productservice.grpc.RouteRequest;
+import com.sb.productservice.grpc.RouteResponse;
+import com.sb.productservice.grpc.RouteStop;
+import io.grpc.Status;
+import io.grpc.stub.StreamObserver;
+import net.devh.boot.grpc.server.service.GrpcService;
+
+import java.util.List;
+
+@GrpcService
+public class ProductLookUpGrpc extends ProductServiceGrpc.ProductServiceImplBase {
+
+    private final ProductLocationIndex productLocationIndex;
+
+    private final StoreRoutePlanner storeRoutePlanner;
+
+    public ProductLookUpGrpc(ProductLocationIndex productLocationIndex, StoreRoutePlanner storeRoutePlanner) {
+        this.productLocationIndex = productLocationIndex;
+        this.storeRoutePlanner = storeRoutePlanner;
+    }
+
+    // Answered from the location index built from the store layouts; no DynamoDB read per lookup
+    @Override
+    public void getProductShelfRow(ProductLookupRequest request, StreamObserver<ProductShelfRowResponse> responseObserver) {
+        // Lookup by item id or item name
+        List<ProductLocationIndex.Location> locations = productLocationIndex.find(request.getItemName(), request.getLayoutId());
+
+        ProductShelfRowResponse.Builder response = ProductShelfRowResponse.newBuilder();
+
+        if (!locations.isEmpty()) {
+            ProductLocationIndex.Location first = locations.get(0);
+            response.setExists(true)
+                    .setShelfNumber(first.row())
+                    .setRowNumber(first.col())
+                    .setMessage("Product found");
+            for (ProductLocationIndex.Location location : locations) {
+                response.addLocations(toLocation(location));
+            }
+        } else {
+            response.setExists(false)
+                    .setShelfNumber(0)
+                    .setRowNumber(0)
+                    .setMessage("Product not found");
+        }
+
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    @Override
+    public void planRoute(RouteRequest request, StreamObserver<RouteResponse> responseObserver) {
+        StoreRoutePlanner.Route route;
+        try {
+            route = storeRoutePlanner.plan(request.getLayoutId(), request.getItemNamesList(), request.getStartFixtureId());
+        } catch (IllegalArgumentException e) {
+            responseObserver.onError(Status.NOT_FOUND.withDescription(e.getMessage()).asRuntimeException());
+            return;
+        }
+
+        RouteResponse.Builder response = RouteResponse.newBuilder()
+                .addAllNotFound(route.notFound())
+                .setTotalDistance(route.totalDistance());
+        for (StoreRoutePlanner.Stop stop : route.stops()) {
+            response.addStops(RouteStop.newBuilder()
+                    .setRequested(stop.requested())
+                    .setLocation(toLocation(stop.location()))
+                    .setDistance(stop.distance()));
+        }
+        responseObserver.onNext(response.build());
+        responseObserver.onCompleted();
+    }
+
+    private static ProductLocation toLocation(ProductLocationIndex.Location location) {
+        ProductLocation.Builder builder = ProductLocation.newBuilder()
+                .setLayoutId(location.layoutId())
+                .setFixtureId(location.fixtureId())
+                .setRow(location.row())
+                .setCol(location.col())
+                .setIndex(location.index());
+        // Proto strings cannot be null
+        if (location.fixtureName() != null) {
+            builder.setFixtureName(location.fixtureName());
+        }
+        if (location.itemId() != null) {
+            builder.setItemId(location.itemId());
+        }
+        if (location.itemName() != null) {
+            builder.setItemName(location.itemName());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,533 @@
+package com.sb.productservice.service;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory inverted index for product search over name, brand, category and description.
+ * <p>
+ * Every word is indexed whole. Name, brand and category words are also indexed under their leading n-grams
+ * (2 to {@value #MAX_PREFIX} characters), so a query word matches as soon as it starts a product word ("bas" finds
+ * "Basmati"). A query word of {@value #MIN_TYPO_LENGTH}+ characters that matches nothing at all falls back to words
+ * one edit away (a wrong, missing, extra or swapped letter), found through a single-deletion index.
+ * <p>
+ * A product must match every query word. Per word it scores its best hit, weighted by field (name, brand, category,
+ * description) and by kind (whole word, then prefix, then typo); only the top k are kept, in a bounded heap.
+ * <p>
+ * Writes after commit are applied in place under the write lock, searches share the read lock. The periodic rebuild
+ * from the {@link ProductCatalog} builds a new index without the lock and swaps it in only if no write landed meanwhile.
+ */
+@Service
+public class ProductSearchIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProductSearchIndex.class);
+
+    static final int MAX_PREFIX = 15;
+    static final int MIN_TYPO_LENGTH = 4;
+    private static final int MAX_TYPO_LENGTH = 24;
+    private static final int MAX_QUERY_TOKENS = 8;
+
+    private static final float NAME_WEIGHT = 3.0f;
+    private static final float BRAND_WEIGHT = 2.0f;
+    private static final float CATEGORY_WEIGHT = 1.5f;
+    private static final float DESCRIPTION_WEIGHT = 1.0f;
+    private static final float PREFIX_FACTOR = 0.6f;
+    private static final float TYPO_FACTOR = 0.4f;
+
+    private final ProductCatalog productCatalog;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    // Score arrays are a few MB at 100k products, so they are pooled rather than kept per request thread
+    private final BlockingQueue<Scratch> scratchPool = new ArrayBlockingQueue<>(Runtime.getRuntime().availableProcessors() * 2);
+    private Index index = new Index(); // guarded by lock
+    private long version;              // bumped by every write, guarded by lock
+
+    public ProductSearchIndex(ProductCatalog productCatalog) {
+        this.productCatalog = productCatalog;
+    }
+
+    @PostConstruct
+    @Scheduled(fixedDelayString = "${product.search.rebuild-interval:300000}", initialDelayString = "${product.search.rebuild-interval:300000}")
+    public void rebuild() {
+        long versionBeforeBuild;
+        lock.readLock().lock();
+        try {
+            versionBeforeBuild = version;
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        Index fresh = new Index();
+        for (ProductCatalog.Entry entry : productCatalog.findAll()) {
+            fresh.add(entry);
+        }
+
+        lock.writeLock().lock();
+        try {
+            if (version != versionBeforeBuild) {
+                logger.info("🔎 Search index changed while rebuilding, keeping the current one");
+                return;
+            }
+            index = fresh;
+        } finally {
+            lock.writeLock().unlock();
+        }
+        logger.info("🔎 Search index built for {} product(s), {} word(s)", fresh.idByBarcode.size(), fresh.terms.size());
+    }
+
+    /** Adds the product, or re-indexes the one with the same barcode. */
+    public void put(ProductCatalog.Entry entry) {
+        lock.writeLock().lock();
+        try {
+            index.remove(entry.barcode());
+            index.add(entry);
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Re-indexes the product as the {@link ProductCatalog} holds it now, or drops it if the catalog no longer does.
+     * The catalog is read under the write lock, so whichever refresh runs last indexes the latest catalog entry.
+     */
+    public void refresh(String barcode) {
+        lock.writeLock().lock();
+        try {
+            ProductCatalog.Entry entry = productCatalog.findByBarcode(barcode);
+            index.remove(barcode);
+            if (entry != null) {
+                index.add(entry);
+            }
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(String barcode) {
+        lock.writeLock().lock();
+        try {
+            index.remove(barcode);
+            version++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.idByBarcode.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Best {@code limit} products matching every word of the query, best first. */
+    public List<ProductCatalog.Entry> search(String query, int limit) {
+        List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        if (tokens.size() > MAX_QUERY_TOKENS) {
+            tokens = tokens.subList(0, MAX_QUERY_TOKENS);
+        }
+
+        Scratch s = scratchPool.poll();
+        if (s == null) {
+            s = new Scratch();
+        }
+        lock.readLock().lock();
+        try {
+            Index current = index;
+            s.prepare(current.docs.length);
+
+            int queryStamp = s.nextStamp();
+            for (int t = 0; t < tokens.size(); t++) {
+                String token = tokens.get(t);
+                int tokenStamp = s.nextStamp();
+                Postings whole = current.terms.get(token);
+                Postings prefix = current.prefixes.get(token);
+                if (whole == null && prefix == null) {
+                    if (token.length() < MIN_TYPO_LENGTH) {
+                        return List.of();
+                    }
+                    for (String term : current.typoCandidates(token)) {
+                        s.accumulate(current.terms.get(term), TYPO_FACTOR, t, queryStamp, tokenStamp);
+                    }
+                } else {
+                    s.accumulate(whole, 1.0f, t, queryStamp, tokenStamp);
+                    s.accumulate(prefix, 1.0f, t, queryStamp, tokenStamp);
+                }
+            }
+            return s.topK(current.docs, tokens.size(), queryStamp, limit);
+        } finally {
+            lock.readLock().unlock();
+            scratchPool.offer(s);
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i <= lower.length(); i++) {
+            boolean wordChar = i < lower.length() && Character.isLetterOrDigit(lower.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /** True if the words differ by at most one substituted, inserted, deleted or transposed character. */
+    static boolean withinOneEdit(String a, String b) {
+        int la = a.length();
+        int lb = b.length();
+        if (Math.abs(la - lb) > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < la && i < lb && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (la == lb) {
+            if (i == la) {
+                return true;
+            }
+            if (a.regionMatches(i + 1, b, i + 1, la - i - 1)) {
+                return true;
+            }
+            return i + 1 < la && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                    && a.regionMatches(i + 2, b, i + 2, la - i - 2);
+        }
+        return la > lb ? a.regionMatches(i + 1, b, i, lb - i) : b.regionMatches(i + 1, a, i, la - i);
+    }
+
+    /** Product ids with weights for one word or prefix; ids are swapped out on removal, so order is not kept. */
+    private static final class Postings {
+        int[] ids = new int[2];
+        float[] weights = new float[2];
+        int size;
+
+        void add(int id, float weight) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            ids[size] = id;
+            weights[size] = weight;
+            size++;
+        }
+
+        void remove(int id) {
+            for (int i = 0; i < size; i++) {
+                if (ids[i] == id) {
+                    size--;
+                    ids[i] = ids[size];
+                    weights[i] = weights[size];
+                    return;
+                }
+            }
+        }
+    }
+
+    private record Doc(ProductCatalog.Entry entry, String[] terms, String[] prefixes) {
+    }
+
+    private static final class Index {
+        final Map<String, Postings> terms = new HashMap<>();
+        final Map<String, Postings> prefixes = new HashMap<>();
+        final Map<String, List<String>> deletions = new HashMap<>(); // word minus one character -> indexed words
+        final Map<String, Integer> idByBarcode = new HashMap<>();
+        Doc[] docs = new Doc[1024];
+        int[] freeIds = new int[16];
+        int freeCount;
+        int nextId;
+
+        void add(ProductCatalog.Entry entry) {
+            Map<String, Float> termWeights = new HashMap<>();
+            Map<String, Float> prefixWeights = new HashMap<>();
+            collect(entry.productName(), NAME_WEIGHT, true, termWeights, prefixWeights);
+            collect(entry.productBrand(), BRAND_WEIGHT, true, termWeights, prefixWeights);
+            collect(entry.productCategory(), CATEGORY_WEIGHT, true, termWeights, prefixWeights);
+            collect(entry.productDescription(), DESCRIPTION_WEIGHT, false, termWeights, prefixWeights);
+
+            int id = allocateId();
+            termWeights.forEach((term, weight) -> terms.computeIfAbsent(term, t -> {
+                addDeletions(t);
+                return new Postings();
+            }).add(id, weight));
+            prefixWeights.forEach((prefix, weight) -> prefixes.computeIfAbsent(prefix, p -> new Postings()).add(id, weight));
+
+            docs[id] = new Doc(entry, termWeights.keySet().toArray(String[]::new), prefixWeights.keySet().toArray(String[]::new));
+            idByBarcode.put(entry.barcode(), id);
+        }
+
+        void remove(String barcode) {
+            Integer id = idByBarcode.remove(barcode);
+            if (id == null) {
+                return;
+            }
+            Doc doc = docs[id];
+            for (String term : doc.terms()) {
+                Postings postings = terms.get(term);
+                postings.remove(id);
+                if (postings.size == 0) {
+                    terms.remove(term);
+                    removeDeletions(term);
+                }
+            }
+            for (String prefix : doc.prefixes()) {
+                Postings postings = prefixes.get(prefix);
+                postings.remove(id);
+                if (postings.size == 0) {
+                    prefixes.remove(prefix);
+                }
+            }
+            docs[id] = null;
+            if (freeCount == freeIds.length) {
+                freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+            }
+            freeIds[freeCount++] = id;
+        }
+
+        /** Indexed words one edit away from the query word. */
+        Set<String> typoCandidates(String token) {
+            Set<String> candidates = new LinkedHashSet<>();
+            addVerified(candidates, deletions.get(token), token);          // query is missing a letter
+            for (String deleted : deletions(token)) {
+                if (terms.containsKey(deleted)) {
+                    candidates.add(deleted);                                // query has an extra letter
+                }
+                addVerified(candidates, deletions.get(deleted), token);    // wrong or swapped letter
+            }
+            return candidates;
+        }
+
+        private static void addVerified(Set<String> candidates, List<String> terms, String token) {
+            if (terms != null) {
+                for (String term : terms) {
+                    if (withinOneEdit(term, token)) {
+                        candidates.add(term);
+                    }
+                }
+            }
+        }
+
+        private int allocateId() {
+            if (freeCount > 0) {
+                return freeIds[--freeCount];
+            }
+            if (nextId == docs.length) {
+                docs = Arrays.copyOf(docs, docs.length * 2);
+            }
+            return nextId++;
+        }
+
+        private static void collect(String text, float fieldWeight, boolean withPrefixes,
+                                    Map<String, Float> termWeights, Map<String, Float> prefixWeights) {
+            for (String token : tokenize(text)) {
+                termWeights.merge(token, fieldWeight, Math::max);
+                if (!withPrefixes) {
+                    continue;
+                }
+                // Longer prefixes sit closer to the whole word, so "basma" outranks "ba" on "basmati"
+                int longest = Math.min(token.length() - 1, MAX_PREFIX);
+                for (int length = 2; length <= longest; length++) {
+                    float weight = fieldWeight * PREFIX_FACTOR * length / token.length();
+                    prefixWeights.merge(token.substring(0, length), weight, Math::max);
+                }
+            }
+        }
+
+        private void addDeletions(String term) {
+            if (term.length() < MIN_TYPO_LENGTH || term.length() > MAX_TYPO_LENGTH) {
+                return;
+            }
+            for (String deleted : deletions(term)) {
+                deletions.computeIfAbsent(deleted, d -> new ArrayList<>(2)).add(term);
+            }
+        }
+
+        private void removeDeletions(String term) {
+            if (term.length() < MIN_TYPO_LENGTH || term.length() > MAX_TYPO_LENGTH) {
+                return;
+            }
+            for (String deleted : deletions(term)) {
+                List<String> terms = deletions.get(deleted);
+                terms.remove(term);
+                if (terms.isEmpty()) {
+                    deletions.remove(deleted);
+                }
+            }
+        }
+
+        private static Set<String> deletions(String word) {
+            Set<String> result = new LinkedHashSet<>();
+            for (int i = 0; i < word.length(); i++) {
+                result.add(word.substring(0, i) + word.substring(i + 1));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Score arrays indexed by product id. Stamps mark which query and which query word last touched an id,
+     * so nothing has to be cleared between searches.
+     */
+    private static final class Scratch {
+        int[] queryStamp = new int[0];
+        int[] tokenStamp = new int[0];
+        int[] matched = new int[0];
+        float[] score = new float[0];
+        float[] tokenBest = new float[0];
+        int[] touched = new int[0];
+        int touchedCount;
+        int stamp;
+
+        void prepare(int capacity) {
+            if (queryStamp.length < capacity) {
+                queryStamp = new int[capacity];
+                tokenStamp = new int[capacity];
+                matched = new int[capacity];
+                score = new float[capacity];
+                tokenBest = new float[capacity];
+                touched = new int[capacity];
+                stamp = 0;
+            }
+            touchedCount = 0;
+        }
+
+        int nextStamp() {
+            if (++stamp == Integer.MAX_VALUE) {
+                Arrays.fill(queryStamp, 0);
+                Arrays.fill(tokenStamp, 0);
+                stamp = 1;
+            }
+            return stamp;
+        }
+
+        // Only ids that matched every earlier word take part, so each word narrows the candidates
+        void accumulate(Postings postings, float factor, int tokenIndex, int query, int token) {
+            if (postings == null) {
+                return;
+            }
+            for (int i = 0; i < postings.size; i++) {
+                int id = postings.ids[i];
+                float weight = postings.weights[i] * factor;
+                if (queryStamp[id] != query) {
+                    if (tokenIndex > 0) {
+                        continue;
+                    }
+                    queryStamp[id] = query;
+                    matched[id] = 0;
+                    score[id] = 0;
+                    touched[touchedCount++] = id;
+                }
+                if (tokenStamp[id] != token) {
+                    if (matched[id] != tokenIndex) {
+                        continue;
+                    }
+                    tokenStamp[id] = token;
+                    matched[id] = tokenIndex + 1;
+                    tokenBest[id] = weight;
+                    score[id] += weight;
+                } else if (weight > tokenBest[id]) {
+                    score[id] += weight - tokenBest[id];
+                    tokenBest[id] = weight;
+                }
+            }
+        }
+
+        List<ProductCatalog.Entry> topK(Doc[] docs, int tokens, int query, int limit) {
+            int[] heap = new int[Math.min(limit, touchedCount)];
+            int size = 0;
+            for (int i = 0; i < touchedCount; i++) {
+                int id = touched[i];
+                if (queryStamp[id] != query || matched[id] != tokens) {
+                    continue;
+                }
+                if (size < heap.length) {
+                    heap[size] = id;
+                    siftUp(heap, size++);
+                } else if (size > 0 && ranksBelow(heap[0], id)) {
+                    heap[0] = id;
+                    siftDown(heap, size);
+                }
+            }
+
+            ProductCatalog.Entry[] result = new ProductCatalog.Entry[size];
+            while (size > 0) {
+                result[size - 1] = docs[heap[0]].entry();
+                heap[0] = heap[--size];
+                siftDown(heap, size);
+            }
+            return Arrays.asList(result);
+        }
+
+        // Lower score ranks below; equal scores fall back to id order, which keeps ties stable without touching the entries
+        private boolean ranksBelow(int a, int b) {
+            return score[a] != score[b] ? score[a] < score[b] : a > b;
+        }
+
+        private void siftUp(int[] heap, int i) {
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!ranksBelow(heap[i], heap[parent])) {
+                    return;
+                }
+                swap(heap, i, parent);
+                i = parent;
+            }
+        }
+
+        private void siftDown(int[] heap, int size) {
+            int i = 0;
+            while (true) {
+                int lowest = i;
+                int left = 2 * i + 1;
+                int right = left + 1;
+                if (left < size && ranksBelow(heap[left], heap[lowest])) {
+                    lowest = left;
+                }
+                if (right < size && ranksBelow(heap[right], heap[lowest])) {
+                    lowest = right;
+                }
+                if (lowest == i) {
+                    return;
+                }
+                swap(heap, i, lowest);
+                i = lowest;
+            }
+        }
+
+        private static void swap(int[] heap, int i, int j) {
+            int tmp = heap[i];
+            heap[i] = heap[j];
+            heap[j] = tmp;
+        }
+    }
+
+}
@@ -2,10 +2,16 @@ package com.sb.productservice.service;
 
 import com.sb.productservice.dto.AddProductDTO;
 import com.sb.productservice.dto.GetProductDTO;
+import com.sb.productservice.dto.ImportReportDTO;
+import com.sb.productservice.dto.ProductPageDTO;
 import com.sb.productservice.dto.UpdateProductDTO;
 import com.sb.productservice.model.Products;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.List;
+import java.util.Map;
 
 public interface ProductService{
 
@@ -22,4 +28,18 @@ public interface ProductService{
     List<GetProductDTO> getProductsByCategory(String category);
 
     List<GetProductDTO> getProductsByBrand(String brand);
+
+    ProductPageDTO getProductsPage(String after, Integer size, String category, String brand);
+
+    void streamProducts(String category, String brand, OutputStream out) throws IOException;
+
+    List<GetProductDTO> searchProducts(String query, Integer limit);
+
+    ImageCache.CachedImage getProductImage(String barcode, String variant);
+
+    Map<String, Object> getImageCacheStats();
+
+    Map<String, Object> getBackupOutboxStats();
+
+    ImportReportDTO importProducts(InputStream in, String contentType) throws IOException;
 }
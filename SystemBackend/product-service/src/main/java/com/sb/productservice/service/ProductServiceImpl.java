@@ -1,22 +1,36 @@
 package com.sb.productservice.service;
 
-import com.sb.backupservice.grpc.ProductBackupServiceGrpc;
 import com.sb.backupservice.grpc.ProductRequest;
-import com.sb.backupservice.grpc.ProductResponse;
+import com.sb.events.ProductChangeType;
+import com.sb.events.ProductEvent;
 import com.sb.productservice.dto.AddProductDTO;
 import com.sb.productservice.dto.GetProductDTO;
+import com.sb.productservice.dto.ImportReportDTO;
+import com.sb.productservice.dto.ProductPageDTO;
 import com.sb.productservice.dto.UpdateProductDTO;
+import com.sb.productservice.kafka.KafkaProducer;
 import com.sb.productservice.model.Products;
 import com.sb.productservice.repository.ProductRepository;
-import net.devh.boot.grpc.client.inject.GrpcClient;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 public class ProductServiceImpl implements ProductService {
@@ -32,23 +46,138 @@ public class ProductServiceImpl implements ProductService {
     @Value("${aws.s3.bucket.region}")
     private String region;
 
+    @Value("${product.page.default-size:50}")
+    private int defaultPageSize;
+
+    @Value("${product.page.max-size:500}")
+    private int maxPageSize;
+
+    @Value("${product.search.default-limit:20}")
+    private int defaultSearchLimit;
+
+    @Value("${product.search.max-limit:50}")
+    private int maxSearchLimit;
+
     private final S3Service s3Service;
 
-    @GrpcClient("product-backup-service")
-    private ProductBackupServiceGrpc.ProductBackupServiceBlockingStub productBackupStub;
+    private final KafkaProducer kafkaProducer;
+
+    private final ProductCatalog productCatalog;
+
+    private final ProductSearchIndex productSearchIndex;
 
+    private final ObjectMapper objectMapper;
 
-    public ProductServiceImpl(ProductRepository productRepository, S3Service s3Service) {
+    private final TransactionTemplate transactionTemplate;
+
+    private final ImageVariantService imageVariantService;
+
+    private final ProductImportService productImportService;
+
+    private final BackupOutboxService backupOutboxService;
+
+
+    public ProductServiceImpl(ProductRepository productRepository, S3Service s3Service, KafkaProducer kafkaProducer,
+                              ProductCatalog productCatalog, ProductSearchIndex productSearchIndex,
+                              ObjectMapper objectMapper, TransactionTemplate transactionTemplate,
+                              ImageVariantService imageVariantService, ProductImportService productImportService,
+                              BackupOutboxService backupOutboxService) {
         this.productRepository = productRepository;
         this.s3Service = s3Service;
+        this.kafkaProducer = kafkaProducer;
+        this.productCatalog = productCatalog;
+        this.productSearchIndex = productSearchIndex;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = transactionTemplate;
+        this.imageVariantService = imageVariantService;
+        this.productImportService = productImportService;
+        this.backupOutboxService = backupOutboxService;
+    }
+
+    /**
+     * Applies the change to the in-memory catalog and publishes a product change event once the surrounding
+     * transaction commits, so that neither lookups nor consumers (e.g. the cart-service product cache) see a
+     * row before it is visible. The product is null for deletions.
+     */
+    private void publishProductChanged(String barcode, ProductChangeType changeType, Products product) {
+        ProductCatalog.Entry entry = product != null ? ProductCatalog.Entry.of(product) : null;
+
+        ProductEvent event = ProductEvent.newBuilder()
+                .setBarcode(barcode)
+                .setChangeType(changeType)
+                .setChangedAt(LocalDateTime.now().toString())
+                .build();
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                if (entry != null) {
+                    productCatalog.put(entry);
+                } else {
+                    productCatalog.remove(barcode);
+                }
+                productSearchIndex.refresh(barcode);
+                try {
+                    kafkaProducer.sendProductChangedEvent("product-events", event);
+                    logger.info("📣 Published {} event for barcode: {}", changeType, barcode);
+                } catch (Exception e) {
+                    logger.error("❌ Failed to publish product event for barcode {}: {}", barcode, e.getMessage(), e);
+                }
+            }
+        });
     }
 
     @Override
-    @Transactional
     public String addProduct(AddProductDTO dto) {
 
         String barcode = dto.getBarcode();
 
+        // Checked against the database (unique barcode index) rather than the catalog, which only catches up after
+        // commit; a concurrent add that slips past still fails on the unique constraint and discards only its own upload
+        if (productRepository.existsByBarcode(barcode)) {
+            logger.warn("❌ Product already exists with barcode: {}", barcode);
+            throw new IllegalArgumentException("Product with the given barcode already exists.");
+        }
+
+        // Upload image to S3 before the transaction opens, so no DB connection is held while the bytes are in flight
+        String folder = "images/" + dto.getProductCategory() + "/" + dto.getProductBrand();
+        String filename = imageFilename(barcode);
+        String s3Key = null;
+        if (dto.getProductImage() != null && !dto.getProductImage().isEmpty()) {
+            try {
+                s3Key = s3Service.uploadImage(folder, filename, dto.getProductImage());
+                logger.info("📤 Image uploaded to S3 at: {}", s3Key);
+            } catch (Exception e) {
+                logger.error("❌ Failed to upload image to S3", e);
+                throw new RuntimeException("Image upload failed, product not saved", e);
+            }
+        }
+
+        String imageKey = s3Key;
+        try {
+            transactionTemplate.executeWithoutResult(status -> saveNewProduct(dto, imageKey));
+        } catch (RuntimeException e) {
+            if (imageKey != null) {
+                discardUploadedImage(folder, filename);
+            }
+            throw e;
+        }
+
+        if (imageKey != null) {
+            generateImageVariants(barcode, imageKey, folder, filename);
+        }
+
+        // Clear used barcode
+        //barcodeListenerService.clearLatestBarcode();
+        //logger.info("🧹 Cleared cached barcode after save");
+
+        return "✅ Product saved successfully with barcode: " + barcode;
+    }
+
+    private void saveNewProduct(AddProductDTO dto, String s3Key) {
+
+        String barcode = dto.getBarcode();
+
         // Construct product entity
         Products product = new Products();
         product.setBarcode(barcode);
@@ -60,26 +189,10 @@ public class ProductServiceImpl implements ProductService {
         product.setProductBrand(dto.getProductBrand());
         product.setProductWeight(dto.getProductWeight());
         product.setAddedDate(LocalDateTime.now());
-
+        product.setProductImage(s3Key); // Save key/path in DB
 
         logger.debug("🛠 Constructed product entity: {}", product);
 
-        // Upload image to S3
-        String s3Key = null;
-        if (dto.getProductImage() != null && !dto.getProductImage().isEmpty()) {
-            try {
-                String folder = "images/" + dto.getProductCategory() + "/" + dto.getProductBrand();
-                String filename = barcode + ".jpg"; // You may dynamically get extension if needed
-                s3Key = s3Service.uploadImage(folder, filename, dto.getProductImage());
-
-                logger.info("📤 Image uploaded to S3 at: {}", s3Key);
-                product.setProductImage(s3Key); // Save key/path in DB
-            } catch (Exception e) {
-                logger.error("❌ Failed to upload image to S3", e);
-                throw new RuntimeException("Image upload failed, rolling back DB insert", e);
-            }
-        }
-
         // Save to database
         productRepository.save(product);
         logger.info("✅ Product saved to database with barcode: {}", barcode);
@@ -99,36 +212,112 @@ public class ProductServiceImpl implements ProductService {
                 .setProductImageUrl(s3Key != null ? s3Key : "")
                 .build();
 
-        try {
-            // Backup via gRPC
-            ProductResponse grpcResponse = productBackupStub.addProduct(backupRequest);
-            logger.info("📡 gRPC AddProduct response: {}", grpcResponse.getStatus());
-        } catch (Exception e) {
-            logger.error("gRPC call failed: {}", e.getMessage(), e);
-            // Throw RuntimeException to trigger rollback of the DB insert
-            throw new RuntimeException("Product backup (gRPC) failed, rolling back DB save", e);
+        // Backup via the outbox, committed together with the product and relayed to backup-service afterwards
+        backupOutboxService.append(ProductChangeType.ADDED, barcode, backupRequest);
+
+        publishProductChanged(barcode, ProductChangeType.ADDED, product);
+    }
+
+    private void generateImageVariants(String barcode, String imageKey, String folder, String filename) {
+        imageVariantService.submit(barcode, folder, filename,
+                variants -> markImageVariantsReady(barcode, imageKey, folder, filename, variants));
+    }
+
+    /**
+     * Called from the variant worker once the resized images are stored. The row is only marked while it still shows
+     * the image the job started from: a job that finishes after the image was replaced (or the product removed) must
+     * not mark the newer image's variants ready, and the variants it stored are then of no use to anyone.
+     */
+    private void markImageVariantsReady(String barcode, String imageKey, String folder, String filename,
+                                        List<String> variants) {
+        String value = String.join(",", variants);
+        if (productRepository.updateImageVariants(barcode, imageKey, value) == 0) {
+            logger.warn("⚠️ Image {} of product {} was replaced or removed before its variants were ready", imageKey, barcode);
+            deleteImageVariants(folder, filename, variants);
+            return;
+        }
+        // An update committing meanwhile may have replaced the entry; only the one still showing this image is marked
+        if (productCatalog.replaceIf(barcode, imageKey, entry -> entry.withImageVariants(value)) != null) {
+            productSearchIndex.refresh(barcode);
         }
+    }
 
-        // Clear used barcode
-        //barcodeListenerService.clearLatestBarcode();
-        //logger.info("🧹 Cleared cached barcode after save");
+    // Variants are derived data, so failing to remove one does not block the delete
+    private void deleteImageVariants(String folder, String filename, List<String> variants) {
+        for (String variant : variants) {
+            try {
+                s3Service.deleteImage(folder, ImageVariantService.variantFilename(filename, variant));
+            } catch (Exception e) {
+                logger.warn("⚠️ Failed to delete {} variant of image {}/{}: {}", variant, folder, filename, e.getMessage());
+            }
+        }
+    }
 
-        return "✅ Product saved successfully with barcode: " + barcode;
+    // Every upload gets a key of its own, which the product row only references once the transaction commits. The
+    // live image is never overwritten in place, and cleaning up after a failed save removes nobody else's object.
+    private static String imageFilename(String barcode) {
+        return barcode + "-" + UUID.randomUUID() + ".jpg";
     }
 
+    // S3 is not part of the transaction, so an image uploaded for a product that was then not saved is removed again
+    private void discardUploadedImage(String folder, String filename) {
+        try {
+            s3Service.deleteImage(folder, filename);
+            logger.info("🧹 Removed uploaded image after failed save: {}/{}", folder, filename);
+        } catch (Exception e) {
+            logger.error("❌ Failed to remove uploaded image {}/{}: {}", folder, filename, e.getMessage(), e);
+        }
+    }
 
     @Override
-    @Transactional
     public String updateProduct(UpdateProductDTO dto) {
         logger.info("🔄 Starting update for product with barcode: {}", dto.getBarcode());
 
-        // Fetch product by barcode
-        Products existingProduct = productRepository
-                .findAll()
-                .stream()
-                .filter(p -> p.getBarcode().equals(dto.getBarcode()))
-                .findFirst()
-                .orElse(null);
+        // Checked against the catalog, not the database, so no DB connection is taken before the upload
+        if (productCatalog.findByBarcode(dto.getBarcode()) == null) {
+            logger.warn("❌ No product found with barcode: {}", dto.getBarcode());
+            throw new IllegalArgumentException("Product with the given barcode not found.");
+        }
+
+        // Upload the replacement image before the transaction opens; the current one stays live until the row commits
+        String folder = "images/" + dto.getProductCategory() + "/" + dto.getProductBrand();
+        String filename = imageFilename(dto.getBarcode());
+        String s3Key = null;
+        if (dto.getProductImage() != null && !dto.getProductImage().isEmpty()) {
+            try {
+                s3Key = s3Service.uploadImage(folder, filename, dto.getProductImage());
+
+                logger.info("♻️ Replacement image uploaded to S3 at: {}", s3Key);
+            } catch (Exception e) {
+                logger.error("❌ Failed to upload replacement image to S3", e);
+                throw new RuntimeException("Image overwrite failed, product not updated", e);
+            }
+        }
+
+        String newImageKey = s3Key;
+        String replacedImage;
+        try {
+            replacedImage = transactionTemplate.execute(status -> applyUpdate(dto, newImageKey));
+        } catch (RuntimeException e) {
+            if (newImageKey != null) {
+                discardUploadedImage(folder, filename);
+            }
+            throw e;
+        }
+
+        if (newImageKey != null) {
+            discardReplacedImage(dto.getBarcode(), replacedImage);
+            generateImageVariants(dto.getBarcode(), newImageKey, folder, filename);
+        }
+
+        return "✅ Product updated successfully with barcode: " + dto.getBarcode();
+    }
+
+    // Returns the image the new one replaced, if any
+    private String applyUpdate(UpdateProductDTO dto, String newImageKey) {
+
+        // Fetch product by barcode (writes go to the database row, not the catalog snapshot)
+        Products existingProduct = productRepository.findByBarcode(dto.getBarcode()).orElse(null);
 
         if (existingProduct == null) {
             logger.warn("❌ No product found with barcode: {}", dto.getBarcode());
@@ -144,51 +333,54 @@ public class ProductServiceImpl implements ProductService {
         existingProduct.setProductBrand(dto.getProductBrand());
         existingProduct.setProductWeight(dto.getProductWeight());
 
-
-        // Handle image overwrite
         String s3Key = existingProduct.getProductImage(); // Default to existing key
-        if (dto.getProductImage() != null && !dto.getProductImage().isEmpty()) {
-            try {
-                String folder = "images/" + dto.getProductCategory() + "/" + dto.getProductBrand();
-                String filename = dto.getBarcode() + ".jpg";
-                s3Key = s3Service.overwriteImage(folder, filename, dto.getProductImage());
-
-                logger.info("♻️ Image overwritten in S3 at: {}", s3Key);
-                existingProduct.setProductImage(s3Key); // Update DB field
-            } catch (Exception e) {
-                logger.error("❌ Failed to overwrite image in S3", e);
-                throw new RuntimeException("Image overwrite failed, rolling back DB update", e);
-            }
+        String replacedImage = null;
+        if (newImageKey != null) {
+            replacedImage = s3Key;
+            s3Key = newImageKey;
+            existingProduct.setProductImage(s3Key); // Update DB field
+            existingProduct.setImageVariants(null); // Old variants are stale until regenerated from the new image
         }
 
         // Save to DB
         productRepository.save(existingProduct);
         logger.info("✅ Product updated successfully in DB for barcode: {}", dto.getBarcode());
 
-        // gRPC Backup call
-        try {
-            ProductRequest grpcRequest = ProductRequest.newBuilder()
-                    .setBarcode(dto.getBarcode())
-                    .setProductName(dto.getProductName())
-                    .setProductDescription(dto.getProductDescription())
-                    .setProductPrice(dto.getProductPrice())
-                    .setProductQuantity(dto.getProductQuantity())
-                    .setProductCategory(dto.getProductCategory())
-                    .setProductBrand(dto.getProductBrand())
-                    .setProductWeight(dto.getProductWeight())
-                    .setAddedDate(existingProduct.getAddedDate().toString()) // use original date
-                    .setProductImageUrl(s3Key != null ? s3Key : "")
-                    .build();
-
-            ProductResponse grpcResponse = productBackupStub.updateProduct(grpcRequest);
-            logger.info("📡 gRPC UpdateProduct response: {}", grpcResponse.getStatus());
+        // Backup via the outbox
+        ProductRequest backupRequest = ProductRequest.newBuilder()
+                .setId(existingProduct.getId().toString())
+                .setBarcode(dto.getBarcode())
+                .setProductName(dto.getProductName())
+                .setProductDescription(dto.getProductDescription())
+                .setProductPrice(dto.getProductPrice())
+                .setProductQuantity(dto.getProductQuantity())
+                .setProductCategory(dto.getProductCategory())
+                .setProductBrand(dto.getProductBrand())
+                .setProductWeight(dto.getProductWeight())
+                .setAddedDate(existingProduct.getAddedDate().toString()) // use original date
+                .setProductImageUrl(s3Key != null ? s3Key : "")
+                .build();
+        backupOutboxService.append(ProductChangeType.UPDATED, dto.getBarcode(), backupRequest);
+
+        publishProductChanged(dto.getBarcode(), ProductChangeType.UPDATED, existingProduct);
+        return replacedImage;
+    }
 
+    // Once the update has committed nothing references the old image, or the variants made from it, any more
+    private void discardReplacedImage(String barcode, String imageUrl) {
+        String[] location = imageUrl != null && !imageUrl.isBlank() ? imageLocation(imageUrl) : null;
+        if (location == null) {
+            return;
+        }
+        try {
+            s3Service.deleteImage(location[0], location[1]);
+            logger.info("🧹 Removed replaced image of barcode {}: {}/{}", barcode, location[0], location[1]);
         } catch (Exception e) {
-            logger.error("❌ gRPC backup failed during update: {}", e.getMessage(), e);
-            throw new RuntimeException("Product update failed due to backup error", e);
+            logger.warn("⚠️ Failed to remove replaced image {}/{}: {}", location[0], location[1], e.getMessage());
         }
-
-        return "✅ Product updated successfully with barcode: " + dto.getBarcode();
+        // Whichever were stored; a job still running for the old image cleans up after itself
+        deleteImageVariants(location[0], location[1],
+                ImageVariantService.VARIANTS.stream().map(ImageVariantService.Variant::name).toList());
     }
 
     @Override
@@ -196,12 +388,7 @@ public class ProductServiceImpl implements ProductService {
     public String deleteProduct(String barcode) {
         logger.info("🗑️ Attempting to delete product with barcode: {}", barcode);
 
-        Products productToDelete = productRepository
-                .findAll()
-                .stream()
-                .filter(p -> p.getBarcode().equals(barcode))
-                .findFirst()
-                .orElse(null);
+        Products productToDelete = productRepository.findByBarcode(barcode).orElse(null);
 
         if (productToDelete == null) {
             logger.warn("❌ Product not found with barcode: {}", barcode);
@@ -211,18 +398,14 @@ public class ProductServiceImpl implements ProductService {
         // Delete image from S3
         if (productToDelete.getProductImage() != null && !productToDelete.getProductImage().isBlank()) {
             try {
-                String fullUrl = productToDelete.getProductImage();
-                String prefix = "https://" + bucketName + ".s3." + region + ".amazonaws.com/";
-                String s3Key = fullUrl.replace(prefix, ""); // Extract actual S3 key
-
-                String[] parts = s3Key.split("/", 4); // ["images", "Category", "Brand", "filename"]
-                if (parts.length == 4) {
-                    String folder = parts[0] + "/" + parts[1] + "/" + parts[2];
-                    String filename = parts[3];
-                    s3Service.deleteImage(folder, filename);
-                    logger.info("🧹 Image deleted from S3: {}", s3Key);
+                String[] location = imageLocation(productToDelete.getProductImage());
+                if (location != null) {
+                    s3Service.deleteImage(location[0], location[1]);
+                    logger.info("🧹 Image deleted from S3: {}/{}", location[0], location[1]);
+                    deleteImageVariants(location[0], location[1],
+                            GetProductDTO.parseVariants(productToDelete.getImageVariants()));
                 } else {
-                    logger.warn("⚠️ Unexpected S3 key format: {}", s3Key);
+                    logger.warn("⚠️ Unexpected S3 key format: {}", productToDelete.getProductImage());
                 }
             } catch (Exception e) {
                 logger.error("❌ Failed to delete image from S3", e);
@@ -234,74 +417,33 @@ public class ProductServiceImpl implements ProductService {
         productRepository.delete(productToDelete);
         logger.info("✅ Product deleted from DB: {}", barcode);
 
-        // gRPC delete request
-        try {
-            var deleteRequest = com.sb.backupservice.grpc.DeleteProductRequest.newBuilder()
-                    .setBarcode(barcode)
-                    .build();
-
-            ProductResponse grpcResponse = productBackupStub.deleteProduct(deleteRequest);
-            logger.info("📡 gRPC DeleteProduct response: {}", grpcResponse.getStatus());
+        // Backup via the outbox
+        backupOutboxService.append(ProductChangeType.DELETED, barcode, null);
 
-        } catch (Exception e) {
-            logger.error("❌ gRPC backup failed during delete: {}", e.getMessage(), e);
-            throw new RuntimeException("Product deletion failed due to backup error", e);
-        }
+        publishProductChanged(barcode, ProductChangeType.DELETED, null);
 
         return "✅ Product successfully deleted with barcode: " + barcode;
     }
 
 
     @Override
-    @Transactional(readOnly = true)
     public GetProductDTO getProductByBarcode(String barcode) {
 
-        Products product = productRepository.findAll()
-                .stream()
-                .filter(p -> p.getBarcode().equals(barcode))
-                .findFirst()
-                .orElseThrow(() -> {
-                    logger.warn("❌ No product found with barcode: {}", barcode);
-                    return new IllegalArgumentException("No product found for barcode: " + barcode);
-                });
-
-        logger.info("✅ Product found for barcode {}: {}", barcode, product.getProductName());
-
-        GetProductDTO dto = new GetProductDTO();
-        dto.setBarcode(product.getBarcode());
-        dto.setProductName(product.getProductName());
-        dto.setProductDescription(product.getProductDescription());
-        dto.setProductPrice(product.getProductPrice());
-        dto.setProductQuantity(product.getProductQuantity());
-        dto.setProductCategory(product.getProductCategory());
-        dto.setProductBrand(product.getProductBrand());
-        dto.setProductWeight(product.getProductWeight());
-        dto.setProductName(product.getProductImage());
-        dto.setProductImage(product.getProductImage());
+        ProductCatalog.Entry product = productCatalog.findByBarcode(barcode);
+        if (product == null) {
+            logger.warn("❌ No product found with barcode: {}", barcode);
+            throw new IllegalArgumentException("No product found for barcode: " + barcode);
+        }
 
-        return dto;
+        logger.info("✅ Product found for barcode {}: {}", barcode, product.productName());
+        return toDTO(product);
     }
 
     @Override
-    @Transactional(readOnly = true)
     public List<GetProductDTO> getAllProducts() {
-        logger.info("📦 Fetching all products from the database");
-
-        List<Products> products = productRepository.findAll();
-
-        List<GetProductDTO> dtoList = products.stream().map(product -> {
-            GetProductDTO dto = new GetProductDTO();
-            dto.setBarcode(product.getBarcode());
-            dto.setProductName(product.getProductName());
-            dto.setProductDescription(product.getProductDescription());
-            dto.setProductPrice(product.getProductPrice());
-            dto.setProductQuantity(product.getProductQuantity());
-            dto.setProductCategory(product.getProductCategory());
-            dto.setProductBrand(product.getProductBrand());
-            dto.setProductWeight(product.getProductWeight());
-            dto.setProductImage(product.getProductImage());
-            return dto;
-        }).toList();
+        logger.info("📦 Fetching all products from the catalog");
+
+        List<GetProductDTO> dtoList = productCatalog.findAll().stream().map(this::toDTO).toList();
 
         logger.info("✅ Found {} product(s)", dtoList.size());
         return dtoList;
@@ -309,29 +451,10 @@ public class ProductServiceImpl implements ProductService {
 
 
     @Override
-    @Transactional(readOnly = true)
     public List<GetProductDTO> getProductsByCategory(String category) {
         logger.info("🔍 Fetching products for category: {}", category);
 
-        List<Products> products = productRepository.findAll()
-                .stream()
-                .filter(p -> p.getProductCategory().equalsIgnoreCase(category))
-                .toList();
-
-        List<GetProductDTO> dtoList = products.stream().map(product -> {
-            GetProductDTO dto = new GetProductDTO();
-            dto.setBarcode(product.getBarcode());
-            dto.setProductName(product.getProductName());
-            dto.setProductDescription(product.getProductDescription());
-            dto.setProductPrice(product.getProductPrice());
-            dto.setProductQuantity(product.getProductQuantity());
-            dto.setProductCategory(product.getProductCategory());
-            dto.setProductBrand(product.getProductBrand());
-            dto.setProductWeight(product.getProductWeight());
-            dto.setProductImage(product.getProductImage());
-
-            return dto;
-        }).toList();
+        List<GetProductDTO> dtoList = productCatalog.findByCategory(category).stream().map(this::toDTO).toList();
 
         logger.info("✅ Found {} product(s) in category '{}'", dtoList.size(), category);
         return dtoList;
@@ -339,32 +462,121 @@ public class ProductServiceImpl implements ProductService {
 
 
     @Override
-    @Transactional(readOnly = true)
     public List<GetProductDTO> getProductsByBrand(String brand) {
         logger.info("🔍 Fetching products for brand: {}", brand);
 
-        List<Products> products = productRepository.findAll()
-                .stream()
-                .filter(p -> p.getProductBrand().equalsIgnoreCase(brand))
-                .toList();
-
-        List<GetProductDTO> dtoList = products.stream().map(product -> {
-            GetProductDTO dto = new GetProductDTO();
-            dto.setBarcode(product.getBarcode());
-            dto.setProductName(product.getProductName());
-            dto.setProductDescription(product.getProductDescription());
-            dto.setProductPrice(product.getProductPrice());
-            dto.setProductQuantity(product.getProductQuantity());
-            dto.setProductCategory(product.getProductCategory());
-            dto.setProductBrand(product.getProductBrand());
-            dto.setProductWeight(product.getProductWeight());
-            dto.setProductImage(product.getProductImage());
-
-            return dto;
-        }).toList();
+        List<GetProductDTO> dtoList = productCatalog.findByBrand(brand).stream().map(this::toDTO).toList();
 
         logger.info("✅ Found {} product(s) for brand '{}'", dtoList.size(), brand);
         return dtoList;
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public ProductPageDTO getProductsPage(String after, Integer size, String category, String brand) {
+        int pageSize = size == null ? defaultPageSize : Math.max(1, Math.min(size, maxPageSize));
+
+        List<GetProductDTO> items = productRepository.findPage(blankToNull(after), blankToNull(category),
+                blankToNull(brand), Limit.of(pageSize));
+
+        // A full page may have more behind it; a short one is the last
+        String nextCursor = items.size() == pageSize ? items.get(items.size() - 1).getBarcode() : null;
+        logger.info("📄 Product page after '{}' (category={}, brand={}): {} item(s)", after, category, brand, items.size());
+        return new ProductPageDTO(items, nextCursor, items.size());
+    }
+
+    /**
+     * Writes every matching product as one JSON object per line while the rows are read, so neither the result
+     * set nor the response body is ever held in memory as a whole.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamProducts(String category, String brand, OutputStream out) throws IOException {
+        long written = 0;
+        try (Stream<GetProductDTO> rows = productRepository.streamAll(blankToNull(category), blankToNull(brand));
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setRootValueSeparator(null); // lines are separated by the newline below, not Jackson's space
+            for (GetProductDTO dto : (Iterable<GetProductDTO>) rows::iterator) {
+                generator.writeObject(dto);
+                generator.writeRaw('\n');
+                if (++written % 500 == 0) {
+                    generator.flush();
+                }
+            }
+        }
+        logger.info("✅ Streamed {} product(s) (category={}, brand={})", written, category, brand);
+    }
+
+    @Override
+    public List<GetProductDTO> searchProducts(String query, Integer limit) {
+        int resultLimit = limit == null ? defaultSearchLimit : Math.max(1, Math.min(limit, maxSearchLimit));
+
+        List<GetProductDTO> results = productSearchIndex.search(query, resultLimit).stream().map(this::toDTO).toList();
+
+        logger.info("🔎 Search '{}' matched {} product(s)", query, results.size());
+        return results;
+    }
+
+    @Override
+    public ImageCache.CachedImage getProductImage(String barcode, String variant) {
+        ProductCatalog.Entry product = productCatalog.findByBarcode(barcode);
+        String[] location = product != null && product.productImage() != null ? imageLocation(product.productImage()) : null;
+        if (location == null) {
+            logger.warn("❌ No image found for barcode: {}", barcode);
+            throw new IllegalArgumentException("No image found for barcode: " + barcode);
+        }
+        // A variant that is not ready yet falls back to the original
+        if (variant != null && GetProductDTO.parseVariants(product.imageVariants()).contains(variant)) {
+            return s3Service.getCachedImage(location[0], ImageVariantService.variantFilename(location[1], variant));
+        }
+        return s3Service.getCachedImage(location[0], location[1]);
+    }
+
+    @Override
+    public Map<String, Object> getImageCacheStats() {
+        return s3Service.getImageCacheStats();
+    }
+
+    @Override
+    public Map<String, Object> getBackupOutboxStats() {
+        return backupOutboxService.getStats();
+    }
+
+    @Override
+    public ImportReportDTO importProducts(InputStream in, String contentType) throws IOException {
+        return productImportService.importProducts(in, ProductImportService.Format.of(contentType));
+    }
+
+    // Stored image URL -> {folder, filename}, or null if it does not have the expected images/Category/Brand/file form
+    private String[] imageLocation(String imageUrl) {
+        String prefix = "https://" + bucketName + ".s3." + region + ".amazonaws.com/";
+        String s3Key = imageUrl.replace(prefix, ""); // Extract actual S3 key
+
+        String[] parts = s3Key.split("/", 4); // ["images", "Category", "Brand", "filename"]
+        if (parts.length != 4) {
+            return null;
+        }
+        return new String[]{parts[0] + "/" + parts[1] + "/" + parts[2], parts[3]};
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private GetProductDTO toDTO(ProductCatalog.Entry product) {
+        GetProductDTO dto = new GetProductDTO();
+        dto.setBarcode(product.barcode());
+        dto.setProductName(product.productName());
+        dto.setProductDescription(product.productDescription());
+        dto.setProductPrice(product.productPrice());
+        dto.setProductQuantity(product.productQuantity());
+        dto.setProductCategory(product.productCategory());
+        dto.setProductBrand(product.productBrand());
+        dto.setProductWeight(product.productWeight());
+        dto.setProductImage(product.productImage());
+        dto.setImageVariants(GetProductDTO.parseVariants(product.imageVariants()));
+        return dto;
+    }
+
 }
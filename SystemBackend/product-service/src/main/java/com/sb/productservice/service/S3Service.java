@@ -2,14 +2,22 @@ package com.sb.productservice.service;
 
 import org.springframework.web.multipart.MultipartFile;
 
+import java.util.Map;
+
 public interface S3Service {
 
     String uploadImage(String folder, String filename, MultipartFile file);
 
     String overwriteImage(String folder, String filename, MultipartFile file);
 
+    void putImage(String folder, String filename, byte[] data, String contentType);
+
     void deleteImage(String folder, String filename);
 
     byte[] getImage(String folder, String filename);
 
+    ImageCache.CachedImage getCachedImage(String folder, String filename);
+
+    Map<String, Object> getImageCacheStats();
+
 }
@@ -1,22 +1,46 @@
 package com.sb.productservice.service;
 
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
-import software.amazon.awssdk.core.ResponseBytes;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
 import software.amazon.awssdk.core.sync.RequestBody;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
 import software.amazon.awssdk.services.s3.S3Client;
 import software.amazon.awssdk.services.s3.model.*;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Service
 public class S3ServiceImpl implements S3Service{
 
     private final S3Client s3Client;
 
+    private final S3AsyncClient s3AsyncClient;
+
+    private final ImageCache imageCache;
+
+    private final Semaphore uploadSlots;
+
+    private final ExecutorService streamReaders; // reads multipart input streams into the async client
+
+    private final long uploadWaitMillis;
+
     Logger log = LoggerFactory.getLogger(S3ServiceImpl.class);
 
     @Value("${aws.s3.bucket.name}")
@@ -25,28 +49,69 @@ public class S3ServiceImpl implements S3Service{
     @Value("${aws.s3.bucket.region}")
     private String region;
 
-    public S3ServiceImpl(S3Client s3Client) {
+    public S3ServiceImpl(S3Client s3Client, S3AsyncClient s3AsyncClient, ImageCache imageCache,
+                         @Value("${aws.s3.upload.max-concurrent:4}") int maxConcurrentUploads,
+                         @Value("${aws.s3.upload.wait-ms:30000}") long uploadWaitMillis) {
         this.s3Client = s3Client;
+        this.s3AsyncClient = s3AsyncClient;
+        this.imageCache = imageCache;
+        this.uploadSlots = new Semaphore(maxConcurrentUploads);
+        this.uploadWaitMillis = uploadWaitMillis;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.streamReaders = Executors.newFixedThreadPool(maxConcurrentUploads, runnable -> {
+            Thread thread = new Thread(runnable, "s3-upload-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
+    @PreDestroy
+    public void shutdown() {
+        streamReaders.shutdown();
+    }
+
+    /**
+     * Streams the image from the multipart input stream to S3 through the async client; above the multipart
+     * threshold it goes up in parts. The image is never read into a byte array, and at most
+     * {@code aws.s3.upload.max-concurrent} uploads run at once, later ones wait for a slot.
+     */
     @Override
     public String uploadImage(String folder, String filename, MultipartFile file) {
         String key = folder + "/" + filename;
+        boolean acquired = false;
         try {
+            acquired = uploadSlots.tryAcquire(uploadWaitMillis, TimeUnit.MILLISECONDS);
+            if (!acquired) {
+                log.warn("⚠️ No upload slot free for image: {}", key);
+                throw new RuntimeException("Image upload failed, too many uploads in progress");
+            }
+
             PutObjectRequest request = PutObjectRequest.builder()
                     .bucket(bucketName)
                     .key(key)
                     .contentType(file.getContentType())
+                    .contentLength(file.getSize())
                     .build();
 
-            s3Client.putObject(request, RequestBody.fromBytes(file.getBytes()));
+            try (InputStream in = file.getInputStream()) {
+                // A known length lets the SDK cut the stream into parts without buffering all of it
+                s3AsyncClient.putObject(request, AsyncRequestBody.fromInputStream(in, file.getSize(), streamReaders)).join();
+            }
 
-            log.info("✅ Uploaded image: {}", key);
+            imageCache.invalidate(key);
+            log.info("✅ Uploaded image: {} ({} bytes)", key, file.getSize());
             return "https://" + bucketName + ".s3." + region + ".amazonaws.com/" + key;
 
-        } catch (IOException e) {
+        } catch (IOException | CompletionException e) {
             log.error("❌ Failed to upload image", e);
-            throw new RuntimeException("Image upload failed");
+            throw new RuntimeException("Image upload failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Image upload interrupted", e);
+        } finally {
+            if (acquired) {
+                uploadSlots.release();
+            }
         }
     }
 
@@ -56,6 +121,26 @@ public class S3ServiceImpl implements S3Service{
         return uploadImage(folder, filename, file);
     }
 
+    // For small generated images that are already in memory, e.g. resized variants
+    @Override
+    public void putImage(String folder, String filename, byte[] data, String contentType) {
+        String key = folder + "/" + filename;
+        try {
+            PutObjectRequest request = PutObjectRequest.builder()
+                    .bucket(bucketName)
+                    .key(key)
+                    .contentType(contentType)
+                    .build();
+
+            s3Client.putObject(request, RequestBody.fromBytes(data));
+            imageCache.invalidate(key);
+            log.info("✅ Stored image: {} ({} bytes)", key, data.length);
+        } catch (S3Exception e) {
+            log.error("❌ Failed to store image", e);
+            throw new RuntimeException("Image upload failed");
+        }
+    }
+
     @Override
     public void deleteImage(String folder, String filename) {
         String key = folder + "/" + filename;
@@ -66,6 +151,7 @@ public class S3ServiceImpl implements S3Service{
                     .build();
 
             s3Client.deleteObject(request);
+            imageCache.invalidate(key);
             log.info("🗑️ Deleted image: {}", key);
         } catch (S3Exception e) {
             log.error("❌ Failed to delete image", e);
@@ -73,22 +159,71 @@ public class S3ServiceImpl implements S3Service{
         }
     }
 
+    // Read once, e.g. to make variants, so the original is neither served from nor added to the cache
     @Override
     public byte[] getImage(String folder, String filename) {
+        return fetch(folder + "/" + filename, InputStream::readAllBytes);
+    }
+
+    /**
+     * Serves the image from the {@link ImageCache}, loading it from S3 on a miss. An object the cache will keep is read
+     * straight into a direct buffer, together with the ETag and Last-Modified that S3 reports for it; a larger one is
+     * read onto the heap and served without being cached, so it never holds direct memory past its request.
+     */
+    @Override
+    public ImageCache.CachedImage getCachedImage(String folder, String filename) {
         String key = folder + "/" + filename;
-        try {
-            GetObjectRequest request = GetObjectRequest.builder()
-                    .bucket(bucketName)
-                    .key(key)
-                    .build();
+        ImageCache.CachedImage cached = imageCache.get(key);
+        if (cached != null) {
+            return cached;
+        }
 
-            ResponseBytes<GetObjectResponse> objectBytes = s3Client.getObjectAsBytes(request);
+        long stamp = imageCache.stamp();
+        return fetch(key, in -> {
+            GetObjectResponse response = in.response();
+            if (!imageCache.cacheable(response.contentLength())) {
+                log.info("📥 Fetched image: {} ({} bytes, too large to cache)", key, response.contentLength());
+                return new ImageCache.CachedImage(ByteBuffer.wrap(in.readAllBytes()).asReadOnlyBuffer(), response.eTag(),
+                        response.lastModified(), response.contentType(), System.nanoTime());
+            }
+            ByteBuffer data = ByteBuffer.allocateDirect(Math.toIntExact(response.contentLength()));
+            ReadableByteChannel channel = Channels.newChannel(in);
+            while (data.hasRemaining() && channel.read(data) >= 0) {
+                // keep reading until the whole object is in
+            }
+            data.flip();
+
+            ImageCache.CachedImage image = new ImageCache.CachedImage(data.asReadOnlyBuffer(), response.eTag(),
+                    response.lastModified(), response.contentType(), System.nanoTime());
+            imageCache.put(key, image, stamp);
             log.info("📥 Fetched image: {}", key);
-            return objectBytes.asByteArray();
-        } catch (S3Exception e) {
+            return image;
+        });
+    }
+
+    private interface ObjectReader<T> {
+        T read(ResponseInputStream<GetObjectResponse> in) throws IOException;
+    }
+
+    private <T> T fetch(String key, ObjectReader<T> reader) {
+        GetObjectRequest request = GetObjectRequest.builder()
+                .bucket(bucketName)
+                .key(key)
+                .build();
+        try (ResponseInputStream<GetObjectResponse> in = s3Client.getObject(request)) {
+            return reader.read(in);
+        } catch (NoSuchKeyException e) {
+            log.warn("❌ Image not found: {}", key);
+            throw new IllegalArgumentException("No image found at: " + key);
+        } catch (S3Exception | IOException e) {
             log.error("❌ Failed to fetch image", e);
             throw new RuntimeException("Image fetch failed");
         }
     }
 
+    @Override
+    public Map<String, Object> getImageCacheStats() {
+        return imageCache.getStats();
+    }
+
 }
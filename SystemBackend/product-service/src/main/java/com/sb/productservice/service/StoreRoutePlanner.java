@@ -0,0 +1,220 @@
+package com.sb.productservice.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Orders a shopping list into a short walk through one store.
+ * <p>
+ * Items are placed with {@link ProductLocationIndex}, and the walking distances between their fixtures come from the
+ * layout's {@link AisleGraph}. The graph is built on the first route for a layout and kept until the layout's fixtures
+ * move ({@link ProductLocationIndex.LayoutLocations#geometryVersion()}); restocking items does not rebuild it. The
+ * fixtures to visit are ordered nearest-neighbour first, then improved with 2-opt, and the items at one fixture are
+ * listed shelf row by shelf row.
+ */
+@Service
+public class StoreRoutePlanner {
+
+    private static final Logger logger = LoggerFactory.getLogger(StoreRoutePlanner.class);
+
+    private static final int MAX_2OPT_PASSES = 50;
+
+    /** distance is how far the shopper walks from the previous stop; 0 for items at the same fixture. */
+    public record Stop(String requested, ProductLocationIndex.Location location, double distance) {
+    }
+
+    public record Route(String layoutId, List<Stop> stops, List<String> notFound, double totalDistance) {
+    }
+
+    private final ProductLocationIndex productLocationIndex;
+
+    private final Map<String, AisleGraph> graphs = new ConcurrentHashMap<>();
+
+    @Value("${product.route.grid-resolution:200}")
+    private int gridResolution;
+
+    public StoreRoutePlanner(ProductLocationIndex productLocationIndex) {
+        this.productLocationIndex = productLocationIndex;
+    }
+
+    /**
+     * @param items          item ids or names, in list order
+     * @param startFixtureId where the shopper starts, e.g. the entrance; if blank the route starts wherever it is shortest
+     * @throws IllegalArgumentException if the layout is not known
+     */
+    public Route plan(String layoutId, List<String> items, String startFixtureId) {
+        ProductLocationIndex.LayoutLocations layout = productLocationIndex.layout(layoutId);
+        if (layout == null) {
+            graphs.remove(layoutId);
+            throw new IllegalArgumentException("Layout not found: " + layoutId);
+        }
+        AisleGraph graph = graph(layoutId, layout);
+
+        // Fixtures to visit, each with the items picked up there; an item stocked in several places uses the first
+        Map<Integer, List<Stop>> itemsByFixture = new LinkedHashMap<>();
+        List<String> notFound = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+        for (String item : items) {
+            if (item == null || item.isBlank() || !seen.add(item.trim().toLowerCase(Locale.ROOT))) {
+                continue;
+            }
+            List<ProductLocationIndex.Location> locations = productLocationIndex.find(item, layoutId);
+            int fixture = locations.isEmpty() ? -1 : graph.indexOf(locations.get(0).fixtureId());
+            if (fixture < 0) {
+                notFound.add(item);
+                continue;
+            }
+            itemsByFixture.computeIfAbsent(fixture, k -> new ArrayList<>()).add(new Stop(item, locations.get(0), 0));
+        }
+
+        int start = startFixtureId != null && !startFixtureId.isBlank() ? graph.indexOf(startFixtureId) : -1;
+        int[] order = order(graph, itemsByFixture.keySet().stream().mapToInt(Integer::intValue).toArray(), start);
+
+        List<Stop> stops = new ArrayList<>();
+        double total = 0;
+        int previous = start;
+        Comparator<Stop> shelfOrder = Comparator.comparingInt((Stop s) -> s.location().row())
+                .thenComparingInt(s -> s.location().col())
+                .thenComparingInt(s -> s.location().index());
+        for (int fixture : order) {
+            double walk = previous >= 0 ? graph.distance(previous, fixture) : 0;
+            total += walk;
+            List<Stop> here = new ArrayList<>(itemsByFixture.get(fixture));
+            here.sort(shelfOrder);
+            for (int i = 0; i < here.size(); i++) {
+                Stop stop = here.get(i);
+                stops.add(new Stop(stop.requested(), stop.location(), i == 0 ? walk : 0));
+            }
+            previous = fixture;
+        }
+        return new Route(layoutId, stops, notFound, total);
+    }
+
+    private AisleGraph graph(String layoutId, ProductLocationIndex.LayoutLocations layout) {
+        AisleGraph graph = graphs.get(layoutId);
+        if (graph == null || graph.geometryVersion() != layout.geometryVersion()) {
+            // Two callers racing here both build it; the graph is the same either way
+            long startedAt = System.nanoTime();
+            graph = AisleGraph.build(layout.fixtures(), layout.geometryVersion(), gridResolution);
+            graphs.put(layoutId, graph);
+            logger.info("🗺️ Built aisle graph for layout {} ({} fixtures) in {} ms",
+                    layoutId, graph.size(), (System.nanoTime() - startedAt) / 1_000_000);
+        }
+        return graph;
+    }
+
+    /**
+     * Visiting order for the given fixtures as an open path. With a start fixture the path leaves from it; without
+     * one, nearest-neighbour is tried from every fixture and the shortest kept. 2-opt then reverses segments while
+     * that shortens the path.
+     */
+    static int[] order(AisleGraph graph, int[] fixtures, int start) {
+        int n = fixtures.length;
+        if (n <= 1) {
+            return fixtures;
+        }
+        // Local matrix with the start (if any) as node n
+        int nodes = start >= 0 ? n + 1 : n;
+        float[] d = new float[nodes * nodes];
+        for (int i = 0; i < nodes; i++) {
+            int from = i < n ? fixtures[i] : start;
+            for (int j = 0; j < nodes; j++) {
+                int to = j < n ? fixtures[j] : start;
+                d[i * nodes + j] = from == to ? 0 : graph.distance(from, to);
+            }
+        }
+
+        int[] path;
+        if (start >= 0) {
+            path = nearestNeighbour(d, nodes, n);
+        } else {
+            path = null;
+            double best = Double.MAX_VALUE;
+            for (int first = 0; first < n; first++) {
+                int[] candidate = nearestNeighbour(d, nodes, first);
+                double length = length(d, nodes, candidate);
+                if (length < best) {
+                    best = length;
+                    path = candidate;
+                }
+            }
+        }
+        twoOpt(d, nodes, path, start >= 0 ? 1 : 0);
+
+        int[] order = new int[n];
+        for (int i = start >= 0 ? 1 : 0, k = 0; i < path.length; i++, k++) {
+            order[k] = fixtures[path[i]];
+        }
+        return order;
+    }
+
+    private static int[] nearestNeighbour(float[] d, int nodes, int first) {
+        int[] path = new int[nodes];
+        boolean[] visited = new boolean[nodes];
+        path[0] = first;
+        visited[first] = true;
+        for (int step = 1; step < nodes; step++) {
+            int from = path[step - 1];
+            int next = -1;
+            for (int j = 0; j < nodes; j++) {
+                if (!visited[j] && (next < 0 || d[from * nodes + j] < d[from * nodes + next])) {
+                    next = j;
+                }
+            }
+            path[step] = next;
+            visited[next] = true;
+        }
+        return path;
+    }
+
+    // Open path: reversing path[i..j] swaps the edges into i and out of j; the ends have no edge to replace
+    private static void twoOpt(float[] d, int nodes, int[] path, int fixedPrefix) {
+        int n = path.length;
+        boolean improved = true;
+        for (int pass = 0; improved && pass < MAX_2OPT_PASSES; pass++) {
+            improved = false;
+            for (int i = Math.max(fixedPrefix, 0); i < n - 1; i++) {
+                for (int j = i + 1; j < n; j++) {
+                    double before = 0, after = 0;
+                    if (i > 0) {
+                        before += d[path[i - 1] * nodes + path[i]];
+                        after += d[path[i - 1] * nodes + path[j]];
+                    }
+                    if (j < n - 1) {
+                        before += d[path[j] * nodes + path[j + 1]];
+                        after += d[path[i] * nodes + path[j + 1]];
+                    }
+                    if (after < before - 1e-6) {
+                        for (int a = i, b = j; a < b; a++, b--) {
+                            int swap = path[a];
+                            path[a] = path[b];
+                            path[b] = swap;
+                        }
+                        improved = true;
+                    }
+                }
+            }
+        }
+    }
+
+    private static double length(float[] d, int nodes, int[] path) {
+        double length = 0;
+        for (int i = 1; i < path.length; i++) {
+            length += d[path[i - 1] * nodes + path[i]];
+        }
+        return length;
+    }
+
+}
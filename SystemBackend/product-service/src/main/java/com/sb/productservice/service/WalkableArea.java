@@ -0,0 +1,153 @@
+package com.sb.productservice.service;
+
+import com.sb.productservice.dto.FixtureEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The floor of one store layout a cart can actually be on: everything inside the fixtures' bounding box (plus one
+ * cell of margin) that is not inside a fixture outline.
+ * <p>
+ * Rasterised like {@link AisleGraph}, about {@code resolution} square cells along the longer side. Each cell also
+ * stores the walkable cell nearest to it (one multi-source breadth-first search at build time), so snapping a point
+ * back onto the floor is two array reads. Immutable and safe to share between threads. A layout without outlined
+ * fixtures has no grid and everything is walkable.
+ */
+public final class WalkableArea {
+
+    private static final int MAX_PATH_SAMPLES = 64;
+
+    private final long geometryVersion;
+    private final float originX;
+    private final float originY;
+    private final float cellSize;
+    private final int cols;
+    private final int rows;
+    private final boolean[] blocked;
+    private final int[] nearestFree; // cell -> closest walkable cell, -1 when the floor has none
+
+    private WalkableArea(long geometryVersion, float originX, float originY, float cellSize, int cols, int rows,
+                         boolean[] blocked, int[] nearestFree) {
+        this.geometryVersion = geometryVersion;
+        this.originX = originX;
+        this.originY = originY;
+        this.cellSize = cellSize;
+        this.cols = cols;
+        this.rows = rows;
+        this.blocked = blocked;
+        this.nearestFree = nearestFree;
+    }
+
+    public long geometryVersion() {
+        return geometryVersion;
+    }
+
+    public float cellSize() {
+        return cellSize;
+    }
+
+    public static WalkableArea build(Map<String, FixtureEntity> fixtures, long geometryVersion, int resolution) {
+        List<float[]> outlines = new ArrayList<>();
+        float minX = Float.MAX_VALUE, minY = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+        for (FixtureEntity fixture : fixtures.values()) {
+            float[] outline = AisleGraph.outline(fixture);
+            if (outline.length < 6) {
+                continue;
+            }
+            outlines.add(outline);
+            for (int k = 0; k < outline.length; k += 2) {
+                minX = Math.min(minX, outline[k]);
+                maxX = Math.max(maxX, outline[k]);
+                minY = Math.min(minY, outline[k + 1]);
+                maxY = Math.max(maxY, outline[k + 1]);
+            }
+        }
+        if (outlines.isEmpty()) {
+            return new WalkableArea(geometryVersion, 0, 0, 0, 0, 0, new boolean[0], new int[0]);
+        }
+
+        float cellSize = Math.max(Math.max(maxX - minX, maxY - minY), 1f) / Math.max(resolution, 1);
+        float originX = minX - cellSize;
+        float originY = minY - cellSize;
+        int cols = (int) Math.ceil((maxX - minX) / cellSize) + 3;
+        int rows = (int) Math.ceil((maxY - minY) / cellSize) + 3;
+        boolean[] blocked = new boolean[cols * rows];
+        for (float[] outline : outlines) {
+            AisleGraph.block(outline, blocked, cols, rows, originX, originY, cellSize);
+        }
+
+        // Breadth-first out of every walkable cell at once; each blocked cell takes the source that reaches it first
+        int[] nearestFree = new int[cols * rows];
+        int[] queue = new int[cols * rows];
+        int head = 0, tail = 0;
+        for (int cell = 0; cell < blocked.length; cell++) {
+            nearestFree[cell] = blocked[cell] ? -1 : cell;
+            if (!blocked[cell]) {
+                queue[tail++] = cell;
+            }
+        }
+        while (head < tail) {
+            int cell = queue[head++];
+            int row = cell / cols, col = cell % cols, source = nearestFree[cell];
+            if (col > 0 && nearestFree[cell - 1] < 0) { nearestFree[cell - 1] = source; queue[tail++] = cell - 1; }
+            if (col < cols - 1 && nearestFree[cell + 1] < 0) { nearestFree[cell + 1] = source; queue[tail++] = cell + 1; }
+            if (row > 0 && nearestFree[cell - cols] < 0) { nearestFree[cell - cols] = source; queue[tail++] = cell - cols; }
+            if (row < rows - 1 && nearestFree[cell + cols] < 0) { nearestFree[cell + cols] = source; queue[tail++] = cell + cols; }
+        }
+        return new WalkableArea(geometryVersion, originX, originY, cellSize, cols, rows, blocked, nearestFree);
+    }
+
+    /** False inside a fixture and off the floor. */
+    public boolean walkable(float x, float y) {
+        if (cols == 0) {
+            return true;
+        }
+        int col = (int) Math.floor((x - originX) / cellSize);
+        int row = (int) Math.floor((y - originY) / cellSize);
+        return col >= 0 && col < cols && row >= 0 && row < rows && !blocked[row * cols + col];
+    }
+
+    /**
+     * The walkable cell closest to the point (points off the floor start from the nearest edge cell), or -1 when
+     * there is no grid or no walkable cell at all. Its centre is {@link #cellX(int)}, {@link #cellY(int)}.
+     */
+    public int nearestWalkableCell(float x, float y) {
+        if (cols == 0) {
+            return -1;
+        }
+        int col = AisleGraph.clamp((int) Math.floor((x - originX) / cellSize), cols);
+        int row = AisleGraph.clamp((int) Math.floor((y - originY) / cellSize), rows);
+        return nearestFree[row * cols + col];
+    }
+
+    public float cellX(int cell) {
+        return originX + (cell % cols + 0.5f) * cellSize;
+    }
+
+    public float cellY(int cell) {
+        return originY + (cell / cols + 0.5f) * cellSize;
+    }
+
+    /**
+     * How much of the straight move from (x, y) by (dx, dy) stays on walkable floor, from 0 (the first step is
+     * blocked) to 1 (all of it). The path is sampled every half cell, at most {@value #MAX_PATH_SAMPLES} times, so a
+     * long jump cannot tunnel through a shelf.
+     */
+    public float clearFraction(float x, float y, float dx, float dy) {
+        if (cols == 0) {
+            return 1;
+        }
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        int samples = Math.max(1, Math.min(MAX_PATH_SAMPLES, (int) Math.ceil(length / (cellSize / 2))));
+        for (int i = 1; i <= samples; i++) {
+            float t = i / (float) samples;
+            if (!walkable(x + t * dx, y + t * dy)) {
+                return (i - 1) / (float) samples;
+            }
+        }
+        return 1;
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.sb.productservice;
+
+import com.sb.events.ProductChangeType;
+import com.sb.productservice.model.BackupOutbox;
+import com.sb.productservice.repository.BackupOutboxRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Runs the relay's due-row query against an in-memory database in MySQL mode.
+ */
+@DataJpaTest(properties = "spring.datasource.url=jdbc:h2:mem:outbox;MODE=MySQL;DB_CLOSE_DELAY=-1")
+public class BackupOutboxRepositoryTest {
+
+    @Autowired
+    private BackupOutboxRepository outboxRepository;
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    private long append(String barcode, int attempts, LocalDateTime nextAttemptAt, LocalDateTime deadLetteredAt) {
+        BackupOutbox record = new BackupOutbox();
+        record.setBarcode(barcode);
+        record.setChangeType(ProductChangeType.UPDATED);
+        record.setCreatedAt(now.minusMinutes(10));
+        record.setAttempts(attempts);
+        record.setNextAttemptAt(nextAttemptAt);
+        record.setDeadLetteredAt(deadLetteredAt);
+        return outboxRepository.save(record).getId();
+    }
+
+    //1. Only due rows come back, and none overtakes an earlier change of its barcode that is backing off or dead
+    @Test
+    void findDue_SkipsBackoffAndHeldBackBarcodes() {
+        append("4791", 2, now.plusMinutes(1), null);          // backing off
+        long fresh = append("4792", 0, null, null);
+        append("4791", 0, null, null);                         // behind the backing-off 4791 change
+        long retry = append("4793", 1, now.minusSeconds(1), null);
+        long behindRetry = append("4793", 0, null, null);      // its earlier change is due too
+        append("4794", 20, now.minusSeconds(1), now.minusMinutes(5)); // dead-lettered
+        append("4794", 0, null, null);
+
+        assertThat(outboxRepository.findDue(now, Limit.of(10))).extracting(BackupOutbox::getId)
+                .containsExactly(fresh, retry, behindRetry);
+        assertThat(outboxRepository.findDue(now, Limit.of(2))).extracting(BackupOutbox::getId)
+                .containsExactly(fresh, retry);
+        assertThat(outboxRepository.countByDeadLetteredAtIsNull()).isEqualTo(6);
+        assertThat(outboxRepository.countByDeadLetteredAtIsNotNull()).isEqualTo(1);
+    }
+
+}
@@ -0,0 +1,155 @@
+package com.sb.productservice;
+
+import com.sb.backupservice.grpc.ChangeBatch;
+import com.sb.backupservice.grpc.ChangeBatchResponse;
+import com.sb.backupservice.grpc.ChangeType;
+import com.sb.backupservice.grpc.FailedChange;
+import com.sb.backupservice.grpc.ProductBackupServiceGrpc;
+import com.sb.backupservice.grpc.ProductChange;
+import com.sb.backupservice.grpc.ProductRequest;
+import com.sb.events.ProductChangeType;
+import com.sb.productservice.model.BackupOutbox;
+import com.sb.productservice.repository.BackupOutboxRepository;
+import com.sb.productservice.service.BackupOutboxService;
+import io.grpc.Status;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BackupOutboxServiceTest {
+
+    @Mock
+    private BackupOutboxRepository outboxRepository;
+
+    @Mock
+    private ProductBackupServiceGrpc.ProductBackupServiceBlockingStub productBackupStub;
+
+    private BackupOutboxService outboxService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        outboxService = new BackupOutboxService(outboxRepository);
+        ReflectionTestUtils.setField(outboxService, "relayEnabled", true);
+        ReflectionTestUtils.setField(outboxService, "batchSize", 10);
+        ReflectionTestUtils.setField(outboxService, "timeoutMs", 1000L);
+        ReflectionTestUtils.setField(outboxService, "retryInitialMs", 1000L);
+        ReflectionTestUtils.setField(outboxService, "retryMaxMs", 60000L);
+        ReflectionTestUtils.setField(outboxService, "maxAttempts", 5);
+        ReflectionTestUtils.setField(outboxService, "productBackupStub", productBackupStub);
+        when(productBackupStub.withDeadlineAfter(anyLong(), any())).thenReturn(productBackupStub);
+    }
+
+    private static BackupOutbox record(long id, String barcode, ProductChangeType changeType) {
+        BackupOutbox record = new BackupOutbox();
+        record.setId(id);
+        record.setBarcode(barcode);
+        record.setChangeType(changeType);
+        record.setPayload(changeType == ProductChangeType.DELETED ? null
+                : ProductRequest.newBuilder().setBarcode(barcode).setProductName("Product " + barcode).build().toByteArray());
+        record.setCreatedAt(LocalDateTime.now().minusSeconds(2));
+        return record;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> deletedIds() {
+        ArgumentCaptor<Iterable<Long>> ids = ArgumentCaptor.forClass(Iterable.class);
+        verify(outboxRepository).deleteAllByIdInBatch(ids.capture());
+        return (List<Long>) ids.getValue();
+    }
+
+    //1. Pending changes go out in write order; applied ones are removed, the rest are retried later with backoff
+    @Test
+    void relay_DeletesAppliedAndRetriesFailed() {
+        BackupOutbox failing = record(2, "4792", ProductChangeType.UPDATED);
+        when(outboxRepository.findDue(any(LocalDateTime.class), eq(Limit.of(10)))).thenReturn(List.of(
+                record(1, "4791", ProductChangeType.ADDED), failing, record(3, "4791", ProductChangeType.DELETED)));
+        ArgumentCaptor<ChangeBatch> sent = ArgumentCaptor.forClass(ChangeBatch.class);
+        when(productBackupStub.replicateChanges(sent.capture())).thenReturn(ChangeBatchResponse.newBuilder()
+                .addAppliedSequences(1).addAppliedSequences(3)
+                .addFailed(FailedChange.newBuilder().setSequence(2).setError("Deadlock found"))
+                .build());
+
+        outboxService.relay();
+
+        assertThat(sent.getValue().getChangesList()).extracting(ProductChange::getSequence).containsExactly(1L, 2L, 3L);
+        assertThat(sent.getValue().getChanges(0).getProduct().getProductName()).isEqualTo("Product 4791");
+        assertThat(sent.getValue().getChanges(2).getType()).isEqualTo(ChangeType.DELETE);
+        assertThat(deletedIds()).containsExactly(1L, 3L);
+        assertThat(failing.getAttempts()).isEqualTo(1);
+        assertThat(failing.getLastError()).isEqualTo("Deadlock found");
+        assertThat(failing.getNextAttemptAt()).isAfter(LocalDateTime.now());
+        assertThat(outboxService.getStats()).containsEntry("replicated", 2L).containsEntry("failedAttempts", 1L);
+    }
+
+    //2. A change that cannot be encoded holds back the later changes for its barcode in the same batch only
+    @Test
+    void relay_CorruptChangeHoldsBackSameBarcode() {
+        BackupOutbox corrupt = record(1, "4791", ProductChangeType.ADDED);
+        corrupt.setPayload(new byte[]{(byte) 0xff});
+        when(outboxRepository.findDue(any(LocalDateTime.class), eq(Limit.of(10)))).thenReturn(List.of(
+                corrupt, record(2, "4792", ProductChangeType.ADDED), record(3, "4791", ProductChangeType.UPDATED)));
+        ArgumentCaptor<ChangeBatch> sent = ArgumentCaptor.forClass(ChangeBatch.class);
+        when(productBackupStub.replicateChanges(sent.capture()))
+                .thenReturn(ChangeBatchResponse.newBuilder().addAppliedSequences(2).build());
+
+        outboxService.relay();
+
+        assertThat(sent.getValue().getChangesList()).extracting(ProductChange::getSequence).containsExactly(2L);
+        assertThat(deletedIds()).containsExactly(2L);
+        assertThat(corrupt.getAttempts()).isEqualTo(1);
+    }
+
+    //3. When backup-service is unreachable nothing is removed and every change backs off exponentially
+    @Test
+    void relay_BackupUnavailable_KeepsChanges() {
+        BackupOutbox record = record(1, "4791", ProductChangeType.ADDED);
+        record.setAttempts(2);
+        when(outboxRepository.findDue(any(LocalDateTime.class), eq(Limit.of(10)))).thenReturn(List.of(record));
+        when(productBackupStub.replicateChanges(any())).thenThrow(Status.UNAVAILABLE.asRuntimeException());
+
+        outboxService.relay();
+
+        verify(outboxRepository, never()).deleteAllByIdInBatch(any());
+        verify(outboxRepository).saveAll(List.of(record));
+        assertThat(record.getAttempts()).isEqualTo(3);
+        assertThat(record.getNextAttemptAt()).isBetween(LocalDateTime.now().plusSeconds(3), LocalDateTime.now().plusSeconds(5));
+        assertThat(record.getDeadLetteredAt()).isNull();
+    }
+
+    //4. A change that keeps failing is dead-lettered after the last attempt and reported in the stats
+    @Test
+    void relay_MaxAttempts_DeadLettered() {
+        BackupOutbox record = record(1, "4791", ProductChangeType.UPDATED);
+        record.setAttempts(4);
+        when(outboxRepository.findDue(any(LocalDateTime.class), eq(Limit.of(10)))).thenReturn(List.of(record));
+        when(productBackupStub.replicateChanges(any())).thenReturn(ChangeBatchResponse.newBuilder()
+                .addFailed(FailedChange.newBuilder().setSequence(1).setError("Data too long for column"))
+                .build());
+        when(outboxRepository.countByDeadLetteredAtIsNotNull()).thenReturn(1L);
+
+        outboxService.relay();
+
+        verify(outboxRepository).saveAll(List.of(record));
+        assertThat(record.getAttempts()).isEqualTo(5);
+        assertThat(record.getDeadLetteredAt()).isNotNull();
+        assertThat(record.getLastError()).isEqualTo("Data too long for column");
+        assertThat(outboxService.getStats()).containsEntry("deadLettered", 1L).containsEntry("deadLetteredSinceStart", 1L);
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.sb.productservice;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.productservice.model.LayoutEntity;
+import com.sb.productservice.service.CartPositionService;
+import com.sb.productservice.service.ProductLocationIndex;
+import io.moquette.broker.Server;
+import io.moquette.broker.config.MemoryConfig;
+import org.eclipse.paho.client.mqttv3.MqttClient;
+import org.eclipse.paho.client.mqttv3.persist.MemoryPersistence;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.net.ServerSocket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static com.sb.productservice.LayoutFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Replays a recorded position trace through an in-process MQTT broker: carts publish, the service corrects, and a
+ * subscriber reads the frames back off the broker.
+ */
+public class CartPositionServiceTest {
+
+    private Server broker;
+    private CartPositionService service;
+    private MqttClient device;
+    private MqttClient subscriber;
+    private final List<JsonNode> frames = new CopyOnWriteArrayList<>();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path dataDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        int port;
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        Properties props = new Properties();
+        props.setProperty("host", "127.0.0.1");
+        props.setProperty("port", String.valueOf(port));
+        props.setProperty("allow_anonymous", "true");
+        props.setProperty("persistence_enabled", "false");
+        props.setProperty("data_path", dataDir.toString());
+        broker = new Server();
+        broker.startServer(new MemoryConfig(props));
+
+        // Two 80 x 10 shelves with the aisle between them at y 20..30; carts start at its west end
+        LayoutEntity layout = new LayoutEntity();
+        layout.setLayoutId("store-1");
+        layout.setFixtureLayout(Map.of("a", shelf("a", 10, 10), "b", shelf("b", 10, 30)));
+        ProductLocationIndex productLocationIndex = new ProductLocationIndex();
+        productLocationIndex.put(layout);
+
+        service = new CartPositionService(productLocationIndex);
+        ReflectionTestUtils.setField(service, "brokerUrl", "tcp://127.0.0.1:" + port);
+        ReflectionTestUtils.setField(service, "username", "");
+        ReflectionTestUtils.setField(service, "password", "");
+        ReflectionTestUtils.setField(service, "clientId", "product-service-test");
+        ReflectionTestUtils.setField(service, "topic", "smart_cart/position/+");
+        ReflectionTestUtils.setField(service, "publishTopic", "smart_cart/position-corrected");
+        ReflectionTestUtils.setField(service, "layoutId", "store-1");
+        ReflectionTestUtils.setField(service, "unitsPerMetre", 10f);
+        ReflectionTestUtils.setField(service, "originX", 15f);
+        ReflectionTestUtils.setField(service, "originY", 25f);
+        ReflectionTestUtils.setField(service, "maxSpeed", 2f);
+        ReflectionTestUtils.setField(service, "gridResolution", 400);
+        ReflectionTestUtils.setField(service, "staleAfterMs", 5000L);
+        ReflectionTestUtils.setField(service, "extrapolateMs", 250L);
+        ReflectionTestUtils.setField(service, "maxCarts", 100);
+        ReflectionTestUtils.setField(service, "publishIntervalMs", 50L);
+        ReflectionTestUtils.setField(service, "evictAfterMs", 60000L);
+        service.init();
+
+        subscriber = new MqttClient("tcp://127.0.0.1:" + port, "position-viewer", new MemoryPersistence());
+        subscriber.connect();
+        subscriber.subscribe("smart_cart/position-corrected", 0,
+                (topic, message) -> frames.add(objectMapper.readTree(message.getPayload())));
+
+        device = new MqttClient("tcp://127.0.0.1:" + port, "cart-devices", new MemoryPersistence());
+        device.connect();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        device.disconnect();
+        device.close();
+        subscriber.disconnect();
+        subscriber.close();
+        service.cleanup();
+        broker.stopServer();
+    }
+
+    // Lines of "<ms since start> <topic> <payload>"
+    private List<String[]> trace(String name) throws Exception {
+        List<String[]> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                getClass().getResourceAsStream("/traces/" + name), StandardCharsets.UTF_8))) {
+            for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                if (!line.isBlank() && !line.startsWith("#")) {
+                    lines.add(line.split(" ", 3));
+                }
+            }
+        }
+        return lines;
+    }
+
+    private List<float[]> track(String cartId) {
+        List<float[]> positions = new ArrayList<>();
+        for (JsonNode frame : frames) {
+            for (JsonNode cart : frame.get("carts")) {
+                if (cart.get("id").asText().equals(cartId)) {
+                    positions.add(new float[]{(float) cart.get("x").asDouble(), (float) cart.get("y").asDouble()});
+                }
+            }
+        }
+        return positions;
+    }
+
+    //1. Replayed at its recorded pace, the drifting cart stays in the aisle and the glitching one stays put
+    @Test
+    void recordedTrace_PublishedCorrectedAtSteadyRate() throws Exception {
+        long start = System.nanoTime();
+        for (String[] line : trace("cart-positions.txt")) {
+            long due = start + TimeUnit.MILLISECONDS.toNanos(Long.parseLong(line[0]));
+            long wait = due - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+            device.publish(line[1], line[2].getBytes(StandardCharsets.UTF_8), 0, false);
+        }
+        Thread.sleep(300);
+
+        assertThat(frames).hasSizeGreaterThan(40);
+        assertThat(frames.get(frames.size() - 1).get("layoutId").asText()).isEqualTo("store-1");
+
+        List<float[]> drifting = track("cart001");
+        assertThat(drifting).allSatisfy(p -> assertThat(p[1]).isBetween(20f, 30f));
+        float[] last = drifting.get(drifting.size() - 1);
+        // ~3 s at 1 m/s down the aisle from x = 15; raw readings would have ended at y = 36.8, inside shelf b
+        assertThat(last[0]).isBetween(38f, 50f);
+        assertThat(last[1]).isGreaterThan(28f);
+
+        List<float[]> still = track("cart002");
+        assertThat(still).isNotEmpty().allSatisfy(p -> assertThat(p[0]).isBetween(17f, 23f));
+
+        assertThat(service.getStats()).containsEntry("carts", 2L).containsEntry("received", 120L)
+                .containsEntry("rejected", 0L);
+    }
+
+}
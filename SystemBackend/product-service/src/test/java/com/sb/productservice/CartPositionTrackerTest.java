@@ -0,0 +1,151 @@
+package com.sb.productservice;
+
+import com.sb.productservice.service.CartPositionFrames;
+import com.sb.productservice.service.CartPositionTracker;
+import com.sb.productservice.service.WalkableArea;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static com.sb.productservice.LayoutFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+public class CartPositionTrackerTest {
+
+    private static final long TICK = 50_000_000L; // 20 Hz
+
+    // Two 80 x 10 shelves with a 10-unit aisle between them, y 20..30
+    private static WalkableArea aisle() {
+        return WalkableArea.build(Map.of("a", shelf("a", 10, 10), "b", shelf("b", 10, 30)), 1, 400);
+    }
+
+    private static byte[] reading(float x, float y) {
+        return String.format("{\"x\":%.4f,\"y\":%.4f,\"z\":0.0000}", x, y).getBytes(StandardCharsets.UTF_8);
+    }
+
+    //1. The walkable area excludes the shelves and everything beyond them, and snaps back to the nearest aisle cell
+    @Test
+    void walkableArea_ShelvesBlocked() {
+        WalkableArea area = aisle();
+
+        assertThat(area.walkable(50, 25)).isTrue();
+        assertThat(area.walkable(50, 15)).isFalse();
+        assertThat(area.walkable(50, 35)).isFalse();
+        assertThat(area.walkable(500, 25)).isFalse();
+
+        int cell = area.nearestWalkableCell(50, 29);
+        assertThat(area.cellY(cell)).isCloseTo(29, within(area.cellSize()));
+        cell = area.nearestWalkableCell(50, 31);
+        assertThat(area.cellY(cell)).isCloseTo(30, within(area.cellSize()));
+        assertThat(area.walkable(area.cellX(cell), area.cellY(cell))).isTrue();
+
+        assertThat(area.clearFraction(50, 25, 20, 0)).isEqualTo(1f);
+        assertThat(area.clearFraction(50, 25, 0, 10)).isCloseTo(0.5f, within(0.05f));
+        // A long jump does not tunnel through the shelf to the far side
+        assertThat(area.clearFraction(50, 25, 0, 30)).isLessThan(0.2f);
+
+        assertThat(WalkableArea.build(Map.of(), 1, 400).walkable(1e6f, -1e6f)).isTrue();
+    }
+
+    //2. Drift into a shelf is shed: the cart slides along the shelf face and keeps its progress down the aisle
+    @Test
+    void update_DriftIntoShelf_SlidesAlongAisle() {
+        CartPositionTracker tracker = new CartPositionTracker(10, 15, 25, 2, 4, 100);
+        tracker.setArea(aisle());
+        int cart = tracker.register("cart001");
+        assertThat(tracker.register("cart001")).isEqualTo(cart);
+
+        // 1 m/s down the aisle, drifting 0.4 m/s sideways for 5 s
+        for (int i = 0; i <= 100; i++) {
+            float t = i * 0.05f;
+            tracker.update(cart, "cart001", t, 0.4f * t, i * TICK);
+        }
+        assertThat(tracker.x(cart)).isCloseTo(65, within(0.5f));
+        assertThat(tracker.y(cart)).isBetween(28f, 30f);
+
+        // Drifting back the other way moves the cart off the shelf straight away
+        tracker.update(cart, "cart001", 5.05f, 1.95f, 101 * TICK);
+        assertThat(tracker.y(cart)).isLessThan(29.9f);
+    }
+
+    //3. Glitches are capped at the cart's top speed, the first reading is snapped onto the floor, stale carts drop out
+    @Test
+    void update_GlitchCappedAndStaleDropped() {
+        CartPositionTracker tracker = new CartPositionTracker(10, 15, 25, 2, 1, 2);
+        tracker.setArea(aisle());
+        int still = tracker.register("cart002");
+        int lost = tracker.register("cart003");
+        assertThat(tracker.register("cart004")).isEqualTo(-1);
+
+        tracker.update(still, "cart002", 0.5f, 0, 0);
+        tracker.update(still, "cart002", 40.5f, 0, TICK);
+        assertThat(tracker.x(still)).isCloseTo(21, within(0.01f));
+        tracker.update(still, "cart002", 0.5f, 0, 2 * TICK);
+        assertThat(tracker.x(still)).isCloseTo(20, within(0.01f));
+        tracker.update(still, "cart002", 0.4f, 0, TICK); // out of order
+        assertThat(tracker.x(still)).isCloseTo(20, within(0.01f));
+
+        tracker.update(lost, "cart003", 2, -0.8f, 0); // (35, 17) is inside shelf a
+        assertThat(tracker.x(lost)).isCloseTo(35, within(0.5f));
+        assertThat(tracker.y(lost)).isCloseTo(20, within(0.5f));
+
+        CartPositionTracker.Snapshot snapshot = new CartPositionTracker.Snapshot();
+        tracker.snapshot(3 * TICK, 10 * TICK, 5 * TICK, snapshot);
+        assertThat(snapshot.count).isEqualTo(2);
+        tracker.snapshot(8 * TICK, 7 * TICK, 5 * TICK, snapshot);
+        assertThat(snapshot.count).isEqualTo(1);
+        assertThat(tracker.cartId(snapshot.slots[0])).isEqualTo("cart002");
+    }
+
+    //4. Readings are parsed straight from bytes and frames come out as JSON
+    @Test
+    void frames_ParseAndEncode() {
+        byte[] payload = reading(1.2345f, -0.5f);
+        assertThat(CartPositionFrames.coordinate(payload, 'x')).isEqualTo(1.2345f);
+        assertThat(CartPositionFrames.coordinate(payload, 'y')).isEqualTo(-0.5f);
+        assertThat(CartPositionFrames.coordinate("{\"x\": 2.5e-1}".getBytes(), 'x')).isEqualTo(0.25f);
+        assertThat(CartPositionFrames.coordinate("{\"x\":\"abc\"}".getBytes(), 'x')).isNaN();
+        assertThat(CartPositionFrames.coordinate("{\"z\":1}".getBytes(), 'x')).isNaN();
+
+        CartPositionTracker tracker = new CartPositionTracker(10, 0, 0, 2, 4, 100);
+        tracker.update(tracker.register("cart\"1"), "cart\"1", 1.234f, -0.0049f, 0);
+        tracker.update(tracker.register("cart2"), "cart2", 0, 0, 0);
+        CartPositionTracker.Snapshot snapshot = new CartPositionTracker.Snapshot();
+        tracker.snapshot(0, TICK, TICK, snapshot);
+
+        byte[] frame = new CartPositionFrames("store-1").encode(tracker, snapshot, 1700000000000L);
+        assertThat(new String(frame, StandardCharsets.UTF_8)).isEqualTo("{\"layoutId\":\"store-1\",\"t\":1700000000000,\"carts\":["
+                + "{\"id\":\"cart\\\"1\",\"x\":12.34,\"y\":-0.05},{\"id\":\"cart2\",\"x\":0.00,\"y\":0.00}]}");
+    }
+
+    //5. Carts silent for too long are evicted and their slots reused; the evicted cart's reading no longer lands
+    @Test
+    void evictIdle_SlotsReused() {
+        CartPositionTracker tracker = new CartPositionTracker(10, 0, 0, 2, 1, 2);
+        int gone = tracker.register("cart001");
+        int active = tracker.register("cart002");
+        tracker.update(gone, "cart001", 0, 0, 0);
+        tracker.update(active, "cart002", 1, 0, 0);
+        tracker.update(active, "cart002", 1.05f, 0, 100 * TICK);
+        assertThat(tracker.register("cart003")).isEqualTo(-1);
+
+        assertThat(tracker.evictIdle(100 * TICK, 50 * TICK)).containsExactly("cart001");
+        assertThat(tracker.evictIdle(100 * TICK, 50 * TICK)).isEmpty();
+        assertThat(tracker.size()).isEqualTo(1);
+
+        int reused = tracker.register("cart003");
+        assertThat(reused).isEqualTo(gone);
+        assertThat(tracker.update(gone, "cart001", 5, 5, 101 * TICK)).isFalse();
+        assertThat(tracker.update(reused, "cart003", 2, 0, 101 * TICK)).isTrue();
+        assertThat(tracker.x(reused)).isEqualTo(20);
+        assertThat(tracker.register("cart001")).isEqualTo(-1);
+
+        CartPositionTracker.Snapshot snapshot = new CartPositionTracker.Snapshot();
+        tracker.snapshot(101 * TICK, 10 * TICK, 0, snapshot);
+        assertThat(snapshot.count).isEqualTo(2);
+        assertThat(tracker.cartId(snapshot.slots[0])).isEqualTo("cart003");
+    }
+
+}
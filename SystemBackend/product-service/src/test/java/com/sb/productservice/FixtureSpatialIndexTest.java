@@ -0,0 +1,162 @@
+package com.sb.productservice;
+
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.model.LayoutEntity;
+import com.sb.productservice.service.FixtureSpatialIndex;
+import com.sb.productservice.service.NearbyProductFinder;
+import com.sb.productservice.service.ProductLocationIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static com.sb.productservice.LayoutFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class FixtureSpatialIndexTest {
+
+    // Rectangles, triangles and outline-less fixtures scattered over a 2000 x 2000 floor
+    private static Map<String, FixtureEntity> scattered(int count, long seed) {
+        Random random = new Random(seed);
+        Map<String, FixtureEntity> fixtures = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            int x = random.nextInt(2000), y = random.nextInt(2000);
+            float w = 5 + random.nextInt(40), h = 5 + random.nextInt(15);
+            FixtureEntity fixture = switch (i % 3) {
+                case 0 -> fixture("f" + i, x, y, 0f, 0f, w, 0f, w, h, 0f, h);
+                case 1 -> fixture("f" + i, x, y, 0f, 0f, w, h / 2, 0f, h);
+                default -> fixture("f" + i, x, y);
+            };
+            fixtures.put(fixture.getId(), fixture);
+        }
+        return fixtures;
+    }
+
+    // Brute force over every fixture, for comparison
+    private static List<FixtureSpatialIndex.Hit> all(Map<String, FixtureEntity> fixtures, float x, float y) {
+        List<FixtureSpatialIndex.Hit> hits = new ArrayList<>();
+        for (FixtureEntity fixture : fixtures.values()) {
+            hits.add(new FixtureSpatialIndex.Hit(fixture.getId(), (float) Math.sqrt(distance(fixture, x, y))));
+        }
+        hits.sort(Comparator.comparingDouble(FixtureSpatialIndex.Hit::distance));
+        return hits;
+    }
+
+    private static double distance(FixtureEntity fixture, float x, float y) {
+        if (fixture.getPoints() == null) {
+            return Math.pow(fixture.getX() - x, 2) + Math.pow(fixture.getY() - y, 2);
+        }
+        List<Float> p = fixture.getPoints();
+        int n = p.size() / 2;
+        boolean inside = false;
+        double best = Double.MAX_VALUE;
+        for (int a = 0, b = n - 1; a < n; b = a++) {
+            double ax = fixture.getX() + p.get(2 * a), ay = fixture.getY() + p.get(2 * a + 1);
+            double bx = fixture.getX() + p.get(2 * b), by = fixture.getY() + p.get(2 * b + 1);
+            if ((ay > y) != (by > y) && x < (bx - ax) * (y - ay) / (by - ay) + ax) {
+                inside = !inside;
+            }
+            double vx = bx - ax, vy = by - ay;
+            double t = Math.max(0, Math.min(1, ((x - ax) * vx + (y - ay) * vy) / (vx * vx + vy * vy)));
+            best = Math.min(best, Math.pow(ax + t * vx - x, 2) + Math.pow(ay + t * vy - y, 2));
+        }
+        return inside ? 0 : best;
+    }
+
+    //1. Nearest and within-radius answers match a scan of every fixture
+    @Test
+    void queries_MatchBruteForce() {
+        Map<String, FixtureEntity> fixtures = scattered(3000, 7);
+        FixtureSpatialIndex index = FixtureSpatialIndex.build(fixtures, 1);
+        Random random = new Random(11);
+
+        for (int q = 0; q < 300; q++) {
+            float x = random.nextFloat() * 2200 - 100, y = random.nextFloat() * 2200 - 100;
+            List<FixtureSpatialIndex.Hit> expected = all(fixtures, x, y);
+
+            List<FixtureSpatialIndex.Hit> nearest = index.nearest(x, y, 5);
+            assertThat(nearest).hasSize(5);
+            for (int i = 0; i < 5; i++) {
+                assertThat(nearest.get(i).distance()).isCloseTo(expected.get(i).distance(), within(1e-2f));
+            }
+
+            float radius = 60;
+            List<String> inRadius = expected.stream().filter(h -> h.distance() <= radius - 1e-2f)
+                    .map(FixtureSpatialIndex.Hit::fixtureId).toList();
+            List<FixtureSpatialIndex.Hit> found = index.within(x, y, radius);
+            assertThat(found).extracting(FixtureSpatialIndex.Hit::fixtureId).containsAll(inRadius);
+            assertThat(found).allSatisfy(h -> assertThat(h.distance()).isLessThanOrEqualTo(radius));
+            assertThat(found).isSortedAccordingTo(Comparator.comparingDouble(FixtureSpatialIndex.Hit::distance));
+        }
+    }
+
+    //2. A point inside a fixture's outline is at distance 0 from it; small and empty layouts still answer
+    @Test
+    void queries_InsideOutlineAndSmallLayouts() {
+        Map<String, FixtureEntity> fixtures = Map.of(
+                "shelf-a", fixture("shelf-a", 100, 100, 0f, 0f, 40f, 0f, 40f, 10f, 0f, 10f),
+                "till", fixture("till", 300, 100));
+        FixtureSpatialIndex index = FixtureSpatialIndex.build(fixtures, 1);
+
+        assertThat(index.nearest(120, 105, 1)).containsExactly(new FixtureSpatialIndex.Hit("shelf-a", 0));
+        assertThat(index.nearest(290, 100, 2)).extracting(FixtureSpatialIndex.Hit::fixtureId).containsExactly("till", "shelf-a");
+        assertThat(index.nearest(120, 120, 1).get(0).distance()).isCloseTo(10f, within(1e-4f));
+        assertThat(index.within(200, 105, 50)).isEmpty();
+        assertThat(index.nearest(0, 0, 10)).hasSize(2);
+
+        FixtureSpatialIndex empty = FixtureSpatialIndex.build(Map.of(), 1);
+        assertThat(empty.nearest(0, 0, 3)).isEmpty();
+        assertThat(empty.within(0, 0, 100)).isEmpty();
+    }
+
+    //3. Nearby products come from the fixtures within the radius, nearest fixture first and shelf by shelf
+    @Test
+    void nearbyProducts_FromFixturesInRadius() {
+        ItemEntity rice = new ItemEntity();
+        rice.setId("4791");
+        rice.setName("Basmati Rice");
+        ItemEntity milk = new ItemEntity();
+        milk.setId("4792");
+        milk.setName("Fresh Milk");
+        ItemEntity tea = new ItemEntity();
+        tea.setId("4793");
+        tea.setName("Tea");
+
+        LayoutEntity layout = new LayoutEntity();
+        layout.setLayoutId("store-1");
+        layout.setFixtureLayout(new HashMap<>(Map.of(
+                "shelf-a", fixture("shelf-a", 0, 0, 0f, 0f, 40f, 0f, 40f, 10f, 0f, 10f),
+                "shelf-b", fixture("shelf-b", 0, 30, 0f, 0f, 40f, 0f, 40f, 10f, 0f, 10f),
+                "shelf-c", fixture("shelf-c", 500, 500, 0f, 0f, 40f, 0f, 40f, 10f, 0f, 10f))));
+        layout.setItemMap(new HashMap<>(Map.of(
+                "shelf-a", List.of(List.of(List.of(milk)), List.of(List.of(rice))),
+                "shelf-b", List.of(List.of(List.of(tea))),
+                "shelf-c", List.of(List.of(List.of(rice))))));
+        ProductLocationIndex locationIndex = new ProductLocationIndex();
+        locationIndex.put(layout);
+        NearbyProductFinder finder = new NearbyProductFinder(locationIndex);
+        ReflectionTestUtils.setField(finder, "defaultRadius", 25f);
+        ReflectionTestUtils.setField(finder, "maxRadius", 1000f);
+        ReflectionTestUtils.setField(finder, "maxProducts", 200);
+
+        NearbyProductFinder.Nearby nearby = finder.nearby("store-1", 20, 25, null, null);
+
+        assertThat(nearby.nearestFixture().fixtureId()).isEqualTo("shelf-b");
+        assertThat(nearby.nearestFixture().distance()).isCloseTo(5, within(1e-4));
+        assertThat(nearby.products()).extracting(p -> p.location().itemName())
+                .containsExactly("Tea", "Fresh Milk", "Basmati Rice");
+        assertThat(finder.nearby("store-1", 20, 25, null, 1).products()).hasSize(1);
+        assertThat(finder.nearestFixtures("store-1", 520, 480, 1)).extracting(NearbyProductFinder.NearbyFixture::fixtureName)
+                .containsExactly("Aisle shelf-c");
+        assertThatThrownBy(() -> finder.nearby("store-9", 0, 0, null, null)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
@@ -0,0 +1,100 @@
+package com.sb.productservice;
+
+import com.sb.productservice.controller.ProductController;
+import com.sb.productservice.service.ImageCache;
+import com.sb.productservice.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+public class ImageCacheTest {
+
+    @Mock
+    private ProductService productService;
+
+    private ImageCache cache;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        cache = new ImageCache(250, 200, Duration.ofMinutes(10));
+    }
+
+    private static ImageCache.CachedImage image(int size, String eTag) {
+        ByteBuffer data = ByteBuffer.allocateDirect(size);
+        for (int i = 0; i < size; i++) {
+            data.put((byte) i);
+        }
+        data.flip();
+        return new ImageCache.CachedImage(data.asReadOnlyBuffer(), eTag, Instant.parse("2025-06-01T10:00:00Z"),
+                "image/jpeg", System.nanoTime());
+    }
+
+    //1. The least recently served image is evicted once the byte budget is exceeded; oversized images are not kept
+    @Test
+    void put_EvictsLeastRecentlyUsed() {
+        cache.put("a", image(100, "\"a\""), cache.stamp());
+        cache.put("b", image(100, "\"b\""), cache.stamp());
+        assertThat(cache.get("a")).isNotNull();
+
+        cache.put("c", image(100, "\"c\""), cache.stamp());
+        cache.put("huge", image(300, "\"h\""), cache.stamp());
+
+        assertThat(cache.get("b")).isNull();
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("huge")).isNull();
+        assertThat(cache.getStats()).containsEntry("entries", 2).containsEntry("bytes", 200L)
+                .containsEntry("evictions", 1L).containsEntry("hits", 2L).containsEntry("misses", 2L)
+                .containsEntry("hitRatio", 0.5);
+    }
+
+    //2. An image loaded before an overwrite or delete is not cached afterwards
+    @Test
+    void put_AfterInvalidation_Dropped() {
+        cache.put("a", image(10, "\"v1\""), cache.stamp());
+        long stamp = cache.stamp();
+
+        cache.invalidate("a");
+        cache.put("a", image(10, "\"v1\""), stamp);
+
+        assertThat(cache.get("a")).isNull();
+        assertThat(cache.getStats()).containsEntry("bytes", 0L);
+    }
+
+    //3. The endpoint sends the validators and answers a matching If-None-Match with 304
+    @Test
+    void imageEndpoint_ConditionalGet() throws Exception {
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(new ProductController(productService)).build();
+        when(productService.getProductImage("4791", null)).thenAnswer(invocation -> image(16, "\"abc123\""));
+
+        MvcResult result = mockMvc.perform(get("/product/all/image/4791"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"abc123\""))
+                .andExpect(header().string("Last-Modified", "Sun, 01 Jun 2025 10:00:00 GMT"))
+                .andExpect(content().bytes(image(16, "\"abc123\"").toByteArray()));
+
+        mockMvc.perform(get("/product/all/image/4791").header("If-None-Match", "\"abc123\""))
+                .andExpect(status().isNotModified());
+    }
+
+}
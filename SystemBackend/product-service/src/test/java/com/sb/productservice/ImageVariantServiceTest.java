@@ -0,0 +1,96 @@
+package com.sb.productservice;
+
+import com.sb.productservice.service.ImageVariantService;
+import com.sb.productservice.service.S3Service;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ImageVariantServiceTest {
+
+    @Mock
+    private S3Service s3Service;
+
+    private ImageVariantService variantService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        variantService = new ImageVariantService(s3Service, 1, 4, 0.8f);
+    }
+
+    @AfterEach
+    void tearDown() {
+        variantService.shutdown();
+    }
+
+    private static byte[] jpeg(int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                image.setRGB(x, y, (x * 255 / width) << 16 | (y * 255 / height) << 8);
+            }
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpeg", out);
+        return out.toByteArray();
+    }
+
+    //1. Every variant is stored next to the original at its predictable key, scaled to fit and in proportion
+    @Test
+    void submit_StoresResizedVariants() throws Exception {
+        when(s3Service.getImage("images/Grocery/Araliya", "4791.jpg")).thenReturn(jpeg(1200, 800));
+        CompletableFuture<List<String>> ready = new CompletableFuture<>();
+
+        variantService.submit("4791", "images/Grocery/Araliya", "4791.jpg", ready::complete);
+
+        assertThat(ready.get(10, TimeUnit.SECONDS)).containsExactly("thumb", "small", "medium");
+        ArgumentCaptor<String> filenames = ArgumentCaptor.forClass(String.class);
+        ArgumentCaptor<byte[]> images = ArgumentCaptor.forClass(byte[].class);
+        verify(s3Service, times(3)).putImage(eq("images/Grocery/Araliya"), filenames.capture(), images.capture(), eq("image/jpeg"));
+        assertThat(filenames.getAllValues()).containsExactly("4791_medium.jpg", "4791_small.jpg", "4791_thumb.jpg");
+
+        BufferedImage thumb = ImageIO.read(new ByteArrayInputStream(images.getAllValues().get(2)));
+        assertThat(thumb.getWidth()).isEqualTo(160);
+        assertThat(thumb.getHeight()).isEqualTo(107);
+
+        // Variants are named after the image they were made from
+        assertThat(ImageVariantService.variantFilename("4791-0f3c.jpg", "thumb")).isEqualTo("4791-0f3c_thumb.jpg");
+    }
+
+    //2. An image that cannot be decoded produces no variants and no callback
+    @Test
+    void submit_UnreadableImage_Skipped() throws Exception {
+        when(s3Service.getImage(anyString(), anyString())).thenReturn(new byte[]{1, 2, 3});
+        CompletableFuture<List<String>> ready = new CompletableFuture<>();
+
+        variantService.submit("4792", "images/Dairy/Anchor", "4792.jpg", ready::complete);
+        variantService.shutdown();
+        variantService.submit("4793", "images/Dairy/Anchor", "4793.jpg", ready::complete); // rejected, not thrown
+
+        Thread.sleep(500);
+        assertThat(ready).isNotDone();
+        verify(s3Service, never()).putImage(anyString(), anyString(), any(), anyString());
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.sb.productservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.productservice.config.LayoutHttpMessageConverter;
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.model.LayoutEntity;
+import com.sb.productservice.service.LayoutCodec;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+import org.springframework.mock.http.MockHttpOutputMessage;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.DeflaterOutputStream;
+
+import static com.sb.productservice.LayoutFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class LayoutCodecTest {
+
+    // A store with the given number of fixtures, each a 4x5 shelf grid drawing on 300 products
+    private static LayoutEntity store(int fixtures) {
+        LayoutEntity layout = new LayoutEntity();
+        layout.setLayoutId("store-1");
+        layout.setVersion(7L);
+        Map<String, FixtureEntity> fixtureLayout = new HashMap<>();
+        Map<String, List<List<List<ItemEntity>>>> itemMap = new HashMap<>();
+        for (int f = 0; f < fixtures; f++) {
+            String id = "fixture-" + f;
+            FixtureEntity fixture = fixture(id, (f % 20) * 50, (f / 20) * 20, rect(40, 10.5f));
+            fixture.setColor("#8fbc8f");
+            fixtureLayout.put(id, fixture);
+            List<List<List<ItemEntity>>> rows = new ArrayList<>();
+            for (int row = 0; row < 4; row++) {
+                List<List<ItemEntity>> cols = new ArrayList<>();
+                for (int col = 0; col < 5; col++) {
+                    int product = (f * 20 + row * 5 + col) % 300;
+                    cols.add(List.of(item("479" + product, "Product " + product, row, col, 0),
+                            item("480" + product, "Product " + product + " (family pack)", row, col, 1)));
+                }
+                rows.add(cols);
+            }
+            itemMap.put(id, rows);
+        }
+        layout.setFixtureLayout(fixtureLayout);
+        layout.setItemMap(itemMap);
+        return layout;
+    }
+
+    //1. Decoding gives back exactly what was encoded, including nulls, empty grids and out-of-place position fields
+    @Test
+    void encodeDecode_RoundTrip() {
+        LayoutEntity layout = store(3);
+        layout.setName("Colombo – Main Street");
+        layout.getFixtureLayout().put("odd", fixture("odd-id", -120, 0, 1.25f, null, -3e7f));
+        layout.getFixtureLayout().put("no-outline", fixture("no-outline", 5, 5));
+        layout.getFixtureLayout().put("gone", null);
+        layout.getItemMap().put("odd", new ArrayList<>(Arrays.asList(
+                new ArrayList<>(Arrays.asList(new ArrayList<>(Arrays.asList(item("1", null, 9, 9, 9), null)), null, List.of())),
+                null, List.of())));
+        layout.getItemMap().put("empty", null);
+
+        LayoutEntity decoded = LayoutCodec.decode(LayoutCodec.encode(layout));
+
+        assertThat(decoded).usingRecursiveComparison().isEqualTo(layout);
+
+        LayoutEntity bare = new LayoutEntity();
+        bare.setLayoutId("store-2");
+        assertThat(LayoutCodec.decode(LayoutCodec.encode(bare))).usingRecursiveComparison().isEqualTo(bare);
+    }
+
+    //2. The packed form is a fraction of both the JSON and the DynamoDB document
+    @Test
+    void encode_SmallerThanDocument() throws Exception {
+        LayoutEntity layout = store(500);
+
+        int packed = LayoutCodec.encode(layout).length;
+        int json = new ObjectMapper().writeValueAsBytes(layout).length;
+        int document = LayoutCodec.itemSize(TableSchema.fromBean(LayoutEntity.class).itemToMap(layout, true));
+
+        assertThat(packed).isLessThan(json / 10);
+        assertThat(document).isGreaterThan(400 * 1024);
+        assertThat(packed).isLessThan(document / 10);
+    }
+
+    //3. Layouts are exchanged packed under their own media type, and bytes that are not a packed layout are refused
+    @Test
+    void httpMessageConverter_PackedMediaType() throws Exception {
+        LayoutHttpMessageConverter converter = new LayoutHttpMessageConverter();
+        MediaType packed = MediaType.parseMediaType(LayoutCodec.MEDIA_TYPE);
+        LayoutEntity layout = store(2);
+
+        MockHttpOutputMessage output = new MockHttpOutputMessage();
+        converter.write(layout, packed, output);
+        assertThat(output.getHeaders().getContentType()).isEqualTo(packed);
+
+        LayoutEntity read = converter.read(LayoutEntity.class, new MockHttpInputMessage(output.getBodyAsBytes()));
+        assertThat(read).usingRecursiveComparison().isEqualTo(layout);
+        assertThat(converter.canRead(LayoutEntity.class, MediaType.APPLICATION_JSON)).isFalse();
+
+        assertThatThrownBy(() -> converter.read(LayoutEntity.class, new MockHttpInputMessage("{}".getBytes())))
+                .isInstanceOf(HttpMessageNotReadableException.class);
+        assertThatThrownBy(() -> LayoutCodec.decode(Arrays.copyOf(output.getBodyAsBytes(), 20)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // The format's header followed by the given plain bytes, deflated
+    private static byte[] packed(int... plain) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[]{'S', 'B', 'L', 1});
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+            for (int b : plain) {
+                deflater.write(b);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    //4. A length or count larger than what is left of the body is refused before anything is sized by it
+    @Test
+    void decode_LengthPastEnd_Refused() throws Exception {
+        // One string claiming ~2 GB, then a string table claiming ~2 billion entries
+        assertThatThrownBy(() -> LayoutCodec.decode(packed(1, 0xF0, 0xFF, 0xFF, 0xFF, 0x07)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("past the end");
+        assertThatThrownBy(() -> LayoutCodec.decode(packed(0xF0, 0xFF, 0xFF, 0xFF, 0x07)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("past the end");
+        // No strings or items, empty id, name and version, then a fixture map claiming ~2 billion entries
+        assertThatThrownBy(() -> LayoutCodec.decode(packed(0, 0, 0, 0, 0, 0xF0, 0xFF, 0xFF, 0xFF, 0x07)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("past the end");
+    }
+
+}
@@ -0,0 +1,114 @@
+package com.sb.productservice;
+
+import com.sb.events.LayoutOperationType;
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.dto.LayoutPatchDTO;
+import com.sb.productservice.exception.LayoutVersionConflictException;
+import com.sb.productservice.kafka.KafkaProducer;
+import com.sb.productservice.model.LayoutEntity;
+import com.sb.productservice.service.LayoutServiceImpl;
+import com.sb.productservice.service.ProductLocationIndex;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.StaticCredentialsProvider;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.regions.Region;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeDefinition;
+import software.amazon.awssdk.services.dynamodb.model.BillingMode;
+import software.amazon.awssdk.services.dynamodb.model.KeySchemaElement;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.ResourceInUseException;
+import software.amazon.awssdk.services.dynamodb.model.ScalarAttributeType;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.sb.productservice.LayoutFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Layout patches against a real DynamoDB. Skipped unless an endpoint is given, e.g.
+ * {@code docker run -p 8000:8000 amazon/dynamodb-local} and
+ * {@code mvn test -Dtest=LayoutDynamoDbLocalTest -Ddynamodb.endpoint=http://localhost:8000}.
+ */
+@EnabledIfSystemProperty(named = "dynamodb.endpoint", matches = ".+")
+public class LayoutDynamoDbLocalTest {
+
+    private DynamoDbClient dynamoDbClient;
+    private LayoutServiceImpl layoutService;
+    private final String layoutId = "test-" + UUID.randomUUID();
+
+    @BeforeEach
+    void setUp() {
+        dynamoDbClient = DynamoDbClient.builder()
+                .endpointOverride(URI.create(System.getProperty("dynamodb.endpoint")))
+                .region(Region.US_EAST_1)
+                .credentialsProvider(StaticCredentialsProvider.create(AwsBasicCredentials.create("local", "local")))
+                .build();
+        try {
+            dynamoDbClient.createTable(r -> r.tableName("Layouts")
+                    .attributeDefinitions(AttributeDefinition.builder().attributeName("layoutId").attributeType(ScalarAttributeType.S).build())
+                    .keySchema(KeySchemaElement.builder().attributeName("layoutId").keyType(KeyType.HASH).build())
+                    .billingMode(BillingMode.PAY_PER_REQUEST));
+        } catch (ResourceInUseException e) {
+            // Left over from an earlier run
+        }
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build();
+        layoutService = new LayoutServiceImpl(enhancedClient, dynamoDbClient, new ProductLocationIndex(), mock(KafkaProducer.class));
+    }
+
+    @AfterEach
+    void tearDown() {
+        layoutService.deleteLayoutById(layoutId);
+        dynamoDbClient.close();
+    }
+
+    private static LayoutPatchDTO setCell(long version, int row, int col, ItemEntity... items) {
+        LayoutPatchDTO.Operation operation = new LayoutPatchDTO.Operation();
+        operation.setOp(LayoutOperationType.SET_CELL);
+        operation.setFixtureId("shelf-a");
+        operation.setRow(row);
+        operation.setCol(col);
+        operation.setItems(List.of(items));
+        LayoutPatchDTO patch = new LayoutPatchDTO();
+        patch.setVersion(version);
+        patch.setOperations(new ArrayList<>(List.of(operation)));
+        return patch;
+    }
+
+    //1. A patched cell reads back like a saved one, the rest of the layout is untouched, and stale patches are refused
+    @Test
+    void patchLayout_RoundTrip() {
+        LayoutEntity layout = new LayoutEntity();
+        layout.setLayoutId(layoutId);
+        layout.setFixtureLayout(new HashMap<>(Map.of("shelf-a", fixture("shelf-a", "Aisle 1"))));
+        layout.setItemMap(new HashMap<>(Map.of("shelf-a", List.of(
+                List.of(List.of(item("4791", "Basmati Rice")), List.of())))));
+        layoutService.saveLayout(layout);
+        assertThat(layout.getVersion()).isEqualTo(1);
+
+        assertThat(layoutService.patchLayout(layoutId, setCell(1, 0, 1, item("4794", "Butter")))).isEqualTo(2);
+
+        LayoutEntity stored = layoutService.getLayoutById(layoutId);
+        assertThat(stored.getVersion()).isEqualTo(2);
+        assertThat(stored.getItemMap().get("shelf-a").get(0).get(0)).extracting(ItemEntity::getName).containsExactly("Basmati Rice");
+        assertThat(stored.getItemMap().get("shelf-a").get(0).get(1)).extracting(ItemEntity::getName).containsExactly("Butter");
+        assertThat(stored.getFixtureLayout().get("shelf-a").getPoints()).hasSize(8);
+
+        assertThatThrownBy(() -> layoutService.patchLayout(layoutId, setCell(1, 0, 0)))
+                .isInstanceOf(LayoutVersionConflictException.class);
+        assertThatThrownBy(() -> layoutService.patchLayout(layoutId, setCell(2, 5, 0, item("4795", "Tea"))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+}
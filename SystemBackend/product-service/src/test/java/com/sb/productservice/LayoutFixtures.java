@@ -0,0 +1,60 @@
+package com.sb.productservice;
+
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.dto.ItemEntity;
+
+import java.util.Arrays;
+
+/**
+ * Items and fixtures for the layout, location index, route and cart position tests. Outlines are relative to the
+ * fixture position, as in stored layouts.
+ */
+final class LayoutFixtures {
+
+    private LayoutFixtures() {
+    }
+
+    static ItemEntity item(String id, String name) {
+        ItemEntity item = new ItemEntity();
+        item.setId(id);
+        item.setName(name);
+        return item;
+    }
+
+    // An item as stored in its shelf cell, which records its own position in the grid
+    static ItemEntity item(String id, String name, int row, int col, int index) {
+        ItemEntity item = item(id, name);
+        item.setRow(row);
+        item.setCol(col);
+        item.setIndex(index);
+        return item;
+    }
+
+    // A named 40 x 10 shelf at the origin
+    static FixtureEntity fixture(String id, String name) {
+        FixtureEntity fixture = fixture(id, 0, 0, rect(40, 10));
+        fixture.setName(name);
+        return fixture;
+    }
+
+    // Named "Aisle <id>"; without points the fixture has no outline
+    static FixtureEntity fixture(String id, int x, int y, Float... points) {
+        FixtureEntity fixture = new FixtureEntity();
+        fixture.setId(id);
+        fixture.setName("Aisle " + id);
+        fixture.setX(x);
+        fixture.setY(y);
+        fixture.setPoints(points.length > 0 ? Arrays.asList(points) : null);
+        return fixture;
+    }
+
+    // An 80 x 10 shelf
+    static FixtureEntity shelf(String id, int x, int y) {
+        return fixture(id, x, y, rect(80, 10));
+    }
+
+    static Float[] rect(float width, float height) {
+        return new Float[]{0f, 0f, width, 0f, width, height, 0f, height};
+    }
+
+}
@@ -0,0 +1,146 @@
+package com.sb.productservice;
+
+import com.sb.productservice.dto.LayoutPageDTO;
+import com.sb.productservice.dto.LayoutSummaryDTO;
+import com.sb.productservice.kafka.KafkaProducer;
+import com.sb.productservice.model.LayoutEntity;
+import com.sb.productservice.service.LayoutServiceImpl;
+import com.sb.productservice.service.ProductLocationIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.DeleteItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.ScanRequest;
+import software.amazon.awssdk.services.dynamodb.model.ScanResponse;
+import software.amazon.awssdk.services.dynamodb.paginators.ScanIterable;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LayoutListingTest {
+
+    @Mock
+    private DynamoDbClient dynamoDbClient;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    private ProductLocationIndex locationIndex;
+    private LayoutServiceImpl layoutService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        locationIndex = new ProductLocationIndex();
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build();
+        layoutService = new LayoutServiceImpl(enhancedClient, dynamoDbClient, locationIndex, kafkaProducer);
+        ReflectionTestUtils.setField(layoutService, "summaryTtlMs", 60_000L);
+        ReflectionTestUtils.setField(layoutService, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(layoutService, "maxPageSize", 100);
+        when(dynamoDbClient.deleteItem(any(DeleteItemRequest.class))).thenReturn(DeleteItemResponse.builder().build());
+        // The enhanced client scans through the paginator, which pages over scan()
+        when(dynamoDbClient.scanPaginator(any(ScanRequest.class)))
+                .thenAnswer(invocation -> new ScanIterable(dynamoDbClient, invocation.getArgument(0)));
+    }
+
+    private static Map<String, AttributeValue> summary(String layoutId, String name, long version, int fixtures, int items) {
+        return Map.of("layoutId", AttributeValue.fromS(layoutId), "name", AttributeValue.fromS(name),
+                "version", AttributeValue.fromN(Long.toString(version)),
+                "fixtureCount", AttributeValue.fromN(Integer.toString(fixtures)),
+                "itemCount", AttributeValue.fromN(Integer.toString(items)));
+    }
+
+    private static Map<String, AttributeValue> key(String layoutId) {
+        return Map.of("layoutId", AttributeValue.fromS(layoutId));
+    }
+
+    //1. The listing reads only the summary attributes across every scan page, and is served from cache until a write
+    @Test
+    void getLayoutSummaries_CachedUntilWrite() {
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(summary("store-2", "Colombo", 4, 12, 340))
+                        .lastEvaluatedKey(key("store-2")).build())
+                .thenReturn(ScanResponse.builder().items(summary("store-1", "Kandy", 2, 8, 120)).build());
+
+        List<LayoutSummaryDTO> summaries = layoutService.getLayoutSummaries();
+
+        assertThat(summaries).extracting(LayoutSummaryDTO::getLayoutId).containsExactly("store-1", "store-2");
+        assertThat(summaries.get(1).getName()).isEqualTo("Colombo");
+        assertThat(summaries.get(1).getVersion()).isEqualTo(4);
+        assertThat(summaries.get(1).getFixtureCount()).isEqualTo(12);
+        assertThat(summaries.get(1).getItemCount()).isEqualTo(340);
+
+        ArgumentCaptor<ScanRequest> requests = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient, times(2)).scan(requests.capture());
+        assertThat(requests.getAllValues().get(0).projectionExpression()).isNotNull();
+        assertThat(requests.getAllValues().get(0).expressionAttributeNames())
+                .doesNotContainValue("itemMap").doesNotContainValue("fixtureLayout");
+        assertThat(requests.getAllValues().get(1).exclusiveStartKey()).isEqualTo(key("store-2"));
+
+        assertThat(layoutService.getLayoutSummaries()).isSameAs(summaries);
+        verify(dynamoDbClient, times(2)).scan(any(ScanRequest.class));
+
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(summary("store-1", "Kandy", 2, 8, 120)).build());
+        layoutService.deleteLayoutById("store-2");
+        assertThat(layoutService.getLayoutSummaries()).extracting(LayoutSummaryDTO::getLayoutId).containsExactly("store-1");
+        verify(dynamoDbClient, times(3)).scan(any(ScanRequest.class));
+    }
+
+    //2. A layout stored before its sizes were recorded takes them from the location index
+    @Test
+    void getLayoutSummaries_MissingCounts_FromIndex() {
+        LayoutEntity layout = new LayoutEntity();
+        layout.setLayoutId("store-1");
+        layout.setFixtureLayout(new HashMap<>());
+        layout.setItemMap(new HashMap<>());
+        locationIndex.put(layout);
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(List.of(key("store-1"))).build());
+
+        LayoutSummaryDTO summary = layoutService.getLayoutSummaries().get(0);
+
+        assertThat(summary.getVersion()).isZero();
+        assertThat(summary.getFixtureCount()).isZero();
+        assertThat(summary.getItemCount()).isZero();
+    }
+
+    //3. Whole layouts come a page at a time, with DynamoDB's LastEvaluatedKey as the cursor
+    @Test
+    void getLayoutsPage_FollowsLastEvaluatedKey() {
+        when(dynamoDbClient.scan(any(ScanRequest.class)))
+                .thenReturn(ScanResponse.builder().items(key("store-3"), key("store-4"))
+                        .lastEvaluatedKey(key("store-4")).build())
+                .thenReturn(ScanResponse.builder().items(key("store-5")).build());
+
+        LayoutPageDTO first = layoutService.getLayoutsPage(null, 2);
+        LayoutPageDTO last = layoutService.getLayoutsPage(first.getNextCursor(), 500);
+
+        assertThat(first.getItems()).extracting(LayoutEntity::getLayoutId).containsExactly("store-3", "store-4");
+        assertThat(first.getNextCursor()).isEqualTo("store-4");
+        assertThat(last.getItems()).extracting(LayoutEntity::getLayoutId).containsExactly("store-5");
+        assertThat(last.getNextCursor()).isNull();
+
+        ArgumentCaptor<ScanRequest> requests = ArgumentCaptor.forClass(ScanRequest.class);
+        verify(dynamoDbClient, times(2)).scan(requests.capture());
+        assertThat(requests.getAllValues().get(0).limit()).isEqualTo(2);
+        assertThat(requests.getAllValues().get(0).exclusiveStartKey()).isEmpty();
+        assertThat(requests.getAllValues().get(1).limit()).isEqualTo(100);
+        assertThat(requests.getAllValues().get(1).exclusiveStartKey()).isEqualTo(key("store-4"));
+    }
+
+}
@@ -0,0 +1,337 @@
+package com.sb.productservice;
+
+import com.sb.events.LayoutChangeType;
+import com.sb.events.LayoutEvent;
+import com.sb.events.LayoutOperationType;
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.dto.LayoutPatchDTO;
+import com.sb.productservice.exception.LayoutVersionConflictException;
+import com.sb.productservice.kafka.KafkaProducer;
+import com.sb.productservice.model.LayoutEntity;
+import com.sb.productservice.service.LayoutCodec;
+import com.sb.productservice.service.LayoutPatches;
+import com.sb.productservice.service.LayoutServiceImpl;
+import com.sb.productservice.service.ProductLocationIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import software.amazon.awssdk.enhanced.dynamodb.DynamoDbEnhancedClient;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.DynamoDbClient;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+import software.amazon.awssdk.awscore.exception.AwsErrorDetails;
+import software.amazon.awssdk.services.dynamodb.model.ConditionalCheckFailedException;
+import software.amazon.awssdk.services.dynamodb.model.DynamoDbException;
+import software.amazon.awssdk.services.dynamodb.model.GetItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.GetItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.PutItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.PutItemResponse;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemRequest;
+import software.amazon.awssdk.services.dynamodb.model.UpdateItemResponse;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import static com.sb.productservice.LayoutFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class LayoutPatchTest {
+
+    @Mock
+    private DynamoDbClient dynamoDbClient;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    private ProductLocationIndex locationIndex;
+    private LayoutServiceImpl layoutService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        locationIndex = new ProductLocationIndex();
+        DynamoDbEnhancedClient enhancedClient = DynamoDbEnhancedClient.builder().dynamoDbClient(dynamoDbClient).build();
+        layoutService = new LayoutServiceImpl(enhancedClient, dynamoDbClient, locationIndex, kafkaProducer);
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenReturn(UpdateItemResponse.builder().build());
+        when(dynamoDbClient.putItem(any(PutItemRequest.class))).thenReturn(PutItemResponse.builder().build());
+    }
+
+    // Two fixtures, each with a 2x2 shelf grid
+    private static LayoutEntity layout(long version) {
+        LayoutEntity layout = new LayoutEntity();
+        layout.setLayoutId("store-1");
+        layout.setVersion(version);
+        layout.setFixtureLayout(new HashMap<>(Map.of("shelf-a", fixture("shelf-a", "Aisle 1"),
+                "shelf-b", fixture("shelf-b", "Aisle 2"))));
+        layout.setItemMap(new HashMap<>(Map.of(
+                "shelf-a", List.of(List.of(List.of(item("4791", "Basmati Rice")), List.of()),
+                        List.of(List.of(), List.of(item("4792", "Fresh Milk")))),
+                "shelf-b", List.of(List.of(List.of(item("4793", "Tea")), List.of()),
+                        List.of(List.of(), List.of())))));
+        return layout;
+    }
+
+    private static LayoutPatchDTO.Operation setCell(String fixtureId, int row, int col, ItemEntity... items) {
+        LayoutPatchDTO.Operation operation = new LayoutPatchDTO.Operation();
+        operation.setOp(LayoutOperationType.SET_CELL);
+        operation.setFixtureId(fixtureId);
+        operation.setRow(row);
+        operation.setCol(col);
+        operation.setItems(List.of(items));
+        return operation;
+    }
+
+    private static LayoutPatchDTO.Operation putFixture(FixtureEntity fixture) {
+        LayoutPatchDTO.Operation operation = new LayoutPatchDTO.Operation();
+        operation.setOp(LayoutOperationType.PUT_FIXTURE);
+        operation.setFixtureId(fixture.getId());
+        operation.setFixture(fixture);
+        return operation;
+    }
+
+    private static LayoutPatchDTO.Operation removeFixture(String fixtureId) {
+        LayoutPatchDTO.Operation operation = new LayoutPatchDTO.Operation();
+        operation.setOp(LayoutOperationType.REMOVE_FIXTURE);
+        operation.setFixtureId(fixtureId);
+        return operation;
+    }
+
+    private static LayoutPatchDTO patch(long version, LayoutPatchDTO.Operation... operations) {
+        LayoutPatchDTO patch = new LayoutPatchDTO();
+        patch.setVersion(version);
+        patch.setOperations(new ArrayList<>(List.of(operations)));
+        return patch;
+    }
+
+    //1. A patch is one conditional UpdateItem naming only the changed paths; the index and a change event follow it
+    @Test
+    void patchLayout_SingleConditionalUpdate() {
+        locationIndex.put(layout(3));
+
+        long version = layoutService.patchLayout("store-1", patch(3,
+                putFixture(fixture("shelf-c", "Aisle 3")),
+                setCell("shelf-a", 1, 1, item("4794", "Butter")),
+                removeFixture("shelf-b")));
+
+        assertThat(version).isEqualTo(4);
+        ArgumentCaptor<UpdateItemRequest> request = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(request.capture());
+        assertThat(request.getValue().updateExpression())
+                .isEqualTo("SET #fl.#f0 = :x0, #im.#f1[1][1] = :x1, #v = :next, #fc = :fc, #ic = :ic REMOVE #fl.#f2, #im.#f2");
+        assertThat(request.getValue().conditionExpression())
+                .isEqualTo("#v = :expected AND attribute_not_exists(#d) AND size(#im.#f1[1]) > :c1");
+        assertThat(request.getValue().expressionAttributeNames())
+                .containsEntry("#f0", "shelf-c").containsEntry("#f1", "shelf-a").containsEntry("#f2", "shelf-b");
+        assertThat(request.getValue().expressionAttributeValues())
+                .containsEntry(":expected", AttributeValue.fromN("3"))
+                .containsEntry(":next", AttributeValue.fromN("4"))
+                .containsEntry(":c1", AttributeValue.fromN("1"))
+                .containsEntry(":fc", AttributeValue.fromN("2"))
+                .containsEntry(":ic", AttributeValue.fromN("2"));
+        assertThat(request.getValue().expressionAttributeValues().get(":x1").l().get(0).m().get("name").s()).isEqualTo("Butter");
+        verify(dynamoDbClient, never()).getItem(any(GetItemRequest.class));
+
+        assertThat(locationIndex.find("butter", "store-1")).extracting(ProductLocationIndex.Location::fixtureName)
+                .containsExactly("Aisle 1");
+        assertThat(locationIndex.find("Fresh Milk", "store-1")).isEmpty();
+        assertThat(locationIndex.find("Tea", "store-1")).isEmpty();
+        assertThat(locationIndex.layout("store-1").fixtures()).containsOnlyKeys("shelf-a", "shelf-c");
+        assertThat(locationIndex.layout("store-1").version()).isEqualTo(4);
+
+        ArgumentCaptor<LayoutEvent> event = ArgumentCaptor.forClass(LayoutEvent.class);
+        verify(kafkaProducer).sendLayoutEvent(eq("layout-events"), event.capture());
+        assertThat(event.getValue().getChangeType()).isEqualTo(LayoutChangeType.LAYOUT_PATCHED);
+        assertThat(event.getValue().getVersion()).isEqualTo(4);
+        assertThat(event.getValue().getOperationsCount()).isEqualTo(3);
+    }
+
+    //2. A patch against an outdated version is refused with the current version; a missing layout is not found
+    @Test
+    void patchLayout_StaleVersion_Conflict() {
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder()
+                .item(Map.of("layoutId", AttributeValue.fromS("store-1"), "version", AttributeValue.fromN("5")))
+                .build());
+
+        assertThatThrownBy(() -> layoutService.patchLayout("store-1", patch(3, setCell("shelf-a", 0, 0))))
+                .isInstanceOf(LayoutVersionConflictException.class)
+                .satisfies(e -> assertThat(((LayoutVersionConflictException) e).getCurrentVersion()).isEqualTo(5));
+
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().build());
+        assertThatThrownBy(() -> layoutService.patchLayout("store-9", patch(3, setCell("shelf-a", 0, 0))))
+                .isInstanceOf(NoSuchElementException.class);
+        verify(kafkaProducer, never()).sendLayoutEvent(any(), any());
+    }
+
+    //3. Operations touching overlapping paths, or missing their data, are refused before anything is written
+    @Test
+    void patchLayout_InvalidOperations_Rejected() {
+        LayoutPatchDTO.Operation shelves = new LayoutPatchDTO.Operation();
+        shelves.setOp(LayoutOperationType.SET_SHELVES);
+        shelves.setFixtureId("shelf-a");
+        shelves.setShelves(List.of());
+
+        assertThatThrownBy(() -> layoutService.patchLayout("store-1", patch(3, setCell("shelf-a", 0, 1), shelves)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("overlaps");
+        assertThatThrownBy(() -> layoutService.patchLayout("store-1", patch(3, setCell("shelf-a", 0, 1), setCell("shelf-a", 0, 1))))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> layoutService.patchLayout("store-1", patch(3, setCell("shelf-a", -1, 0))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("row and col");
+        LayoutPatchDTO unversioned = patch(0, setCell("shelf-a", 0, 0));
+        unversioned.setVersion(null);
+        assertThatThrownBy(() -> layoutService.patchLayout("store-1", unversioned))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("version");
+        verify(dynamoDbClient, never()).updateItem(any(UpdateItemRequest.class));
+    }
+
+    //4. Applying a patch to the index gives the same locations as re-indexing the patched layout; a gap is refused
+    @Test
+    void locationIndexApply_MatchesFullReindex() {
+        locationIndex.put(layout(3));
+        List<LayoutPatchDTO.Operation> operations = LayoutPatches.fromEvent(LayoutPatches.toEvent(List.of(
+                setCell("shelf-b", 0, 0, item("4794", "Butter"), item("4793", "Tea")),
+                putFixture(fixture("shelf-a", "Rice and Grains")))));
+
+        assertThat(locationIndex.apply("store-1", 2, 4, operations)).isFalse();
+        assertThat(locationIndex.apply("store-1", 3, 4, operations)).isTrue();
+        assertThat(locationIndex.apply("store-1", 3, 4, operations)).isTrue(); // replayed event
+
+        LayoutEntity patched = layout(4);
+        patched.getFixtureLayout().put("shelf-a", fixture("shelf-a", "Rice and Grains"));
+        patched.getItemMap().put("shelf-b", List.of(List.of(List.of(item("4794", "Butter"), item("4793", "Tea")), List.of()),
+                List.of(List.of(), List.of())));
+        ProductLocationIndex reindexed = new ProductLocationIndex();
+        reindexed.put(patched);
+
+        for (String item : List.of("4791", "4792", "4793", "4794")) {
+            assertThat(locationIndex.find(item, "store-1")).isEqualTo(reindexed.find(item, "store-1"));
+        }
+        assertThat(locationIndex.find("4791", "store-1").get(0).fixtureName()).isEqualTo("Rice and Grains");
+        assertThat(locationIndex.layout("store-1").geometryVersion())
+                .isEqualTo(reindexed.layout("store-1").geometryVersion());
+    }
+
+    //5. Saving writes the version conditionally (a new layout starts at 1) along with the layout's sizes
+    @Test
+    void saveLayout_VersionedPut() {
+        LayoutEntity layout = layout(0);
+        layout.setVersion(null);
+
+        layoutService.saveLayout(layout);
+
+        ArgumentCaptor<PutItemRequest> request = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDbClient).putItem(request.capture());
+        assertThat(request.getValue().conditionExpression()).contains("attribute_not_exists");
+        assertThat(request.getValue().item().get("version").n()).isEqualTo("1");
+        assertThat(request.getValue().item().get("fixtureCount").n()).isEqualTo("2");
+        assertThat(request.getValue().item().get("itemCount").n()).isEqualTo("3");
+        assertThat(layout.getVersion()).isEqualTo(1);
+        assertThat(locationIndex.layout("store-1").version()).isEqualTo(1);
+    }
+
+    //6. A layout over the pack threshold is stored as layoutData, read back unpacked, and patched as a whole
+    @Test
+    void packedLayout_SavedAndPatchedWhole() {
+        ReflectionTestUtils.setField(layoutService, "packThresholdBytes", 256);
+        LayoutEntity layout = layout(0);
+        layout.setVersion(null);
+
+        layoutService.saveLayout(layout);
+
+        ArgumentCaptor<PutItemRequest> saved = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDbClient).putItem(saved.capture());
+        Map<String, AttributeValue> stored = saved.getValue().item();
+        assertThat(stored).containsKey("layoutData").doesNotContainKeys("fixtureLayout", "itemMap");
+        assertThat(stored.get("itemCount").n()).isEqualTo("3");
+        assertThat(layout.getFixtureLayout()).containsOnlyKeys("shelf-a", "shelf-b");
+
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder().item(stored).build());
+        assertThat(layoutService.getLayoutById("store-1").getItemMap().get("shelf-a").get(1).get(1))
+                .extracting(ItemEntity::getName).containsExactly("Fresh Milk");
+
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+        long version = layoutService.patchLayout("store-1", patch(1, setCell("shelf-a", 1, 1, item("4794", "Butter"))));
+
+        assertThat(version).isEqualTo(2);
+        ArgumentCaptor<PutItemRequest> patched = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDbClient, times(2)).putItem(patched.capture());
+        assertThat(patched.getValue().item().get("version").n()).isEqualTo("2");
+        LayoutEntity unpacked = LayoutCodec.decode(patched.getValue().item().get("layoutData").b().asByteArray());
+        assertThat(unpacked.getItemMap().get("shelf-a").get(1).get(1)).extracting(ItemEntity::getName).containsExactly("Butter");
+        assertThat(locationIndex.find("butter", "store-1")).hasSize(1);
+
+        assertThatThrownBy(() -> layoutService.patchLayout("store-1", patch(1, setCell("shelf-a", 5, 0))))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    //7. A cell past the end of its row is refused rather than appended somewhere the index does not expect
+    @Test
+    void patchLayout_CellPastEndOfRow_Refused() {
+        locationIndex.put(layout(3));
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class)))
+                .thenThrow(ConditionalCheckFailedException.builder().message("The conditional request failed").build());
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder()
+                .item(TableSchema.fromBean(LayoutEntity.class).itemToMap(layout(3), true)).build());
+
+        assertThatThrownBy(() -> layoutService.patchLayout("store-1", patch(3, setCell("shelf-a", 0, 2, item("4794", "Butter")))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("no column 2");
+
+        ArgumentCaptor<UpdateItemRequest> request = ArgumentCaptor.forClass(UpdateItemRequest.class);
+        verify(dynamoDbClient).updateItem(request.capture());
+        assertThat(request.getValue().conditionExpression()).endsWith(" AND size(#im.#f0[0]) > :c0");
+        assertThat(request.getValue().expressionAttributeValues()).containsEntry(":c0", AttributeValue.fromN("2"));
+        verify(dynamoDbClient, never()).putItem(any(PutItemRequest.class));
+        assertThat(locationIndex.find("butter", "store-1")).isEmpty();
+        assertThat(locationIndex.layout("store-1").version()).isEqualTo(3);
+
+        LayoutEntity layout = layout(3);
+        assertThatThrownBy(() -> LayoutPatches.applyTo(layout, List.of(setCell("shelf-a", 0, 2))))
+                .isInstanceOf(IllegalArgumentException.class);
+        LayoutPatches.applyTo(layout, List.of(setCell("shelf-a", 0, 1, item("4794", "Butter"))));
+        assertThat(layout.getItemMap().get("shelf-a").get(0)).hasSize(2);
+    }
+
+    //8. A patch that takes a layout past DynamoDB's item size limit is written whole instead, packed
+    @Test
+    void patchLayout_ItemTooLarge_WrittenWholePacked() {
+        ReflectionTestUtils.setField(layoutService, "packThresholdBytes", 256);
+        locationIndex.put(layout(3));
+        when(dynamoDbClient.updateItem(any(UpdateItemRequest.class))).thenThrow(DynamoDbException.builder()
+                .awsErrorDetails(AwsErrorDetails.builder().errorCode("ValidationException")
+                        .errorMessage("Item size to update has exceeded the maximum allowed size").build())
+                .build());
+        when(dynamoDbClient.getItem(any(GetItemRequest.class))).thenReturn(GetItemResponse.builder()
+                .item(TableSchema.fromBean(LayoutEntity.class).itemToMap(layout(3), true)).build());
+
+        long version = layoutService.patchLayout("store-1", patch(3, setCell("shelf-b", 1, 1, item("4794", "Butter"))));
+
+        assertThat(version).isEqualTo(4);
+        ArgumentCaptor<PutItemRequest> written = ArgumentCaptor.forClass(PutItemRequest.class);
+        verify(dynamoDbClient).putItem(written.capture());
+        assertThat(written.getValue().item()).containsKey("layoutData").doesNotContainKey("itemMap");
+        assertThat(written.getValue().item().get("version").n()).isEqualTo("4");
+        assertThat(locationIndex.find("butter", "store-1")).hasSize(1);
+        verify(kafkaProducer).sendLayoutEvent(eq("layout-events"), any(LayoutEvent.class));
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.sb.productservice;
+
+import com.sb.productservice.model.Products;
+import com.sb.productservice.repository.ProductRepository;
+import com.sb.productservice.service.ProductCatalog;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class ProductCatalogTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    private ProductCatalog catalog;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(productRepository.findAll()).thenReturn(List.of(
+                product("4791", "Rice", "Grocery", "Araliya"),
+                product("4792", "Milk", "Dairy", "Anchor"),
+                product("4793", "Butter", "dairy", "Anchor")));
+        catalog = new ProductCatalog(productRepository);
+        catalog.reload();
+    }
+
+    private static Products product(String barcode, String name, String category, String brand) {
+        Products product = new Products();
+        product.setBarcode(barcode);
+        product.setProductName(name);
+        product.setProductDescription(name);
+        product.setProductPrice(100.0);
+        product.setProductQuantity(5);
+        product.setProductCategory(category);
+        product.setProductBrand(brand);
+        product.setProductWeight(1.0);
+        product.setAddedDate(LocalDateTime.now());
+        return product;
+    }
+
+    private static List<String> barcodes(List<ProductCatalog.Entry> entries) {
+        return entries.stream().map(ProductCatalog.Entry::barcode).toList();
+    }
+
+    //1. Loaded products are found by barcode and by category/brand regardless of case
+    @Test
+    void reload_IndexesProducts() {
+        assertThat(catalog.size()).isEqualTo(3);
+        assertThat(catalog.findByBarcode("4792").productName()).isEqualTo("Milk");
+        assertThat(catalog.findByBarcode("0000")).isNull();
+        assertThat(barcodes(catalog.findByCategory("DAIRY"))).containsExactlyInAnyOrder("4792", "4793");
+        assertThat(barcodes(catalog.findByBrand("anchor"))).containsExactlyInAnyOrder("4792", "4793");
+        assertThat(catalog.findByCategory("Bakery")).isEmpty();
+    }
+
+    //2. An update that changes category and brand moves the product between lists
+    @Test
+    void put_ExistingBarcode_MovesBetweenIndices() {
+        catalog.put(ProductCatalog.Entry.of(product("4792", "Yoghurt", "Grocery", "Highland")));
+
+        assertThat(catalog.size()).isEqualTo(3);
+        assertThat(catalog.findByBarcode("4792").productName()).isEqualTo("Yoghurt");
+        assertThat(barcodes(catalog.findByCategory("dairy"))).containsExactly("4793");
+        assertThat(barcodes(catalog.findByCategory("grocery"))).containsExactlyInAnyOrder("4791", "4792");
+        assertThat(barcodes(catalog.findByBrand("highland"))).containsExactly("4792");
+    }
+
+    //3. Removing the last product of a brand drops the brand
+    @Test
+    void remove_DropsFromAllIndices() {
+        catalog.remove("4791");
+
+        assertThat(catalog.findByBarcode("4791")).isNull();
+        assertThat(catalog.findByBrand("araliya")).isEmpty();
+        assertThat(catalog.findByCategory("grocery")).isEmpty();
+        assertThat(catalog.size()).isEqualTo(2);
+    }
+
+    //4. Readers holding an earlier result are not affected by later writes
+    @Test
+    void lookupResults_AreStableAcrossWrites() {
+        List<ProductCatalog.Entry> dairy = catalog.findByCategory("dairy");
+
+        catalog.remove("4792");
+
+        assertThat(barcodes(dairy)).containsExactlyInAnyOrder("4792", "4793");
+        assertThat(barcodes(catalog.findByCategory("dairy"))).containsExactly("4793");
+    }
+
+    //5. A conditional replace only applies while the product still shows the expected image
+    @Test
+    void replaceIf_ImageChanged_KeepsNewerEntry() {
+        Products milk = product("4792", "Milk", "Dairy", "Anchor");
+        milk.setProductImage("images/4792-a.jpg");
+        catalog.put(ProductCatalog.Entry.of(milk));
+
+        assertThat(catalog.replaceIf("4792", "images/4792-a.jpg", entry -> entry.withImageVariants("thumb")))
+                .extracting(ProductCatalog.Entry::imageVariants).isEqualTo("thumb");
+
+        milk.setProductImage("images/4792-b.jpg");
+        catalog.put(ProductCatalog.Entry.of(milk));
+        assertThat(catalog.replaceIf("4792", "images/4792-a.jpg", entry -> entry.withImageVariants("small"))).isNull();
+        assertThat(catalog.replaceIf("0000", null, entry -> entry.withImageVariants("small"))).isNull();
+
+        assertThat(catalog.findByBarcode("4792").productImage()).isEqualTo("images/4792-b.jpg");
+        assertThat(catalog.findByBarcode("4792").imageVariants()).isNull();
+        assertThat(barcodes(catalog.findByBrand("anchor"))).containsExactlyInAnyOrder("4792", "4793");
+    }
+
+}
@@ -0,0 +1,273 @@
+package com.sb.productservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.productservice.dto.AddProductDTO;
+import com.sb.productservice.dto.UpdateProductDTO;
+import com.sb.productservice.kafka.KafkaProducer;
+import com.sb.productservice.model.Products;
+import com.sb.productservice.repository.ProductRepository;
+import com.sb.productservice.service.BackupOutboxService;
+import com.sb.productservice.service.ImageVariantService;
+import com.sb.productservice.service.ProductCatalog;
+import com.sb.productservice.service.ProductSearchIndex;
+import com.sb.productservice.service.ProductServiceImpl;
+import com.sb.productservice.service.S3Service;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+public class ProductImageTest {
+
+    private static final String FOLDER = "images/Dairy/Anchor";
+    private static final String BUCKET_URL = "https://bucket.s3.ap-south-1.amazonaws.com/";
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private S3Service s3Service;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    @Mock
+    private ProductCatalog productCatalog;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private ImageVariantService imageVariantService;
+
+    @Mock
+    private BackupOutboxService backupOutboxService;
+
+    private ProductServiceImpl productService;
+
+    // Runs the callbacks and synchronizations of a real transaction without a database behind it
+    private static class NoOpTransactionManager extends AbstractPlatformTransactionManager {
+
+        @Override
+        protected Object doGetTransaction() {
+            return new Object();
+        }
+
+        @Override
+        protected void doBegin(Object transaction, TransactionDefinition definition) {
+        }
+
+        @Override
+        protected void doCommit(DefaultTransactionStatus status) {
+        }
+
+        @Override
+        protected void doRollback(DefaultTransactionStatus status) {
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        productService = new ProductServiceImpl(productRepository, s3Service, kafkaProducer, productCatalog,
+                productSearchIndex, new ObjectMapper(), new TransactionTemplate(new NoOpTransactionManager()),
+                imageVariantService, null, backupOutboxService);
+        ReflectionTestUtils.setField(productService, "bucketName", "bucket");
+        ReflectionTestUtils.setField(productService, "region", "ap-south-1");
+        when(s3Service.uploadImage(eq(FOLDER), anyString(), any()))
+                .thenAnswer(invocation -> BUCKET_URL + FOLDER + "/" + invocation.getArgument(1));
+        when(productRepository.save(any(Products.class))).thenAnswer(invocation -> {
+            Products product = invocation.getArgument(0);
+            if (product.getId() == null) {
+                product.setId(UUID.randomUUID());
+            }
+            return product;
+        });
+    }
+
+    private static MockMultipartFile image() {
+        return new MockMultipartFile("productImage", "milk.jpg", "image/jpeg", new byte[]{1, 2, 3});
+    }
+
+    private static AddProductDTO newProduct() {
+        AddProductDTO dto = new AddProductDTO();
+        dto.setBarcode("4791");
+        dto.setProductName("Milk");
+        dto.setProductDescription("Full cream");
+        dto.setProductPrice(100.0);
+        dto.setProductQuantity(5);
+        dto.setProductCategory("Dairy");
+        dto.setProductBrand("Anchor");
+        dto.setProductWeight(1.0);
+        dto.setProductImage(image());
+        return dto;
+    }
+
+    private static UpdateProductDTO productUpdate() {
+        UpdateProductDTO dto = new UpdateProductDTO();
+        dto.setBarcode("4791");
+        dto.setProductName("Milk");
+        dto.setProductDescription("Low fat");
+        dto.setProductPrice(120.0);
+        dto.setProductQuantity(5);
+        dto.setProductCategory("Dairy");
+        dto.setProductBrand("Anchor");
+        dto.setProductWeight(1.0);
+        dto.setProductImage(image());
+        return dto;
+    }
+
+    private static Products stored(String image) {
+        Products product = new Products();
+        product.setId(UUID.randomUUID());
+        product.setBarcode("4791");
+        product.setAddedDate(LocalDateTime.now());
+        product.setProductImage(image);
+        return product;
+    }
+
+    private String uploadedFilename() {
+        ArgumentCaptor<String> filename = ArgumentCaptor.forClass(String.class);
+        verify(s3Service).uploadImage(eq(FOLDER), filename.capture(), any());
+        return filename.getValue();
+    }
+
+    //1. A barcode already in the database is rejected before anything is uploaded, whatever the catalog says
+    @Test
+    void addProduct_ExistingBarcode_RejectedBeforeUpload() {
+        when(productRepository.existsByBarcode("4791")).thenReturn(true);
+
+        assertThatThrownBy(() -> productService.addProduct(newProduct())).isInstanceOf(IllegalArgumentException.class);
+
+        verify(s3Service, never()).uploadImage(any(), any(), any());
+        verifyNoInteractions(productCatalog);
+    }
+
+    //2. The image goes to a key of its own, and a failed save removes exactly that key
+    @Test
+    void addProduct_SaveFails_DiscardsOnlyOwnUpload() {
+        when(productRepository.save(any(Products.class))).thenThrow(new DataIntegrityViolationException("duplicate barcode"));
+
+        assertThatThrownBy(() -> productService.addProduct(newProduct())).isInstanceOf(DataIntegrityViolationException.class);
+
+        String filename = uploadedFilename();
+        assertThat(filename).startsWith("4791-").endsWith(".jpg").isNotEqualTo("4791.jpg");
+        verify(s3Service).deleteImage(FOLDER, filename);
+        verify(s3Service, times(1)).deleteImage(any(), any());
+        verify(imageVariantService, never()).submit(any(), any(), any(), any());
+    }
+
+    //3. Two adds never share a key, and the saved row references the upload
+    @Test
+    void addProduct_Saved_ReferencesOwnKey() {
+        productService.addProduct(newProduct());
+        productService.addProduct(newProduct());
+
+        ArgumentCaptor<Products> saved = ArgumentCaptor.forClass(Products.class);
+        verify(productRepository, times(2)).save(saved.capture());
+        assertThat(saved.getAllValues().get(0).getProductImage()).startsWith(BUCKET_URL + FOLDER + "/4791-")
+                .isNotEqualTo(saved.getAllValues().get(1).getProductImage());
+        verify(s3Service, never()).deleteImage(any(), any());
+    }
+
+    //4. A new image is uploaded next to the live one, which is only removed once the update has committed
+    @Test
+    void updateProduct_NewImage_OldRemovedAfterCommit() {
+        when(productCatalog.findByBarcode("4791")).thenReturn(mock(ProductCatalog.Entry.class));
+        Products existing = stored(BUCKET_URL + FOLDER + "/4791.jpg");
+        when(productRepository.findByBarcode("4791")).thenReturn(Optional.of(existing));
+
+        productService.updateProduct(productUpdate());
+
+        String filename = uploadedFilename();
+        assertThat(existing.getProductImage()).isEqualTo(BUCKET_URL + FOLDER + "/" + filename);
+        verify(s3Service).deleteImage(FOLDER, "4791.jpg");
+        verify(s3Service).deleteImage(FOLDER, "4791_thumb.jpg");
+        verify(s3Service, never()).deleteImage(FOLDER, filename);
+    }
+
+    //5. A failed update keeps the live image and removes only the replacement it uploaded
+    @Test
+    void updateProduct_Fails_LiveImageKept() {
+        when(productCatalog.findByBarcode("4791")).thenReturn(mock(ProductCatalog.Entry.class));
+        when(productRepository.findByBarcode("4791")).thenReturn(Optional.of(stored(BUCKET_URL + FOLDER + "/4791.jpg")));
+        when(productRepository.save(any(Products.class))).thenThrow(new DataIntegrityViolationException("constraint"));
+
+        assertThatThrownBy(() -> productService.updateProduct(productUpdate()))
+                .isInstanceOf(DataIntegrityViolationException.class);
+
+        String filename = uploadedFilename();
+        verify(s3Service).deleteImage(FOLDER, filename);
+        verify(s3Service, never()).deleteImage(FOLDER, "4791.jpg");
+    }
+
+    @SuppressWarnings("unchecked")
+    private Consumer<List<String>> variantJob() {
+        ArgumentCaptor<Consumer<List<String>>> onReady = ArgumentCaptor.forClass(Consumer.class);
+        verify(imageVariantService).submit(eq("4791"), eq(FOLDER), anyString(), onReady.capture());
+        return onReady.getValue();
+    }
+
+    //6. Variants are only marked ready on the row while it still shows the image they were made from
+    @Test
+    @SuppressWarnings("unchecked")
+    void variantsReady_CurrentImage_Marked() {
+        productService.addProduct(newProduct());
+        clearInvocations(productCatalog, productSearchIndex);
+        String filename = uploadedFilename();
+        String image = BUCKET_URL + FOLDER + "/" + filename;
+        when(productRepository.updateImageVariants("4791", image, "thumb,small")).thenReturn(1);
+        ProductCatalog.Entry current = new ProductCatalog.Entry("4791", "Milk", "Full cream",
+                100.0, 5, "Dairy", "Anchor", 1.0, image, LocalDateTime.now(), null);
+        when(productCatalog.replaceIf(eq("4791"), eq(image), any())).thenAnswer(invocation ->
+                invocation.<UnaryOperator<ProductCatalog.Entry>>getArgument(2).apply(current));
+
+        variantJob().accept(List.of("thumb", "small"));
+
+        ArgumentCaptor<UnaryOperator<ProductCatalog.Entry>> change = ArgumentCaptor.forClass(UnaryOperator.class);
+        verify(productCatalog).replaceIf(eq("4791"), eq(image), change.capture());
+        assertThat(change.getValue().apply(current).imageVariants()).isEqualTo("thumb,small");
+        verify(productSearchIndex).refresh("4791");
+        verify(s3Service, never()).deleteImage(any(), any());
+    }
+
+    //7. A job that finishes after its image was replaced marks nothing and removes the variants it stored
+    @Test
+    void variantsReady_ImageReplaced_NotMarked() {
+        productService.addProduct(newProduct());
+        clearInvocations(productCatalog);
+        String filename = uploadedFilename();
+        String stem = filename.substring(0, filename.length() - ".jpg".length());
+        when(productRepository.updateImageVariants(eq("4791"), anyString(), anyString())).thenReturn(0);
+
+        variantJob().accept(List.of("thumb", "small"));
+
+        verify(productRepository).updateImageVariants("4791", BUCKET_URL + FOLDER + "/" + filename, "thumb,small");
+        verify(s3Service).deleteImage(FOLDER, stem + "_thumb.jpg");
+        verify(s3Service).deleteImage(FOLDER, stem + "_small.jpg");
+        verify(productCatalog, never()).replaceIf(any(), any(), any());
+    }
+
+}
@@ -0,0 +1,292 @@
+package com.sb.productservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.backupservice.grpc.BulkAddResponse;
+import com.sb.backupservice.grpc.ProductBackupServiceGrpc;
+import com.sb.backupservice.grpc.ProductBatch;
+import com.sb.productservice.dto.ImportReportDTO;
+import com.sb.productservice.kafka.KafkaProducer;
+import com.sb.productservice.service.ProductCatalog;
+import com.sb.productservice.service.ProductImportService;
+import com.sb.productservice.service.ProductSearchIndex;
+import io.grpc.Status;
+import io.grpc.stub.ClientCallStreamObserver;
+import io.grpc.stub.ClientResponseObserver;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProductImportTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ProductCatalog productCatalog;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    @Mock
+    private ProductBackupServiceGrpc.ProductBackupServiceStub productBackupAsyncStub;
+
+    private ProductImportService importService;
+    private final List<List<String>> backedUpBatches = new ArrayList<>();
+    private final List<List<String>> insertedBatches = new ArrayList<>();
+    private final List<List<String>> outboxBatches = new ArrayList<>();
+    private boolean backupFails;
+
+    // Stands in for the backup-service end of the stream: records each batch and answers with the total on completion
+    private class BackupStream extends ClientCallStreamObserver<ProductBatch> {
+
+        private final ClientResponseObserver<ProductBatch, BulkAddResponse> responseObserver;
+
+        BackupStream(ClientResponseObserver<ProductBatch, BulkAddResponse> responseObserver) {
+            this.responseObserver = responseObserver;
+        }
+
+        @Override
+        public void onNext(ProductBatch batch) {
+            backedUpBatches.add(batch.getProductsList().stream().map(p -> p.getBarcode()).toList());
+        }
+
+        @Override
+        public void onCompleted() {
+            if (backupFails) {
+                responseObserver.onError(Status.UNAVAILABLE.withDescription("backup-service down").asRuntimeException());
+                return;
+            }
+            int saved = backedUpBatches.stream().mapToInt(List::size).sum();
+            responseObserver.onNext(BulkAddResponse.newBuilder().setStatus("saved " + saved).setSaved(saved).build());
+            responseObserver.onCompleted();
+        }
+
+        @Override
+        public void onError(Throwable t) {
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void cancel(String message, Throwable cause) {
+        }
+
+        @Override
+        public void setOnReadyHandler(Runnable onReadyHandler) {
+        }
+
+        @Override
+        public void request(int count) {
+        }
+
+        @Override
+        public void setMessageCompression(boolean enable) {
+        }
+
+        @Override
+        public void disableAutoInboundFlowControl() {
+        }
+    }
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+
+        when(productBackupAsyncStub.bulkAddProducts(any())).thenAnswer(invocation -> {
+            ClientResponseObserver<ProductBatch, BulkAddResponse> responseObserver = invocation.getArgument(0);
+            BackupStream stream = new BackupStream(responseObserver);
+            responseObserver.beforeStart(stream);
+            return stream;
+        });
+
+        importService = new ProductImportService(jdbcTemplate, new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                productCatalog, productSearchIndex, kafkaProducer, new ObjectMapper(),
+                Validation.buildDefaultValidatorFactory().getValidator());
+        ReflectionTestUtils.setField(importService, "batchSize", 2);
+        ReflectionTestUtils.setField(importService, "maxErrors", 100);
+        ReflectionTestUtils.setField(importService, "backupTimeoutMs", 5000L);
+        ReflectionTestUtils.setField(importService, "backupHoldMs", 60000L);
+        ReflectionTestUtils.setField(importService, "productBackupAsyncStub", productBackupAsyncStub);
+
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    String sql = invocation.getArgument(0);
+                    Collection<Object> rows = invocation.getArgument(1);
+                    ParameterizedPreparedStatementSetter<Object> setter = invocation.getArgument(3);
+                    List<String> barcodes = new ArrayList<>();
+                    for (Object row : rows) {
+                        barcodes.add(boundBarcode(sql, ps -> setter.setValues(ps, row)));
+                    }
+                    (sql.contains("backup_outbox") ? outboxBatches : insertedBatches).add(barcodes);
+                    return new int[][]{};
+                });
+    }
+
+    // Runs the statement setter against a mock statement and returns the barcode it bound
+    private static String boundBarcode(String sql, PreparedStatementSetter setter) throws Exception {
+        PreparedStatement ps = mock(PreparedStatement.class);
+        setter.setValues(ps);
+        ArgumentCaptor<String> barcode = ArgumentCaptor.forClass(String.class);
+        verify(ps).setString(eq(sql.contains("backup_outbox") ? 1 : 2), barcode.capture());
+        return barcode.getValue();
+    }
+
+    private ImportReportDTO importCsv(String csv) throws Exception {
+        return importService.importProducts(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)),
+                ProductImportService.Format.of("text/csv"));
+    }
+
+    private static final String HEADER = "barcode,productName,productDescription,productPrice,productQuantity,productCategory,productBrand,productWeight\n";
+
+    //1. Valid rows are inserted and backed up in batches; every rejected row is reported with its line number
+    @Test
+    void importCsv_BatchesValidRowsAndReportsRejected() throws Exception {
+        when(productCatalog.findByBarcode("4799")).thenReturn(mock(ProductCatalog.Entry.class));
+
+        ImportReportDTO report = importCsv(HEADER
+                + "4791,\"Basmati Rice, 1kg\",Long grain aromatic rice,450.0,20,Grocery,Araliya,1.0\n"
+                + "4792,Milk,Full cream fresh milk,abc,10,Dairy,Anchor,1.0\n"
+                + "\n"
+                + "4793,Rice Flour,For string hoppers and pittu,210,15,Grocery,Araliya,0.5\n"
+                + "4791,Basmati Rice,Long grain aromatic rice,450.0,20,Grocery,Araliya,1.0\n"
+                + "4799,Butter,Salted butter made from milk,900,5,Dairy,Anchor,0.2\n"
+                + "4794,Yoghurt,Set yoghurt in a clay pot,120,30,Dairy,Highland,0.4\n");
+
+        assertThat(report.getTotalRows()).isEqualTo(6);
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(report.getFailed()).isEqualTo(3);
+        assertThat(report.getErrors()).extracting(ImportReportDTO.RowError::line).containsExactly(3L, 6L, 7L);
+        assertThat(report.getErrors().get(0).message()).isEqualTo("productPrice must be a number");
+        assertThat(report.getErrors().get(1).message()).isEqualTo("Duplicate barcode, already on line 2");
+        assertThat(report.getErrors().get(2).message()).isEqualTo("Product with the given barcode already exists.");
+
+        assertThat(insertedBatches).containsExactly(List.of("4791", "4793"), List.of("4794"));
+        assertThat(outboxBatches).isEqualTo(insertedBatches);
+        assertThat(backedUpBatches).containsExactly(List.of("4791", "4793"), List.of("4794"));
+        assertThat(report.getBackedUp()).isEqualTo(3);
+        // Confirmed by the stream, so the held outbox rows are dropped rather than relayed
+        verify(jdbcTemplate).update(startsWith("delete from backup_outbox"), any(Timestamp.class));
+        verify(jdbcTemplate, never()).update(startsWith("update backup_outbox"), any(Timestamp.class));
+        verify(productCatalog, times(2)).putAll(any());
+        verify(productSearchIndex).rebuild();
+        verify(kafkaProducer, times(3)).sendProductChangedEvent(eq("product-events"), any());
+    }
+
+    //2. NDJSON rows use the same validation; a malformed line is reported and the rest still imported
+    @Test
+    void importNdjson_MalformedAndInvalidLines() throws Exception {
+        String ndjson = """
+                {"barcode":"4791","productName":"Basmati Rice","productDescription":"Long grain aromatic rice","productPrice":450,"productQuantity":20,"productCategory":"Grocery","productBrand":"Araliya","productWeight":1}
+                {"barcode":"4792", oops
+                {"barcode":"4793","productName":"Ri","productDescription":"For string hoppers and pittu","productPrice":-1,"productQuantity":15,"productCategory":"Grocery","productBrand":"Araliya","productWeight":0.5}
+                """;
+
+        ImportReportDTO report = importService.importProducts(new ByteArrayInputStream(ndjson.getBytes(StandardCharsets.UTF_8)),
+                ProductImportService.Format.of("application/x-ndjson"));
+
+        assertThat(report.getImported()).isEqualTo(1);
+        assertThat(report.getErrors()).extracting(ImportReportDTO.RowError::line).containsExactly(2L, 3L);
+        assertThat(report.getErrors().get(0).message()).startsWith("Malformed JSON");
+        assertThat(report.getErrors().get(1).message())
+                .isEqualTo("Product Name must be between 3 and 50 characters; productPrice must be a non-negative number");
+        assertThat(backedUpBatches).containsExactly(List.of("4791"));
+    }
+
+    //3. A batch rejected by the database is retried row by row so only the conflicting row fails
+    @Test
+    void importCsv_DuplicateKeyInBatch_RetriedRowByRow() throws Exception {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DuplicateKeyException("Duplicate entry '4792'"));
+        List<String> outboxRows = new ArrayList<>();
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class))).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            String barcode = boundBarcode(sql, invocation.getArgument(1));
+            if (sql.contains("backup_outbox")) {
+                outboxRows.add(barcode);
+            } else if (barcode.equals("4792")) {
+                throw new DuplicateKeyException("Duplicate entry '4792'");
+            }
+            return 1;
+        });
+
+        ImportReportDTO report = importCsv(HEADER
+                + "4791,Basmati Rice,Long grain aromatic rice,450.0,20,Grocery,Araliya,1.0\n"
+                + "4792,Fresh Milk,Full cream fresh milk,300,10,Dairy,Anchor,1.0\n");
+
+        assertThat(report.getImported()).isEqualTo(1);
+        assertThat(report.getErrors()).containsExactly(
+                new ImportReportDTO.RowError(3, "4792", "Product with the given barcode already exists."));
+        assertThat(backedUpBatches).containsExactly(List.of("4791"));
+        assertThat(outboxRows).containsExactly("4791");
+    }
+
+    //4. A CSV without the required columns is refused before anything is written
+    @Test
+    void importCsv_MissingColumns_Rejected() {
+        assertThatThrownBy(() -> importCsv("barcode,productName\n4791,Rice\n"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("productDescription");
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class));
+        verify(productBackupAsyncStub, never()).bulkAddProducts(any());
+    }
+
+    //5. When the stream fails, the outbox rows written with each batch are released to the relay instead
+    @Test
+    void importCsv_BackupFails_ReleasedToOutbox() throws Exception {
+        backupFails = true;
+
+        ImportReportDTO report = importCsv(HEADER
+                + "4791,Basmati Rice,Long grain aromatic rice,450.0,20,Grocery,Araliya,1.0\n"
+                + "4793,Rice Flour,For string hoppers and pittu,210,15,Grocery,Araliya,0.5\n"
+                + "4794,Yoghurt,Set yoghurt in a clay pot,120,30,Dairy,Highland,0.4\n");
+
+        assertThat(report.getImported()).isEqualTo(3);
+        assertThat(report.getBackupStatus()).contains("backup-service down").endsWith("the rest goes through the outbox");
+        assertThat(outboxBatches).containsExactly(List.of("4791", "4793"), List.of("4794"));
+        ArgumentCaptor<Timestamp> heldUntil = ArgumentCaptor.forClass(Timestamp.class);
+        verify(jdbcTemplate).update(startsWith("update backup_outbox set next_attempt_at = null"), heldUntil.capture());
+        assertThat(heldUntil.getValue().toLocalDateTime()).isAfter(LocalDateTime.now());
+        verify(jdbcTemplate, never()).update(startsWith("delete from backup_outbox"), any(Timestamp.class));
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.sb.productservice;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.productservice.dto.GetProductDTO;
+import com.sb.productservice.dto.ProductPageDTO;
+import com.sb.productservice.kafka.KafkaProducer;
+import com.sb.productservice.repository.ProductRepository;
+import com.sb.productservice.service.ProductCatalog;
+import com.sb.productservice.service.ProductSearchIndex;
+import com.sb.productservice.service.ProductServiceImpl;
+import com.sb.productservice.service.S3Service;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ProductListingTest {
+
+    @Mock
+    private ProductRepository productRepository;
+
+    @Mock
+    private S3Service s3Service;
+
+    @Mock
+    private KafkaProducer kafkaProducer;
+
+    @Mock
+    private ProductCatalog productCatalog;
+
+    @Mock
+    private ProductSearchIndex productSearchIndex;
+
+    private ProductServiceImpl productService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        productService = new ProductServiceImpl(productRepository, s3Service, kafkaProducer, productCatalog,
+                productSearchIndex, new ObjectMapper(), null, null, null, null);
+        ReflectionTestUtils.setField(productService, "defaultPageSize", 2);
+        ReflectionTestUtils.setField(productService, "maxPageSize", 3);
+    }
+
+    private static GetProductDTO product(String barcode) {
+        return new GetProductDTO(barcode, "Product " + barcode, "", 100.0, 5, "Dairy", "Anchor", 1.0, null, null);
+    }
+
+    //1. A full page hands back its last barcode as the cursor for the next one
+    @Test
+    void getProductsPage_FullPage_ReturnsCursor() {
+        when(productRepository.findPage(isNull(), eq("Dairy"), isNull(), eq(Limit.of(2))))
+                .thenReturn(List.of(product("4791"), product("4792")));
+
+        ProductPageDTO page = productService.getProductsPage(null, null, "Dairy", " ");
+
+        assertThat(page.getSize()).isEqualTo(2);
+        assertThat(page.getNextCursor()).isEqualTo("4792");
+    }
+
+    //2. A short page is the last one, and oversized requests are clamped
+    @Test
+    void getProductsPage_LastPage_NoCursor() {
+        when(productRepository.findPage(eq("4792"), isNull(), isNull(), any(Limit.class)))
+                .thenReturn(List.of(product("4793")));
+
+        ProductPageDTO page = productService.getProductsPage("4792", 1000, null, null);
+
+        verify(productRepository).findPage("4792", null, null, Limit.of(3));
+        assertThat(page.getNextCursor()).isNull();
+    }
+
+    //3. Streaming writes one JSON object per line
+    @Test
+    void streamProducts_WritesNdjson() throws Exception {
+        when(productRepository.streamAll(null, "Anchor")).thenReturn(Stream.of(product("4791"), product("4792")));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        productService.streamProducts(null, "Anchor", out);
+
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).startsWith("{\"barcode\":\"4791\"");
+        assertThat(lines[1]).startsWith("{\"barcode\":\"4792\"");
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.sb.productservice;
+
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.grpc.ProductLookupRequest;
+import com.sb.productservice.grpc.ProductShelfRowResponse;
+import com.sb.productservice.model.LayoutEntity;
+import com.sb.productservice.service.ProductLocationIndex;
+import com.sb.productservice.service.ProductLookUpGrpc;
+import com.sb.productservice.service.StoreRoutePlanner;
+import io.grpc.stub.StreamObserver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static com.sb.productservice.LayoutFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+public class ProductLocationIndexTest {
+
+    private ProductLocationIndex locationIndex;
+
+    @BeforeEach
+    void setUp() {
+        locationIndex = new ProductLocationIndex();
+    }
+
+    // Shelf A: row 0 = [[rice], []], row 1 = [[], [milk, butter]]
+    private static LayoutEntity layout(String layoutId, ItemEntity... row1Col1) {
+        LayoutEntity layout = new LayoutEntity();
+        layout.setLayoutId(layoutId);
+        layout.setFixtureLayout(Map.of("shelf-a", fixture("shelf-a", "Aisle 1 Left")));
+        List<List<List<ItemEntity>>> grid = List.of(
+                List.of(List.of(item("4791", "Basmati Rice")), List.of()),
+                List.of(List.of(), new ArrayList<>(List.of(row1Col1))));
+        layout.setItemMap(Map.of("shelf-a", grid));
+        return layout;
+    }
+
+    //1. Items are found by id or by case-insensitive name, at their fixture, row, column and stack position
+    @Test
+    void find_ByIdAndName() {
+        locationIndex.put(layout("store-1", item("4792", "Fresh Milk"), item("4794", "Butter")));
+
+        assertThat(locationIndex.find("4794", null)).containsExactly(
+                new ProductLocationIndex.Location("store-1", "shelf-a", "Aisle 1 Left", 1, 1, 1, "4794", "Butter"));
+        assertThat(locationIndex.find("  fresh MILK ", null)).extracting(ProductLocationIndex.Location::itemId)
+                .containsExactly("4792");
+        assertThat(locationIndex.find("Yoghurt", null)).isEmpty();
+    }
+
+    //2. Saving a layout again replaces only its own locations; deleting it drops them
+    @Test
+    void putAndRemove_ReplaceLayoutLocations() {
+        locationIndex.put(layout("store-1", item("4792", "Fresh Milk")));
+        locationIndex.put(layout("store-2", item("4792", "Fresh Milk")));
+        assertThat(locationIndex.find("4792", null)).extracting(ProductLocationIndex.Location::layoutId)
+                .containsExactly("store-1", "store-2");
+        assertThat(locationIndex.find("4792", "store-2")).hasSize(1);
+
+        locationIndex.put(layout("store-1", item("4794", "Butter")));
+        locationIndex.remove("store-2");
+
+        assertThat(locationIndex.find("4792", null)).isEmpty();
+        assertThat(locationIndex.find("butter", "store-1")).hasSize(1);
+        assertThat(locationIndex.find("4791", "store-2")).isEmpty();
+        assertThat(locationIndex.layoutCount()).isEqualTo(1);
+    }
+
+    //3. A reload that raced with a layout save keeps the newer state
+    @Test
+    void reload_ConcurrentSave_KeepsNewer() {
+        locationIndex.reload(() -> {
+            locationIndex.put(layout("store-1", item("4794", "Butter")));
+            return List.of(layout("store-1", item("4792", "Fresh Milk")));
+        });
+
+        assertThat(locationIndex.find("4794", null)).hasSize(1);
+        assertThat(locationIndex.find("4792", null)).isEmpty();
+    }
+
+    //4. The lookup RPC answers from the index, first location in the legacy shelf/row fields
+    @Test
+    @SuppressWarnings("unchecked")
+    void getProductShelfRow_AnswersFromIndex() {
+        locationIndex.put(layout("store-1", item("4792", "Fresh Milk")));
+        ProductLookUpGrpc lookup = new ProductLookUpGrpc(locationIndex, new StoreRoutePlanner(locationIndex));
+        StreamObserver<ProductShelfRowResponse> observer = mock(StreamObserver.class);
+
+        lookup.getProductShelfRow(ProductLookupRequest.newBuilder().setItemName("basmati rice").build(), observer);
+
+        ArgumentCaptor<ProductShelfRowResponse> response = ArgumentCaptor.forClass(ProductShelfRowResponse.class);
+        verify(observer).onNext(response.capture());
+        verify(observer).onCompleted();
+        assertThat(response.getValue().getExists()).isTrue();
+        assertThat(response.getValue().getShelfNumber()).isZero();
+        assertThat(response.getValue().getLocations(0).getFixtureName()).isEqualTo("Aisle 1 Left");
+        assertThat(response.getValue().getLocations(0).getItemId()).isEqualTo("4791");
+    }
+
+    //5. Without a layout id every layout is searched in layout id order, and an id match anywhere beats a name match
+    @Test
+    void find_AcrossLayouts_InLayoutIdOrder() {
+        locationIndex.put(layout("store-3", item("4792", "Fresh Milk")));
+        locationIndex.put(layout("store-1", item("4792", "Fresh Milk")));
+        locationIndex.put(layout("store-2", item("butter", "Butter")));
+
+        assertThat(locationIndex.find("4792", null)).extracting(ProductLocationIndex.Location::layoutId)
+                .containsExactly("store-1", "store-3");
+        assertThat(locationIndex.find("fresh milk", null)).extracting(ProductLocationIndex.Location::layoutId)
+                .containsExactly("store-1", "store-3");
+        assertThat(locationIndex.find("4791", null)).extracting(ProductLocationIndex.Location::layoutId)
+                .containsExactly("store-1", "store-2", "store-3");
+        assertThat(locationIndex.find("butter", null)).extracting(ProductLocationIndex.Location::itemId)
+                .containsExactly("butter");
+    }
+
+}
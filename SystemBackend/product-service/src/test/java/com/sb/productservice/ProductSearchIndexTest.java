@@ -0,0 +1,88 @@
+package com.sb.productservice;
+
+import com.sb.productservice.service.ProductCatalog;
+import com.sb.productservice.service.ProductSearchIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+public class ProductSearchIndexTest {
+
+    @Mock
+    private ProductCatalog productCatalog;
+
+    private ProductSearchIndex searchIndex;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(productCatalog.findAll()).thenReturn(List.of(
+                entry("4791", "Basmati Rice 1kg", "Long grain rice", "Grocery", "Araliya"),
+                entry("4792", "Fresh Milk", "Full cream milk", "Dairy", "Anchor"),
+                entry("4793", "Rice Flour", "For string hoppers and pittu", "Grocery", "Araliya"),
+                entry("4794", "Butter", "Salted, made from fresh milk", "Dairy", "Anchor")));
+        searchIndex = new ProductSearchIndex(productCatalog);
+        searchIndex.rebuild();
+    }
+
+    private static ProductCatalog.Entry entry(String barcode, String name, String description, String category, String brand) {
+        return new ProductCatalog.Entry(barcode, name, description, 100.0, 5, category, brand, 1.0, null, null, null);
+    }
+
+    private List<String> search(String query) {
+        return searchIndex.search(query, 10).stream().map(ProductCatalog.Entry::barcode).toList();
+    }
+
+    //1. Word prefixes match, and a name hit ranks above a description hit
+    @Test
+    void search_PrefixAndRanking() {
+        assertThat(search("bas")).containsExactly("4791");
+        assertThat(search("rice")).containsExactly("4791", "4793");
+        assertThat(search("milk")).containsExactly("4792", "4794");
+        assertThat(search("RICE flo")).containsExactly("4793");
+    }
+
+    //2. A single typo still finds the product; every query word must match
+    @Test
+    void search_TypoTolerantAndAllWordsRequired() {
+        assertThat(search("basmti")).containsExactly("4791");
+        assertThat(search("buttre")).containsExactly("4794");
+        assertThat(search("anchr milk")).containsExactly("4792", "4794");
+        assertThat(search("milk rice")).isEmpty();
+        assertThat(search("xq")).isEmpty();
+    }
+
+    //3. Updates and deletes are reflected immediately, and the result size is bounded
+    @Test
+    void putAndRemove_UpdateIndex() {
+        searchIndex.put(entry("4792", "Yoghurt", "Set yoghurt", "Dairy", "Highland"));
+        searchIndex.remove("4791");
+
+        assertThat(search("fresh")).containsExactly("4794");
+        assertThat(search("yog")).containsExactly("4792");
+        assertThat(search("basmati")).isEmpty();
+        assertThat(searchIndex.size()).isEqualTo(3);
+        assertThat(searchIndex.search("dairy", 1)).hasSize(1);
+    }
+
+    //4. A refresh indexes the product as the catalog holds it now, and drops it once the catalog has
+    @Test
+    void refresh_FollowsCatalog() {
+        when(productCatalog.findByBarcode("4792")).thenReturn(entry("4792", "Yoghurt", "Set yoghurt", "Dairy", "Highland"));
+        searchIndex.refresh("4792");
+        assertThat(search("yog")).containsExactly("4792");
+        assertThat(search("fresh")).containsExactly("4794");
+
+        when(productCatalog.findByBarcode("4792")).thenReturn(null);
+        searchIndex.refresh("4792");
+        assertThat(search("yog")).isEmpty();
+        assertThat(searchIndex.size()).isEqualTo(3);
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.sb.productservice;
+
+import com.sb.productservice.service.ImageCache;
+import com.sb.productservice.service.S3ServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.multipart.MultipartFile;
+import software.amazon.awssdk.core.ResponseInputStream;
+import software.amazon.awssdk.core.async.AsyncRequestBody;
+import software.amazon.awssdk.http.AbortableInputStream;
+import software.amazon.awssdk.services.s3.S3AsyncClient;
+import software.amazon.awssdk.services.s3.S3Client;
+import software.amazon.awssdk.services.s3.model.GetObjectRequest;
+import software.amazon.awssdk.services.s3.model.GetObjectResponse;
+import software.amazon.awssdk.services.s3.model.PutObjectRequest;
+import software.amazon.awssdk.services.s3.model.PutObjectResponse;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class S3ServiceImplTest {
+
+    @Mock
+    private S3Client s3Client;
+
+    @Mock
+    private S3AsyncClient s3AsyncClient;
+
+    private S3ServiceImpl s3Service;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        s3Service = new S3ServiceImpl(s3Client, s3AsyncClient, new ImageCache(1 << 20, 1 << 20, Duration.ofMinutes(1)), 1, 100);
+        ReflectionTestUtils.setField(s3Service, "bucketName", "smart-cart");
+        ReflectionTestUtils.setField(s3Service, "region", "ap-south-1");
+    }
+
+    @AfterEach
+    void tearDown() {
+        s3Service.shutdown();
+    }
+
+    private static MultipartFile image(int size) throws Exception {
+        MultipartFile file = mock(MultipartFile.class);
+        when(file.getSize()).thenReturn((long) size);
+        when(file.getContentType()).thenReturn("image/jpeg");
+        when(file.getInputStream()).thenReturn(new ByteArrayInputStream(new byte[size]));
+        return file;
+    }
+
+    private void stored(int size) {
+        when(s3Client.getObject(any(GetObjectRequest.class))).thenAnswer(invocation -> new ResponseInputStream<>(
+                GetObjectResponse.builder().contentLength((long) size).eTag("\"v1\"").contentType("image/jpeg").build(),
+                AbortableInputStream.create(new ByteArrayInputStream(new byte[size]))));
+    }
+
+    //1. The image is streamed with its length instead of being read into memory first
+    @Test
+    void uploadImage_StreamsWithKnownLength() throws Exception {
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+        MultipartFile file = image(20_000_000);
+
+        String url = s3Service.uploadImage("images/Grocery/Araliya", "4791.jpg", file);
+
+        ArgumentCaptor<PutObjectRequest> request = ArgumentCaptor.forClass(PutObjectRequest.class);
+        ArgumentCaptor<AsyncRequestBody> body = ArgumentCaptor.forClass(AsyncRequestBody.class);
+        verify(s3AsyncClient).putObject(request.capture(), body.capture());
+        assertThat(request.getValue().key()).isEqualTo("images/Grocery/Araliya/4791.jpg");
+        assertThat(request.getValue().contentLength()).isEqualTo(20_000_000L);
+        assertThat(body.getValue().contentLength()).isEqualTo(Optional.of(20_000_000L));
+        verify(file, never()).getBytes();
+        assertThat(url).isEqualTo("https://smart-cart.s3.ap-south-1.amazonaws.com/images/Grocery/Araliya/4791.jpg");
+    }
+
+    //2. A failed upload gives its slot back
+    @Test
+    void uploadImage_FailureReleasesSlot() throws Exception {
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class)))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("connection reset")))
+                .thenReturn(CompletableFuture.completedFuture(PutObjectResponse.builder().build()));
+
+        assertThatThrownBy(() -> s3Service.uploadImage("images", "a.jpg", image(10)))
+                .isInstanceOf(RuntimeException.class)
+                .hasMessage("Image upload failed");
+        assertThat(s3Service.uploadImage("images", "b.jpg", image(10))).endsWith("/images/b.jpg");
+    }
+
+    //3. Uploads beyond the concurrency limit wait for a slot and give up after the wait time
+    @Test
+    void uploadImage_BoundedConcurrency() throws Exception {
+        CompletableFuture<PutObjectResponse> inFlight = new CompletableFuture<>();
+        CountDownLatch started = new CountDownLatch(1);
+        when(s3AsyncClient.putObject(any(PutObjectRequest.class), any(AsyncRequestBody.class))).thenAnswer(invocation -> {
+            started.countDown();
+            return inFlight;
+        });
+        MultipartFile first = image(10);
+        MultipartFile second = image(10);
+
+        Thread uploader = new Thread(() -> s3Service.uploadImage("images", "a.jpg", first));
+        uploader.start();
+        assertThat(started.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> s3Service.uploadImage("images", "b.jpg", second))
+                .hasMessageContaining("too many uploads");
+
+        inFlight.complete(PutObjectResponse.builder().build());
+        uploader.join(5000);
+        assertThat(uploader.isAlive()).isFalse();
+    }
+
+    //4. Images within the entry limit are cached off-heap; larger ones are read onto the heap every time, uncached
+    @Test
+    void getCachedImage_OnlyCacheableImagesOffHeap() {
+        stored(1000);
+        ImageCache.CachedImage small = s3Service.getCachedImage("images", "a.jpg");
+        assertThat(small.data().isDirect()).isTrue();
+        assertThat(s3Service.getCachedImage("images", "a.jpg")).isSameAs(small);
+
+        stored((1 << 20) + 1);
+        ImageCache.CachedImage large = s3Service.getCachedImage("images", "b.jpg");
+        assertThat(large.data().isDirect()).isFalse();
+        assertThat(large.size()).isEqualTo((1 << 20) + 1);
+        s3Service.getCachedImage("images", "b.jpg");
+
+        verify(s3Client, times(3)).getObject(any(GetObjectRequest.class));
+        assertThat(s3Service.getImageCacheStats()).containsEntry("entries", 1);
+    }
+
+    //5. An original read for its variants is not kept in the cache
+    @Test
+    void getImage_BypassesCache() {
+        stored(1000);
+
+        assertThat(s3Service.getImage("images", "a.jpg")).hasSize(1000);
+        s3Service.getImage("images", "a.jpg");
+
+        verify(s3Client, times(2)).getObject(any(GetObjectRequest.class));
+        assertThat(s3Service.getImageCacheStats()).containsEntry("entries", 0).containsEntry("misses", 0L);
+    }
+
+}
@@ -0,0 +1,115 @@
+package com.sb.productservice;
+
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.model.LayoutEntity;
+import com.sb.productservice.service.ProductLocationIndex;
+import com.sb.productservice.service.StoreRoutePlanner;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static com.sb.productservice.LayoutFixtures.*;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+public class StoreRoutePlannerTest {
+
+    private ProductLocationIndex locationIndex;
+    private StoreRoutePlanner routePlanner;
+
+    @BeforeEach
+    void setUp() {
+        locationIndex = new ProductLocationIndex();
+        routePlanner = new StoreRoutePlanner(locationIndex);
+        ReflectionTestUtils.setField(routePlanner, "gridResolution", 200);
+    }
+
+    // Each fixture holds the given items on its first shelf row, one per column
+    private static LayoutEntity layout(String layoutId, List<FixtureEntity> fixtures, Map<String, List<ItemEntity>> items) {
+        LayoutEntity layout = new LayoutEntity();
+        layout.setLayoutId(layoutId);
+        Map<String, FixtureEntity> fixtureLayout = new HashMap<>();
+        fixtures.forEach(f -> fixtureLayout.put(f.getId(), f));
+        layout.setFixtureLayout(fixtureLayout);
+        Map<String, List<List<List<ItemEntity>>>> itemMap = new HashMap<>();
+        items.forEach((fixtureId, list) -> itemMap.put(fixtureId, List.of(list.stream().map(List::of).toList())));
+        layout.setItemMap(itemMap);
+        return layout;
+    }
+
+    //1. Items along one aisle are visited end to end from the entrance, whatever order the list has
+    @Test
+    void plan_OrdersAlongAisle() {
+        locationIndex.put(layout("store-1",
+                List.of(fixture("entrance", 0, 0), fixture("s25", 25, 0), fixture("s50", 50, 0),
+                        fixture("s75", 75, 0), fixture("s100", 100, 0)),
+                Map.of("s25", List.of(item("1", "Rice")),
+                        "s50", List.of(item("2", "Milk"), item("3", "Butter")),
+                        "s75", List.of(item("4", "Tea")),
+                        "s100", List.of(item("5", "Sugar")))));
+
+        StoreRoutePlanner.Route route = routePlanner.plan("store-1",
+                List.of("Sugar", "butter", "Rice", "Tea", "Caviar", "Milk", "rice"), "entrance");
+
+        assertThat(route.stops()).extracting(StoreRoutePlanner.Stop::requested)
+                .containsExactly("Rice", "Milk", "butter", "Tea", "Sugar");
+        assertThat(route.stops()).extracting(StoreRoutePlanner.Stop::distance)
+                .containsExactly(25.0, 25.0, 0.0, 25.0, 25.0);
+        assertThat(route.totalDistance()).isEqualTo(100.0);
+        assertThat(route.notFound()).containsExactly("Caviar");
+    }
+
+    //2. Without a start the route begins at whichever end makes the walk shortest
+    @Test
+    void plan_NoStart_ShortestOpenPath() {
+        locationIndex.put(layout("store-1",
+                List.of(fixture("s0", 0, 0), fixture("s10", 10, 0), fixture("s60", 60, 0), fixture("s100", 100, 0)),
+                Map.of("s0", List.of(item("1", "Rice")), "s10", List.of(item("2", "Milk")),
+                        "s60", List.of(item("3", "Tea")), "s100", List.of(item("4", "Sugar")))));
+
+        StoreRoutePlanner.Route route = routePlanner.plan("store-1", List.of("Tea", "Rice", "Sugar", "Milk"), null);
+
+        List<String> fixtureIds = route.stops().stream().map(s -> s.location().fixtureId()).toList();
+        assertThat(fixtureIds).isIn(List.of("s0", "s10", "s60", "s100"), List.of("s100", "s60", "s10", "s0"));
+        assertThat(route.totalDistance()).isCloseTo(100.0, within(0.01));
+    }
+
+    //3. Walking distances go around shelves, and follow the layout when its fixtures move
+    @Test
+    void plan_WalksAroundShelves() {
+        FixtureEntity left = fixture("left", 10, 40, rect(10, 10));
+        FixtureEntity right = fixture("right", 80, 40, rect(10, 10));
+        Map<String, List<ItemEntity>> items = Map.of("left", List.of(item("1", "Rice")), "right", List.of(item("2", "Milk")));
+
+        locationIndex.put(layout("store-1", List.of(left, right, fixture("wall", 40, 0, rect(20, 80))), items));
+        long geometryVersion = locationIndex.layout("store-1").geometryVersion();
+        double aroundLongWall = routePlanner.plan("store-1", List.of("Rice", "Milk"), "left").totalDistance();
+        // Straight across is 70; the wall forces the walk out past one of its ends and back
+        assertThat(aroundLongWall).isGreaterThan(140.0);
+
+        // Restocking alone keeps the floor plan version
+        locationIndex.put(layout("store-1", List.of(left, right, fixture("wall", 40, 0, rect(20, 80))),
+                Map.of("left", List.of(item("1", "Rice"), item("3", "Tea")), "right", List.of(item("2", "Milk")))));
+        assertThat(locationIndex.layout("store-1").geometryVersion()).isEqualTo(geometryVersion);
+
+        locationIndex.put(layout("store-1", List.of(left, right, fixture("wall", 40, 60, rect(20, 20))), items));
+        assertThat(locationIndex.layout("store-1").geometryVersion()).isNotEqualTo(geometryVersion);
+        double underShortWall = routePlanner.plan("store-1", List.of("Rice", "Milk"), "left").totalDistance();
+        assertThat(underShortWall).isLessThan(aroundLongWall).isLessThan(100.0);
+    }
+
+    //4. An unknown layout is refused
+    @Test
+    void plan_UnknownLayout_Rejected() {
+        assertThatThrownBy(() -> routePlanner.plan("store-9", List.of("Rice"), null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("store-9");
+    }
+
+}
@@ -0,0 +1,116 @@
+package com.sb.productservice.benchmark;
+
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.service.CartPositionFrames;
+import com.sb.productservice.service.CartPositionTracker;
+import com.sb.productservice.service.WalkableArea;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cart position ingestion on a store of 400 shelves (rows of 40x10 with 10-unit aisles). Every cart walks its own
+ * aisle with sideways drift. ingest is the per-reading cost on the MQTT thread (topic lookup, parse, correct); at
+ * 20 Hz a node has 50 ms / carts per reading. tick is one publish frame of every cart (snapshot and encode).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CartPositionBenchmark {
+
+    private static final int SHELVES_PER_AISLE = 20;
+    private static final int STEPS = 64;
+    private static final long TICK = 50_000_000L;
+
+    @Param({"1000", "5000"})
+    private int carts;
+
+    private CartPositionTracker tracker;
+    private final Map<String, Integer> slotByTopic = new HashMap<>();
+    private String[] topics;
+    private String[] cartIds;
+    private byte[][] readings; // STEPS readings per cart, 50 ms apart
+    private final CartPositionTracker.Snapshot snapshot = new CartPositionTracker.Snapshot();
+    private final CartPositionFrames frames = new CartPositionFrames("store-1");
+    private long now;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Map<String, FixtureEntity> fixtures = new HashMap<>();
+        for (int i = 0; i < 400; i++) {
+            FixtureEntity fixture = new FixtureEntity();
+            fixture.setId("f" + i);
+            fixture.setX((i % SHELVES_PER_AISLE) * 50);
+            fixture.setY((i / SHELVES_PER_AISLE) * 20);
+            fixture.setPoints(List.of(0f, 0f, 40f, 0f, 40f, 10f, 0f, 10f));
+            fixtures.put(fixture.getId(), fixture);
+        }
+        tracker = new CartPositionTracker(10, 0, 15, 2, 1024, carts);
+        tracker.setArea(WalkableArea.build(fixtures, 1, 1000));
+
+        Random random = new Random(42);
+        topics = new String[carts];
+        cartIds = new String[carts];
+        readings = new byte[carts * STEPS][];
+        for (int cart = 0; cart < carts; cart++) {
+            topics[cart] = "smart_cart/position/cart" + cart;
+            cartIds[cart] = "cart" + cart;
+            slotByTopic.put(topics[cart], tracker.register(cartIds[cart]));
+            float startX = random.nextFloat() * 80, aisle = 2f * random.nextInt(20), drift = random.nextFloat() * 0.4f - 0.2f;
+            for (int step = 0; step < STEPS; step++) {
+                float t = step * 0.05f;
+                readings[cart * STEPS + step] = String.format("{\"x\":%.4f,\"y\":%.4f,\"z\":0.0000}",
+                        startX + t, aisle + drift * t).getBytes(StandardCharsets.UTF_8);
+            }
+        }
+        // One full round so every cart is placed and moving
+        for (int step = 0; step < STEPS; step++) {
+            for (int cart = 0; cart < carts; cart++) {
+                ingest(cart, step);
+            }
+        }
+    }
+
+    private void ingest(int cart, int step) {
+        Integer slot = slotByTopic.get(topics[cart]);
+        byte[] payload = readings[cart * STEPS + step];
+        float x = CartPositionFrames.coordinate(payload, 'x');
+        float y = CartPositionFrames.coordinate(payload, 'y');
+        now += TICK / carts;
+        tracker.update(slot, cartIds[cart], x, y, now);
+    }
+
+    @Benchmark
+    public void ingest() {
+        int i = next++;
+        ingest(i % carts, (i / carts) % STEPS);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public byte[] tick() {
+        tracker.snapshot(now, 5_000_000_000L, 250_000_000L, snapshot);
+        return frames.encode(tracker, snapshot, 1700000000000L);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(CartPositionBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
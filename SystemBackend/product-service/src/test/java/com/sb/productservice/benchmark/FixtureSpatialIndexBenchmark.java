@@ -0,0 +1,100 @@
+package com.sb.productservice.benchmark;
+
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.service.FixtureSpatialIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Proximity queries on a large store: rows of 40x10 shelves with 10-unit aisles between them. Query points are
+ * random positions on the floor. nearestFixture and within30 are per-request costs; build is the one-off cost after
+ * the floor plan changes; scanAll is the linear scan the index replaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FixtureSpatialIndexBenchmark {
+
+    private static final int SHELVES_PER_AISLE = 40;
+    private static final int POINTS = 1024;
+
+    @Param({"2000", "10000"})
+    private int fixtures;
+
+    private Map<String, FixtureEntity> fixtureLayout;
+    private FixtureSpatialIndex index;
+    private final float[] xs = new float[POINTS];
+    private final float[] ys = new float[POINTS];
+    private int next;
+
+    @Setup
+    public void setUp() {
+        fixtureLayout = new HashMap<>();
+        for (int i = 0; i < fixtures; i++) {
+            FixtureEntity fixture = new FixtureEntity();
+            fixture.setId("f" + i);
+            fixture.setX((i % SHELVES_PER_AISLE) * 50);
+            fixture.setY((i / SHELVES_PER_AISLE) * 20);
+            fixture.setPoints(List.of(0f, 0f, 40f, 0f, 40f, 10f, 0f, 10f));
+            fixtureLayout.put(fixture.getId(), fixture);
+        }
+        index = FixtureSpatialIndex.build(fixtureLayout, 1);
+
+        Random random = new Random(42);
+        float width = SHELVES_PER_AISLE * 50, depth = (fixtures / SHELVES_PER_AISLE) * 20f;
+        for (int i = 0; i < POINTS; i++) {
+            xs[i] = random.nextFloat() * width;
+            ys[i] = random.nextFloat() * depth;
+        }
+    }
+
+    @Benchmark
+    public List<FixtureSpatialIndex.Hit> nearestFixture() {
+        int i = next++ & (POINTS - 1);
+        return index.nearest(xs[i], ys[i], 1);
+    }
+
+    @Benchmark
+    public List<FixtureSpatialIndex.Hit> within30() {
+        int i = next++ & (POINTS - 1);
+        return index.within(xs[i], ys[i], 30);
+    }
+
+    @Benchmark
+    public float scanAll() {
+        int i = next++ & (POINTS - 1);
+        float best = Float.MAX_VALUE;
+        for (FixtureEntity fixture : fixtureLayout.values()) {
+            float dx = Math.max(Math.max(fixture.getX() - xs[i], xs[i] - fixture.getX() - 40), 0);
+            float dy = Math.max(Math.max(fixture.getY() - ys[i], ys[i] - fixture.getY() - 10), 0);
+            best = Math.min(best, dx * dx + dy * dy);
+        }
+        return best;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public FixtureSpatialIndex build() {
+        return FixtureSpatialIndex.build(fixtureLayout, 1);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(FixtureSpatialIndexBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
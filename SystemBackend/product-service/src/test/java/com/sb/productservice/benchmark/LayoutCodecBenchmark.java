@@ -0,0 +1,131 @@
+package com.sb.productservice.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.model.LayoutEntity;
+import com.sb.productservice.service.LayoutCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import software.amazon.awssdk.enhanced.dynamodb.TableSchema;
+import software.amazon.awssdk.services.dynamodb.model.AttributeValue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The current layout forms against the packed one: JSON as sent to the editor, the DynamoDB attribute map the
+ * enhanced client writes, and LayoutCodec. Each fixture is a 4x5 shelf grid holding two of 2000 products per cell.
+ * The sizes of the three forms are printed once per parameter before the measurements.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LayoutCodecBenchmark {
+
+    private static final TableSchema<LayoutEntity> SCHEMA = TableSchema.fromBean(LayoutEntity.class);
+
+    @Param({"100", "500"})
+    private int fixtures;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private LayoutEntity layout;
+    private byte[] json;
+    private Map<String, AttributeValue> document;
+    private byte[] packed;
+
+    @Setup
+    public void setUp() throws Exception {
+        layout = new LayoutEntity();
+        layout.setLayoutId("store-1");
+        layout.setVersion(1L);
+        Map<String, FixtureEntity> fixtureLayout = new HashMap<>();
+        Map<String, List<List<List<ItemEntity>>>> itemMap = new HashMap<>();
+        for (int f = 0; f < fixtures; f++) {
+            FixtureEntity fixture = new FixtureEntity();
+            fixture.setId("fixture-" + f);
+            fixture.setName("Shelf " + f);
+            fixture.setColor("#8fbc8f");
+            fixture.setX((f % 40) * 50);
+            fixture.setY((f / 40) * 20);
+            fixture.setPoints(List.of(0f, 0f, 40f, 0f, 40f, 10f, 0f, 10f));
+            fixtureLayout.put(fixture.getId(), fixture);
+
+            List<List<List<ItemEntity>>> rows = new ArrayList<>();
+            for (int row = 0; row < 4; row++) {
+                List<List<ItemEntity>> cols = new ArrayList<>();
+                for (int col = 0; col < 5; col++) {
+                    List<ItemEntity> cell = new ArrayList<>();
+                    for (int index = 0; index < 2; index++) {
+                        int product = (f * 40 + row * 10 + col * 2 + index) % 2000;
+                        ItemEntity item = new ItemEntity();
+                        item.setId(String.valueOf(4790000000000L + product));
+                        item.setName("Product " + product);
+                        item.setRow(row);
+                        item.setCol(col);
+                        item.setIndex(index);
+                        cell.add(item);
+                    }
+                    cols.add(cell);
+                }
+                rows.add(cols);
+            }
+            itemMap.put(fixture.getId(), rows);
+        }
+        layout.setFixtureLayout(fixtureLayout);
+        layout.setItemMap(itemMap);
+
+        json = objectMapper.writeValueAsBytes(layout);
+        document = SCHEMA.itemToMap(layout, true);
+        packed = LayoutCodec.encode(layout);
+        System.out.printf("%n%d fixtures: JSON %d bytes, DynamoDB item %d bytes, packed %d bytes%n",
+                fixtures, json.length, LayoutCodec.itemSize(document), packed.length);
+    }
+
+    @Benchmark
+    public byte[] jsonEncode() throws Exception {
+        return objectMapper.writeValueAsBytes(layout);
+    }
+
+    @Benchmark
+    public LayoutEntity jsonDecode() throws Exception {
+        return objectMapper.readValue(json, LayoutEntity.class);
+    }
+
+    @Benchmark
+    public Map<String, AttributeValue> documentEncode() {
+        return SCHEMA.itemToMap(layout, true);
+    }
+
+    @Benchmark
+    public LayoutEntity documentDecode() {
+        return SCHEMA.mapToItem(document);
+    }
+
+    @Benchmark
+    public byte[] packedEncode() {
+        return LayoutCodec.encode(layout);
+    }
+
+    @Benchmark
+    public LayoutEntity packedDecode() {
+        return LayoutCodec.decode(packed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(LayoutCodecBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.sb.productservice.benchmark;
+
+import com.sb.productservice.model.Products;
+import com.sb.productservice.service.ProductCatalog;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Catalog lookups against the previous findAll()-and-filter scans, at 100k products.
+ * The scans run over an in-memory list, so they leave out the database round trip and entity hydration that
+ * findAll() also paid for; the real gap is larger. put() shows what one copy-on-write update costs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductCatalogBenchmark {
+
+    @Param({"100000"})
+    private int products;
+
+    private List<Products> table;
+    private ProductCatalog catalog;
+
+    @Setup
+    public void setUp() {
+        table = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            Products product = new Products();
+            product.setBarcode(String.valueOf(4790000000000L + i));
+            product.setProductName("Product " + i);
+            product.setProductDescription("Description " + i);
+            product.setProductPrice(100.0 + i % 900);
+            product.setProductQuantity(10);
+            product.setProductCategory("Category" + i % 50);
+            product.setProductBrand("Brand" + i % 500);
+            product.setProductWeight(1.0);
+            product.setAddedDate(LocalDateTime.now());
+            table.add(product);
+        }
+
+        catalog = new ProductCatalog(null);
+        catalog.replaceAll(table.stream().map(ProductCatalog.Entry::of).toList());
+    }
+
+    private String randomBarcode() {
+        return String.valueOf(4790000000000L + ThreadLocalRandom.current().nextInt(products));
+    }
+
+    @Benchmark
+    public Products scanByBarcode() {
+        String barcode = randomBarcode();
+        return table.stream().filter(p -> p.getBarcode().equals(barcode)).findFirst().orElse(null);
+    }
+
+    @Benchmark
+    public ProductCatalog.Entry catalogByBarcode() {
+        return catalog.findByBarcode(randomBarcode());
+    }
+
+    @Benchmark
+    public List<Products> scanByCategory() {
+        return table.stream().filter(p -> p.getProductCategory().equalsIgnoreCase("category7")).toList();
+    }
+
+    @Benchmark
+    public List<ProductCatalog.Entry> catalogByCategory() {
+        return catalog.findByCategory("category7");
+    }
+
+    @Benchmark
+    public List<Products> scanByBrand() {
+        return table.stream().filter(p -> p.getProductBrand().equalsIgnoreCase("brand42")).toList();
+    }
+
+    @Benchmark
+    public List<ProductCatalog.Entry> catalogByBrand() {
+        return catalog.findByBrand("brand42");
+    }
+
+    @Benchmark
+    public void catalogPut() {
+        Products product = table.get(ThreadLocalRandom.current().nextInt(products));
+        catalog.put(ProductCatalog.Entry.of(product));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ProductCatalogBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,112 @@
+package com.sb.productservice.benchmark;
+
+import com.sb.productservice.service.ProductCatalog;
+import com.sb.productservice.service.ProductSearchIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Search latency at 100k products: prefix, multi-word and typo queries against the index, next to the
+ * filter-everything scan a client does today after downloading the catalog. put() shows the cost of
+ * re-indexing one product after an update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSearchBenchmark {
+
+    private static final String[] WORDS = {"rice", "basmati", "samba", "nadu", "flour", "wheat", "milk", "powder",
+            "butter", "cheese", "yoghurt", "curd", "tea", "coffee", "sugar", "salt", "pepper", "chilli", "curry",
+            "biscuit", "cracker", "cream", "chocolate", "noodles", "pasta", "soap", "shampoo", "detergent", "tissue",
+            "juice", "cordial", "water", "soda", "lentils", "dhal", "chickpea", "coconut", "oil", "vinegar", "sauce",
+            "ketchup", "jam", "honey", "bread", "bun", "sausage", "chicken", "fish", "prawn", "egg"};
+    private static final String[] SIZES = {"100g", "250g", "400g", "500g", "1kg", "2kg", "5kg", "500ml", "1l"};
+
+    @Param({"100000"})
+    private int products;
+
+    private List<ProductCatalog.Entry> entries;
+    private ProductSearchIndex index;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        entries = new ArrayList<>(products);
+        for (int i = 0; i < products; i++) {
+            String name = capitalize(WORDS[random.nextInt(WORDS.length)]) + " " + capitalize(WORDS[random.nextInt(WORDS.length)])
+                    + " " + SIZES[random.nextInt(SIZES.length)] + " V" + i;
+            String description = WORDS[random.nextInt(WORDS.length)] + " " + WORDS[random.nextInt(WORDS.length)]
+                    + " " + WORDS[random.nextInt(WORDS.length)] + " for everyday use";
+            entries.add(new ProductCatalog.Entry(String.valueOf(4790000000000L + i), name, description, 100.0 + i % 900,
+                    10, "Category" + i % 50, "Brand" + i % 500, 1.0, null, null, null));
+        }
+
+        ProductCatalog catalog = new ProductCatalog(null);
+        catalog.replaceAll(entries);
+        index = new ProductSearchIndex(catalog);
+        index.rebuild();
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    @Benchmark
+    public List<ProductCatalog.Entry> prefix() {
+        return index.search("basm", 20);
+    }
+
+    @Benchmark
+    public List<ProductCatalog.Entry> twoWords() {
+        return index.search("basmati ric", 20);
+    }
+
+    @Benchmark
+    public List<ProductCatalog.Entry> typo() {
+        return index.search("chocolte", 20);
+    }
+
+    @Benchmark
+    public List<ProductCatalog.Entry> wordAndBrand() {
+        return index.search("milk brand42", 20);
+    }
+
+    @Benchmark
+    public List<ProductCatalog.Entry> scanContains() {
+        String query = "basm";
+        List<ProductCatalog.Entry> result = new ArrayList<>();
+        for (ProductCatalog.Entry entry : entries) {
+            if (entry.productName().toLowerCase(Locale.ROOT).contains(query)
+                    || entry.productDescription().toLowerCase(Locale.ROOT).contains(query)) {
+                result.add(entry);
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public void put() {
+        index.put(entries.get(ThreadLocalRandom.current().nextInt(products)));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(ProductSearchBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.sb.productservice.benchmark;
+
+import com.sb.productservice.dto.FixtureEntity;
+import com.sb.productservice.dto.ItemEntity;
+import com.sb.productservice.model.LayoutEntity;
+import com.sb.productservice.service.AisleGraph;
+import com.sb.productservice.service.ProductLocationIndex;
+import com.sb.productservice.service.StoreRoutePlanner;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Route planning on a large store: rows of 40x10 shelves with 10-unit aisles between them, one item per shelf.
+ * plan50Items is the per-request cost once the layout's aisle graph exists; buildGraph is the one-off cost paid
+ * on the first route after the floor plan changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StoreRoutePlannerBenchmark {
+
+    private static final int SHELVES_PER_AISLE = 40;
+    private static final int LISTS = 64;
+
+    @Param({"500", "2000"})
+    private int fixtures;
+
+    private ProductLocationIndex locationIndex;
+    private StoreRoutePlanner routePlanner;
+    private final List<List<String>> shoppingLists = new ArrayList<>();
+    private int next;
+
+    @Setup
+    public void setUp() {
+        LayoutEntity layout = new LayoutEntity();
+        layout.setLayoutId("store-1");
+        Map<String, FixtureEntity> fixtureLayout = new HashMap<>();
+        Map<String, List<List<List<ItemEntity>>>> itemMap = new HashMap<>();
+        for (int i = 0; i < fixtures; i++) {
+            FixtureEntity fixture = new FixtureEntity();
+            fixture.setId("f" + i);
+            fixture.setName("Shelf " + i);
+            fixture.setX((i % SHELVES_PER_AISLE) * 50);
+            fixture.setY((i / SHELVES_PER_AISLE) * 20);
+            fixture.setPoints(List.of(0f, 0f, 40f, 0f, 40f, 10f, 0f, 10f));
+            fixtureLayout.put(fixture.getId(), fixture);
+
+            ItemEntity item = new ItemEntity();
+            item.setId(String.valueOf(4790000000000L + i));
+            item.setName("Product " + i);
+            itemMap.put(fixture.getId(), List.of(List.of(List.of(item))));
+        }
+        layout.setFixtureLayout(fixtureLayout);
+        layout.setItemMap(itemMap);
+
+        locationIndex = new ProductLocationIndex();
+        locationIndex.put(layout);
+        routePlanner = new StoreRoutePlanner(locationIndex);
+        ReflectionTestUtils.setField(routePlanner, "gridResolution", 200);
+
+        Random random = new Random(42);
+        for (int l = 0; l < LISTS; l++) {
+            List<String> list = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                list.add("Product " + random.nextInt(fixtures));
+            }
+            shoppingLists.add(list);
+        }
+        routePlanner.plan("store-1", shoppingLists.get(0), "f0");
+    }
+
+    @Benchmark
+    public StoreRoutePlanner.Route plan50Items() {
+        return routePlanner.plan("store-1", shoppingLists.get(next++ & (LISTS - 1)), "f0");
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public AisleGraph buildGraph() {
+        ProductLocationIndex.LayoutLocations layout = locationIndex.layout("store-1");
+        return AisleGraph.build(layout.fixtures(), layout.geometryVersion(), 200);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new OptionsBuilder()
+                .include(StoreRoutePlannerBenchmark.class.getSimpleName())
+                .addProfiler("gc")
+                .build();
+        new Runner(options).run();
+    }
+
+}
@@ -39,11 +39,12 @@ public class ShoppingListController {
         return ResponseEntity.ok(response);
     }
 
-    // GET /shopping-list/items
+    // GET /shopping-list/items?layoutId=...&startFixtureId=...  (walking order when a store layout is given)
     @GetMapping("/items")
-    public ResponseEntity<List<GetShoppingItemsDTO>> getItems() {
+    public ResponseEntity<List<GetShoppingItemsDTO>> getItems(@RequestParam(required = false) String layoutId,
+                                                              @RequestParam(required = false) String startFixtureId) {
         log.info("📦 API call to get all shopping items for user");
-        List<GetShoppingItemsDTO> items = shoppingListService.getItems();
+        List<GetShoppingItemsDTO> items = shoppingListService.getItems(layoutId, startFixtureId);
         return ResponseEntity.ok(items);
     }
 
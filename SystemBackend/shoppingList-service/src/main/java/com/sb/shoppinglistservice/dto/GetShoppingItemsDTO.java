@@ -8,6 +8,14 @@ public class GetShoppingItemsDTO {
 
     private Double weight;
 
+    // Where the item is in the store; set only when the list was ordered for a layout
+    private String fixtureId;
+
+    private String fixtureName;
+
+    private Integer shelfNumber;
+
+    private Integer rowNumber;
 
     public String getItemName() {
         return itemName;
@@ -33,4 +41,36 @@ public class GetShoppingItemsDTO {
         this.weight = weight;
     }
 
+    public String getFixtureId() {
+        return fixtureId;
+    }
+
+    public void setFixtureId(String fixtureId) {
+        this.fixtureId = fixtureId;
+    }
+
+    public String getFixtureName() {
+        return fixtureName;
+    }
+
+    public void setFixtureName(String fixtureName) {
+        this.fixtureName = fixtureName;
+    }
+
+    public Integer getShelfNumber() {
+        return shelfNumber;
+    }
+
+    public void setShelfNumber(Integer shelfNumber) {
+        this.shelfNumber = shelfNumber;
+    }
+
+    public Integer getRowNumber() {
+        return rowNumber;
+    }
+
+    public void setRowNumber(Integer rowNumber) {
+        this.rowNumber = rowNumber;
+    }
+
 }
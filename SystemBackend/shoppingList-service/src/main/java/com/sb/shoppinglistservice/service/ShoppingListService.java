@@ -11,7 +11,7 @@ public interface ShoppingListService {
 
     String updateItem(ShoppingItemDTO itemDTO);
 
-    List<GetShoppingItemsDTO> getItems();
+    List<GetShoppingItemsDTO> getItems(String layoutId, String startFixtureId);
 
     void deleteItem(String itemId);
 
@@ -1,21 +1,30 @@
 package com.sb.shoppinglistservice.service;
 
-import com.sb.customerservice.grpc.GetUsernameRequest;
-import com.sb.customerservice.grpc.GetUsernameResponse;
-import com.sb.customerservice.grpc.UserInfoServiceGrpc;
+import com.sb.shoppinglistservice.config.JwtPrincipalResolver;
 import com.sb.shoppinglistservice.dto.GetShoppingItemsDTO;
 import com.sb.shoppinglistservice.dto.ShoppingItemDTO;
+import com.sb.productservice.grpc.ProductLocation;
+import com.sb.productservice.grpc.ProductServiceGrpc;
+import com.sb.productservice.grpc.RouteRequest;
+import com.sb.productservice.grpc.RouteResponse;
+import com.sb.productservice.grpc.RouteStop;
 import com.sb.shoppinglistservice.model.ShoppingItem;
 import com.sb.shoppinglistservice.repository.ShoppingItemRepository;
-import jakarta.servlet.http.HttpServletRequest;
 import net.devh.boot.grpc.client.inject.GrpcClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Service
 public class ShoppingListServiceImpl implements ShoppingListService {
@@ -24,49 +33,32 @@ public class ShoppingListServiceImpl implements ShoppingListService {
 
     private final ShoppingItemRepository shoppingItemRepository;
 
-    private final HttpServletRequest request;
+    private final JwtPrincipalResolver principalResolver;
 
-    public ShoppingListServiceImpl(ShoppingItemRepository shoppingItemRepository,
-                                   HttpServletRequest request) {
-        this.shoppingItemRepository = shoppingItemRepository;
-        this.request = request;
-    }
+    private final TransactionTemplate readOnlyTransaction;
 
-    @GrpcClient("customer-service")
-    private UserInfoServiceGrpc.UserInfoServiceBlockingStub userInfoStub;
+    @GrpcClient("product-service")
+    private ProductServiceGrpc.ProductServiceBlockingStub productServiceStub;
 
+    @Value("${shopping-list.route.timeout-ms:1000}")
+    private long routeTimeoutMs;
 
-    /** Helper to extract username from JWT in Authorization header. */
-    private String extractUsernameFromRequest() {
-        String authHeader = request.getHeader("Authorization");
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            log.error("❌ Missing or invalid Authorization header");
-            throw new SecurityException("Missing or invalid Authorization header");
-        }
-        String jwt = authHeader.substring(7);
-        try {
-            GetUsernameRequest grpcRequest = GetUsernameRequest.newBuilder().setJwt(jwt).build();
-            GetUsernameResponse grpcResponse = userInfoStub.getUsername(grpcRequest);
-            String username = grpcResponse.getUsername();
-            if (username.isEmpty()) {
-                log.error("❌ Username extraction failed via gRPC for JWT: {}", jwt);
-                throw new SecurityException("Unable to extract username from JWT");
-            }
-            return username;
-        } catch (Exception e) {
-            log.error("❌ gRPC call failed while extracting username: {}", e.getMessage(), e);
-            throw new SecurityException("Error extracting username from JWT via gRPC", e);
-        }
+    public ShoppingListServiceImpl(ShoppingItemRepository shoppingItemRepository,
+                                   JwtPrincipalResolver principalResolver,
+                                   TransactionTemplate transactionTemplate) {
+        this.shoppingItemRepository = shoppingItemRepository;
+        this.principalResolver = principalResolver;
+        this.readOnlyTransaction = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+        this.readOnlyTransaction.setReadOnly(true);
     }
 
-
     @Override
     @Transactional
     public String addItem(ShoppingItemDTO itemDTO) {
 
         log.info("🛒 Adding shopping item: {}", itemDTO.getItemName());
 
-        String username = extractUsernameFromRequest();
+        String username = principalResolver.resolveUsername();
 
         try {
             ShoppingItem item = new ShoppingItem();
@@ -93,7 +85,7 @@ public class ShoppingListServiceImpl implements ShoppingListService {
 
         log.info("✏️ Attempting to update item with ID: {}", itemDTO.getId());
 
-        String username = extractUsernameFromRequest();
+        String username = principalResolver.resolveUsername();
 
         try {
             ShoppingItem item = shoppingItemRepository.findById(itemDTO.getId())
@@ -146,15 +138,15 @@ public class ShoppingListServiceImpl implements ShoppingListService {
 //    }
 
 
+    // Not @Transactional: the rows are read in a short read-only transaction, and the route is planned after it
+    // ends so a slow product-service does not hold a database connection for up to the route deadline
     @Override
-    @Transactional(readOnly = true)
-    public List<GetShoppingItemsDTO> getItems() {
-        String username = extractUsernameFromRequest();
+    public List<GetShoppingItemsDTO> getItems(String layoutId, String startFixtureId) {
+        String username = principalResolver.resolveUsername();
         log.info("📥 Fetching shopping items for user: {}", username);
 
         try {
-            // Fetch and sort for most efficient in-store path
-            List<GetShoppingItemsDTO> dtoList = shoppingItemRepository.findAll().stream()
+            List<GetShoppingItemsDTO> dtoList = readOnlyTransaction.execute(status -> shoppingItemRepository.findAll().stream()
                     .filter(item -> item.getUsername().equals(username))
                     .map(item -> {
                         GetShoppingItemsDTO dto = new GetShoppingItemsDTO();
@@ -163,10 +155,15 @@ public class ShoppingListServiceImpl implements ShoppingListService {
                         dto.setWeight(item.getWeight());
                         return dto;
                     })
-                    .toList();
+                    .toList());
 
-            log.info("✅ Found {} item(s) for user {} (efficient path order)", dtoList.size(), username);
-            return dtoList;
+            if (layoutId == null || layoutId.isBlank() || dtoList.isEmpty()) {
+                log.info("✅ Found {} item(s) for user {}", dtoList.size(), username);
+                return dtoList;
+            }
+            List<GetShoppingItemsDTO> ordered = orderForWalk(dtoList, layoutId, startFixtureId);
+            log.info("✅ Found {} item(s) for user {} (efficient path order)", ordered.size(), username);
+            return ordered;
         } catch (Exception e) {
             log.error("❌ Failed to fetch items for user {}: {}", username, e.getMessage(), e);
             throw new RuntimeException("Failed to fetch shopping items", e);
@@ -174,10 +171,61 @@ public class ShoppingListServiceImpl implements ShoppingListService {
     }
 
 
+    /**
+     * Puts the items in walking order through the store, as planned by product-service from the layout, and fills in
+     * where each one is. Items the store does not stock go last. If the route cannot be planned the list is returned
+     * as it was, so the shopper still gets it.
+     */
+    private List<GetShoppingItemsDTO> orderForWalk(List<GetShoppingItemsDTO> items, String layoutId, String startFixtureId) {
+        RouteResponse route;
+        try {
+            RouteRequest.Builder request = RouteRequest.newBuilder().setLayoutId(layoutId);
+            items.forEach(item -> request.addItemNames(item.getItemName()));
+            if (startFixtureId != null) {
+                request.setStartFixtureId(startFixtureId);
+            }
+            route = productServiceStub.withDeadlineAfter(routeTimeoutMs, TimeUnit.MILLISECONDS).planRoute(request.build());
+        } catch (Exception e) {
+            log.warn("⚠️ Could not plan a route through layout {}, keeping list order: {}", layoutId, e.getMessage());
+            return items;
+        }
+
+        Map<String, List<GetShoppingItemsDTO>> byName = new HashMap<>();
+        for (GetShoppingItemsDTO item : items) {
+            byName.computeIfAbsent(key(item.getItemName()), k -> new ArrayList<>()).add(item);
+        }
+        List<GetShoppingItemsDTO> ordered = new ArrayList<>(items.size());
+        for (RouteStop stop : route.getStopsList()) {
+            List<GetShoppingItemsDTO> matches = byName.remove(key(stop.getRequested()));
+            if (matches == null) {
+                continue;
+            }
+            ProductLocation location = stop.getLocation();
+            for (GetShoppingItemsDTO item : matches) {
+                item.setFixtureId(location.getFixtureId());
+                item.setFixtureName(location.getFixtureName());
+                item.setShelfNumber(location.getRow());
+                item.setRowNumber(location.getCol());
+                ordered.add(item);
+            }
+        }
+        // Whatever the route left out, in list order
+        for (GetShoppingItemsDTO item : items) {
+            if (byName.containsKey(key(item.getItemName()))) {
+                ordered.add(item);
+            }
+        }
+        return ordered;
+    }
+
+    private static String key(String itemName) {
+        return itemName == null ? "" : itemName.trim().toLowerCase(Locale.ROOT);
+    }
+
     @Override
     @Transactional
     public void deleteItem(String itemName) {
-        String username = extractUsernameFromRequest();
+        String username = principalResolver.resolveUsername();
         log.info("🗑️ Attempting to delete item with ID {} for user {}", itemName, username);
 
         try {
@@ -207,7 +255,7 @@ public class ShoppingListServiceImpl implements ShoppingListService {
     @Override
     @Transactional
     public void deleteAllItems() {
-        String username = extractUsernameFromRequest();
+        String username = principalResolver.resolveUsername();
         log.info("🧹 Attempting to delete all items for user: {}", username);
 
         try {
@@ -0,0 +1,105 @@
+package com.sb.shoppinglistservice;
+
+import com.sb.shoppinglistservice.config.JwtPrincipalResolver;
+import com.sb.customerservice.grpc.GetUsernameRequest;
+import com.sb.customerservice.grpc.GetUsernameResponse;
+import com.sb.customerservice.grpc.UserInfoServiceGrpc;
+import io.grpc.Deadline;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.io.Encoders;
+import io.jsonwebtoken.security.Keys;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.time.Duration;
+import java.util.Date;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class JwtPrincipalResolverTest {
+
+    @Mock
+    private UserInfoServiceGrpc.UserInfoServiceBlockingStub userInfoStub;
+
+    private final SecretKey key = Jwts.SIG.HS256.key().build();
+
+    private MockHttpServletRequest request;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        request = new MockHttpServletRequest();
+    }
+
+    private JwtPrincipalResolver resolver(String secret) {
+        JwtPrincipalResolver resolver = new JwtPrincipalResolver(request, secret, 100, Duration.ofSeconds(1));
+        ReflectionTestUtils.setField(resolver, "userInfoStub", userInfoStub);
+        return resolver;
+    }
+
+    private String token(SecretKey signingKey, String subject, long ttlMillis) {
+        return Jwts.builder()
+                .subject(subject)
+                .issuedAt(new Date())
+                .expiration(new Date(System.currentTimeMillis() + ttlMillis))
+                .signWith(signingKey)
+                .compact();
+    }
+
+    //1. A valid token is verified locally without calling customer-service
+    @Test
+    void resolveUsername_ValidToken_VerifiedLocally() {
+        request.addHeader("Authorization", "Bearer " + token(key, "alice", 60_000));
+        JwtPrincipalResolver resolver = resolver(Encoders.BASE64.encode(key.getEncoded()));
+
+        assertThat(resolver.resolveUsername()).isEqualTo("alice");
+        assertThat(resolver.resolveUsername()).isEqualTo("alice");
+        verifyNoInteractions(userInfoStub);
+    }
+
+    //2. Tokens signed with another key are rejected
+    @Test
+    void resolveUsername_ForeignSignature_ThrowsSecurityException() {
+        SecretKey otherKey = Jwts.SIG.HS256.key().build();
+        request.addHeader("Authorization", "Bearer " + token(otherKey, "mallory", 60_000));
+        JwtPrincipalResolver resolver = resolver(Encoders.BASE64.encode(key.getEncoded()));
+
+        assertThrows(SecurityException.class, resolver::resolveUsername);
+    }
+
+    //3. Expired tokens are rejected
+    @Test
+    void resolveUsername_ExpiredToken_ThrowsSecurityException() {
+        request.addHeader("Authorization", "Bearer " + token(key, "alice", -1_000));
+        JwtPrincipalResolver resolver = resolver(Encoders.BASE64.encode(key.getEncoded()));
+
+        assertThrows(SecurityException.class, resolver::resolveUsername);
+    }
+
+    //4. Without a configured key the username comes from customer-service
+    @Test
+    void resolveUsername_NoSigningKey_FallsBackToGrpc() {
+        request.addHeader("Authorization", "Bearer " + token(Keys.hmacShaKeyFor(key.getEncoded()), "bob", 60_000));
+        when(userInfoStub.withDeadline(any(Deadline.class))).thenReturn(userInfoStub);
+        when(userInfoStub.getUsername(any(GetUsernameRequest.class)))
+                .thenReturn(GetUsernameResponse.newBuilder().setUsername("bob").build());
+
+        assertThat(resolver("").resolveUsername()).isEqualTo("bob");
+        verify(userInfoStub).getUsername(any(GetUsernameRequest.class));
+    }
+
+    //5. Missing Authorization header is rejected
+    @Test
+    void resolveUsername_MissingHeader_ThrowsSecurityException() {
+        assertThrows(SecurityException.class, () -> resolver("").resolveUsername());
+    }
+
+}
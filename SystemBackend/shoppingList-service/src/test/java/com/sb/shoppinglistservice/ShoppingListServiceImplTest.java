@@ -0,0 +1,104 @@
+package com.sb.shoppinglistservice;
+
+import com.sb.productservice.grpc.ProductLocation;
+import com.sb.productservice.grpc.ProductServiceGrpc;
+import com.sb.productservice.grpc.RouteRequest;
+import com.sb.productservice.grpc.RouteResponse;
+import com.sb.productservice.grpc.RouteStop;
+import com.sb.shoppinglistservice.config.JwtPrincipalResolver;
+import com.sb.shoppinglistservice.dto.GetShoppingItemsDTO;
+import com.sb.shoppinglistservice.model.ShoppingItem;
+import com.sb.shoppinglistservice.repository.ShoppingItemRepository;
+import com.sb.shoppinglistservice.service.ShoppingListServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+public class ShoppingListServiceImplTest {
+
+    @Mock
+    private ShoppingItemRepository shoppingItemRepository;
+
+    @Mock
+    private JwtPrincipalResolver principalResolver;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    @Mock
+    private ProductServiceGrpc.ProductServiceBlockingStub productServiceStub;
+
+    private ShoppingListServiceImpl shoppingListService;
+
+    private final AtomicBoolean inTransaction = new AtomicBoolean();
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        when(principalResolver.resolveUsername()).thenReturn("alice");
+        when(transactionManager.getTransaction(any(TransactionDefinition.class))).thenAnswer(invocation -> {
+            assertThat(invocation.getArgument(0, TransactionDefinition.class).isReadOnly()).isTrue();
+            inTransaction.set(true);
+            return new SimpleTransactionStatus();
+        });
+        doAnswer(invocation -> {
+            inTransaction.set(false);
+            return null;
+        }).when(transactionManager).commit(any());
+        when(productServiceStub.withDeadlineAfter(anyLong(), any(TimeUnit.class))).thenReturn(productServiceStub);
+
+        shoppingListService = new ShoppingListServiceImpl(shoppingItemRepository, principalResolver,
+                new TransactionTemplate(transactionManager));
+        ReflectionTestUtils.setField(shoppingListService, "productServiceStub", productServiceStub);
+        ReflectionTestUtils.setField(shoppingListService, "routeTimeoutMs", 1000L);
+    }
+
+    private static ShoppingItem item(String username, String itemName) {
+        ShoppingItem item = new ShoppingItem();
+        item.setUsername(username);
+        item.setItemName(itemName);
+        item.setQuantity(1);
+        return item;
+    }
+
+    private static RouteStop stop(String requested, String fixtureId) {
+        return RouteStop.newBuilder().setRequested(requested)
+                .setLocation(ProductLocation.newBuilder().setFixtureId(fixtureId)).build();
+    }
+
+    //1. The rows are read inside a read-only transaction and the route is planned only after it has ended
+    @Test
+    void getItems_RoutePlannedOutsideTransaction() {
+        when(shoppingItemRepository.findAll()).thenAnswer(invocation -> {
+            assertThat(inTransaction).isTrue();
+            return List.of(item("alice", "Milk"), item("bob", "Eggs"), item("alice", "Rice"));
+        });
+        when(productServiceStub.planRoute(any(RouteRequest.class))).thenAnswer(invocation -> {
+            assertThat(inTransaction).isFalse();
+            return RouteResponse.newBuilder().addStops(stop("Rice", "shelf-a")).addStops(stop("Milk", "fridge-1")).build();
+        });
+
+        List<GetShoppingItemsDTO> items = shoppingListService.getItems("store-1", null);
+
+        assertThat(items).extracting(GetShoppingItemsDTO::getItemName).containsExactly("Rice", "Milk");
+        assertThat(items).extracting(GetShoppingItemsDTO::getFixtureId).containsExactly("shelf-a", "fridge-1");
+        verify(transactionManager).commit(any());
+        verify(productServiceStub).planRoute(any(RouteRequest.class));
+    }
+
+}